@@ -0,0 +1,82 @@
+package com.kuzmich.schoolbot.generator.arithmetic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kuzmich.schoolbot.generator.Task;
+
+/**
+ * Сравнение ядра отбора: прежнее ({@link LegacyRelaxationKernel}) и примитивное
+ * ({@link ArithmeticGenerationUtils#generateWithRelaxation(CandidateDomain, int, java.util.random.RandomGenerator, Function)}).
+ * Домен сложения в пределах {@code rangeMax} строится один раз в {@link #setUp()}, измеряется только отбор.
+ * <p>
+ * Запуск — см. {@code benchmarks/README.md}; только этот класс с профилем аллокаций:
+ * {@code java -jar benchmarks/target/benchmarks.jar RelaxationKernel -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RelaxationKernelBenchmark {
+
+    private static final Function<ArithmeticGenerationUtils.Candidate, Task> TO_TASK =
+            c -> new Task("", String.valueOf(c.answer()));
+
+    @Param({"10", "20", "30", "50"})
+    public int quantity;
+
+    @Param({"10", "20", "100", "500"})
+    public int rangeMax;
+
+    private List<ArithmeticGenerationUtils.Candidate> candidates;
+    private List<Predicate<ArithmeticGenerationUtils.Candidate>> levels;
+    private CandidateDomain domain;
+
+    @Setup
+    public void setUp() {
+        candidates = new ArrayList<>();
+        for (int a = 0; a <= rangeMax; a++) {
+            for (int b = 0; b <= rangeMax - a; b++) {
+                candidates.add(new ArithmeticGenerationUtils.Candidate(a, b, a + b, a + "+" + b));
+            }
+        }
+        levels = List.of(
+                c -> c.a() >= 2 && c.b() >= 2 && c.answer() >= 2,
+                c -> c.a() >= 2 && c.b() >= 2 && c.answer() >= 1,
+                c -> c.a() >= 2 && c.b() >= 1 && c.answer() >= 1,
+                c -> c.a() >= 2 && c.answer() >= 1,
+                c -> c.answer() >= 0
+        );
+        domain = CandidateDomain.of(candidates, levels);
+    }
+
+    @Benchmark
+    public List<Task> legacyKernel() {
+        return LegacyRelaxationKernel.generateWithRelaxation(
+                candidates, quantity, levels, ThreadLocalRandom.current(), TO_TASK);
+    }
+
+    @Benchmark
+    public List<Task> primitiveKernel() {
+        return ArithmeticGenerationUtils.generateWithRelaxation(
+                domain, quantity, ThreadLocalRandom.current(), TO_TASK);
+    }
+}
@@ -0,0 +1,113 @@
+package com.kuzmich.schoolbot.generator.pdf;
+
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.generator.Task;
+import com.kuzmich.schoolbot.generator.service.BenchmarkFixtures;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Раскладка страницы: расчёт сетки {@link PdfLayoutParams#forTaskCount} и отрисовка страницы заданий
+ * {@link PDFLayoutService#addTasksPage}. Страница рисуется в новый документ шрифтом
+ * {@link PdfFontProvider#worksheetFont}, как в приложении: TTF разобран один раз в {@link #setUp}, в замер входит
+ * встраивание шрифта в документ, но не сохранение документа (оно — в {@link PdfServiceBenchmark}).
+ * Helvetica не годится: заголовок и «Дата:» — кириллица, и каждая страница уходила бы в ASCII-замену
+ * с предупреждением в лог.
+ * <p>
+ * {@link #measuredLayout} — раскладка по ширине заданий: ширины из {@link GlyphAdvances} и запомненный план
+ * {@link PdfLayoutParams#plan}; {@link #stringWidthLayout} — тот же план, но ширины через
+ * {@link PDFont#getStringWidth} шрифта документа, как было бы без {@link GlyphAdvances}.
+ * {@link #measuredTasksPage} — та же страница, что {@link #addTasksPage}, но с подбором колонок и кегля по ширине.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PdfLayoutBenchmark {
+
+    private static final String TITLE = "Сложение до 10";
+
+    @Param({"10", "20", "30", "50"})
+    public int quantity;
+
+    private final PDFLayoutService layoutService = new PDFLayoutService();
+    private final LocalDate date = LocalDate.of(2026, 9, 1);
+    private PdfFontProvider fontProvider;
+    private List<Task> tasks;
+    /** Документ и его шрифт для {@link #stringWidthLayout}: встраивание шрифта в замер не входит. */
+    private PDDocument widthDocument;
+    private PDFont widthFont;
+
+    @Setup
+    public void setUp() throws IOException {
+        fontProvider = BenchmarkFixtures.fontProvider();
+        tasks = BenchmarkFixtures.tasks(BenchmarkFixtures.generatorFactory(), OperationType.ADDITION_10, quantity);
+        widthDocument = new PDDocument();
+        widthFont = fontProvider.worksheetFont(widthDocument);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        widthDocument.close();
+    }
+
+    @Benchmark
+    public PdfLayoutParams forTaskCount() {
+        return PdfLayoutParams.forTaskCount(quantity, PDRectangle.A4.getWidth(), PDRectangle.A4.getHeight());
+    }
+
+    @Benchmark
+    public PdfLayoutParams measuredLayout() {
+        return layoutService.measuredLayout(tasks, quantity, false, fontProvider.advances());
+    }
+
+    @Benchmark
+    public PdfLayoutParams stringWidthLayout() throws IOException {
+        StringBuilder line = new StringBuilder(32);
+        float widest = 0f;
+        for (Task task : tasks) {
+            line.setLength(0);
+            task.appendQuestion(line);
+            widest = Math.max(widest, widthFont.getStringWidth(line.toString()) / 1000f);
+        }
+        return PdfLayoutParams.planA4(quantity, widest);
+    }
+
+    @Benchmark
+    public int addTasksPage() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            layoutService.addTasksPage(document, fontProvider.worksheetFont(document), tasks, TITLE, date);
+            return document.getNumberOfPages();
+        }
+    }
+
+    @Benchmark
+    public int measuredTasksPage() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDFLayoutService.PageTemplates templates = layoutService.pageTemplates(
+                    document, fontProvider.worksheetFont(document), fontProvider.advances());
+            layoutService.addTasksPage(templates, tasks, TITLE, null, date);
+            return document.getNumberOfPages();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.kuzmich.schoolbot.generator.pdf;
+
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.generator.Task;
+import com.kuzmich.schoolbot.generator.service.BenchmarkFixtures;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.MultipartBody;
+import okio.BufferedSink;
+import okio.Okio;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.telegram.telegrambots.client.TelegramMultipartBuilder;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный {@link PDFService#render}: новый документ, загрузка и встраивание шрифта DejaVu, страница заданий
+ * и сохранение во временный файл — то, что пользователь ждёт после нажатия «Сгенерировать».
+ * <p>
+ * {@link #deliverRendered} — весь путь отправки: отрисовка и тело запроса sendDocument, которое собирает
+ * настоящий построитель multipart-запроса клиента ({@link TelegramMultipartBuilder}) из {@code InputFile(File)}
+ * и пишет в никуда. {@code gc.alloc.rate.norm} — байты на один отправленный PDF.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfServiceBenchmark {
+
+    private static final String TITLE = "Сложение до 10";
+
+    @Param({"10", "20", "30", "50"})
+    public int quantity;
+
+    private PDFService pdfService;
+    private List<Task> tasks;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Setup
+    public void setUp() {
+        pdfService = BenchmarkFixtures.pdfService();
+        tasks = BenchmarkFixtures.tasks(BenchmarkFixtures.generatorFactory(), OperationType.ADDITION_10, quantity);
+    }
+
+    @Benchmark
+    public long render() throws IOException {
+        try (RenderedPdf pdf = pdfService.render(tasks, TITLE, false)) {
+            return pdf.size();
+        }
+    }
+
+    @Benchmark
+    public long deliverRendered() throws IOException {
+        try (RenderedPdf pdf = pdfService.render(tasks, TITLE, false)) {
+            return upload(new InputFile(pdf.file().toFile(), "math_tasks.pdf"));
+        }
+    }
+
+    /**
+     * Тело запроса sendDocument так, как его собирает и пишет в сокет клиент Telegram.
+     */
+    private long upload(InputFile document) throws IOException {
+        MultipartBody body = new TelegramMultipartBuilder(objectMapper)
+                .addPart("chat_id", "1")
+                .addInputFile("document", document, true)
+                .build();
+        try (BufferedSink sink = Okio.buffer(Okio.blackhole())) {
+            body.writeTo(sink);
+        }
+        return body.contentLength();
+    }
+}
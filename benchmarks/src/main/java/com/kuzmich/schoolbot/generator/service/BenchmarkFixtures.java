@@ -0,0 +1,93 @@
+package com.kuzmich.schoolbot.generator.service;
+
+import com.kuzmich.schoolbot.core.service.MessageService;
+import com.kuzmich.schoolbot.generator.ArithmeticContext;
+import com.kuzmich.schoolbot.generator.GeneratorFactory;
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.generator.Task;
+import com.kuzmich.schoolbot.generator.arithmetic.Addition20NoCarryGenerator;
+import com.kuzmich.schoolbot.generator.arithmetic.AdditionGenerator;
+import com.kuzmich.schoolbot.generator.arithmetic.Subtraction20NoCarryGenerator;
+import com.kuzmich.schoolbot.generator.arithmetic.SubtractionGenerator;
+import com.kuzmich.schoolbot.generator.numbers.ComparisonGenerator;
+import com.kuzmich.schoolbot.generator.numbers.NumberComposition10Generator;
+import com.kuzmich.schoolbot.generator.numbers.NumberComposition11To20Generator;
+import com.kuzmich.schoolbot.generator.numbers.NumberComposition2To9Generator;
+import com.kuzmich.schoolbot.generator.numbers.NumberCompositionGenerator;
+import com.kuzmich.schoolbot.generator.numbers.NumberSequenceGenerator;
+import com.kuzmich.schoolbot.generator.pdf.PDFLayoutService;
+import com.kuzmich.schoolbot.generator.pdf.PDFService;
+import com.kuzmich.schoolbot.generator.pdf.PdfFontProvider;
+import org.springframework.context.support.ResourceBundleMessageSource;
+
+import java.util.List;
+
+/**
+ * Объекты приложения для бенчмарков без Spring-контекста: генераторы с настоящими шаблонами
+ * из {@code messages.properties} и PDFService со шрифтом DejaVu, как в продакшене.
+ * Лежит в пакете сервиса, чтобы строить контексты так же, как {@link PdfGenerationService}
+ * ({@link ArithmeticContexts}).
+ */
+public final class BenchmarkFixtures {
+
+    /** Шрифт из зависимости jasperreports-fonts — тот же, что PDFService берёт по умолчанию. */
+    private static final String FONT_PATH = "classpath:/net/sf/jasperreports/fonts/dejavu/DejaVuSans.ttf";
+
+    private BenchmarkFixtures() {
+        // utility class
+    }
+
+    public static MessageService messageService() {
+        ResourceBundleMessageSource source = new ResourceBundleMessageSource();
+        source.setBasenames("messages", "core-messages");
+        source.setDefaultEncoding("UTF-8");
+        return new MessageService(source);
+    }
+
+    public static GeneratorFactory generatorFactory() {
+        MessageService messageService = messageService();
+        return new GeneratorFactory(List.of(
+                new AdditionGenerator(messageService),
+                new SubtractionGenerator(messageService),
+                new Addition20NoCarryGenerator(messageService),
+                new Subtraction20NoCarryGenerator(messageService),
+                new NumberComposition2To9Generator(messageService),
+                new NumberComposition10Generator(messageService),
+                new NumberComposition11To20Generator(messageService),
+                new NumberCompositionGenerator(messageService),
+                new ComparisonGenerator(messageService),
+                new NumberSequenceGenerator(messageService)
+        ));
+    }
+
+    /**
+     * Контекст по умолчанию для операции — как у листа, сгенерированного {@link PdfGenerationService}.
+     */
+    public static ArithmeticContext context(OperationType operationType, int quantity, long seed) {
+        return ArithmeticContexts.forOperation(operationType, quantity, seed);
+    }
+
+    /**
+     * Готовый лист заданий с фиксированным сидом: вход для бенчмарков раскладки и PDF.
+     */
+    public static List<Task> tasks(GeneratorFactory factory, OperationType operationType, int quantity) {
+        List<Task> tasks = factory.getGenerator(operationType).generate(context(operationType, quantity, 1L));
+        // Текст вопросов собирается заранее: измеряется отрисовка, а не форматирование
+        tasks.forEach(Task::question);
+        return tasks;
+    }
+
+    /**
+     * Общий шрифт DejaVu с готовым подмножеством для листов, как в приложении.
+     */
+    public static PdfFontProvider fontProvider() {
+        return new PdfFontProvider(FONT_PATH);
+    }
+
+    /**
+     * PDFService со шрифтом DejaVu, как в приложении.
+     */
+    public static PDFService pdfService() {
+        return new PDFService(new PDFLayoutService(), fontProvider());
+    }
+}
@@ -0,0 +1,55 @@
+package com.kuzmich.schoolbot.generator.service;
+
+import com.kuzmich.schoolbot.generator.GeneratorFactory;
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.generator.Task;
+import com.kuzmich.schoolbot.generator.TaskGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полная генерация листа каждым {@link com.kuzmich.schoolbot.generator.OperationTaskGenerator}
+ * (все значения {@link OperationType}) на типичных количествах заданий: построение контекста, домен из кэша,
+ * отбор и создание заданий. Сид меняется на каждом вызове, как у случайных листов.
+ * Текст вопросов не собирается — он строится лениво при отрисовке PDF.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    @Param
+    public OperationType operationType;
+
+    @Param({"10", "20", "30", "50"})
+    public int quantity;
+
+    private TaskGenerator generator;
+    private long seed;
+
+    @Setup
+    public void setUp() {
+        GeneratorFactory factory = BenchmarkFixtures.generatorFactory();
+        generator = factory.getGenerator(operationType);
+    }
+
+    @Benchmark
+    public List<Task> generate() {
+        return generator.generate(BenchmarkFixtures.context(operationType, quantity, seed++));
+    }
+}
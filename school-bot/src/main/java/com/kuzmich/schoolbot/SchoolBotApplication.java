@@ -3,10 +3,12 @@ package com.kuzmich.schoolbot;
 import com.kuzmich.schoolbot.core.bot.AbstractTelegramBot;
 import com.kuzmich.schoolbot.core.handler.callback.CallbackQueryProcessingHandler;
 import com.kuzmich.schoolbot.core.handler.command.CommandProcessingHandler;
+import com.kuzmich.schoolbot.metrics.UpdateMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.telegram.telegrambots.meta.api.objects.Update;
 
 /**
  * Точка входа приложения SchoolBot.
@@ -26,13 +28,19 @@ public class SchoolBotApplication {
     @Bean
     public AbstractTelegramBot schoolBot(
             CommandProcessingHandler commandHandler,
-            CallbackQueryProcessingHandler callbackHandler
+            CallbackQueryProcessingHandler callbackHandler,
+            UpdateMetrics updateMetrics
     ) {
         return new AbstractTelegramBot(commandHandler, callbackHandler) {
             @Override
             public String getBotToken() {
                 return botToken;
             }
+
+            @Override
+            public void consume(Update update) {
+                updateMetrics.record(update, () -> super.consume(update));
+            }
         };
     }
 }
@@ -0,0 +1,20 @@
+package com.kuzmich.schoolbot.config;
+
+import com.kuzmich.schoolbot.metrics.StatementCountingInspector;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Инструментирование доступа к БД: подсчёт SQL-запросов Hibernate на update.
+ * Метрики пула Hikari и таймеры методов репозиториев Spring Boot регистрирует автоматически.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer statementCountingCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new StatementCountingInspector());
+    }
+}
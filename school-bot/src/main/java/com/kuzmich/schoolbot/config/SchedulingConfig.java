@@ -0,0 +1,12 @@
+package com.kuzmich.schoolbot.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Включает фоновые задачи по расписанию (пакетная запись активности, синхронизация сессий).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,61 @@
+package com.kuzmich.schoolbot.config;
+
+import com.kuzmich.schoolbot.context.ActivityTracker;
+import com.kuzmich.schoolbot.context.SchoolBotUserContextService;
+import com.kuzmich.schoolbot.context.UserContext;
+import com.kuzmich.schoolbot.core.service.UserContextService;
+import com.kuzmich.schoolbot.core.service.UserStateService;
+import com.kuzmich.schoolbot.session.MappedSessionStore;
+import com.kuzmich.schoolbot.session.SessionStore;
+import com.kuzmich.schoolbot.session.SessionStoreSynchronizer;
+import com.kuzmich.schoolbot.session.SessionStoreUserContextService;
+import com.kuzmich.schoolbot.session.SessionStoreUserStateService;
+import com.kuzmich.schoolbot.state.SchoolBotUserStateService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Path;
+
+/**
+ * Хранилище сессий в памяти ({@code session.store.type=mmap}): состояние и контекст wizard читаются
+ * и пишутся в memory-mapped файл, PostgreSQL синхронизируется периодически.
+ * По умолчанию (jpa) используются {@link SchoolBotUserStateService} и {@link SchoolBotUserContextService} напрямую.
+ */
+@Configuration
+@ConditionalOnProperty(name = "session.store.type", havingValue = "mmap")
+public class SessionStoreConfig {
+
+    @Bean(destroyMethod = "close")
+    public MappedSessionStore sessionStore(@Value("${session.store.path:./data/sessions.bin}") String path,
+                                           @Value("${session.store.capacity:262144}") int capacity) {
+        return new MappedSessionStore(Path.of(path), capacity);
+    }
+
+    @Bean
+    @Primary
+    public UserStateService sessionStoreUserStateService(SessionStore sessionStore,
+                                                         SchoolBotUserStateService delegate) {
+        return new SessionStoreUserStateService(sessionStore, delegate);
+    }
+
+    @Bean
+    @Primary
+    public UserContextService<UserContext> sessionStoreUserContextService(SessionStore sessionStore,
+                                                                          SchoolBotUserContextService delegate,
+                                                                          ActivityTracker activityTracker,
+                                                                          MeterRegistry meterRegistry) {
+        return new SessionStoreUserContextService(sessionStore, delegate, activityTracker, meterRegistry);
+    }
+
+    @Bean
+    public SessionStoreSynchronizer sessionStoreSynchronizer(SessionStore sessionStore,
+                                                             SchoolBotUserStateService stateDelegate,
+                                                             SchoolBotUserContextService contextDelegate,
+                                                             @Value("${session.store.sync-batch-size:500}") int batchSize) {
+        return new SessionStoreSynchronizer(sessionStore, stateDelegate, contextDelegate, batchSize);
+    }
+}
@@ -0,0 +1,89 @@
+package com.kuzmich.schoolbot.context;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Учёт активности пользователей с пакетной записью {@code last_activity}.
+ * <p>
+ * Обращение пользователя фиксируется в памяти (userId → время), а в PostgreSQL попадает раз в интервал
+ * ({@code activity.flush-interval}, по умолчанию минута) одним UPDATE на каждую минуту активности.
+ * Точность {@code last_activity} — до минуты; нажатия в wizard больше не переписывают колонку.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityTracker {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final UserContextRepository repository;
+
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Зафиксировать активность пользователя в текущий момент.
+     */
+    public void record(Long userId) {
+        if (userId != null) {
+            pending.put(userId, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Количество пользователей с ещё не записанной активностью.
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${activity.flush-interval:PT1M}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<LocalDateTime, List<Long>> byMinute = new TreeMap<>();
+        for (Map.Entry<Long, Long> entry : pending.entrySet()) {
+            Long userId = entry.getKey();
+            Long millis = entry.getValue();
+            // Удаляем только если за время обхода не было новой активности — иначе она попадёт в следующий flush
+            if (pending.remove(userId, millis)) {
+                byMinute.computeIfAbsent(toMinute(millis), m -> new ArrayList<>()).add(userId);
+            }
+        }
+        int updated = 0;
+        for (Map.Entry<LocalDateTime, List<Long>> entry : byMinute.entrySet()) {
+            try {
+                updated += repository.updateLastActivity(entry.getValue(), entry.getKey());
+            } catch (RuntimeException e) {
+                log.warn("Не удалось записать last_activity для {} пользователей, повторим позже",
+                        entry.getValue().size(), e);
+                long millis = entry.getKey().atZone(ZONE).toInstant().toEpochMilli();
+                entry.getValue().forEach(userId -> pending.merge(userId, millis, Math::max));
+            }
+        }
+        log.debug("Записана активность пользователей: {}", updated);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static LocalDateTime toMinute(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE).truncatedTo(ChronoUnit.MINUTES);
+    }
+}
@@ -11,6 +11,7 @@ import java.util.Optional;
 /**
  * Реализация {@link UserContextService} для SchoolBot на основе PostgreSQL.
  * Контекст хранится в таблице {@code user_context}; при первом обращении создаётся запись.
+ * Каждое обращение через {@link #getOrCreate} фиксируется в {@link ActivityTracker}.
  */
 @Service
 @RequiredArgsConstructor
@@ -18,11 +19,13 @@ public class SchoolBotUserContextService implements UserContextService<UserConte
 
     private final UserContextRepository repository;
     private final UserContextMapper mapper;
+    private final ActivityTracker activityTracker;
 
     @Override
     @Transactional(readOnly = true)
     public UserContext getOrCreate(Long userId) {
         Validation.requireNonNull(userId, "userId");
+        activityTracker.record(userId);
         return repository.findByUserId(userId)
                 .map(mapper::toContext)
                 .orElseGet(() -> createAndSave(userId));
@@ -29,6 +29,7 @@ public class UserContext {
     /** JSON с последними параметрами генерации для «Создать ещё раз». */
     private String lastGenerationParams;
 
+    /** Последняя активность на момент загрузки; актуальное значение пишет {@link ActivityTracker} (до минуты). */
     private LocalDateTime lastActivity;
     private LocalDateTime registeredAt;
 
@@ -40,42 +41,34 @@ public class UserContext {
 
     public void setMode(Mode mode) {
         this.mode = mode;
-        touch();
     }
 
     public void setSchoolLevel(SchoolLevel schoolLevel) {
         this.schoolLevel = schoolLevel;
-        touch();
     }
 
     public void setSubject(Subject subject) {
         this.subject = subject;
-        touch();
     }
 
     public void setTopic(String topic) {
         this.topic = topic;
-        touch();
     }
 
     public void setOperationType(String operationType) {
         this.operationType = operationType;
-        touch();
     }
 
     public void setQuantity(Integer quantity) {
         this.quantity = quantity;
-        touch();
     }
 
     public void setLanguage(String language) {
         this.language = language;
-        touch();
     }
 
     public void setLastGenerationParams(String lastGenerationParams) {
         this.lastGenerationParams = lastGenerationParams;
-        touch();
     }
 
     /** Для восстановления из БД при загрузке контекста (используется маппером). */
@@ -87,8 +80,4 @@ public class UserContext {
     public void setRegisteredAt(LocalDateTime registeredAt) {
         this.registeredAt = registeredAt;
     }
-
-    private void touch() {
-        this.lastActivity = LocalDateTime.now();
-    }
 }
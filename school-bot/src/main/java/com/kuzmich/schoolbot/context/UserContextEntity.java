@@ -14,14 +14,18 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 
 /**
  * Сущность JPA для хранения контекста пользователя в PostgreSQL.
  * Одна запись на пользователя (user_id — первичный ключ).
+ * {@link DynamicUpdate}: UPDATE содержит только изменённые колонки и не перетирает last_activity,
+ * которую пакетно пишет {@link ActivityTracker}.
  */
 @Entity
+@DynamicUpdate
 @Table(name = "user_context")
 @Getter
 @Setter
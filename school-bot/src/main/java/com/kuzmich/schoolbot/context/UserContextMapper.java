@@ -17,9 +17,11 @@ public interface UserContextMapper {
     UserContext toContext(UserContextEntity entity);
 
     /**
-     * Скопировать поля контекста в сущность (без изменения userId и полей согласия с политикой).
+     * Скопировать поля контекста в сущность (без изменения userId, полей согласия с политикой
+     * и last_activity — её пакетно пишет {@link ActivityTracker}).
      */
     @Mapping(target = "userId", ignore = true)
+    @Mapping(target = "lastActivity", ignore = true)
     @Mapping(target = "privacyConsentAt", ignore = true)
     @Mapping(target = "privacyPolicyVersion", ignore = true)
     void updateEntity(UserContext context, @MappingTarget UserContextEntity entity);
@@ -1,7 +1,13 @@
 package com.kuzmich.schoolbot.context;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Optional;
 
 /**
@@ -12,4 +18,15 @@ public interface UserContextRepository extends JpaRepository<UserContextEntity,
     Optional<UserContextEntity> findByUserId(Long userId);
 
     void deleteByUserId(Long userId);
+
+    /**
+     * Пакетно обновить время последней активности (значение в БД не уменьшается).
+     *
+     * @return количество обновлённых записей
+     */
+    @Modifying
+    @Transactional
+    @Query("update UserContextEntity c set c.lastActivity = :activity "
+            + "where c.userId in :userIds and (c.lastActivity is null or c.lastActivity < :activity)")
+    int updateLastActivity(@Param("userIds") Collection<Long> userIds, @Param("activity") LocalDateTime activity);
 }
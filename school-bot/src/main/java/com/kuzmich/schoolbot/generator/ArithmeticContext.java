@@ -15,6 +15,10 @@ public class ArithmeticContext implements GenerationContext {
     private final Range numberRange;
     private final int quantity;
     private final Boolean noCarry;
+    /** Сид генерации; null — случайная генерация (см. {@link GenerationRandom}). */
+    private final Long seed;
+    /** Недавние задания пользователя; null — без учёта истории (см. {@link RecentTaskFilter}). */
+    private final RecentTaskFilter recentTasks;
 
     @Override
     public ArithmeticContext validate() {
@@ -11,6 +11,24 @@ public interface GenerationContext {
      */
     int getQuantity();
 
+    /**
+     * Сид генерации: при одинаковом сиде и остальных параметрах генератор возвращает одинаковые задания.
+     * {@code null} — случайная генерация.
+     *
+     * @see GenerationRandom
+     */
+    default Long getSeed() {
+        return null;
+    }
+
+    /**
+     * Недавние задания пользователя: генератор отдаёт им меньший приоритет, чем свежим, внутри каждого
+     * уровня ослабления. {@code null} — история не учитывается.
+     */
+    default RecentTaskFilter getRecentTasks() {
+        return null;
+    }
+
     /**
      * Валидирует контекст. Вызывается генератором перед работой.
      *
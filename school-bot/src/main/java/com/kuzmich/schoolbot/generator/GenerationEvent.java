@@ -0,0 +1,43 @@
+package com.kuzmich.schoolbot.generator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR-событие одной генерации листа (см. {@link GenerationMetrics}). Пишется, только когда идёт запись JFR
+ * с включённым событием ({@code -XX:StartFlightRecording} или {@code jcmd <pid> JFR.start}), в остальное время
+ * почти ничего не стоит. В отличие от агрегатов Micrometer, показывает каждый «странный» лист отдельно.
+ */
+@Name("com.kuzmich.schoolbot.Generation")
+@Label("Worksheet Generation")
+@Category({"SchoolBot", "Generator"})
+@Description("Генерация листа заданий: глубина ослабления, повторы и отклонённые кандидаты")
+class GenerationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Mode")
+    String mode;
+
+    @Label("Requested")
+    int quantity;
+
+    @Label("Produced")
+    int produced;
+
+    @Label("Deepest Relaxation Level")
+    int deepestLevel;
+
+    @Label("Repeats")
+    int repeats;
+
+    @Label("Rejected By Balance")
+    int rejectedByBalance;
+
+    @Label("Rejected By Sequence")
+    int rejectedBySequence;
+}
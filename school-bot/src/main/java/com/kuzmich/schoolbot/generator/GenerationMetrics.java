@@ -0,0 +1,170 @@
+package com.kuzmich.schoolbot.generator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Метрики генерации листа по типу операции — чтобы по данным, а не по жалобам на «странный» лист,
+ * видеть, насколько генератор ослабляет правила:
+ * <ul>
+ *     <li>{@code schoolbot.generator.duration} — время генерации (тег {@code mode}: {@code list} или
+ *     {@code stream}; у потоковой тетради в него входит отрисовка страниц);</li>
+ *     <li>{@code schoolbot.generator.relaxation.depth} — самый глубокий использованный уровень ослабления;</li>
+ *     <li>{@code schoolbot.generator.level.pool.size} — число ещё не выданных кандидатов уровня к моменту его отбора (тег {@code level});</li>
+ *     <li>{@code schoolbot.generator.fill.rate} — доля запрошенных заданий, которую удалось выдать;</li>
+ *     <li>{@code schoolbot.generator.repeats} — добавленные повторы;</li>
+ *     <li>{@code schoolbot.generator.rejected} — кандидаты, отклонённые квотами баланса или эвристиками
+ *     последовательности (тег {@code reason}: {@code balance} / {@code sequence}).</li>
+ * </ul>
+ * Те же данные по каждому листу пишутся JFR-событием {@link GenerationEvent}.
+ * Статистику собирает ядро отбора в {@link GenerationStats} текущего потока.
+ */
+@Component
+public class GenerationMetrics {
+
+    private static final String MODE_LIST = "list";
+    private static final String MODE_STREAM = "stream";
+
+    private final MeterRegistry registry;
+
+    public GenerationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Обёртка генератора, записывающая метрики каждой генерации. Используется {@link GeneratorFactory}.
+     */
+    public OperationTaskGenerator instrument(OperationTaskGenerator generator) {
+        return new InstrumentedGenerator(generator);
+    }
+
+    private void record(OperationType operationType, String mode, int quantity, int produced,
+                        GenerationStats stats, long nanos, GenerationEvent event) {
+        String operation = operationType.name();
+        Timer.builder("schoolbot.generator.duration")
+                .description("Время генерации листа")
+                .tag("operation", operation)
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (quantity > 0) {
+            summary("schoolbot.generator.fill.rate", "Доля выданных заданий от запрошенных", operation)
+                    .record(produced / (double) quantity);
+        }
+        if (stats.deepestLevel() >= 0) {
+            summary("schoolbot.generator.relaxation.depth", "Самый глубокий использованный уровень ослабления",
+                    operation).record(stats.deepestLevel());
+        }
+        for (int level = 0; level < stats.levelCount(); level++) {
+            int size = stats.levelPoolSize(level);
+            if (size >= 0) {
+                DistributionSummary.builder("schoolbot.generator.level.pool.size")
+                        .description("Размер пула кандидатов уровня ослабления")
+                        .tag("operation", operation)
+                        .tag("level", String.valueOf(level))
+                        .register(registry)
+                        .record(size);
+            }
+        }
+        if (stats.repeats() > 0) {
+            Counter.builder("schoolbot.generator.repeats")
+                    .description("Повторы, добавленные при нехватке уникальных заданий")
+                    .tag("operation", operation)
+                    .register(registry)
+                    .increment(stats.repeats());
+        }
+        rejected(operation, "balance", stats.rejectedByBalance());
+        rejected(operation, "sequence", stats.rejectedBySequence());
+
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.mode = mode;
+            event.quantity = quantity;
+            event.produced = produced;
+            event.deepestLevel = stats.deepestLevel();
+            event.repeats = stats.repeats();
+            event.rejectedByBalance = stats.rejectedByBalance();
+            event.rejectedBySequence = stats.rejectedBySequence();
+            event.commit();
+        }
+    }
+
+    private DistributionSummary summary(String name, String description, String operation) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private void rejected(String operation, String reason, int count) {
+        if (count > 0) {
+            Counter.builder("schoolbot.generator.rejected")
+                    .description("Кандидаты, отклонённые при отборе")
+                    .tag("operation", operation)
+                    .tag("reason", reason)
+                    .register(registry)
+                    .increment(count);
+        }
+    }
+
+    private final class InstrumentedGenerator implements OperationTaskGenerator {
+
+        private final OperationTaskGenerator delegate;
+
+        private InstrumentedGenerator(OperationTaskGenerator delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public OperationType getOperationType() {
+            return delegate.getOperationType();
+        }
+
+        @Override
+        public List<Task> generate(GenerationContext context) {
+            GenerationStats stats = GenerationStats.begin();
+            if (stats == null) {
+                return delegate.generate(context);
+            }
+            GenerationEvent event = new GenerationEvent();
+            event.begin();
+            long start = System.nanoTime();
+            try {
+                List<Task> tasks = delegate.generate(context);
+                record(getOperationType(), MODE_LIST, context.getQuantity(), tasks.size(), stats,
+                        System.nanoTime() - start, event);
+                return tasks;
+            } finally {
+                GenerationStats.end();
+            }
+        }
+
+        @Override
+        public int generate(GenerationContext context, Consumer<? super Task> sink) {
+            GenerationStats stats = GenerationStats.begin();
+            if (stats == null) {
+                return delegate.generate(context, sink);
+            }
+            GenerationEvent event = new GenerationEvent();
+            event.begin();
+            long start = System.nanoTime();
+            try {
+                int produced = delegate.generate(context, sink);
+                record(getOperationType(), MODE_STREAM, context.getQuantity(), produced, stats,
+                        System.nanoTime() - start, event);
+                return produced;
+            } finally {
+                GenerationStats.end();
+            }
+        }
+    }
+}
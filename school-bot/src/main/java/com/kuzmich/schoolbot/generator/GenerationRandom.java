@@ -0,0 +1,34 @@
+package com.kuzmich.schoolbot.generator;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Источник случайных чисел для генерации заданий.
+ * <p>
+ * Если в контексте задан сид, генератор детерминирован: одинаковые (операция, диапазон, количество, сид)
+ * дают одинаковый список заданий — лист можно перепечатать или взять из кэша, не храня PDF.
+ * Без сида используется {@link ThreadLocalRandom}.
+ */
+public final class GenerationRandom {
+
+    private GenerationRandom() {
+        // utility class
+    }
+
+    /**
+     * Генератор для контекста: {@link SplittableRandom} от сида или {@link ThreadLocalRandom#current()}.
+     */
+    public static RandomGenerator forContext(GenerationContext context) {
+        Long seed = context.getSeed();
+        return seed != null ? new SplittableRandom(seed) : ThreadLocalRandom.current();
+    }
+
+    /**
+     * Новый случайный сид — для запросов, которые нужно уметь воспроизвести.
+     */
+    public static long newSeed() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+}
@@ -0,0 +1,130 @@
+package com.kuzmich.schoolbot.generator;
+
+import java.util.Arrays;
+
+/**
+ * Статистика одной генерации листа, которую ядро отбора собирает для метрик (см. {@link GenerationMetrics}):
+ * самый глубокий использованный уровень ослабления, размер пула каждого уровня, число повторов
+ * и кандидатов, отклонённых квотами баланса и эвристиками последовательности.
+ * <p>
+ * Область сбора — текущий поток, между {@link #begin()} и {@link #end()}; ядро берёт статистику через
+ * {@link #current()} и вне этой области ничего не записывает. Экземпляр не потокобезопасен.
+ */
+public final class GenerationStats {
+
+    private static final ThreadLocal<GenerationStats> CURRENT = new ThreadLocal<>();
+    private static final int INITIAL_LEVELS = 8;
+
+    private int deepestLevel = -1;
+    private int[] levelPoolSizes = emptyLevels(INITIAL_LEVELS);
+    private int levelCount;
+    private int repeats;
+    private int rejectedByBalance;
+    private int rejectedBySequence;
+
+    /**
+     * Начать сбор для текущего потока. Возвращает null, если сбор уже идёт (вложенный вызов).
+     */
+    static GenerationStats begin() {
+        if (CURRENT.get() != null) {
+            return null;
+        }
+        GenerationStats stats = new GenerationStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * Завершить сбор для текущего потока.
+     */
+    static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Статистика текущей генерации; null, если сбор не начат.
+     */
+    public static GenerationStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Из уровня {@code level} отобрано задание.
+     */
+    public void levelUsed(int level) {
+        deepestLevel = Math.max(deepestLevel, level);
+    }
+
+    /**
+     * Размер пула уровня — число ещё не выданных кандидатов уровня к моменту его отбора; при нескольких пулах одного уровня запоминается наибольший.
+     */
+    public void poolSize(int level, int size) {
+        if (level >= levelPoolSizes.length) {
+            int oldLength = levelPoolSizes.length;
+            levelPoolSizes = Arrays.copyOf(levelPoolSizes, Math.max(level + 1, oldLength * 2));
+            Arrays.fill(levelPoolSizes, oldLength, levelPoolSizes.length, -1);
+        }
+        levelPoolSizes[level] = Math.max(levelPoolSizes[level], size);
+        levelCount = Math.max(levelCount, level + 1);
+    }
+
+    /**
+     * Добавлено повторное задание (добивка при нехватке уникальных, см. allowRepeats).
+     */
+    public void repeatAdded() {
+        repeats++;
+    }
+
+    /**
+     * Кандидат отклонён квотой баланса по первому операнду или ответу.
+     */
+    public void balanceRejected() {
+        rejectedByBalance++;
+    }
+
+    /**
+     * Кандидат отклонён эвристиками последовательности (то же задание, операнд или ответ подряд).
+     */
+    public void sequenceRejected() {
+        rejectedBySequence++;
+    }
+
+    /**
+     * @return номер самого глубокого уровня, из которого отобраны задания; -1, если заданий нет
+     */
+    public int deepestLevel() {
+        return deepestLevel;
+    }
+
+    /**
+     * @return размер пула уровня; -1, если пул уровня не строился (уровень не понадобился)
+     */
+    public int levelPoolSize(int level) {
+        return level < levelCount ? levelPoolSizes[level] : -1;
+    }
+
+    /**
+     * Число уровней, для которых известен размер пула (0 для выборки без перечисления домена).
+     */
+    public int levelCount() {
+        return levelCount;
+    }
+
+    public int repeats() {
+        return repeats;
+    }
+
+    public int rejectedByBalance() {
+        return rejectedByBalance;
+    }
+
+    public int rejectedBySequence() {
+        return rejectedBySequence;
+    }
+
+    private static int[] emptyLevels(int length) {
+        int[] sizes = new int[length];
+        Arrays.fill(sizes, -1);
+        return sizes;
+    }
+}
@@ -1,11 +1,17 @@
 package com.kuzmich.schoolbot.generator;
 
 import com.kuzmich.schoolbot.core.validation.Validation;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
 
 /**
  * Фабрика генераторов заданий по типу операции (Strategy Pattern).
@@ -14,12 +20,23 @@ import java.util.Map;
 @Component
 public final class GeneratorFactory {
 
+    /** Насколько далеко вперёд в списке части можно искать задание, не нарушающее эвристик последовательности. */
+    private static final int INTERLEAVE_LOOKAHEAD = 8;
+
     private final Map<OperationType, TaskGenerator> generators = new EnumMap<>(OperationType.class);
 
     public GeneratorFactory(List<OperationTaskGenerator> generatorBeans) {
+        this(generatorBeans, null);
+    }
+
+    /**
+     * Фабрика, отдающая генераторы с метриками ({@link GenerationMetrics}); без метрик — {@code generationMetrics == null}.
+     */
+    @Autowired
+    public GeneratorFactory(List<OperationTaskGenerator> generatorBeans, GenerationMetrics generationMetrics) {
         Validation.requireNonNull(generatorBeans, "generatorBeans");
         for (OperationTaskGenerator g : generatorBeans) {
-            generators.put(g.getOperationType(), g);
+            generators.put(g.getOperationType(), generationMetrics != null ? generationMetrics.instrument(g) : g);
         }
         // Проверка при старте: все типы операций должны иметь генератор (избегаем ошибки при нажатии «Создать PDF»).
         for (OperationType type : OperationType.values()) {
@@ -44,4 +61,143 @@ public final class GeneratorFactory {
         }
         return generator;
     }
+
+    /**
+     * Смешанный лист: задания всех частей {@link MixedContext} в одном списке.
+     * <p>
+     * Части генерируются параллельно (каждая — своим генератором, со своей долей quantity и сидом,
+     * выведенным из общего), затем сливаются: на каждом шаге берётся часть, сильнее всех отстающая
+     * от своей пропорции, так что операции равномерно перемешаны по листу. Эвристики последовательности
+     * ядра отбора применяются ко всему листу ({@link #violatesSequence}): задание с тем же ответом или тем же
+     * первым числом, что у предыдущего, по возможности заменяется следующим подходящим из той же или другой
+     * части; совпадающие между частями примеры не повторяются.
+     *
+     * @return лист; короче quantity, если доменов частей не хватило
+     */
+    public List<Task> generateMixed(MixedContext context) {
+        Validation.requireNonNull(context, "context");
+        context.validate();
+
+        List<MixedContext.Part> parts = context.getParts();
+        int[] shares = context.shares();
+        RandomGenerator rnd = GenerationRandom.forContext(context);
+        Long[] seeds = new Long[parts.size()];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = context.getSeed() != null ? rnd.nextLong() : null;
+        }
+
+        List<List<Task>> generated = IntStream.range(0, parts.size())
+                .parallel()
+                .mapToObj(i -> {
+                    MixedContext.Part part = parts.get(i);
+                    List<Task> tasks = getGenerator(part.operationType()).generate(ArithmeticContext.builder()
+                            .operationType(part.operationType())
+                            .numberRange(part.numberRange())
+                            .noCarry(part.noCarry())
+                            .quantity(shares[i])
+                            .seed(seeds[i])
+                            .build());
+                    // Текст нужен для сравнения заданий при слиянии — собираем его здесь, в пуле
+                    tasks.forEach(Task::question);
+                    return tasks;
+                })
+                .toList();
+
+        return interleave(generated, rnd);
+    }
+
+    /**
+     * Слияние частей с сохранением пропорций и эвристик последовательности на стыках частей.
+     * Подходящее задание ищется не дальше {@value #INTERLEAVE_LOOKAHEAD} позиций вперёд, поэтому
+     * перестановка в части — не больше стольких же сдвигов, а всё слияние линейно по числу заданий.
+     */
+    static List<Task> interleave(List<List<Task>> parts, RandomGenerator rnd) {
+        Set<String> questions = new HashSet<>();
+        List<List<Task>> unique = new ArrayList<>(parts.size());
+        int total = 0;
+        for (List<Task> part : parts) {
+            List<Task> kept = new ArrayList<>(part.size());
+            for (Task task : part) {
+                if (questions.add(task.question())) {
+                    kept.add(task);
+                }
+            }
+            unique.add(kept);
+            total += kept.size();
+        }
+
+        List<Task> sheet = new ArrayList<>(total);
+        int[] taken = new int[unique.size()];
+        Task last = null;
+        while (sheet.size() < total) {
+            int[] order = partsByLag(unique, taken, rnd);
+            int pickPart = order[0];
+            int pickIndex = taken[pickPart];
+            search:
+            for (int part : order) {
+                List<Task> tasks = unique.get(part);
+                int end = Math.min(tasks.size(), taken[part] + INTERLEAVE_LOOKAHEAD);
+                for (int j = taken[part]; j < end; j++) {
+                    if (!violatesSequence(last, tasks.get(j))) {
+                        pickPart = part;
+                        pickIndex = j;
+                        break search;
+                    }
+                }
+            }
+            List<Task> tasks = unique.get(pickPart);
+            // Выбранное задание переставляется на место очередного сдвигом окна просмотра (не всего хвоста части),
+            // порядок остальных в части сохраняется
+            Task picked = tasks.get(pickIndex);
+            for (int j = pickIndex; j > taken[pickPart]; j--) {
+                tasks.set(j, tasks.get(j - 1));
+            }
+            tasks.set(taken[pickPart], picked);
+            taken[pickPart]++;
+            sheet.add(picked);
+            last = picked;
+        }
+        return sheet;
+    }
+
+    /**
+     * Эвристики последовательности ядра ({@code ArithmeticGenerationUtils}) на стыке двух заданий листа:
+     * нельзя подряд одинаковый ответ и одинаковое первое число. Одинаковые задания исключены ещё до слияния.
+     */
+    static boolean violatesSequence(Task last, Task current) {
+        if (last == null) {
+            return false;
+        }
+        return last.answer().equals(current.answer()) || last.sameFirstOperand(current);
+    }
+
+    /**
+     * Незавершённые части по возрастанию доли уже взятых заданий; равные доли — в случайном порядке.
+     */
+    private static int[] partsByLag(List<List<Task>> parts, int[] taken, RandomGenerator rnd) {
+        int[] order = IntStream.range(0, parts.size())
+                .filter(i -> taken[i] < parts.get(i).size())
+                .toArray();
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        double[] lag = new double[parts.size()];
+        for (int part : order) {
+            lag[part] = (taken[part] + 1.0) / (parts.get(part).size() + 1.0);
+        }
+        // Устойчивая сортировка вставками: перемешанный порядок сохраняется среди равных долей
+        for (int i = 1; i < order.length; i++) {
+            int current = order[i];
+            int j = i - 1;
+            while (j >= 0 && lag[order[j]] > lag[current]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = current;
+        }
+        return order;
+    }
 }
@@ -0,0 +1,86 @@
+package com.kuzmich.schoolbot.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kuzmich.schoolbot.core.service.MessageService;
+import com.kuzmich.schoolbot.core.validation.Validation;
+import com.kuzmich.schoolbot.i18n.GeneratorMessageKeys;
+
+/**
+ * Формат задания из messages: шаблон вида {@code {0} + {1} = {2}} с тремя аргументами —
+ * два числа и пустое место для ответа ({@code generator.question.blank}).
+ * Шаблон резолвится через {@link MessageService} один раз (аргументами передаются сами плейсхолдеры)
+ * и разбирается на литералы и слоты; дальше задания дописываются в буфер без MessageFormat.
+ * <p>
+ * {@code blankPosition} — номер слота (0–2), в который встаёт пустое место; числа заполняют
+ * остальные слоты по порядку.
+ */
+public final class MessageTaskFormat implements TaskFormat {
+
+    private static final int SLOT_COUNT = 3;
+
+    private final String[] literals;
+    private final int[] slots;
+    private final String blank;
+
+    private MessageTaskFormat(String[] literals, int[] slots, String blank) {
+        this.literals = literals;
+        this.slots = slots;
+        this.blank = blank;
+    }
+
+    /**
+     * Резолвит шаблон по ключу и пустое место для ответа.
+     */
+    public static MessageTaskFormat of(MessageService messageService, String key) {
+        Validation.requireNonNull(messageService, "messageService");
+        Validation.requireNonNull(key, "key");
+        String template = messageService.getText(key, "{0}", "{1}", "{2}");
+        String blank = messageService.getText(GeneratorMessageKeys.QUESTION_BLANK);
+        return compile(template, blank);
+    }
+
+    /**
+     * Разбирает уже резолвленный шаблон с плейсхолдерами {@code {0}}, {@code {1}}, {@code {2}}.
+     */
+    static MessageTaskFormat compile(String template, String blank) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        String text = template != null ? template : "";
+        int literalStart = 0;
+        int i = 0;
+        while (i <= text.length() - 3) {
+            char digit = text.charAt(i + 1);
+            if (text.charAt(i) == '{' && text.charAt(i + 2) == '}' && digit >= '0' && digit < '0' + SLOT_COUNT) {
+                literals.add(text.substring(literalStart, i));
+                slots.add(digit - '0');
+                i += 3;
+                literalStart = i;
+            } else {
+                i++;
+            }
+        }
+        literals.add(text.substring(literalStart));
+        return new MessageTaskFormat(
+                literals.toArray(new String[0]),
+                slots.stream().mapToInt(Integer::intValue).toArray(),
+                blank != null ? blank : "");
+    }
+
+    @Override
+    public void appendTo(StringBuilder out, int first, int second, int blankPosition) {
+        for (int i = 0; i < slots.length; i++) {
+            out.append(literals[i]);
+            int slot = slots[i];
+            if (slot == blankPosition) {
+                out.append(blank);
+            } else if (slot < blankPosition ? slot == 0 : slot == 1) {
+                out.append(first);
+            } else {
+                out.append(second);
+            }
+        }
+        out.append(literals[slots.length]);
+    }
+}
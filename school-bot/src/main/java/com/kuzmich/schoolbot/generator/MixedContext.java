@@ -0,0 +1,79 @@
+package com.kuzmich.schoolbot.generator;
+
+import com.kuzmich.schoolbot.core.validation.Validation;
+import com.kuzmich.schoolbot.core.validation.ValidationException;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Контекст смешанного листа: несколько типов операций на одном листе в заданных пропорциях
+ * (например, сложение и вычитание до 10 поровну и немного сравнений).
+ * Генерируется через {@link GeneratorFactory#generateMixed(MixedContext)}.
+ */
+@Getter
+@Builder
+public class MixedContext implements GenerationContext {
+
+    private final List<Part> parts;
+    private final int quantity;
+    /** Сид генерации; null — случайная генерация (см. {@link GenerationRandom}). */
+    private final Long seed;
+
+    /**
+     * Часть листа: тип операции, его вес в пропорции и параметры контекста этой операции.
+     *
+     * @param weight относительная доля (например, 2 : 2 : 1); больше нуля
+     */
+    public record Part(OperationType operationType, int weight, Range numberRange, Boolean noCarry) {
+    }
+
+    @Override
+    public MixedContext validate() {
+        Validation.requireNonNull(parts, "parts");
+        if (parts.isEmpty()) {
+            throw new ValidationException("parts не может быть пустым");
+        }
+        for (Part part : parts) {
+            Validation.requireNonNull(part, "part");
+            Validation.requireNonNull(part.operationType(), "operationType");
+            if (part.weight() <= 0) {
+                throw new ValidationException("weight должен быть положительным, получено: " + part.weight());
+            }
+        }
+        Validation.requirePositiveInt(quantity, "quantity");
+        return this;
+    }
+
+    /**
+     * Количество заданий каждой части: quantity делится пропорционально весам,
+     * остаток раздаётся частям с наибольшей дробной долей (при равенстве — по порядку частей).
+     */
+    public int[] shares() {
+        long totalWeight = 0;
+        for (Part part : parts) {
+            totalWeight += part.weight();
+        }
+        int[] shares = new int[parts.size()];
+        long[] remainders = new long[parts.size()];
+        int assigned = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            long scaled = (long) quantity * parts.get(i).weight();
+            shares[i] = (int) (scaled / totalWeight);
+            remainders[i] = scaled % totalWeight;
+            assigned += shares[i];
+        }
+        for (int left = quantity - assigned; left > 0; left--) {
+            int best = 0;
+            for (int i = 1; i < remainders.length; i++) {
+                if (remainders[i] > remainders[best]) {
+                    best = i;
+                }
+            }
+            shares[best]++;
+            remainders[best] = -1;
+        }
+        return shares;
+    }
+}
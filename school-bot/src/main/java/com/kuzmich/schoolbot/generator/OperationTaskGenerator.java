@@ -1,8 +1,15 @@
 package com.kuzmich.schoolbot.generator;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
 /**
  * Генератор заданий, привязанный к одному типу операции (арифметика или числа/счёт).
  * Позволяет {@link GeneratorFactory} регистрировать все бины по типу операции.
+ * <p>
+ * Реализации генерируют потоково ({@link #generate(GenerationContext, Consumer)}),
+ * списочный вариант собирает тот же поток в список.
  */
 public interface OperationTaskGenerator extends TaskGenerator {
 
@@ -10,4 +17,14 @@ public interface OperationTaskGenerator extends TaskGenerator {
      * Тип операции, который обрабатывает этот генератор.
      */
     OperationType getOperationType();
+
+    @Override
+    int generate(GenerationContext context, Consumer<? super Task> sink);
+
+    @Override
+    default List<Task> generate(GenerationContext context) {
+        List<Task> tasks = new ArrayList<>();
+        generate(context, tasks::add);
+        return tasks;
+    }
 }
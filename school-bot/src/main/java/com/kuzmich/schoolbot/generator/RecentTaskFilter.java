@@ -0,0 +1,161 @@
+package com.kuzmich.schoolbot.generator;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Компактная память о заданиях, недавно выданных пользователю: фильтр Блума по тексту вопроса.
+ * <p>
+ * Фильтр состоит из двух поколений по {@value #BITS} бит. Новые задания пишутся в текущее поколение;
+ * когда в нём набирается {@value #GENERATION_CAPACITY} заданий, оно становится предыдущим, а старое предыдущее
+ * забывается. Так «недавние» — это последние 200–400 заданий, а доля ложных срабатываний не превышает 3–4 %.
+ * Ложное срабатывание лишь понижает приоритет свежего задания, но не запрещает его.
+ * В сериализованном виде фильтр занимает {@value #SERIALIZED_SIZE} байт.
+ * <p>
+ * Экземпляр не потокобезопасен: загружается, используется генерацией и сохраняется в пределах одного запроса.
+ */
+public final class RecentTaskFilter {
+
+    /** Бит в одном поколении. Степень двойки: индекс бита берётся маской. */
+    static final int BITS = 2048;
+    /** Число хэш-функций (двойное хэширование одного 64-битного хэша). */
+    static final int HASHES = 3;
+    /** Заданий в поколении до ротации. */
+    static final int GENERATION_CAPACITY = 200;
+
+    private static final int BYTES = BITS / Byte.SIZE;
+    /** Размер {@link #toBytes()}: счётчик текущего поколения и два поколения. */
+    public static final int SERIALIZED_SIZE = Short.BYTES + 2 * BYTES;
+
+    private final byte[] current;
+    private final byte[] previous;
+    private int currentCount;
+
+    private RecentTaskFilter(byte[] current, byte[] previous, int currentCount) {
+        this.current = current;
+        this.previous = previous;
+        this.currentCount = currentCount;
+    }
+
+    public static RecentTaskFilter empty() {
+        return new RecentTaskFilter(new byte[BYTES], new byte[BYTES], 0);
+    }
+
+    /**
+     * Восстанавливает фильтр из {@link #toBytes()}. Отсутствующие или повреждённые данные (в том числе
+     * другого размера после смены формата) дают пустой фильтр: история — подсказка, а не обязательное состояние.
+     */
+    public static RecentTaskFilter fromBytes(byte[] data) {
+        if (data == null || data.length != SERIALIZED_SIZE) {
+            return empty();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int count = buffer.getShort();
+        if (count < 0 || count > GENERATION_CAPACITY) {
+            return empty();
+        }
+        byte[] current = new byte[BYTES];
+        byte[] previous = new byte[BYTES];
+        buffer.get(current);
+        buffer.get(previous);
+        return new RecentTaskFilter(current, previous, count);
+    }
+
+    public byte[] toBytes() {
+        return ByteBuffer.allocate(SERIALIZED_SIZE)
+                .putShort((short) currentCount)
+                .put(current)
+                .put(previous)
+                .array();
+    }
+
+    /**
+     * @return true, если задание с таким вопросом, вероятно, выдавалось недавно; false — точно не выдавалось
+     */
+    public boolean mightContain(String question) {
+        return mightContainHash(questionHash(question));
+    }
+
+    /**
+     * Как {@link #mightContain(String)}, по заранее посчитанному {@link #questionHash}: генератор хранит хэши
+     * вопросов своего домена и не строит текст каждого кандидата на каждый запрос.
+     */
+    public boolean mightContainHash(long questionHash) {
+        return contains(current, questionHash) || contains(previous, questionHash);
+    }
+
+    /**
+     * Запоминает выданное задание.
+     */
+    public void add(String question) {
+        if (currentCount >= GENERATION_CAPACITY) {
+            rotate();
+        }
+        long hash = questionHash(question);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & (BITS - 1);
+            current[bit >>> 3] |= (byte) (1 << (bit & 7));
+        }
+        currentCount++;
+    }
+
+    /**
+     * Запоминает все задания листа.
+     */
+    public void addAll(Iterable<Task> tasks) {
+        for (Task task : tasks) {
+            add(task.question());
+        }
+    }
+
+    /**
+     * @return true, если фильтр ничего не помнит (генерация может не учитывать историю)
+     */
+    public boolean isEmpty() {
+        if (currentCount > 0) {
+            return false;
+        }
+        for (byte value : previous) {
+            if (value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rotate() {
+        System.arraycopy(current, 0, previous, 0, BYTES);
+        Arrays.fill(current, (byte) 0);
+        currentCount = 0;
+    }
+
+    private static boolean contains(byte[] bits, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & (BITS - 1);
+            if ((bits[bit >>> 3] & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-битный FNV-1a по символам с финальным перемешиванием: фильтр хранится в БД, поэтому хэш
+     * должен быть стабилен между версиями, а двух хэшей из 32-битного {@link String#hashCode()} не получить.
+     */
+    public static long questionHash(CharSequence value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -2,11 +2,30 @@ package com.kuzmich.schoolbot.generator;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Одно задание: текст вопроса, ответ и опциональные метаданные.
+ * <p>
+ * Задание бывает текстовым (вопрос уже строка) или структурированным: два числа, позиция пустого места
+ * и {@link TaskFormat}. Структурированный вопрос отрисовывается лениво — при выводе через
+ * {@link #appendQuestion(StringBuilder)} прямо в буфер вызывающей стороны, а {@link #question()}
+ * собирает строку один раз и запоминает её.
+ * Равенство — по тексту вопроса, ответу и метаданным (как у прежнего record).
  */
-public record Task(String question, String answer, Map<String, Object> metadata) {
+public final class Task {
+
+    private final TaskFormat format;
+    private final int first;
+    private final int second;
+    private final int blankPosition;
+    private final String answer;
+    private final Map<String, Object> metadata;
+    private String question;
+
+    public Task(String question, String answer, Map<String, Object> metadata) {
+        this(null, 0, 0, 0, question, answer, metadata);
+    }
 
     /**
      * Создаёт задание с пустыми метаданными.
@@ -14,4 +33,88 @@ public record Task(String question, String answer, Map<String, Object> metadata)
     public Task(String question, String answer) {
         this(question, answer, Collections.emptyMap());
     }
+
+    /**
+     * Создаёт структурированное задание: вопрос будет отрисован форматом при выводе.
+     */
+    public Task(TaskFormat format, int first, int second, int blankPosition, String answer) {
+        this(Objects.requireNonNull(format, "format"), first, second, blankPosition, null, answer,
+                Collections.emptyMap());
+    }
+
+    private Task(TaskFormat format, int first, int second, int blankPosition,
+                 String question, String answer, Map<String, Object> metadata) {
+        this.format = format;
+        this.first = first;
+        this.second = second;
+        this.blankPosition = blankPosition;
+        this.question = question;
+        this.answer = answer;
+        this.metadata = metadata;
+    }
+
+    /**
+     * Текст вопроса; для структурированного задания собирается при первом обращении.
+     */
+    public String question() {
+        String text = question;
+        if (text == null && format != null) {
+            StringBuilder out = new StringBuilder(24);
+            format.appendTo(out, first, second, blankPosition);
+            text = out.toString();
+            question = text;
+        }
+        return text;
+    }
+
+    /**
+     * Дописать текст вопроса в {@code out} без промежуточной строки (если вопрос ещё не собран).
+     */
+    public void appendQuestion(StringBuilder out) {
+        String text = question;
+        if (text != null) {
+            out.append(text);
+        } else if (format != null) {
+            format.appendTo(out, first, second, blankPosition);
+        }
+    }
+
+    /**
+     * Начинаются ли оба задания с одного и того же числа (первый операнд структурированного задания).
+     * У текстовых заданий операнды неизвестны — false.
+     */
+    boolean sameFirstOperand(Task other) {
+        return format != null && other.format != null && first == other.first;
+    }
+
+    public String answer() {
+        return answer;
+    }
+
+    public Map<String, Object> metadata() {
+        return metadata;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Task other)) {
+            return false;
+        }
+        return Objects.equals(question(), other.question())
+                && Objects.equals(answer, other.answer)
+                && Objects.equals(metadata, other.metadata);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(question(), answer, metadata);
+    }
+
+    @Override
+    public String toString() {
+        return "Task[question=" + question() + ", answer=" + answer + ", metadata=" + metadata + "]";
+    }
 }
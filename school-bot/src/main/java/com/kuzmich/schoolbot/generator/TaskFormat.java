@@ -0,0 +1,21 @@
+package com.kuzmich.schoolbot.generator;
+
+/**
+ * Способ отрисовки структурированного задания в текст.
+ * Вызывается при выводе (PDF), а не при генерации: генератор хранит только числа и позицию пропуска.
+ *
+ * @see MessageTaskFormat
+ */
+@FunctionalInterface
+public interface TaskFormat {
+
+    /**
+     * Дописать текст вопроса в {@code out}.
+     *
+     * @param out           буфер вывода (переиспользуется вызывающей стороной)
+     * @param first         первое число задания
+     * @param second        второе число задания
+     * @param blankPosition позиция пустого места для ответа (смысл зависит от формата)
+     */
+    void appendTo(StringBuilder out, int first, int second, int blankPosition);
+}
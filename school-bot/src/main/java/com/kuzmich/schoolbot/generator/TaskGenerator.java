@@ -1,6 +1,7 @@
 package com.kuzmich.schoolbot.generator;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Единый интерфейс для всех генераторов заданий.
@@ -15,4 +16,31 @@ public interface TaskGenerator {
      * @return список заданий (может быть пустым при quantity = 0)
      */
     List<Task> generate(GenerationContext context);
+
+    /**
+     * Потоковая генерация: задания передаются в {@code sink} по одному, по мере отбора.
+     * Нужна для больших тетрадей (сотни и тысячи заданий), которые рисуются в PDF постранично
+     * и не должны целиком держаться в памяти. По умолчанию — через {@link #generate(GenerationContext)}.
+     *
+     * @param context контекст генерации; не null
+     * @param sink    получатель заданий; не null
+     * @return количество переданных заданий
+     */
+    default int generate(GenerationContext context, Consumer<? super Task> sink) {
+        List<Task> tasks = generate(context);
+        tasks.forEach(sink);
+        return tasks.size();
+    }
+
+    /**
+     * Сколько заданий генератор гарантированно выдаст по контексту: без повторов лист не длиннее домена операции,
+     * а эвристики последовательности могут не дать собрать весь домен
+     * (см. {@code CandidateDomain#guaranteedTaskCount()}). По умолчанию не ограничено — генератор добивает лист
+     * до запрошенного количества.
+     *
+     * @param context контекст генерации; количество в нём не учитывается
+     */
+    default int maxTasks(GenerationContext context) {
+        return Integer.MAX_VALUE;
+    }
 }
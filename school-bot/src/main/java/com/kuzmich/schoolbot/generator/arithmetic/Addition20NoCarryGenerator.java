@@ -2,7 +2,8 @@ package com.kuzmich.schoolbot.generator.arithmetic;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
 
 import org.springframework.stereotype.Component;
 
@@ -11,8 +12,12 @@ import com.kuzmich.schoolbot.core.validation.Validation;
 import com.kuzmich.schoolbot.generator.ArithmeticContext;
 import com.kuzmich.schoolbot.generator.ArithmeticTaskGenerator;
 import com.kuzmich.schoolbot.generator.GenerationContext;
+import com.kuzmich.schoolbot.generator.GenerationRandom;
+import com.kuzmich.schoolbot.generator.MessageTaskFormat;
 import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.generator.Range;
 import com.kuzmich.schoolbot.generator.Task;
+import com.kuzmich.schoolbot.generator.TaskFormat;
 import com.kuzmich.schoolbot.i18n.GeneratorMessageKeys;
 
 /**
@@ -24,6 +29,9 @@ import com.kuzmich.schoolbot.i18n.GeneratorMessageKeys;
 @Component
 public class Addition20NoCarryGenerator implements ArithmeticTaskGenerator {
 
+    private static final int BLANK_SLOT = 2;
+    private static final Range DOMAIN_RANGE = new Range(0, 19);
+
     private final MessageService messageService;
 
     public Addition20NoCarryGenerator(MessageService messageService) {
@@ -36,40 +44,44 @@ public class Addition20NoCarryGenerator implements ArithmeticTaskGenerator {
     }
 
     @Override
-    public List<Task> generate(GenerationContext context) {
+    public int generate(GenerationContext context, Consumer<? super Task> sink) {
         Validation.requireNonNull(context, "context");
         ArithmeticContext ctx = (ArithmeticContext) context;
         ctx.validate();
 
         int quantity = ctx.getQuantity();
         if (quantity == 0) {
-            return List.of();
+            return 0;
         }
 
-        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        RandomGenerator rnd = GenerationRandom.forContext(ctx);
 
-        List<ArithmeticGenerationUtils.Candidate> domain = enumerateDomain();
-        List<java.util.function.Predicate<ArithmeticGenerationUtils.Candidate>> levels =
-                buildRelaxationLevels();
-        String blank = messageService.getText(GeneratorMessageKeys.QUESTION_BLANK);
+        CandidateDomain domain = domain();
+        TaskFormat format = MessageTaskFormat.of(messageService, GeneratorMessageKeys.QUESTION_FORMAT_ADDITION);
 
-        return ArithmeticGenerationUtils.generateWithRelaxation(
+        return ArithmeticGenerationUtils.emitWithRelaxation(
                 domain,
                 quantity,
-                levels,
                 rnd,
-                candidate -> {
-                    String question = messageService.getText(
-                            GeneratorMessageKeys.QUESTION_FORMAT_ADDITION,
-                            candidate.a(),
-                            candidate.b(),
-                            blank
-                    );
-                    return new Task(question, String.valueOf(candidate.answer()));
-                }
+                candidate -> new Task(format, candidate.a(), candidate.b(), BLANK_SLOT,
+                        String.valueOf(candidate.answer())),
+                false,
+                false,
+                ctx.getRecentTasks(),
+                sink
         );
     }
 
+    @Override
+    public int maxTasks(GenerationContext context) {
+        return domain().guaranteedTaskCount();
+    }
+
+    private CandidateDomain domain() {
+        return CandidateDomains.get(getOperationType(), DOMAIN_RANGE,
+                () -> CandidateDomain.of(enumerateDomain(), buildRelaxationLevels()));
+    }
+
     /**
      * Перечисляет домен: сложение в пределах 20 без перехода через десяток.
      * a ∈ [0, 19] (0–9 или 10–19), b ∈ [0, 9], единицы a + единицы b &lt; 10.
@@ -2,7 +2,9 @@ package com.kuzmich.schoolbot.generator.arithmetic;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
 
 import org.springframework.stereotype.Component;
 
@@ -11,9 +13,12 @@ import com.kuzmich.schoolbot.core.validation.Validation;
 import com.kuzmich.schoolbot.generator.ArithmeticContext;
 import com.kuzmich.schoolbot.generator.ArithmeticTaskGenerator;
 import com.kuzmich.schoolbot.generator.GenerationContext;
+import com.kuzmich.schoolbot.generator.GenerationRandom;
+import com.kuzmich.schoolbot.generator.MessageTaskFormat;
 import com.kuzmich.schoolbot.generator.OperationType;
 import com.kuzmich.schoolbot.generator.Range;
 import com.kuzmich.schoolbot.generator.Task;
+import com.kuzmich.schoolbot.generator.TaskFormat;
 import com.kuzmich.schoolbot.i18n.GeneratorMessageKeys;
 
 /**
@@ -21,10 +26,14 @@ import com.kuzmich.schoolbot.i18n.GeneratorMessageKeys;
  * Использует домен + уровни ослабления + квоты и двухпроходный отбор
  * ({@link ArithmeticGenerationUtils}).
  * Домен: a ∈ [min, max], b ∈ [0, max - a], ответ a + b; вопрос «a + b = » (пустое место для ответа).
+ * Для больших диапазонов (больше {@link ArithmeticGenerationUtils#SAMPLING_THRESHOLD} пар) домен не перечисляется —
+ * примеры выбираются по рангам {@link OperandSpace}.
  */
 @Component
 public class AdditionGenerator implements ArithmeticTaskGenerator {
 
+    private static final int BLANK_SLOT = 2;
+
     private final MessageService messageService;
 
     public AdditionGenerator(MessageService messageService) {
@@ -37,39 +46,47 @@ public class AdditionGenerator implements ArithmeticTaskGenerator {
     }
 
     @Override
-    public List<Task> generate(GenerationContext context) {
+    public int generate(GenerationContext context, Consumer<? super Task> sink) {
         Validation.requireNonNull(context, "context");
         ArithmeticContext ctx = (ArithmeticContext) context;
         ctx.validate();
 
         int quantity = ctx.getQuantity();
         if (quantity == 0) {
-            return List.of();
+            return 0;
         }
 
         Range range = ctx.getNumberRange();
-        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        RandomGenerator rnd = GenerationRandom.forContext(ctx);
 
-        List<ArithmeticGenerationUtils.Candidate> domain = enumerateDomain(range);
-        List<java.util.function.Predicate<ArithmeticGenerationUtils.Candidate>> levels =
-                buildRelaxationLevels();
-        String blank = messageService.getText(GeneratorMessageKeys.QUESTION_BLANK);
-
-        return ArithmeticGenerationUtils.generateWithRelaxation(
-                domain,
-                quantity,
-                levels,
-                rnd,
-                candidate -> {
-                    String question = messageService.getText(
-                            GeneratorMessageKeys.QUESTION_FORMAT_ADDITION,
-                            candidate.a(),
-                            candidate.b(),
-                            blank
-                    );
-                    return new Task(question, String.valueOf(candidate.answer()));
-                }
-        );
+        TaskFormat format = MessageTaskFormat.of(messageService, GeneratorMessageKeys.QUESTION_FORMAT_ADDITION);
+        Function<ArithmeticGenerationUtils.Candidate, Task> toTask = candidate -> new Task(format,
+                candidate.a(), candidate.b(), BLANK_SLOT, String.valueOf(candidate.answer()));
+
+        // Большие диапазоны (старшие классы): выборка по рангам вместо перечисления O(n²) кандидатов
+        OperandSpace space = OperandSpace.addition(range.min(), range.max());
+        if (space.size() > ArithmeticGenerationUtils.SAMPLING_THRESHOLD) {
+            return ArithmeticGenerationUtils.emitBySampling(
+                    space, quantity, buildRelaxationLevels(), rnd, toTask, ctx.getRecentTasks(), sink);
+        }
+
+        return ArithmeticGenerationUtils.emitWithRelaxation(domain(range), quantity, rnd, toTask, false, false,
+                ctx.getRecentTasks(), sink);
+    }
+
+    @Override
+    public int maxTasks(GenerationContext context) {
+        Range range = ((ArithmeticContext) context).getNumberRange();
+        OperandSpace space = OperandSpace.addition(range.min(), range.max());
+        if (space.size() > ArithmeticGenerationUtils.SAMPLING_THRESHOLD) {
+            return (int) Math.min(space.size(), Integer.MAX_VALUE);
+        }
+        return domain(range).guaranteedTaskCount();
+    }
+
+    private CandidateDomain domain(Range range) {
+        return CandidateDomains.get(getOperationType(), range,
+                () -> CandidateDomain.of(enumerateDomain(range), buildRelaxationLevels()));
     }
 
     /**
@@ -1,16 +1,17 @@
 package com.kuzmich.schoolbot.generator.arithmetic;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.random.RandomGenerator;
 
+import com.kuzmich.schoolbot.generator.GenerationStats;
+import com.kuzmich.schoolbot.generator.RecentTaskFilter;
 import com.kuzmich.schoolbot.generator.Task;
 
 /**
@@ -31,6 +32,16 @@ import com.kuzmich.schoolbot.generator.Task;
  */
 public final class ArithmeticGenerationUtils {
 
+    /**
+     * Порог размера пространства операндов, выше которого генераторы переходят с перечисления домена
+     * на выборку ({@link #emitBySampling}): перечисление O(n²) кандидатов со строковыми ключами
+     * на диапазонах вроде 0..1000 стоит сотни тысяч объектов на запрос.
+     */
+    public static final long SAMPLING_THRESHOLD = 10_000;
+
+    /** Попыток выборки на одно недостающее задание в пределах уровня, прежде чем перейти к следующему. */
+    private static final int SAMPLING_ATTEMPTS_PER_TASK = 64;
+
     private ArithmeticGenerationUtils() {
         // utility class
     }
@@ -54,7 +65,7 @@ public final class ArithmeticGenerationUtils {
             List<Candidate> domain,
             int quantity,
             List<Predicate<Candidate>> levels,
-            ThreadLocalRandom rnd,
+            RandomGenerator rnd,
             Function<Candidate, Task> toTask
     ) {
         return generateWithRelaxation(domain, quantity, levels, rnd, toTask, false, false);
@@ -66,7 +77,7 @@ public final class ArithmeticGenerationUtils {
      * @param domain                    полный список всех допустимых примеров
      * @param quantity                  требуемое количество заданий
      * @param levels                    уровни правил от самого строгого к более мягким
-     * @param rnd                       источник случайных чисел
+     * @param rnd                       источник случайных чисел (с сидом — детерминированная генерация)
      * @param toTask                    преобразование кандидата в {@link Task}
      * @param relaxedSequenceHeuristics если true, запрещаем только два одинаковых задания подряд (по key);
      *                                  иначе дополнительно запрещаем одинаковый первый операнд и ответ подряд
@@ -77,7 +88,7 @@ public final class ArithmeticGenerationUtils {
             List<Candidate> domain,
             int quantity,
             List<Predicate<Candidate>> levels,
-            ThreadLocalRandom rnd,
+            RandomGenerator rnd,
             Function<Candidate, Task> toTask,
             boolean relaxedSequenceHeuristics,
             boolean allowRepeats
@@ -88,91 +99,436 @@ public final class ArithmeticGenerationUtils {
         if (domain.isEmpty() || levels.isEmpty()) {
             return List.of();
         }
+        return generateWithRelaxation(CandidateDomain.of(domain, levels), quantity, rnd, toTask,
+                relaxedSequenceHeuristics, allowRepeats);
+    }
 
+    /**
+     * Генерация заданий из кэшируемого домена без ослабления эвристик и без повторов (для арифметики).
+     */
+    public static List<Task> generateWithRelaxation(
+            CandidateDomain domain,
+            int quantity,
+            RandomGenerator rnd,
+            Function<Candidate, Task> toTask
+    ) {
+        return generateWithRelaxation(domain, quantity, rnd, toTask, false, false);
+    }
+
+    /**
+     * Генерация заданий из заранее построенного (кэшируемого) домена: пул каждого уровня собирается
+     * по предвычисленным индексам {@link CandidateDomain}, без повторной фильтрации всего домена.
+     * Семантика — как у {@link #generateWithRelaxation(List, int, List, RandomGenerator, Function, boolean, boolean)}.
+     * <p>
+     * Ядро работает на примитивах: кандидаты — индексы в домене, использованные ключи — {@link BitSet},
+     * счётчики баланса — {@code int[]} по диапазону значений. Пул не перемешивается целиком:
+     * частичный Фишер–Йетс выбирает очередной элемент только тогда, когда до него дошёл отбор.
+     */
+    public static List<Task> generateWithRelaxation(
+            CandidateDomain domain,
+            int quantity,
+            RandomGenerator rnd,
+            Function<Candidate, Task> toTask,
+            boolean relaxedSequenceHeuristics,
+            boolean allowRepeats
+    ) {
+        if (quantity <= 0) {
+            return List.of();
+        }
         List<Task> result = new ArrayList<>(quantity);
-        Set<String> usedKeys = new HashSet<>();
-        Candidate lastCandidate = null;
-        Map<Integer, Integer> countA = new HashMap<>();
-        Map<Integer, Integer> countAnswer = new HashMap<>();
+        emitWithRelaxation(domain, quantity, rnd, toTask, relaxedSequenceHeuristics, allowRepeats, result::add);
+        return result;
+    }
 
-        for (int levelIndex = 0; levelIndex < levels.size(); levelIndex++) {
-            Predicate<Candidate> level = levels.get(levelIndex);
-            if (result.size() >= quantity) {
+    /**
+     * Потоковый вариант {@link #generateWithRelaxation(CandidateDomain, int, RandomGenerator, Function, boolean, boolean)}:
+     * задания передаются в {@code sink} по мере отбора, без промежуточного списка. Состояние ядра
+     * (использованные ключи, счётчики баланса, пул индексов) зависит только от размера домена,
+     * поэтому память не растёт с {@code quantity}; уровни ослабления и баланс — те же, что у списочного варианта.
+     *
+     * @param sink получатель заданий, вызывается ровно столько раз, сколько вернул метод
+     * @return количество переданных в {@code sink} заданий
+     */
+    public static int emitWithRelaxation(
+            CandidateDomain domain,
+            int quantity,
+            RandomGenerator rnd,
+            Function<Candidate, Task> toTask,
+            boolean relaxedSequenceHeuristics,
+            boolean allowRepeats,
+            Consumer<? super Task> sink
+    ) {
+        return emitWithRelaxation(domain, quantity, rnd, toTask, relaxedSequenceHeuristics, allowRepeats, null, sink);
+    }
+
+    /**
+     * Потоковая генерация с учётом недавних заданий пользователя: уровни ослабления проходятся только по кандидатам,
+     * которых нет в {@code recentTasks}, а недавние задания всех уровней образуют один замыкающий уровень после них —
+     * свежий пример мягкого уровня лучше уже виденного строгого. Недавние задания не запрещены, а лишь понижены
+     * в приоритете, поэтому маленький домен по-прежнему заполняет лист.
+     * <p>
+     * Если в текущем потоке идёт сбор {@link GenerationStats}, ядро записывает в неё глубину ослабления,
+     * размеры пулов уровней, повторы и отклонённых кандидатов; иначе статистика не ведётся. Замыкающий уровень
+     * недавних заданий учитывается в ней под номером {@code levelCount()}.
+     *
+     * @param recentTasks недавние задания пользователя; null или пустой фильтр — поведение как без истории
+     * @see #emitWithRelaxation(CandidateDomain, int, RandomGenerator, Function, boolean, boolean, Consumer)
+     */
+    public static int emitWithRelaxation(
+            CandidateDomain domain,
+            int quantity,
+            RandomGenerator rnd,
+            Function<Candidate, Task> toTask,
+            boolean relaxedSequenceHeuristics,
+            boolean allowRepeats,
+            RecentTaskFilter recentTasks,
+            Consumer<? super Task> sink
+    ) {
+        if (quantity <= 0) {
+            return 0;
+        }
+        if (domain.isEmpty() || domain.levelCount() == 0) {
+            return 0;
+        }
+
+        BitSet recentKeys = recentKeys(domain, recentTasks, toTask);
+        // При истории после всех уровней свежих кандидатов идёт ещё один, замыкающий: недавние задания всех уровней
+        int steps = domain.levelCount() + (recentKeys != null ? 1 : 0);
+        int[] queuedKeys = recentKeys != null ? new int[domain.keyCount()] : null;
+        GenerationStats stats = GenerationStats.current();
+        int produced = 0;
+        BitSet usedKeys = new BitSet(domain.keyCount());
+        int last = -1;
+        int minA = domain.minA();
+        int minAnswer = domain.minAnswer();
+        int[] countA = new int[domain.aSpan()];
+        int[] countAnswer = new int[domain.answerSpan()];
+        // Метки «значение уже встречалось в этом пуле» — номер пула + 1, без очистки между пулами
+        int[] seenA = new int[countA.length];
+        int[] seenAnswer = new int[countAnswer.length];
+        int[] pool = new int[domain.size()];
+
+        for (int levelIndex = 0; levelIndex < steps; levelIndex++) {
+            if (produced >= quantity) {
                 break;
             }
 
-            List<Candidate> pool = new ArrayList<>();
-            Set<Integer> distinctA = new HashSet<>();
-            Set<Integer> distinctAnswers = new HashSet<>();
-            for (Candidate c : domain) {
-                if (usedKeys.contains(c.key())) {
-                    continue;
-                }
-                if (!level.test(c)) {
-                    continue;
+            int stamp = levelIndex + 1;
+            int size = 0;
+            int distinctA = 0;
+            int distinctAnswers = 0;
+            boolean trailing = levelIndex == domain.levelCount();
+            int fromLevel = trailing ? 0 : levelIndex;
+            int toLevel = trailing ? domain.levelCount() : levelIndex + 1;
+            for (int level = fromLevel; level < toLevel; level++) {
+                for (int index : domain.levelIndices(level)) {
+                    int keyId = domain.keyId(index);
+                    if (usedKeys.get(keyId)) {
+                        continue;
+                    }
+                    if (recentKeys != null && recentKeys.get(keyId) != trailing) {
+                        continue;
+                    }
+                    if (trailing) {
+                        // Кандидат может входить в несколько уровней — в замыкающий пул он попадает один раз
+                        if (queuedKeys[keyId] == stamp) {
+                            continue;
+                        }
+                        queuedKeys[keyId] = stamp;
+                    }
+                    pool[size++] = index;
+                    int aSlot = domain.a(index) - minA;
+                    if (seenA[aSlot] != stamp) {
+                        seenA[aSlot] = stamp;
+                        distinctA++;
+                    }
+                    int answerSlot = domain.answer(index) - minAnswer;
+                    if (seenAnswer[answerSlot] != stamp) {
+                        seenAnswer[answerSlot] = stamp;
+                        distinctAnswers++;
+                    }
                 }
-                pool.add(c);
-                distinctA.add(c.a());
-                distinctAnswers.add(c.answer());
             }
 
-            if (pool.isEmpty()) {
+            if (stats != null) {
+                stats.poolSize(levelIndex, size);
+            }
+            if (size == 0) {
                 continue;
             }
 
-            Collections.shuffle(pool, rnd);
-
-            int capA = computeCap(quantity, distinctA.size());
-            int capAnswer = computeCap(quantity, distinctAnswers.size());
+            int capA = computeCap(quantity, distinctA);
+            int capAnswer = computeCap(quantity, distinctAnswers);
+            int drawn = 0;
 
-            for (Candidate candidate : pool) {
-                if (result.size() >= quantity) {
-                    break;
+            for (int pos = 0; pos < size && produced < quantity; pos++) {
+                if (pos == drawn) {
+                    swap(pool, pos, pos + rnd.nextInt(size - pos));
+                    drawn++;
                 }
-                if (violatesSequenceHeuristics(lastCandidate, candidate, relaxedSequenceHeuristics)) {
+                int candidate = pool[pos];
+                if (violatesSequenceHeuristics(domain, last, candidate, relaxedSequenceHeuristics)) {
+                    if (stats != null) {
+                        stats.sequenceRejected();
+                    }
                     continue;
                 }
-                if (!passesBalance(candidate, countA, countAnswer, capA, capAnswer)) {
+                if (countA[domain.a(candidate) - minA] >= capA
+                        || countAnswer[domain.answer(candidate) - minAnswer] >= capAnswer) {
+                    if (stats != null) {
+                        stats.balanceRejected();
+                    }
                     continue;
                 }
-                result.add(toTask.apply(candidate));
-                usedKeys.add(candidate.key());
-                lastCandidate = candidate;
-                increment(countA, candidate.a());
-                increment(countAnswer, candidate.answer());
+                sink.accept(toTask.apply(domain.candidate(candidate)));
+                produced++;
+                usedKeys.set(domain.keyId(candidate));
+                last = candidate;
+                if (stats != null) {
+                    stats.levelUsed(levelIndex);
+                }
+                countA[domain.a(candidate) - minA]++;
+                countAnswer[domain.answer(candidate) - minAnswer]++;
             }
 
-            if (result.size() >= quantity) {
+            if (produced >= quantity) {
                 continue;
             }
 
-            for (Candidate candidate : pool) {
-                if (result.size() >= quantity) {
-                    break;
+            for (int pos = 0; pos < size && produced < quantity; pos++) {
+                if (pos == drawn) {
+                    swap(pool, pos, pos + rnd.nextInt(size - pos));
+                    drawn++;
                 }
-                if (usedKeys.contains(candidate.key())) {
+                int candidate = pool[pos];
+                if (usedKeys.get(domain.keyId(candidate))) {
                     continue;
                 }
-                if (violatesSequenceHeuristics(lastCandidate, candidate, relaxedSequenceHeuristics)) {
+                if (violatesSequenceHeuristics(domain, last, candidate, relaxedSequenceHeuristics)) {
+                    if (stats != null) {
+                        stats.sequenceRejected();
+                    }
                     continue;
                 }
-                result.add(toTask.apply(candidate));
-                usedKeys.add(candidate.key());
-                lastCandidate = candidate;
-                increment(countA, candidate.a());
-                increment(countAnswer, candidate.answer());
+                sink.accept(toTask.apply(domain.candidate(candidate)));
+                produced++;
+                usedKeys.set(domain.keyId(candidate));
+                last = candidate;
+                if (stats != null) {
+                    stats.levelUsed(levelIndex);
+                }
+                countA[domain.a(candidate) - minA]++;
+                countAnswer[domain.answer(candidate) - minAnswer]++;
             }
         }
 
+        // Хвост домена: уровни могли пропустить кандидатов из-за эвристик последовательности —
+        // оставшиеся перебираются целиком, пока находится кандидат без нарушения
+        if (produced < quantity) {
+            produced += emitTail(domain, quantity - produced, rnd, toTask, relaxedSequenceHeuristics,
+                    usedKeys, last, stats, sink);
+        }
+
         // Для состава числа: при нехватке уникальных заданий добиваем повторами из домена
-        if (allowRepeats && result.size() < quantity && !domain.isEmpty()) {
-            while (result.size() < quantity) {
-                Candidate c = domain.get(rnd.nextInt(domain.size()));
-                result.add(toTask.apply(c));
+        if (allowRepeats && produced < quantity) {
+            while (produced < quantity) {
+                Candidate c = domain.candidate(rnd.nextInt(domain.size()));
+                sink.accept(toTask.apply(c));
+                produced++;
+                if (stats != null) {
+                    stats.repeatAdded();
+                }
             }
         }
 
-        return result;
+        return produced;
+    }
+
+    /**
+     * Генерация без перечисления домена: выборка с отклонением по рангам {@link OperandSpace}.
+     * <p>
+     * Случайный ранг превращается в пару операндов; пара отбрасывается, если ответ вне диапазона,
+     * ранг уже использован, пример не проходит текущий уровень ослабления (уровни — те же предикаты,
+     * что и для перечисленного домена) или нарушает эвристики последовательности и баланс по a и ответу.
+     * На каждый проход уровня (с квотами баланса и без) даётся {@value #SAMPLING_ATTEMPTS_PER_TASK} попыток
+     * на недостающее задание, затем — следующий, более мягкий уровень. Время и память — O(quantity) при любом диапазоне:
+     * уникальность держится в {@link LongHashSet} рангов, счётчики баланса — только по встреченным значениям.
+     * <p>
+     * У кандидатов, передаваемых в {@code toTask}, ключ не заполняется (null): уникальность — по рангу.
+     *
+     * @return количество переданных в {@code sink} заданий (меньше quantity, если допустимых примеров не хватило)
+     */
+    public static int emitBySampling(
+            OperandSpace space,
+            int quantity,
+            List<Predicate<Candidate>> levels,
+            RandomGenerator rnd,
+            Function<Candidate, Task> toTask,
+            Consumer<? super Task> sink
+    ) {
+        return emitBySampling(space, quantity, levels, rnd, toTask, null, sink);
+    }
+
+    /**
+     * Выборочная генерация с учётом недавних заданий пользователя: как и в ядре по домену, сначала все уровни
+     * проходятся только по свежим примерам, затем, замыкающим проходом, — по всем.
+     *
+     * @param recentTasks недавние задания пользователя; null или пустой фильтр — поведение как без истории
+     */
+    public static int emitBySampling(
+            OperandSpace space,
+            int quantity,
+            List<Predicate<Candidate>> levels,
+            RandomGenerator rnd,
+            Function<Candidate, Task> toTask,
+            RecentTaskFilter recentTasks,
+            Consumer<? super Task> sink
+    ) {
+        if (quantity <= 0 || levels.isEmpty()) {
+            return 0;
+        }
+
+        long size = space.size();
+        LongHashSet usedRanks = new LongHashSet(quantity);
+        Map<Integer, Integer> countA = new HashMap<>();
+        Map<Integer, Integer> countAnswer = new HashMap<>();
+        int capA = computeCap(quantity, space.maxA() - space.minA() + 1);
+        int capAnswer = computeCap(quantity, space.maxAnswer() - space.minAnswer() + 1);
+        Candidate last = null;
+        int produced = 0;
+        int rounds = recentTasks != null && !recentTasks.isEmpty() ? 2 : 1;
+        GenerationStats stats = GenerationStats.current();
+
+        for (int round = 0; round < rounds && produced < quantity; round++) {
+            boolean freshOnly = rounds == 2 && round == 0;
+            for (int levelIndex = 0; levelIndex < levels.size() && produced < quantity; levelIndex++) {
+                Predicate<Candidate> level = levels.get(levelIndex);
+                // Замыкающий проход по недавним заданиям учитывается в статистике как уровень levels.size()
+                int statsLevel = round == 0 ? levelIndex : levels.size();
+                // Как и в ядре по домену: сначала с квотами баланса, затем без них
+                for (int pass = 0; pass < 2 && produced < quantity; pass++) {
+                    boolean balanced = pass == 0;
+                    long attempts = (long) SAMPLING_ATTEMPTS_PER_TASK * (quantity - produced);
+                    while (produced < quantity && attempts-- > 0) {
+                        long rank = rnd.nextLong(size);
+                        int a = space.a(rank);
+                        int b = space.b(rank);
+                        int answer = space.answer(a, b);
+                        if (!space.accepts(answer) || usedRanks.contains(rank)) {
+                            continue;
+                        }
+                        if (last != null && (last.a() == a || last.answer() == answer)) {
+                            if (stats != null) {
+                                stats.sequenceRejected();
+                            }
+                            continue;
+                        }
+                        if (balanced && (countA.getOrDefault(a, 0) >= capA
+                                || countAnswer.getOrDefault(answer, 0) >= capAnswer)) {
+                            if (stats != null) {
+                                stats.balanceRejected();
+                            }
+                            continue;
+                        }
+                        Candidate candidate = new Candidate(a, b, answer, null);
+                        if (!level.test(candidate)) {
+                            continue;
+                        }
+                        Task task = toTask.apply(candidate);
+                        if (freshOnly && recentTasks.mightContain(task.question())) {
+                            continue;
+                        }
+                        sink.accept(task);
+                        produced++;
+                        usedRanks.add(rank);
+                        countA.merge(a, 1, Integer::sum);
+                        countAnswer.merge(answer, 1, Integer::sum);
+                        last = candidate;
+                        if (stats != null) {
+                            stats.levelUsed(statsLevel);
+                        }
+                    }
+                }
+            }
+        }
+        return produced;
+    }
+
+    /**
+     * Добирает лист оставшимися уникальными кандидатами всех уровней, когда уровни исчерпаны только из-за
+     * эвристик последовательности (хвост маленького домена: одинаковые a или ответы подряд). Каждый раз из всего
+     * перемешанного хвоста берётся кандидат без нарушения; если такого нет, лист остаётся короче — эвристики
+     * не нарушаются. Перебор полный, поэтому лист не короче {@link CandidateDomain#guaranteedTaskCount()}.
+     * Хвост — несколько заданий, поэтому поиск линейный.
+     *
+     * @return количество переданных в {@code sink} заданий
+     */
+    private static int emitTail(CandidateDomain domain, int missing, RandomGenerator rnd,
+                                Function<Candidate, Task> toTask, boolean relaxedSequenceHeuristics,
+                                BitSet usedKeys, int last, GenerationStats stats, Consumer<? super Task> sink) {
+        int[] tail = new int[domain.size()];
+        int[] tailLevel = new int[domain.size()];
+        int size = 0;
+        BitSet queued = (BitSet) usedKeys.clone();
+        for (int levelIndex = 0; levelIndex < domain.levelCount(); levelIndex++) {
+            for (int index : domain.levelIndices(levelIndex)) {
+                if (!queued.get(domain.keyId(index))) {
+                    queued.set(domain.keyId(index));
+                    tail[size] = index;
+                    tailLevel[size++] = levelIndex;
+                }
+            }
+        }
+
+        for (int i = size - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            swap(tail, i, j);
+            swap(tailLevel, i, j);
+        }
+
+        int produced = 0;
+        for (int pos = 0; pos < size && produced < missing; pos++) {
+            int pick = -1;
+            for (int probe = pos; probe < size; probe++) {
+                if (!violatesSequenceHeuristics(domain, last, tail[probe], relaxedSequenceHeuristics)) {
+                    pick = probe;
+                    break;
+                }
+            }
+            if (pick < 0) {
+                break;
+            }
+            swap(tail, pos, pick);
+            swap(tailLevel, pos, pick);
+            int candidate = tail[pos];
+            sink.accept(toTask.apply(domain.candidate(candidate)));
+            produced++;
+            usedKeys.set(domain.keyId(candidate));
+            last = candidate;
+            if (stats != null) {
+                stats.levelUsed(tailLevel[pos]);
+            }
+        }
+        return produced;
+    }
+
+    /**
+     * Номера ключей домена, чьи задания есть среди недавних; null, если учитывать нечего.
+     * Фильтр проверяется по хэшам вопросов, посчитанным один раз на домен ({@link CandidateDomain#questionHashes}).
+     */
+    private static BitSet recentKeys(CandidateDomain domain, RecentTaskFilter recentTasks,
+                                     Function<Candidate, Task> toTask) {
+        if (recentTasks == null || recentTasks.isEmpty()) {
+            return null;
+        }
+        long[] questionHashes = domain.questionHashes(toTask);
+        BitSet recent = new BitSet(domain.keyCount());
+        for (int keyId = 0; keyId < questionHashes.length; keyId++) {
+            if (recentTasks.mightContainHash(questionHashes[keyId])) {
+                recent.set(keyId);
+            }
+        }
+        return recent.isEmpty() ? null : recent;
     }
 
     /**
@@ -180,20 +536,20 @@ public final class ArithmeticGenerationUtils {
      * одинаковый первый операнд (a) и одинаковый ответ; когда {@code relaxed == true} — только одинаковый ключ
      * (для состава числа, где a всегда одно и то же).
      */
-    private static boolean violatesSequenceHeuristics(Candidate last, Candidate current, boolean relaxed) {
-        if (last == null) {
+    private static boolean violatesSequenceHeuristics(CandidateDomain domain, int last, int current, boolean relaxed) {
+        if (last < 0) {
             return false;
         }
-        if (last.key().equals(current.key())) {
+        if (domain.keyId(last) == domain.keyId(current)) {
             return true;
         }
         if (relaxed) {
             return false;
         }
-        if (last.a() == current.a()) {
+        if (domain.a(last) == domain.a(current)) {
             return true;
         }
-        return last.answer() == current.answer();
+        return domain.answer(last) == domain.answer(current);
     }
 
     private static int computeCap(int quantity, int distinctValues) {
@@ -205,22 +561,9 @@ public final class ArithmeticGenerationUtils {
         return Math.max(2, cap);
     }
 
-    private static boolean passesBalance(
-            Candidate candidate,
-            Map<Integer, Integer> countA,
-            Map<Integer, Integer> countAnswer,
-            int capA,
-            int capAnswer
-    ) {
-        int aCount = countA.getOrDefault(candidate.a(), 0);
-        if (aCount >= capA) {
-            return false;
-        }
-        int answerCount = countAnswer.getOrDefault(candidate.answer(), 0);
-        return answerCount < capAnswer;
-    }
-
-    private static void increment(Map<Integer, Integer> counter, int key) {
-        counter.merge(key, 1, Integer::sum);
+    private static void swap(int[] array, int i, int j) {
+        int tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
     }
 }
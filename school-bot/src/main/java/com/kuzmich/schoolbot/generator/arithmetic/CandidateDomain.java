@@ -0,0 +1,239 @@
+package com.kuzmich.schoolbot.generator.arithmetic;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import com.kuzmich.schoolbot.core.validation.Validation;
+import com.kuzmich.schoolbot.generator.RecentTaskFilter;
+import com.kuzmich.schoolbot.generator.Task;
+
+/**
+ * Неизменяемый перечисленный домен кандидатов вместе с уровнями ослабления.
+ * <p>
+ * Кандидаты хранятся в массиве (ключи строятся один раз при создании домена), операнды и ответы —
+ * в примитивных массивах. Для каждого уровня заранее вычислен массив индексов подходящих кандидатов,
+ * поэтому при генерации домен не фильтруется заново. Строковые ключи заменены плотными номерами
+ * ({@link #keyId(int)}), а границы значений a и ответа позволяют вести счётчики баланса в {@code int[]}.
+ * Экземпляры переиспользуются между запросами через {@link CandidateDomains}.
+ */
+public final class CandidateDomain {
+
+    private final ArithmeticGenerationUtils.Candidate[] candidates;
+    private final int[] a;
+    private final int[] b;
+    private final int[] answer;
+    private final int[] keyIds;
+    private final int keyCount;
+    private final int uniqueTaskCount;
+    private final int guaranteedTaskCount;
+    private final int[][] levelIndices;
+    private final int minA;
+    private final int maxA;
+    private final int minAnswer;
+    private final int maxAnswer;
+    /** Хэши текста вопроса по номеру ключа; считаются при первой генерации с историей (см. {@link #questionHashes}). */
+    private volatile long[] questionHashes;
+
+    private CandidateDomain(ArithmeticGenerationUtils.Candidate[] candidates, int[][] levelIndices) {
+        this.candidates = candidates;
+        this.levelIndices = levelIndices;
+        this.a = new int[candidates.length];
+        this.b = new int[candidates.length];
+        this.answer = new int[candidates.length];
+        this.keyIds = new int[candidates.length];
+        Map<String, Integer> ids = new HashMap<>();
+        int lowA = Integer.MAX_VALUE;
+        int highA = Integer.MIN_VALUE;
+        int lowAnswer = Integer.MAX_VALUE;
+        int highAnswer = Integer.MIN_VALUE;
+        for (int i = 0; i < candidates.length; i++) {
+            a[i] = candidates[i].a();
+            b[i] = candidates[i].b();
+            answer[i] = candidates[i].answer();
+            keyIds[i] = ids.computeIfAbsent(candidates[i].key(), k -> ids.size());
+            lowA = Math.min(lowA, a[i]);
+            highA = Math.max(highA, a[i]);
+            lowAnswer = Math.min(lowAnswer, answer[i]);
+            highAnswer = Math.max(highAnswer, answer[i]);
+        }
+        this.keyCount = ids.size();
+        BitSet reachable = new BitSet(keyCount);
+        for (int[] level : levelIndices) {
+            for (int index : level) {
+                reachable.set(keyIds[index]);
+            }
+        }
+        this.uniqueTaskCount = reachable.cardinality();
+        this.minA = candidates.length > 0 ? lowA : 0;
+        this.maxA = candidates.length > 0 ? highA : -1;
+        this.minAnswer = candidates.length > 0 ? lowAnswer : 0;
+        this.maxAnswer = candidates.length > 0 ? highAnswer : -1;
+        this.guaranteedTaskCount = guaranteedTaskCount(reachable);
+    }
+
+    /**
+     * Нижняя граница заполнения при строгих эвристиках: ядро останавливается, только когда каждое невыданное
+     * задание совпадает с последним выданным по a или по ответу. Таких заданий не больше, чем
+     * (задания с тем же a − 1) + (задания с тем же ответом − 1), — берётся худший случай по всем заданиям.
+     */
+    private int guaranteedTaskCount(BitSet reachable) {
+        if (uniqueTaskCount == 0) {
+            return 0;
+        }
+        int[] byA = new int[maxA - minA + 1];
+        int[] byAnswer = new int[maxAnswer - minAnswer + 1];
+        int[] firstIndex = new int[keyCount];
+        Arrays.fill(firstIndex, -1);
+        for (int i = 0; i < keyIds.length; i++) {
+            int keyId = keyIds[i];
+            if (reachable.get(keyId) && firstIndex[keyId] < 0) {
+                firstIndex[keyId] = i;
+                byA[a[i] - minA]++;
+                byAnswer[answer[i] - minAnswer]++;
+            }
+        }
+        int stuck = 0;
+        for (int index : firstIndex) {
+            if (index >= 0) {
+                stuck = Math.max(stuck, byA[a[index] - minA] - 1 + byAnswer[answer[index] - minAnswer] - 1);
+            }
+        }
+        return uniqueTaskCount - stuck;
+    }
+
+    /**
+     * Построить домен: перечисленные кандидаты и уровни от самого строгого к самому мягкому.
+     * Предикаты уровней применяются один раз — здесь.
+     */
+    public static CandidateDomain of(List<ArithmeticGenerationUtils.Candidate> candidates,
+                                     List<Predicate<ArithmeticGenerationUtils.Candidate>> levels) {
+        Validation.requireNonNull(candidates, "candidates");
+        Validation.requireNonNull(levels, "levels");
+        ArithmeticGenerationUtils.Candidate[] array = candidates.toArray(new ArithmeticGenerationUtils.Candidate[0]);
+        int[][] indices = new int[levels.size()][];
+        int[] buffer = new int[array.length];
+        for (int level = 0; level < levels.size(); level++) {
+            Predicate<ArithmeticGenerationUtils.Candidate> predicate = levels.get(level);
+            int count = 0;
+            for (int i = 0; i < array.length; i++) {
+                if (predicate.test(array[i])) {
+                    buffer[count++] = i;
+                }
+            }
+            indices[level] = Arrays.copyOf(buffer, count);
+        }
+        return new CandidateDomain(array, indices);
+    }
+
+    public int size() {
+        return candidates.length;
+    }
+
+    /**
+     * Сколько разных заданий можно отобрать без повторов: число ключей кандидатов, прошедших хотя бы один уровень.
+     * Лист без добивки повторами длиннее этого не бывает.
+     */
+    public int uniqueTaskCount() {
+        return uniqueTaskCount;
+    }
+
+    /**
+     * Сколько заданий ядро отбора выдаёт при строгих эвристиках последовательности (подряд нет одинакового a
+     * и одинакового ответа) при любом сиде. Ближе к {@link #uniqueTaskCount()} лист может не собраться:
+     * оставшиеся задания хвоста все совпадают с последним по a или по ответу, а нарушать эвристики ядро не станет.
+     */
+    public int guaranteedTaskCount() {
+        return guaranteedTaskCount;
+    }
+
+    public boolean isEmpty() {
+        return candidates.length == 0;
+    }
+
+    public int levelCount() {
+        return levelIndices.length;
+    }
+
+    public ArithmeticGenerationUtils.Candidate candidate(int index) {
+        return candidates[index];
+    }
+
+    public int a(int index) {
+        return a[index];
+    }
+
+    public int b(int index) {
+        return b[index];
+    }
+
+    public int answer(int index) {
+        return answer[index];
+    }
+
+    /**
+     * Индексы кандидатов, проходящих уровень {@code level}. Массив общий — не изменять.
+     */
+    int[] levelIndices(int level) {
+        return levelIndices[level];
+    }
+
+    /**
+     * Номер ключа кандидата в [0, {@link #keyCount()}): одинаковые ключи получают одинаковый номер.
+     */
+    int keyId(int index) {
+        return keyIds[index];
+    }
+
+    int keyCount() {
+        return keyCount;
+    }
+
+    /**
+     * Хэши текста вопроса ({@link RecentTaskFilter#questionHash}) по номеру ключа — для сверки с историей
+     * пользователя. Формат вопроса операции не меняется, пока домен в кэше, поэтому текст кандидатов строится
+     * один раз на домен, а не на каждый запрос. Гонка при первом вызове безвредна: оба потока посчитают
+     * одинаковый массив.
+     */
+    long[] questionHashes(Function<ArithmeticGenerationUtils.Candidate, Task> toTask) {
+        long[] hashes = questionHashes;
+        if (hashes == null) {
+            hashes = new long[keyCount];
+            BitSet hashed = new BitSet(keyCount);
+            for (int i = 0; i < candidates.length; i++) {
+                if (!hashed.get(keyIds[i])) {
+                    hashed.set(keyIds[i]);
+                    hashes[keyIds[i]] = RecentTaskFilter.questionHash(toTask.apply(candidates[i]).question());
+                }
+            }
+            questionHashes = hashes;
+        }
+        return hashes;
+    }
+
+    int minA() {
+        return minA;
+    }
+
+    /**
+     * Число возможных значений a: размер массива счётчиков по первому операнду.
+     */
+    int aSpan() {
+        return maxA - minA + 1;
+    }
+
+    int minAnswer() {
+        return minAnswer;
+    }
+
+    /**
+     * Число возможных значений ответа: размер массива счётчиков по ответу.
+     */
+    int answerSpan() {
+        return maxAnswer - minAnswer + 1;
+    }
+}
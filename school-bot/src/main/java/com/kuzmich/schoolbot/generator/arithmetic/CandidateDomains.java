@@ -0,0 +1,44 @@
+package com.kuzmich.schoolbot.generator.arithmetic;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.generator.Range;
+
+/**
+ * Кэш неизменяемых доменов кандидатов по ключу (тип операции, диапазон).
+ * Домен перечисляется один раз на ключ и затем переиспользуется всеми запросами и потоками.
+ * Размер кэша ограничен: при переполнении (нестандартные диапазоны) домен строится без кэширования.
+ */
+public final class CandidateDomains {
+
+    private static final int MAX_ENTRIES = 256;
+
+    private static final Map<Key, CandidateDomain> CACHE = new ConcurrentHashMap<>();
+
+    private CandidateDomains() {
+        // utility class
+    }
+
+    /**
+     * Вернуть домен из кэша или построить его через {@code factory}.
+     */
+    public static CandidateDomain get(OperationType operationType, Range range, Supplier<CandidateDomain> factory) {
+        Key key = new Key(operationType, range);
+        CandidateDomain cached = CACHE.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        CandidateDomain built = factory.get();
+        if (CACHE.size() >= MAX_ENTRIES) {
+            return built;
+        }
+        CandidateDomain previous = CACHE.putIfAbsent(key, built);
+        return previous != null ? previous : built;
+    }
+
+    private record Key(OperationType operationType, Range range) {
+    }
+}
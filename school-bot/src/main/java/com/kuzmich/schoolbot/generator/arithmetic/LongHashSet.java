@@ -0,0 +1,87 @@
+package com.kuzmich.schoolbot.generator.arithmetic;
+
+import java.util.Arrays;
+
+/**
+ * Небольшое множество неотрицательных long с открытой адресацией (линейное пробирование), без упаковки в Long.
+ * Используется выборочной генерацией для уникальности рангов: размер — O(quantity), а не O(домена).
+ */
+final class LongHashSet {
+
+    private static final long EMPTY = -1L;
+
+    private long[] slots;
+    private int size;
+
+    LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        slots = newSlots(capacity);
+    }
+
+    /**
+     * @return true, если значение добавлено (его ещё не было)
+     */
+    boolean add(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Поддерживаются только неотрицательные значения: " + value);
+        }
+        if ((size + 1) * 2 > slots.length) {
+            grow();
+        }
+        return insert(slots, value);
+    }
+
+    boolean contains(long value) {
+        int mask = slots.length - 1;
+        for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+            long slot = slots[i];
+            if (slot == EMPTY) {
+                return false;
+            }
+            if (slot == value) {
+                return true;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private boolean insert(long[] table, long value) {
+        int mask = table.length - 1;
+        for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+            long slot = table[i];
+            if (slot == value) {
+                return false;
+            }
+            if (slot == EMPTY) {
+                table[i] = value;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    private void grow() {
+        long[] old = slots;
+        slots = newSlots(old.length << 1);
+        size = 0;
+        for (long value : old) {
+            if (value != EMPTY) {
+                insert(slots, value);
+            }
+        }
+    }
+
+    private static long[] newSlots(int capacity) {
+        long[] table = new long[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
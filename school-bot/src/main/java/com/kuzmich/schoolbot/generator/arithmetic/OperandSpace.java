@@ -0,0 +1,78 @@
+package com.kuzmich.schoolbot.generator.arithmetic;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Пространство операндов без перечисления: прямоугольник a ∈ [minA, maxA], b ∈ [minB, maxB]
+ * с операцией и допустимым диапазоном ответа.
+ * <p>
+ * Каждая пара (a, b) имеет ранг — номер в прямоугольнике по строкам; {@link #a(long)} и {@link #b(long)}
+ * восстанавливают пару по рангу. Равномерный случайный ранг плюс проверка ответа по {@link #accepts(int)}
+ * дают равномерную выборку из допустимых примеров (выборка с отклонением), не строя домен целиком.
+ * Ранг служит и ключом уникальности вместо строкового ключа кандидата.
+ */
+public record OperandSpace(
+        int minA,
+        int maxA,
+        int minB,
+        int maxB,
+        IntBinaryOperator operation,
+        int minAnswer,
+        int maxAnswer
+) {
+
+    public OperandSpace {
+        if (minA > maxA || minB > maxB || minAnswer > maxAnswer) {
+            throw new IllegalArgumentException("Пустое пространство операндов: a=[" + minA + ", " + maxA
+                    + "], b=[" + minB + ", " + maxB + "], ответ=[" + minAnswer + ", " + maxAnswer + "]");
+        }
+    }
+
+    /**
+     * Сложение a + b ≤ max: a ∈ [min, max], b ∈ [0, max − min] (тот же домен, что перечисляет {@link AdditionGenerator}).
+     */
+    public static OperandSpace addition(int min, int max) {
+        return new OperandSpace(min, max, 0, max - min, Integer::sum, min, max);
+    }
+
+    /**
+     * Вычитание a − b ≥ 0: a ∈ [min, max], b ∈ [0, max] (тот же домен, что перечисляет {@link SubtractionGenerator}).
+     */
+    public static OperandSpace subtraction(int min, int max) {
+        return new OperandSpace(min, max, 0, max, (a, b) -> a - b, 0, max);
+    }
+
+    /**
+     * Размер прямоугольника (верхняя граница числа допустимых примеров).
+     */
+    public long size() {
+        return (long) (maxA - minA + 1) * width();
+    }
+
+    public long rank(int a, int b) {
+        return (long) (a - minA) * width() + (b - minB);
+    }
+
+    public int a(long rank) {
+        return minA + (int) (rank / width());
+    }
+
+    public int b(long rank) {
+        return minB + (int) (rank % width());
+    }
+
+    public int answer(int a, int b) {
+        return operation.applyAsInt(a, b);
+    }
+
+    /**
+     * Допустим ли пример с таким ответом (ограничение, отсекающее часть прямоугольника).
+     */
+    public boolean accepts(int answer) {
+        return answer >= minAnswer && answer <= maxAnswer;
+    }
+
+    private long width() {
+        return (long) maxB - minB + 1;
+    }
+}
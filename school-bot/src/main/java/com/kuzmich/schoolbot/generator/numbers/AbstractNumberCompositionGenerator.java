@@ -2,14 +2,21 @@ package com.kuzmich.schoolbot.generator.numbers;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
 
 import com.kuzmich.schoolbot.core.service.MessageService;
 import com.kuzmich.schoolbot.core.validation.Validation;
 import com.kuzmich.schoolbot.generator.GenerationContext;
+import com.kuzmich.schoolbot.generator.GenerationRandom;
+import com.kuzmich.schoolbot.generator.MessageTaskFormat;
 import com.kuzmich.schoolbot.generator.OperationTaskGenerator;
+import com.kuzmich.schoolbot.generator.Range;
 import com.kuzmich.schoolbot.generator.Task;
+import com.kuzmich.schoolbot.generator.TaskFormat;
 import com.kuzmich.schoolbot.generator.arithmetic.ArithmeticGenerationUtils;
+import com.kuzmich.schoolbot.generator.arithmetic.CandidateDomain;
+import com.kuzmich.schoolbot.generator.arithmetic.CandidateDomains;
 import com.kuzmich.schoolbot.i18n.GeneratorMessageKeys;
 
 /**
@@ -21,38 +28,42 @@ public abstract class AbstractNumberCompositionGenerator implements OperationTas
 
     private final int minN;
     private final int maxN;
+    private final Range domainRange;
     private final MessageService messageService;
 
     protected AbstractNumberCompositionGenerator(MessageService messageService, int minN, int maxN) {
         this.messageService = messageService;
         this.minN = minN;
         this.maxN = maxN;
+        this.domainRange = new Range(minN, maxN);
     }
 
     @Override
-    public List<Task> generate(GenerationContext context) {
+    public int generate(GenerationContext context, Consumer<? super Task> sink) {
         Validation.requireNonNull(context, "context");
         context.validate();
 
         int quantity = context.getQuantity();
         if (quantity <= 0) {
-            return List.of();
+            return 0;
         }
 
-        ThreadLocalRandom rnd = ThreadLocalRandom.current();
-        List<ArithmeticGenerationUtils.Candidate> domain = enumerateDomain();
-        List<java.util.function.Predicate<ArithmeticGenerationUtils.Candidate>> levels = buildRelaxationLevels();
-        String blank = messageService.getText(GeneratorMessageKeys.QUESTION_BLANK);
+        RandomGenerator rnd = GenerationRandom.forContext(context);
+        CandidateDomain domain = CandidateDomains.get(getOperationType(), domainRange,
+                () -> CandidateDomain.of(enumerateDomain(), buildRelaxationLevels()));
+        TaskFormat hideFirst = MessageTaskFormat.of(messageService, GeneratorMessageKeys.FORMAT_COMPOSITION_HIDE_FIRST);
+        TaskFormat hideSecond = MessageTaskFormat.of(messageService, GeneratorMessageKeys.FORMAT_COMPOSITION_HIDE_SECOND);
 
         // Для состава числа: ослабленная эвристика (a = n всегда одинаков) и разрешаем повторы до quantity
-        return ArithmeticGenerationUtils.generateWithRelaxation(
+        return ArithmeticGenerationUtils.emitWithRelaxation(
                 domain,
                 quantity,
-                levels,
                 rnd,
-                c -> toTask(c, blank),
+                c -> toTask(c, hideFirst, hideSecond),
                 true,
-                true
+                true,
+                context.getRecentTasks(),
+                sink
         );
     }
 
@@ -89,13 +100,15 @@ public abstract class AbstractNumberCompositionGenerator implements OperationTas
         return levels;
     }
 
-    private Task toTask(ArithmeticGenerationUtils.Candidate c, String blank) {
+    /**
+     * Шаблоны «n = {1} + visible» и «n = visible + {2}»: пустое место — второй или третий слот.
+     */
+    private Task toTask(ArithmeticGenerationUtils.Candidate c, TaskFormat hideFirst, TaskFormat hideSecond) {
         int n = c.a();
         int visible = c.b();
         int hidden = c.answer();
-        String question = c.key().endsWith(",F")
-                ? messageService.getText(GeneratorMessageKeys.FORMAT_COMPOSITION_HIDE_FIRST, n, blank, visible)
-                : messageService.getText(GeneratorMessageKeys.FORMAT_COMPOSITION_HIDE_SECOND, n, visible, blank);
-        return new Task(question, String.valueOf(hidden));
+        return c.key().endsWith(",F")
+                ? new Task(hideFirst, n, visible, 1, String.valueOf(hidden))
+                : new Task(hideSecond, n, visible, 2, String.valueOf(hidden));
     }
 }
@@ -2,17 +2,24 @@ package com.kuzmich.schoolbot.generator.numbers;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
 
 import org.springframework.stereotype.Component;
 
 import com.kuzmich.schoolbot.core.service.MessageService;
 import com.kuzmich.schoolbot.core.validation.Validation;
 import com.kuzmich.schoolbot.generator.GenerationContext;
+import com.kuzmich.schoolbot.generator.GenerationRandom;
+import com.kuzmich.schoolbot.generator.MessageTaskFormat;
 import com.kuzmich.schoolbot.generator.OperationType;
 import com.kuzmich.schoolbot.generator.OperationTaskGenerator;
+import com.kuzmich.schoolbot.generator.Range;
 import com.kuzmich.schoolbot.generator.Task;
+import com.kuzmich.schoolbot.generator.TaskFormat;
 import com.kuzmich.schoolbot.generator.arithmetic.ArithmeticGenerationUtils;
+import com.kuzmich.schoolbot.generator.arithmetic.CandidateDomain;
+import com.kuzmich.schoolbot.generator.arithmetic.CandidateDomains;
 import com.kuzmich.schoolbot.i18n.GeneratorMessageKeys;
 
 /**
@@ -36,6 +43,7 @@ public class ComparisonGenerator implements OperationTaskGenerator {
     private static final int SIGN_LT = -1;
     private static final int SIGN_EQ = 0;
     private static final int SIGN_GT = 1;
+    private static final Range DOMAIN_RANGE = new Range(MIN, MAX);
 
     @Override
     public OperationType getOperationType() {
@@ -43,29 +51,41 @@ public class ComparisonGenerator implements OperationTaskGenerator {
     }
 
     @Override
-    public List<Task> generate(GenerationContext context) {
+    public int generate(GenerationContext context, Consumer<? super Task> sink) {
         Validation.requireNonNull(context, "context");
         context.validate();
 
         int quantity = context.getQuantity();
         if (quantity <= 0) {
-            return List.of();
+            return 0;
         }
 
-        ThreadLocalRandom rnd = ThreadLocalRandom.current();
-        List<ArithmeticGenerationUtils.Candidate> domain = enumerateDomain();
-        List<java.util.function.Predicate<ArithmeticGenerationUtils.Candidate>> levels = buildRelaxationLevels();
-        String blank = messageService.getText(GeneratorMessageKeys.QUESTION_BLANK);
+        RandomGenerator rnd = GenerationRandom.forContext(context);
+        CandidateDomain domain = domain();
+        TaskFormat format = MessageTaskFormat.of(messageService, GeneratorMessageKeys.FORMAT_COMPARISON);
 
-        return ArithmeticGenerationUtils.generateWithRelaxation(
+        return ArithmeticGenerationUtils.emitWithRelaxation(
                 domain,
                 quantity,
-                levels,
                 rnd,
-                c -> toTask(c, blank)
+                c -> toTask(c, format),
+                false,
+                false,
+                context.getRecentTasks(),
+                sink
         );
     }
 
+    @Override
+    public int maxTasks(GenerationContext context) {
+        return domain().guaranteedTaskCount();
+    }
+
+    private CandidateDomain domain() {
+        return CandidateDomains.get(getOperationType(), DOMAIN_RANGE,
+                () -> CandidateDomain.of(enumerateDomain(), buildRelaxationLevels()));
+    }
+
     /**
      * Домен: все пары (a, b) из [0..20]×[0..20]. answer = -1 (&lt;), 0 (=), 1 (&gt;).
      */
@@ -94,9 +114,9 @@ public class ComparisonGenerator implements OperationTaskGenerator {
         return levels;
     }
 
-    private Task toTask(ArithmeticGenerationUtils.Candidate c, String blank) {
+    private Task toTask(ArithmeticGenerationUtils.Candidate c, TaskFormat format) {
         String signStr = c.answer() == SIGN_LT ? "<" : (c.answer() == SIGN_EQ ? "=" : ">");
-        String question = messageService.getText(GeneratorMessageKeys.FORMAT_COMPARISON, c.a(), blank, c.b());
-        return new Task(question, signStr);
+        // Шаблон «a {1} b»: пустое место между числами
+        return new Task(format, c.a(), c.b(), 1, signStr);
     }
 }
@@ -2,17 +2,23 @@ package com.kuzmich.schoolbot.generator.numbers;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
 
 import org.springframework.stereotype.Component;
 
 import com.kuzmich.schoolbot.core.service.MessageService;
 import com.kuzmich.schoolbot.core.validation.Validation;
 import com.kuzmich.schoolbot.generator.GenerationContext;
+import com.kuzmich.schoolbot.generator.GenerationRandom;
 import com.kuzmich.schoolbot.generator.OperationType;
 import com.kuzmich.schoolbot.generator.OperationTaskGenerator;
+import com.kuzmich.schoolbot.generator.Range;
 import com.kuzmich.schoolbot.generator.Task;
+import com.kuzmich.schoolbot.generator.TaskFormat;
 import com.kuzmich.schoolbot.generator.arithmetic.ArithmeticGenerationUtils;
+import com.kuzmich.schoolbot.generator.arithmetic.CandidateDomain;
+import com.kuzmich.schoolbot.generator.arithmetic.CandidateDomains;
 import com.kuzmich.schoolbot.i18n.GeneratorMessageKeys;
 
 /**
@@ -33,6 +39,7 @@ public class NumberSequenceGenerator implements OperationTaskGenerator {
     private static final int START_MIN = 0;
     private static final int START_MAX = 15;
     private static final int SERIES_LENGTH = 5;
+    private static final Range DOMAIN_RANGE = new Range(START_MIN, START_MAX);
 
     @Override
     public OperationType getOperationType() {
@@ -40,29 +47,41 @@ public class NumberSequenceGenerator implements OperationTaskGenerator {
     }
 
     @Override
-    public List<Task> generate(GenerationContext context) {
+    public int generate(GenerationContext context, Consumer<? super Task> sink) {
         Validation.requireNonNull(context, "context");
         context.validate();
 
         int quantity = context.getQuantity();
         if (quantity <= 0) {
-            return List.of();
+            return 0;
         }
 
-        ThreadLocalRandom rnd = ThreadLocalRandom.current();
-        List<ArithmeticGenerationUtils.Candidate> domain = enumerateDomain();
-        List<java.util.function.Predicate<ArithmeticGenerationUtils.Candidate>> levels = buildRelaxationLevels();
-        String blank = messageService.getText(GeneratorMessageKeys.QUESTION_BLANK);
+        RandomGenerator rnd = GenerationRandom.forContext(context);
+        CandidateDomain domain = domain();
+        TaskFormat format = seriesFormat(messageService.getText(GeneratorMessageKeys.QUESTION_BLANK));
 
-        return ArithmeticGenerationUtils.generateWithRelaxation(
+        return ArithmeticGenerationUtils.emitWithRelaxation(
                 domain,
                 quantity,
-                levels,
                 rnd,
-                c -> toTask(c, blank)
+                c -> new Task(format, c.a(), 0, c.b(), String.valueOf(c.answer())),
+                false,
+                false,
+                context.getRecentTasks(),
+                sink
         );
     }
 
+    @Override
+    public int maxTasks(GenerationContext context) {
+        return domain().guaranteedTaskCount();
+    }
+
+    private CandidateDomain domain() {
+        return CandidateDomains.get(getOperationType(), DOMAIN_RANGE,
+                () -> CandidateDomain.of(enumerateDomain(), buildRelaxationLevels()));
+    }
+
     /**
      * Домен: start ∈ [0..15], gapIndex ∈ [0..4]. a = start, b = gapIndex, answer = start + gapIndex.
      */
@@ -91,21 +110,21 @@ public class NumberSequenceGenerator implements OperationTaskGenerator {
         return levels;
     }
 
-    private Task toTask(ArithmeticGenerationUtils.Candidate c, String blank) {
-        int start = c.a();
-        int gapIndex = c.b();
-        int hidden = c.answer();
-        StringBuilder question = new StringBuilder();
-        for (int j = 0; j < SERIES_LENGTH; j++) {
-            if (j > 0) {
-                question.append(", ");
-            }
-            if (j == gapIndex) {
-                question.append(blank);
-            } else {
-                question.append(start + j);
+    /**
+     * Формат ряда: first — начало ряда, blankPosition — индекс пропуска; второе число не используется.
+     */
+    private static TaskFormat seriesFormat(String blank) {
+        return (out, start, unused, gapIndex) -> {
+            for (int j = 0; j < SERIES_LENGTH; j++) {
+                if (j > 0) {
+                    out.append(", ");
+                }
+                if (j == gapIndex) {
+                    out.append(blank);
+                } else {
+                    out.append(start + j);
+                }
             }
-        }
-        return new Task(question.toString(), String.valueOf(hidden));
+        };
     }
 }
@@ -0,0 +1,95 @@
+package com.kuzmich.schoolbot.generator.pdf;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Таблица ширин символов шрифта, измеренная один раз: ширина строки считается суммой из таблицы,
+ * без {@link PDFont#getStringWidth} на каждую строку.
+ * <p>
+ * Таблица плотная для U+0000–U+04FF (латиница, Latin-1, кириллица); символы вне этого диапазона измеряются
+ * только из переданного при построении набора (знаки листа вроде «−», «≤», «—»). Символ, которого в шрифте нет,
+ * выводится как «?» (см. {@link PDFLayoutService}) и получает ширину «?»; неизвестный символ вне таблицы —
+ * ширину самого широкого измеренного символа, чтобы раскладка не недооценила строку.
+ * Экземпляр неизменяем и потокобезопасен.
+ */
+public final class GlyphAdvances {
+
+    private static final int TABLE_SIZE = 0x500;
+    private static final int FIRST_PRINTABLE = 0x20;
+    private static final int MISSING_GLYPH = '?';
+    private static final float UNITS_PER_EM = 1000f;
+
+    /** Ширины в тысячных долях em; индекс — код символа. */
+    private final float[] advances;
+    private final Map<Integer, Float> extra;
+    private final float widest;
+
+    private GlyphAdvances(float[] advances, Map<Integer, Float> extra, float widest) {
+        this.advances = advances;
+        this.extra = extra;
+        this.widest = widest;
+    }
+
+    /**
+     * Измеряет шрифт: все символы плотной таблицы и символы {@code extraCharacters} вне неё.
+     */
+    public static GlyphAdvances measure(PDFont font, CharSequence extraCharacters) {
+        float missing = Math.max(advance(font, MISSING_GLYPH), 0f);
+        float[] advances = new float[TABLE_SIZE];
+        float widest = missing;
+        for (int codePoint = FIRST_PRINTABLE; codePoint < TABLE_SIZE; codePoint++) {
+            float advance = advance(font, codePoint);
+            advances[codePoint] = advance >= 0 ? advance : missing;
+            widest = Math.max(widest, advances[codePoint]);
+        }
+        Map<Integer, Float> extra = new HashMap<>();
+        if (extraCharacters != null) {
+            extraCharacters.codePoints()
+                    .filter(codePoint -> codePoint >= TABLE_SIZE)
+                    .forEach(codePoint -> {
+                        float advance = advance(font, codePoint);
+                        extra.put(codePoint, advance >= 0 ? advance : missing);
+                    });
+        }
+        for (float advance : extra.values()) {
+            widest = Math.max(widest, advance);
+        }
+        return new GlyphAdvances(advances, Map.copyOf(extra), widest);
+    }
+
+    /**
+     * Ширина строки в em (при кегле 1); ширина в пунктах — {@code widthEm(text) * fontSize}.
+     */
+    public float widthEm(CharSequence text) {
+        float width = 0f;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = Character.codePointAt(text, i);
+            width += advance(codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return width / UNITS_PER_EM;
+    }
+
+    private float advance(int codePoint) {
+        if (codePoint < TABLE_SIZE) {
+            return advances[codePoint];
+        }
+        Float advance = extra.get(codePoint);
+        return advance != null ? advance : widest;
+    }
+
+    /**
+     * Ширина символа в тысячных долях em; -1, если шрифт не может его вывести.
+     */
+    private static float advance(PDFont font, int codePoint) {
+        try {
+            return font.getStringWidth(new String(Character.toChars(codePoint)));
+        } catch (IllegalArgumentException | IOException e) {
+            return -1f;
+        }
+    }
+}
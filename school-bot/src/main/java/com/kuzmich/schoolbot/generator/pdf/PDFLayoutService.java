@@ -5,18 +5,34 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
 import org.springframework.stereotype.Service;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Отвечает за визуальное оформление PDF: страницы с заданиями и с ответами.
  * Использует переданный шрифт и динамическую раскладку по количеству заданий (сетка, кегль и интервалы подбираются автоматически).
+ * <p>
+ * Постоянная часть страницы (заголовок и строка «Дата:») рисуется один раз на документ в шаблон
+ * ({@link PageTemplates}) и ставится на каждую страницу, так что время отрисовки страницы зависит только от заданий.
+ * <p>
+ * Если шаблоны построены с таблицей ширин шрифта ({@link GlyphAdvances}), сетка и кегль страницы подбираются
+ * по ширине самого длинного задания ({@link #measuredLayout}), а задание, которое всё равно шире колонки
+ * (например, в потоковой тетради, где задания заранее не известны), рисуется уменьшенным кеглем.
  */
 @Service
 @Slf4j
@@ -24,42 +40,55 @@ public class PDFLayoutService {
 
     private static final float HEADER_LINE_OFFSET = 20f;
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    /** Заданий на одной странице потоковой тетради: две колонки по 20 строк с кеглем около 20. */
+    public static final int STREAM_TASKS_PER_PAGE = 40;
+    /** Заголовок страниц с ответами. */
+    static final String ANSWERS_TITLE = "Ответы";
 
     public void addTasksPage(PDDocument document,
                              PDFont font,
                              List<Task> tasks,
                              String title,
                              LocalDate date) throws IOException {
+        addTasksPage(pageTemplates(document, font), tasks, title, null, date);
+    }
+
+    /**
+     * Страница заданий с заголовком из шаблонов документа: несколько страниц с одинаковыми заголовком и датой
+     * (например, варианты для класса) ссылаются на один шаблон.
+     *
+     * @param titleSuffix изменяемый хвост заголовка (например, «— вариант 2»), дописывается сразу после
+     *                    заголовка из шаблона; null — без хвоста
+     */
+    public void addTasksPage(PageTemplates templates,
+                             List<Task> tasks,
+                             String title,
+                             String titleSuffix,
+                             LocalDate date) throws IOException {
+        PDDocument document = templates.document;
+        PDFont font = templates.font;
         PDPage page = new PDPage(PDRectangle.A4);
         document.addPage(page);
 
         float pageWidth = page.getMediaBox().getWidth();
         float pageHeight = page.getMediaBox().getHeight();
         int total = tasks != null ? tasks.size() : 0;
-        PdfLayoutParams layout = PdfLayoutParams.forTaskCount(total > 0 ? total : 1, pageWidth, pageHeight);
+        PdfLayoutParams layout = templates.advances != null && total > 0
+                ? PdfLayoutParams.plan(total, widestLine(tasks, false, templates.advances), pageWidth, pageHeight)
+                : PdfLayoutParams.forTaskCount(total > 0 ? total : 1, pageWidth, pageHeight);
 
         try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-            // Заголовок
-            showSafeText(contentStream, font, layout.titleFontSize(),
-                    layout.marginLeft(), pageHeight - layout.marginTop(), title);
-            showSafeText(contentStream, font, layout.titleFontSize() * 0.85f,
-                    layout.marginLeft(), pageHeight - layout.marginTop() - HEADER_LINE_OFFSET,
-                    "Дата: " + date.format(DATE_FORMATTER));
+            stampHeader(contentStream, templates, layout, title, titleSuffix, date);
 
             if (total == 0) {
                 return;
             }
 
             int itemsPerColumn = layout.rows();
+            // Один буфер на страницу: структурированные задания дописывают вопрос прямо в него
+            StringBuilder line = new StringBuilder(32);
             for (int i = 0; i < total; i++) {
-                Task task = tasks.get(i);
-                int column = i / itemsPerColumn;
-                int row = i % itemsPerColumn;
-
-                float x = layout.columnX(column);
-                float y = layout.rowY(row);
-
-                showSafeText(contentStream, font, layout.taskFontSize(), x, y, task.question());
+                drawTask(contentStream, font, templates.advances, layout, i, itemsPerColumn, tasks.get(i), line);
             }
         } catch (IOException e) {
             log.error("Ошибка при рисовании страницы с заданиями", e);
@@ -67,70 +96,409 @@ public class PDFLayoutService {
         }
     }
 
-    public void addAnswersPage(PDDocument document,
-                               PDFont font,
-                               List<Task> tasks) throws IOException {
-        PDPage page = new PDPage(PDRectangle.A4);
-        document.addPage(page);
+    /**
+     * Шаблоны страниц для документа; все страницы документа должны использовать один экземпляр.
+     */
+    public PageTemplates pageTemplates(PDDocument document, PDFont font) {
+        return new PageTemplates(document, font, null);
+    }
 
-        float pageWidth = page.getMediaBox().getWidth();
-        float pageHeight = page.getMediaBox().getHeight();
-        int total = tasks != null ? tasks.size() : 0;
-        PdfLayoutParams layout = PdfLayoutParams.forTaskCount(total > 0 ? total : 1, pageWidth, pageHeight);
+    /**
+     * Шаблоны страниц с таблицей ширин шрифта: страницы раскладываются по ширине заданий.
+     */
+    public PageTemplates pageTemplates(PDDocument document, PDFont font, GlyphAdvances advances) {
+        return new PageTemplates(document, font, advances);
+    }
 
-        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-            showSafeText(contentStream, font, layout.titleFontSize(),
-                    layout.marginLeft(), pageHeight - layout.marginTop(), "Ответы");
+    /**
+     * Раскладка страницы из {@code tasksPerPage} заданий по ширине самой длинной строки листа — задания
+     * и, если печатается ключ, ответа «n) ответ» (см. {@link PdfLayoutParams#plan}).
+     */
+    public PdfLayoutParams measuredLayout(List<Task> tasks, int tasksPerPage, boolean answerKey,
+                                          GlyphAdvances advances) {
+        return PdfLayoutParams.planA4(tasksPerPage, widestLine(tasks, answerKey, advances));
+    }
 
-            if (total == 0) {
-                return;
-            }
+    /**
+     * Открывает постраничную запись заданий для больших тетрадей: задания принимаются по одному,
+     * по {@link #STREAM_TASKS_PER_PAGE} на страницу. Как только страница заполнена, её поток содержимого
+     * закрывается и сбрасывается в документ, в памяти держится только текущая страница.
+     * <p>
+     * Писатель нужно закрыть ({@link TaskPageWriter#close()}), чтобы дописать последнюю страницу;
+     * если заданий не было, в документе остаётся одна страница с заголовком.
+     */
+    public TaskPageWriter openTaskPages(PDDocument document,
+                                        PDFont font,
+                                        String title,
+                                        LocalDate date) {
+        return openTaskPages(document, font, title, date, STREAM_TASKS_PER_PAGE, false);
+    }
 
-            int itemsPerColumn = layout.rows();
-            float answersStartY = pageHeight - layout.marginTop() - HEADER_LINE_OFFSET;
+    /**
+     * Постраничная запись с заданным числом заданий на странице и, по желанию, с ключом ответов.
+     * <p>
+     * Ответ каждого задания пишется в тот же проход, на страницу ответов в ту же ячейку сетки, что и задание.
+     * Страницы ответов заполняются параллельно страницам заданий и так же закрываются по заполнении, но в дерево
+     * страниц документа добавляются при {@link TaskPageWriter#close()} — после всех страниц заданий.
+     *
+     * @param tasksPerPage заданий на странице (см. {@link PdfLayoutParams#tasksPerPage(int)})
+     * @param answerKey    true — добавить в конец документа страницы с ответами
+     */
+    public TaskPageWriter openTaskPages(PDDocument document,
+                                        PDFont font,
+                                        String title,
+                                        LocalDate date,
+                                        int tasksPerPage,
+                                        boolean answerKey) {
+        return openTaskPages(pageTemplates(document, font), title, date, PdfLayoutParams.forTaskCountA4(tasksPerPage),
+                tasksPerPage, answerKey);
+    }
 
-            for (int i = 0; i < total; i++) {
-                Task task = tasks.get(i);
-                int index = i + 1;
-                int column = i / itemsPerColumn;
-                int row = i % itemsPerColumn;
+    /**
+     * Постраничная запись с готовой раскладкой страницы (например, {@link #measuredLayout}) и шаблонами документа;
+     * с таблицей ширин в шаблонах задание шире колонки рисуется уменьшенным кеглем.
+     *
+     * @param layout       раскладка страницы; в её сетке должно помещаться {@code tasksPerPage} заданий
+     * @param tasksPerPage заданий на странице
+     * @param answerKey    true — добавить в конец документа страницы с ответами
+     */
+    public TaskPageWriter openTaskPages(PageTemplates templates,
+                                        String title,
+                                        LocalDate date,
+                                        PdfLayoutParams layout,
+                                        int tasksPerPage,
+                                        boolean answerKey) {
+        return openTaskPages(templates, title, null, date, layout, tasksPerPage, answerKey);
+    }
+
+    /**
+     * Как {@link #openTaskPages(PageTemplates, String, LocalDate, PdfLayoutParams, int, boolean)}, с изменяемым
+     * хвостом заголовка (например, «— вариант 2»): он дописывается после шаблона на каждой странице,
+     * номер страницы — после него.
+     *
+     * @param titleSuffix хвост заголовка; null — без хвоста
+     */
+    public TaskPageWriter openTaskPages(PageTemplates templates,
+                                        String title,
+                                        String titleSuffix,
+                                        LocalDate date,
+                                        PdfLayoutParams layout,
+                                        int tasksPerPage,
+                                        boolean answerKey) {
+        return new TaskPageWriter(templates, title, titleSuffix, date, layout, tasksPerPage, answerKey);
+    }
+
+    /**
+     * Ставит на страницу шаблон заголовка и дописывает изменяемый хвост заголовка, если он есть.
+     */
+    private void stampHeader(PDPageContentStream contentStream,
+                             PageTemplates templates,
+                             PdfLayoutParams layout,
+                             String title,
+                             String titleSuffix,
+                             LocalDate date) throws IOException {
+        Header header = templates.header(layout, title, date);
+        contentStream.drawForm(header.form());
+        if (titleSuffix != null) {
+            showSafeText(contentStream, templates.font, layout.titleFontSize(),
+                    layout.marginLeft() + header.titleWidth(), layout.pageHeight() - layout.marginTop(), titleSuffix);
+        }
+    }
 
-                float x = layout.columnX(column);
-                float y = answersStartY - row * layout.lineHeight();
+    /**
+     * Рисует заголовок и строку «Дата:».
+     *
+     * @return ширина выведенного заголовка в пунктах
+     */
+    private float drawHeader(PDPageContentStream contentStream,
+                             PDFont font,
+                             PdfLayoutParams layout,
+                             String title,
+                             LocalDate date) throws IOException {
+        float pageHeight = layout.pageHeight();
+        String shownTitle = showSafeText(contentStream, font, layout.titleFontSize(),
+                layout.marginLeft(), pageHeight - layout.marginTop(), title);
+        showSafeText(contentStream, font, layout.titleFontSize() * 0.85f,
+                layout.marginLeft(), pageHeight - layout.marginTop() - HEADER_LINE_OFFSET,
+                "Дата: " + date.format(DATE_FORMATTER));
+        return font.getStringWidth(shownTitle) / 1000f * layout.titleFontSize();
+    }
 
-                String line = index + ") " + task.answer();
-                showSafeText(contentStream, font, layout.taskFontSize(), x, y, line);
+    private void drawTask(PDPageContentStream contentStream,
+                          PDFont font,
+                          GlyphAdvances advances,
+                          PdfLayoutParams layout,
+                          int index,
+                          int itemsPerColumn,
+                          Task task,
+                          StringBuilder line) throws IOException {
+        float x = layout.columnX(index / itemsPerColumn);
+        float y = layout.rowY(index % itemsPerColumn);
+
+        line.setLength(0);
+        task.appendQuestion(line);
+        showSafeText(contentStream, font, fittedFontSize(advances, layout, line), x, y, line.toString());
+    }
+
+    /**
+     * Ответ задания в той же ячейке сетки, что и задание: «номер) ответ».
+     */
+    private void drawAnswer(PDPageContentStream contentStream,
+                            PDFont font,
+                            GlyphAdvances advances,
+                            PdfLayoutParams layout,
+                            int index,
+                            int itemsPerColumn,
+                            int number,
+                            Task task,
+                            StringBuilder line) throws IOException {
+        float x = layout.columnX(index / itemsPerColumn);
+        float y = layout.rowY(index % itemsPerColumn);
+
+        appendAnswer(line, number, task);
+        showSafeText(contentStream, font, fittedFontSize(advances, layout, line), x, y, line.toString());
+    }
+
+    private static void appendAnswer(StringBuilder line, int number, Task task) {
+        line.setLength(0);
+        line.append(number).append(") ").append(task.answer());
+    }
+
+    /**
+     * Кегль раскладки или меньший, если строка по таблице ширин не помещается в колонку; без таблицы — кегль раскладки.
+     */
+    private static float fittedFontSize(GlyphAdvances advances, PdfLayoutParams layout, CharSequence text) {
+        float fontSize = layout.taskFontSize();
+        if (advances == null) {
+            return fontSize;
+        }
+        float widthEm = advances.widthEm(text);
+        return widthEm * fontSize > layout.columnWidth() ? layout.columnWidth() / widthEm : fontSize;
+    }
+
+    /**
+     * Ширина самой длинной строки листа в em: задания и, если {@code answers}, ответы «n) ответ».
+     */
+    private static float widestLine(List<Task> tasks, boolean answers, GlyphAdvances advances) {
+        StringBuilder line = new StringBuilder(32);
+        float widest = 0f;
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            line.setLength(0);
+            task.appendQuestion(line);
+            widest = Math.max(widest, advances.widthEm(line));
+            if (answers) {
+                appendAnswer(line, i + 1, task);
+                widest = Math.max(widest, advances.widthEm(line));
             }
-        } catch (IOException e) {
-            log.error("Ошибка при рисовании страницы с ответами", e);
-            throw e;
         }
+        return widest;
     }
 
     /**
      * Безопасный вывод текста: если шрифт не поддерживает часть символов (например, кириллицу),
      * IllegalArgumentException перехватывается, и строка деградирует до ASCII-представления,
      * чтобы генерация PDF не падала.
+     *
+     * @return выведенный текст (исходный или его ASCII-замена)
      */
-    private void showSafeText(PDPageContentStream contentStream,
-                              PDFont font,
-                              float fontSize,
-                              float x,
-                              float y,
-                              String text) throws IOException {
+    private String showSafeText(PDPageContentStream contentStream,
+                               PDFont font,
+                               float fontSize,
+                               float x,
+                               float y,
+                               String text) throws IOException {
         contentStream.beginText();
         contentStream.setFont(font, fontSize);
         contentStream.newLineAtOffset(x, y);
+        String shown = text;
         try {
             contentStream.showText(text);
         } catch (IllegalArgumentException e) {
-            String fallback = text.replaceAll("[^\\p{ASCII}]", "?");
+            shown = text.replaceAll("[^\\p{ASCII}]", "?");
             log.warn("Текст '{}' содержит символы, недоступные для шрифта {}, используем fallback '{}'",
-                    text, font, fallback, e);
-            contentStream.showText(fallback);
+                    text, font, shown, e);
+            contentStream.showText(shown);
         } finally {
             contentStream.endText();
         }
+        return shown;
+    }
+
+    /**
+     * Шаблоны постоянной части страниц одного документа (см. {@link #pageTemplates}): заголовок и строка «Дата:»
+     * рисуются один раз на (заголовок, дата, кегль и поля страницы) в {@link PDFormXObject} и ставятся на каждую
+     * страницу одним оператором {@code Do}. Шаблон принадлежит документу; экземпляр не потокобезопасен.
+     */
+    public final class PageTemplates {
+
+        private final PDDocument document;
+        private final PDFont font;
+        /** Ширины символов {@link #font}; null — раскладка только по количеству заданий. */
+        private final GlyphAdvances advances;
+        private final Map<HeaderKey, Header> headers = new HashMap<>();
+
+        private PageTemplates(PDDocument document, PDFont font, GlyphAdvances advances) {
+            this.document = document;
+            this.font = font;
+            this.advances = advances;
+        }
+
+        /**
+         * Шаблон заголовка; строится при первом обращении.
+         */
+        private Header header(PdfLayoutParams layout, String title, LocalDate date) throws IOException {
+            HeaderKey key = new HeaderKey(title, date, layout.titleFontSize(), layout.marginLeft(),
+                    layout.marginTop(), layout.pageWidth(), layout.pageHeight());
+            Header header = headers.get(key);
+            if (header == null) {
+                // PDAppearanceStream — это PDFormXObject, в который PDFBox даёт писать обычным PDPageContentStream
+                PDAppearanceStream form = new PDAppearanceStream(document);
+                form.setResources(new PDResources());
+                form.setBBox(new PDRectangle(layout.pageWidth(), layout.pageHeight()));
+                float titleWidth;
+                try (PDPageContentStream contentStream = new PDPageContentStream(document, form)) {
+                    titleWidth = drawHeader(contentStream, font, layout, title, date);
+                }
+                header = new Header(form, titleWidth);
+                headers.put(key, header);
+            }
+            return header;
+        }
+
+        /**
+         * Количество построенных шаблонов заголовка.
+         */
+        public int headerCount() {
+            return headers.size();
+        }
+    }
+
+    private record HeaderKey(String title, LocalDate date, float titleFontSize, float marginLeft,
+                             float marginTop, float pageWidth, float pageHeight) {
     }
-}
 
+    private record Header(PDFormXObject form, float titleWidth) {
+    }
+
+    /**
+     * Постраничный писатель заданий (см. {@link #openTaskPages}). Реализует {@link Consumer},
+     * поэтому передаётся прямо в потоковый генератор; ошибки PDFBox внутри {@link #accept(Task)}
+     * пробрасываются как {@link UncheckedIOException}.
+     */
+    public final class TaskPageWriter implements Consumer<Task>, Closeable {
+
+        private final PDDocument document;
+        private final PDFont font;
+        private final PageTemplates templates;
+        private final String title;
+        private final String titleSuffix;
+        private final LocalDate date;
+        private final int tasksPerPage;
+        private final PdfLayoutParams layout;
+        private final StringBuilder line = new StringBuilder(32);
+        /** Страницы ответов, ещё не добавленные в документ; null — без ключа ответов. */
+        private final List<PDPage> answerPages;
+
+        private PDPageContentStream contentStream;
+        private PDPageContentStream answerStream;
+        private int onPage;
+        private int pages;
+        private int written;
+
+        private TaskPageWriter(PageTemplates templates, String title, String titleSuffix, LocalDate date,
+                               PdfLayoutParams layout, int tasksPerPage, boolean answerKey) {
+            if (tasksPerPage <= 0) {
+                throw new IllegalArgumentException("tasksPerPage должен быть положительным, получено: " + tasksPerPage);
+            }
+            if (tasksPerPage > layout.columns() * layout.rows()) {
+                throw new IllegalArgumentException("В сетке " + layout.columns() + "×" + layout.rows()
+                        + " не помещается " + tasksPerPage + " заданий");
+            }
+            this.document = templates.document;
+            this.font = templates.font;
+            this.templates = templates;
+            this.title = title;
+            this.titleSuffix = titleSuffix;
+            this.date = date;
+            this.tasksPerPage = tasksPerPage;
+            this.layout = layout;
+            this.answerPages = answerKey ? new ArrayList<>() : null;
+        }
+
+        @Override
+        public void accept(Task task) {
+            try {
+                if (contentStream == null || onPage == tasksPerPage) {
+                    startPage();
+                }
+                drawTask(contentStream, font, templates.advances, layout, onPage, layout.rows(), task, line);
+                if (answerStream != null) {
+                    drawAnswer(answerStream, font, templates.advances, layout, onPage, layout.rows(), written + 1,
+                            task, line);
+                }
+                onPage++;
+                written++;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Ошибка при рисовании страницы с заданиями", e);
+            }
+        }
+
+        /**
+         * Количество записанных заданий.
+         */
+        public int written() {
+            return written;
+        }
+
+        /**
+         * Количество начатых страниц заданий (без страниц ответов).
+         */
+        public int pages() {
+            return pages;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (contentStream == null && pages == 0) {
+                startPage();
+            }
+            finishPage();
+            if (answerPages != null) {
+                answerPages.forEach(document::addPage);
+                answerPages.clear();
+            }
+        }
+
+        private void startPage() throws IOException {
+            finishPage();
+            PDPage page = new PDPage(PDRectangle.A4);
+            document.addPage(page);
+            contentStream = new PDPageContentStream(document, page);
+            pages++;
+            onPage = 0;
+            String pageSuffix = pages == 1 ? titleSuffix
+                    : (titleSuffix != null ? titleSuffix + ", стр. " : " — стр. ") + pages;
+            stampHeader(contentStream, templates, layout, title, pageSuffix, date);
+            if (answerPages != null) {
+                PDPage answerPage = new PDPage(PDRectangle.A4);
+                answerPages.add(answerPage);
+                answerStream = new PDPageContentStream(document, answerPage);
+                stampHeader(answerStream, templates, layout, ANSWERS_TITLE, pageSuffix, date);
+            }
+        }
+
+        private void finishPage() throws IOException {
+            if (contentStream != null) {
+                PDPageContentStream finished = contentStream;
+                contentStream = null;
+                finished.close();
+            }
+            if (answerStream != null) {
+                PDPageContentStream finished = answerStream;
+                answerStream = null;
+                finished.close();
+            }
+        }
+    }
+}
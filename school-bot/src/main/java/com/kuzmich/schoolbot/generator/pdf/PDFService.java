@@ -1,115 +1,208 @@
 package com.kuzmich.schoolbot.generator.pdf;
 
+import com.kuzmich.schoolbot.generator.GenerationContext;
 import com.kuzmich.schoolbot.generator.Task;
+import com.kuzmich.schoolbot.generator.TaskGenerator;
 import com.kuzmich.schoolbot.generator.service.PdfGenerationException;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.font.PDFont;
-import org.apache.pdfbox.pdmodel.font.PDType0Font;
-import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.List;
 
 /**
- * Сервис верхнего уровня: из списка Task формирует PDF (страница с заданиями + страница с ответами).
- * Шрифт задаётся через {@code pdf.font.path} (файл или classpath), без хардкода — можно менять на лету.
+ * Сервис верхнего уровня: из списка Task формирует PDF (страницы с заданиями и, по желанию, страницы с ответами).
+ * Шрифт задаётся через {@code pdf.font.path} (файл или classpath) и разбирается один раз при старте
+ * ({@link PdfFontProvider}); в каждый документ встраивается только подмножество использованных глифов.
+ * Каждая отрисовка занимает долю общего бюджета памяти ({@link PdfRenderGovernor}).
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class PDFService {
 
-    private static final String CLASSPATH_PREFIX = "classpath:";
-    /** Префикс для classpath-ресурсов (в Java всегда «/», не системный разделитель). */
-    private static final String RESOURCE_PATH_PREFIX = "/";
-    /** Запасной путь к шрифту (из зависимости jasperreports-fonts), если в resources/fonts/ файла нет. */
-    private static final String FALLBACK_FONT_PATH = "classpath:/net/sf/jasperreports/fonts/dejavu/DejaVuSans.ttf";
-
-    @Value("${pdf.font.path:classpath:/fonts/DejaVuSans.ttf}")
-    private String fontPath;
+    private static final String TEMP_FILE_PREFIX = "schoolbot-";
 
     private final PDFLayoutService layoutService;
+    private final PdfFontProvider fontProvider;
+    private final PdfRenderGovernor renderGovernor;
+
+    @Autowired
+    public PDFService(PDFLayoutService layoutService, PdfFontProvider fontProvider, PdfRenderGovernor renderGovernor) {
+        this.layoutService = layoutService;
+        this.fontProvider = fontProvider;
+        this.renderGovernor = renderGovernor;
+    }
 
-    public byte[] generate(List<Task> tasks, String title) {
-        try (PDDocument document = new PDDocument()) {
-            PDFont font = loadFont(document);
+    /**
+     * Без ограничения памяти на отрисовку ({@link PdfRenderGovernor#unbounded()}).
+     */
+    public PDFService(PDFLayoutService layoutService, PdfFontProvider fontProvider) {
+        this(layoutService, fontProvider, PdfRenderGovernor.unbounded());
+    }
 
-            layoutService.addTasksPage(document, font, tasks, title, LocalDate.now());
+    /**
+     * Лист заданий любого размера: до {@link PdfLayoutParams#MAX_TASKS_PER_PAGE} заданий — одна страница,
+     * больше — несколько страниц поровну (см. {@link PdfLayoutParams#tasksPerPage(int)}). Страницы пишутся
+     * в один проход и закрываются по заполнении. Документ сохраняется один раз во временный файл и загружается
+     * в Telegram прямо из него, без копии в массив байт. Результат нужно закрыть после отправки.
+     *
+     * @param answerKey true — в конец документа добавляются страницы с ответами (ответ в той же ячейке,
+     *                  что и задание)
+     */
+    public RenderedPdf render(List<Task> tasks, String title, boolean answerKey) {
+        return render(tasks, title, answerKey, LocalDate.now());
+    }
 
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            document.save(out);
+    /**
+     * Как {@link #render(List, String, boolean)}, с датой в заголовке, заданной вызывающим
+     * (лист, который кэшируется по дате, должен быть отрисован именно с ней).
+     */
+    public RenderedPdf render(List<Task> tasks, String title, boolean answerKey, LocalDate date) {
+        List<Task> sheet = tasks != null ? tasks : List.of();
+        int tasksPerPage = PdfLayoutParams.tasksPerPage(sheet.size());
+        int pages = pageCount(sheet) * (answerKey ? 2 : 1);
+        long estimate = PdfRenderGovernor.estimateBytes(answerKey ? 2 * sheet.size() : sheet.size(), pages);
+        try (PdfRenderGovernor.Permit permit = renderGovernor.acquire(estimate);
+             PDDocument document = new PDDocument(permit.streamCache())) {
+            PDFont font = fontFor(document, title, List.of(sheet), answerKey);
 
-            byte[] bytes = out.toByteArray();
-            log.info("PDF generated successfully, size: {} bytes, tasks: {}", bytes.length,
-                    tasks != null ? tasks.size() : 0);
-            return bytes;
-        } catch (IOException e) {
+            GlyphAdvances advances = fontProvider.advances();
+            PdfLayoutParams layout = layoutService.measuredLayout(sheet, tasksPerPage, answerKey, advances);
+            PDFLayoutService.TaskPageWriter writer = layoutService.openTaskPages(
+                    layoutService.pageTemplates(document, font, advances), title, date, layout, tasksPerPage, answerKey);
+            try (writer) {
+                sheet.forEach(writer);
+            }
+
+            RenderedPdf pdf = save(document);
+            log.info("PDF generated successfully, size: {} bytes, tasks: {}, pages: {}, answer key: {}",
+                    pdf.size(), sheet.size(), writer.pages(), answerKey);
+            return pdf;
+        } catch (IOException | UncheckedIOException e) {
             log.error("Failed to generate PDF: {}", e.getMessage(), e);
             throw new PdfGenerationException("PDF generation failed", e);
         }
     }
 
-    private PDFont loadFont(PDDocument document) throws IOException {
-        String path = fontPath != null ? fontPath.trim() : "";
-        if (path.isEmpty()) {
-            log.warn("pdf.font.path пуст — используется встроенный шрифт Helvetica (кириллица отображаться не будет)");
-            return fallbackFont();
-        }
+    /**
+     * Один PDF на класс: варианты подряд, каждый с новой страницы. Шрифт встраивается один раз
+     * на весь документ, все страницы ссылаются на один ресурс шрифта и один шаблон заголовка.
+     * Вариант больше {@link PdfLayoutParams#MAX_TASKS_PER_PAGE} заданий раскладывается на несколько страниц,
+     * как обычный лист. Документ сохраняется во временный файл; результат нужно закрыть после отправки.
+     */
+    public RenderedPdf generateVariants(List<List<Task>> variants, String title) {
+        int tasks = variants.stream().mapToInt(List::size).sum();
+        int pages = variants.stream().mapToInt(PDFService::pageCount).sum();
+        long estimate = PdfRenderGovernor.estimateBytes(tasks, pages);
+        try (PdfRenderGovernor.Permit permit = renderGovernor.acquire(estimate);
+             PDDocument document = new PDDocument(permit.streamCache())) {
+            PDFont font = fontFor(document, title, variants, false);
+            LocalDate date = LocalDate.now();
 
-        InputStream fontStream = openFontStream(path);
-        if (fontStream == null && path.equals("classpath:/fonts/DejaVuSans.ttf")) {
-            fontStream = openFontStream(FALLBACK_FONT_PATH);
-            if (fontStream != null) {
-                path = FALLBACK_FONT_PATH;
-                log.debug("Шрифт из resources/fonts/ не найден, используется из jasperreports-fonts");
+            GlyphAdvances advances = fontProvider.advances();
+            PDFLayoutService.PageTemplates templates = layoutService.pageTemplates(document, font, advances);
+            for (int i = 0; i < variants.size(); i++) {
+                List<Task> variant = variants.get(i);
+                int tasksPerPage = PdfLayoutParams.tasksPerPage(variant.size());
+                PdfLayoutParams layout = layoutService.measuredLayout(variant, tasksPerPage, false, advances);
+                PDFLayoutService.TaskPageWriter writer = layoutService.openTaskPages(templates, title,
+                        " — вариант " + (i + 1), date, layout, tasksPerPage, false);
+                try (writer) {
+                    variant.forEach(writer);
+                }
             }
+
+            RenderedPdf pdf = save(document);
+            log.info("Class pack PDF generated, size: {} bytes, variants: {}, pages: {}",
+                    pdf.size(), variants.size(), pages);
+            return pdf;
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Failed to generate class pack PDF: {}", e.getMessage(), e);
+            throw new PdfGenerationException("PDF generation failed", e);
         }
-        if (fontStream != null) {
-            try (InputStream is = fontStream) {
-                PDFont font = PDType0Font.load(document, is);
-                log.info("Шрифт для PDF загружен: {} (кириллица поддерживается)", path);
-                return font;
-            } catch (IOException e) {
-                log.warn("Не удалось загрузить шрифт из {}: {} — используется Helvetica (кириллица не будет)", path, e.getMessage());
-            }
-        } else {
-            log.warn("Шрифт не найден по пути: {} — используется Helvetica. Добавьте TTF в resources/fonts/ или укажите pdf.font.path", path);
-        }
-        return fallbackFont();
     }
 
     /**
-     * Открывает поток шрифта: из classpath (classpath:/...) или с диска (абсолютный/относительный путь).
+     * Большая тетрадь (сотни и тысячи заданий) без промежуточного списка: генератор передаёт задания
+     * по одному в постраничный писатель, заполненные страницы сразу закрываются. Содержимое страниц
+     * хранится во временном файле PDFBox, а не в куче, документ пишется прямо в {@code out}; поэтому из бюджета
+     * памяти тетрадь занимает только долю пустого документа.
+     *
+     * @return количество записанных заданий
      */
-    private InputStream openFontStream(String path) throws IOException {
-        if (path.startsWith(CLASSPATH_PREFIX)) {
-            String resourcePath = path.substring(CLASSPATH_PREFIX.length()).stripLeading();
-            if (!resourcePath.startsWith(RESOURCE_PATH_PREFIX)) {
-                resourcePath = RESOURCE_PATH_PREFIX + resourcePath;
+    public int generateStreaming(TaskGenerator generator, GenerationContext context, String title, OutputStream out) {
+        try (PdfRenderGovernor.Permit permit = renderGovernor.acquire(PdfRenderGovernor.estimateBytes(0, 1));
+             PDDocument document = new PDDocument(IOUtils.createTempFileOnlyStreamCache())) {
+            PDFont font = fontProvider.font(document);
+
+            PDFLayoutService.TaskPageWriter writer = layoutService.openTaskPages(
+                    layoutService.pageTemplates(document, font, fontProvider.advances()), title, LocalDate.now(),
+                    PdfLayoutParams.forTaskCountA4(PDFLayoutService.STREAM_TASKS_PER_PAGE),
+                    PDFLayoutService.STREAM_TASKS_PER_PAGE, false);
+            try (writer) {
+                generator.generate(context, writer);
             }
-            return getClass().getResourceAsStream(resourcePath);
+
+            document.save(out);
+            log.info("Streamed PDF generated, tasks: {}, pages: {}", writer.written(), writer.pages());
+            return writer.written();
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Failed to generate streamed PDF: {}", e.getMessage(), e);
+            throw new PdfGenerationException("PDF generation failed", e);
         }
-        // Путь к файлу на диске
-        Path filePath = Path.of(path);
-        if (Files.isRegularFile(filePath) && Files.isReadable(filePath)) {
-            return new FileInputStream(filePath.toFile());
+    }
+
+    /**
+     * Страниц заданий в листе из {@code tasks} заданий (пустой лист — одна страница с заголовком).
+     */
+    private static int pageCount(List<Task> tasks) {
+        int tasksPerPage = PdfLayoutParams.tasksPerPage(tasks.size());
+        return Math.max(1, (tasks.size() + tasksPerPage - 1) / tasksPerPage);
+    }
+
+    /**
+     * Сохраняет документ во временный файл.
+     */
+    private RenderedPdf save(PDDocument document) throws IOException {
+        Path file = Files.createTempFile(TEMP_FILE_PREFIX, ".pdf");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            document.save(out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
         }
-        return null;
+        return RenderedPdf.onDisk(file);
     }
 
-    private static PDFont fallbackFont() {
-        return new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+    /**
+     * Шрифт документа, текст которого известен заранее: готовое подмножество ({@link PdfFontProvider#worksheetFont}),
+     * если оно покрывает заголовок и все задания (и ответы, если они печатаются), иначе шрифт с подмножеством
+     * глифов на документ. Потоковая тетрадь текст заранее не знает и всегда берёт второй вариант.
+     */
+    private PDFont fontFor(PDDocument document, String title, List<List<Task>> sheets,
+                           boolean answers) throws IOException {
+        if (!fontProvider.covers(title)) {
+            return fontProvider.font(document);
+        }
+        StringBuilder line = new StringBuilder(32);
+        for (List<Task> sheet : sheets) {
+            for (Task task : sheet) {
+                line.setLength(0);
+                task.appendQuestion(line);
+                if (!fontProvider.covers(line) || answers && !fontProvider.covers(task.answer())) {
+                    return fontProvider.font(document);
+                }
+            }
+        }
+        return fontProvider.worksheetFont(document);
     }
 }
-
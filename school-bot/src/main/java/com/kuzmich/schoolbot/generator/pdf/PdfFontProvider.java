@@ -0,0 +1,281 @@
+package com.kuzmich.schoolbot.generator.pdf;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.fontbox.ttf.CmapLookup;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TTFSubsetter;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadMemoryMappedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Шрифт для PDF, разобранный один раз на всё приложение.
+ * <p>
+ * Цепочка выбора ({@code pdf.font.path} → DejaVu из jasperreports-fonts → Helvetica) проходится один раз при старте.
+ * TTF с диска читается через отображение файла в память, из classpath — в буфер; разобранный {@link TrueTypeFont}
+ * общий для всех документов, а на каждый документ создаётся лёгкий {@link PDType0Font} поверх него
+ * с подмножеством глифов (в PDF попадают только использованные символы). Таблицы общего шрифта PDFBox читает
+ * под собственной блокировкой, поэтому документы можно строить параллельно.
+ * <p>
+ * Листы заданий почти целиком состоят из одних и тех же символов: цифры, знаки {@code + - = < >}, пустое место
+ * для ответа и кириллица заголовков. Поэтому при старте из TTF вырезается готовое подмножество — символы
+ * {@code messages.properties} / {@code core-messages.properties} и {@link #WORKSHEET_ALPHABET} — и встраивается
+ * в документ целиком ({@link #worksheetFont}), без подмножества на каждый документ. Если в тексте листа есть символ
+ * вне готового подмножества, документ получает обычный шрифт с подмножеством глифов.
+ * <p>
+ * Ширины символов выбранного шрифта измеряются при старте в {@link GlyphAdvances} ({@link #advances()}):
+ * раскладка подбирает колонки и кегль по ширине заданий без обращений к PDFBox на каждую строку.
+ */
+@Component
+@Slf4j
+public class PdfFontProvider {
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+    /** Префикс для classpath-ресурсов (в Java всегда «/», не системный разделитель). */
+    private static final String RESOURCE_PATH_PREFIX = "/";
+    /** Запасной путь к шрифту (из зависимости jasperreports-fonts), если по {@code pdf.font.path} шрифта нет. */
+    static final String FALLBACK_FONT_PATH = "classpath:/net/sf/jasperreports/fonts/dejavu/DejaVuSans.ttf";
+    /** Тексты бота, из которых берутся заголовки листов. */
+    private static final String[] MESSAGE_BUNDLES = {"/messages.properties", "/core-messages.properties"};
+    /**
+     * Символы, которые добавляют сами раскладка и сервис: числа, знаки заданий и сравнения, дата,
+     * «Дата:», «Ответы», «— стр. N» ({@link PDFLayoutService}) и «— вариант N» ({@link PDFService}).
+     */
+    static final String WORKSHEET_ALPHABET = "0123456789 +-−=<>≤≥?!.,:;()_/*×÷№—–…"
+            + "Дата: Ответы — стр. вариант";
+
+    /** Разобранный шрифт; null — используется Helvetica (кириллица отображаться не будет). */
+    private final TrueTypeFont trueTypeFont;
+    /** Таблица символов {@link #trueTypeFont}: какие символы шрифт вообще может отобразить. */
+    private final CmapLookup cmap;
+    /** Готовое подмножество для листов; null — не построено (Helvetica или ошибка при старте). */
+    private final TrueTypeFont worksheetSubset;
+    /** Символы, которые есть в {@link #worksheetSubset}. */
+    private final BitSet worksheetCodePoints = new BitSet();
+    /** Ширины символов шрифта, которым рисуются документы (TTF или Helvetica). */
+    private final GlyphAdvances advances;
+
+    public PdfFontProvider(@Value("${pdf.font.path:classpath:/fonts/DejaVuSans.ttf}") String fontPath) {
+        this.trueTypeFont = resolve(fontPath != null ? fontPath.trim() : "");
+        this.cmap = trueTypeFont != null ? unicodeCmap(trueTypeFont) : null;
+        this.worksheetSubset = cmap != null ? buildWorksheetSubset() : null;
+        this.advances = measureAdvances();
+    }
+
+    /**
+     * Шрифт для документа: {@link PDType0Font} с подмножеством глифов поверх общего разобранного шрифта
+     * или Helvetica, если TTF не найден.
+     */
+    public PDFont font(PDDocument document) throws IOException {
+        if (trueTypeFont == null) {
+            return new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        }
+        return PDType0Font.load(document, trueTypeFont, true);
+    }
+
+    /**
+     * Шрифт для документа, весь текст которого проверен через {@link #covers}: готовое подмножество встраивается
+     * целиком, без подмножества на документ. Если подмножество не построено — как {@link #font(PDDocument)}.
+     */
+    public PDFont worksheetFont(PDDocument document) throws IOException {
+        if (worksheetSubset == null) {
+            return font(document);
+        }
+        return PDType0Font.load(document, worksheetSubset, false);
+    }
+
+    /**
+     * Ширины символов шрифта документов: подмножество для листов и шрифт с подмножеством на документ строятся
+     * из одного TTF, поэтому таблица общая для обоих.
+     */
+    public GlyphAdvances advances() {
+        return advances;
+    }
+
+    /**
+     * @return true, если все символы текста, которые может отобразить шрифт, есть в готовом подмножестве
+     * (символы, которых нет и в самом шрифте, подмножество не ухудшает)
+     */
+    public boolean covers(CharSequence text) {
+        if (worksheetSubset == null) {
+            return false;
+        }
+        if (text == null) {
+            return true;
+        }
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = Character.codePointAt(text, i);
+            if (!worksheetCodePoints.get(codePoint) && cmap.getGlyphId(codePoint) != 0) {
+                return false;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (worksheetSubset != null) {
+            worksheetSubset.close();
+        }
+        if (trueTypeFont != null) {
+            trueTypeFont.close();
+        }
+    }
+
+    /**
+     * Вырезает из шрифта подмножество для листов: символы текстов бота и {@link #WORKSHEET_ALPHABET}.
+     * При ошибке возвращает null — документы будут получать шрифт с подмножеством на документ.
+     */
+    private TrueTypeFont buildWorksheetSubset() {
+        try {
+            Set<Integer> codePoints = new HashSet<>();
+            WORKSHEET_ALPHABET.codePoints().forEach(codePoints::add);
+            for (String bundle : MESSAGE_BUNDLES) {
+                addMessageCodePoints(bundle, codePoints);
+            }
+            codePoints.removeIf(codePoint -> cmap.getGlyphId(codePoint) == 0);
+
+            TTFSubsetter subsetter = new TTFSubsetter(trueTypeFont);
+            subsetter.addAll(codePoints);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            subsetter.writeToStream(out);
+            byte[] subset = out.toByteArray();
+
+            TrueTypeFont font = new TTFParser().parse(new RandomAccessReadBuffer(subset));
+            codePoints.forEach(worksheetCodePoints::set);
+            log.info("Подмножество шрифта для листов: {} символов, {} байт", codePoints.size(), subset.length);
+            return font;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Не удалось построить подмножество шрифта для листов: {} — подмножество будет строиться на каждый документ",
+                    e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Измеряет ширины символов на шрифте, который получают документы (во временном документе, который не сохраняется).
+     */
+    private GlyphAdvances measureAdvances() {
+        try (PDDocument document = new PDDocument()) {
+            return GlyphAdvances.measure(font(document), WORKSHEET_ALPHABET);
+        } catch (IOException e) {
+            log.warn("Не удалось измерить ширины символов шрифта: {} — используются ширины Helvetica", e.getMessage());
+            return GlyphAdvances.measure(new PDType1Font(Standard14Fonts.FontName.HELVETICA), WORKSHEET_ALPHABET);
+        }
+    }
+
+    private static void addMessageCodePoints(String bundle, Set<Integer> codePoints) throws IOException {
+        try (InputStream in = PdfFontProvider.class.getResourceAsStream(bundle)) {
+            if (in == null) {
+                return;
+            }
+            Properties messages = new Properties();
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                messages.load(reader);
+            }
+            for (String name : messages.stringPropertyNames()) {
+                messages.getProperty(name).codePoints().forEach(codePoints::add);
+            }
+        }
+    }
+
+    private static CmapLookup unicodeCmap(TrueTypeFont font) {
+        try {
+            return font.getUnicodeCmapLookup();
+        } catch (IOException e) {
+            log.warn("В шрифте нет таблицы Unicode-символов: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static TrueTypeFont resolve(String path) {
+        if (path.isEmpty()) {
+            log.warn("pdf.font.path пуст — используется встроенный шрифт Helvetica (кириллица отображаться не будет)");
+            return null;
+        }
+        TrueTypeFont font = parse(path);
+        if (font == null && !path.equals(FALLBACK_FONT_PATH)) {
+            font = parse(FALLBACK_FONT_PATH);
+            if (font != null) {
+                log.info("Шрифт {} недоступен, используется DejaVu из jasperreports-fonts", path);
+            }
+        }
+        if (font == null) {
+            log.warn("Шрифт не найден по пути: {} — используется Helvetica. Добавьте TTF в resources/fonts/ или укажите pdf.font.path", path);
+        }
+        return font;
+    }
+
+    private static TrueTypeFont parse(String path) {
+        RandomAccessRead source = null;
+        try {
+            source = open(path);
+            if (source == null) {
+                log.debug("Шрифт не найден: {}", path);
+                return null;
+            }
+            TrueTypeFont font = new TTFParser().parse(source);
+            log.info("Шрифт для PDF загружен: {} (кириллица поддерживается)", path);
+            return font;
+        } catch (IOException e) {
+            log.warn("Не удалось загрузить шрифт из {}: {}", path, e.getMessage());
+            closeQuietly(source);
+            return null;
+        }
+    }
+
+    /**
+     * Открывает данные шрифта: ресурс classpath (classpath:/...) читается в память, файл на диске
+     * (абсолютный/относительный путь) отображается в память.
+     */
+    private static RandomAccessRead open(String path) throws IOException {
+        if (path.startsWith(CLASSPATH_PREFIX)) {
+            String resourcePath = path.substring(CLASSPATH_PREFIX.length()).stripLeading();
+            if (!resourcePath.startsWith(RESOURCE_PATH_PREFIX)) {
+                resourcePath = RESOURCE_PATH_PREFIX + resourcePath;
+            }
+            try (InputStream in = PdfFontProvider.class.getResourceAsStream(resourcePath)) {
+                return in != null ? new RandomAccessReadBuffer(in.readAllBytes()) : null;
+            }
+        }
+        Path filePath = Path.of(path);
+        if (Files.isRegularFile(filePath) && Files.isReadable(filePath)) {
+            return new RandomAccessReadMemoryMappedFile(filePath);
+        }
+        return null;
+    }
+
+    private static void closeQuietly(RandomAccessRead source) {
+        if (source == null) {
+            return;
+        }
+        try {
+            source.close();
+        } catch (IOException e) {
+            log.debug("Не удалось закрыть источник шрифта: {}", e.getMessage());
+        }
+    }
+}
@@ -2,10 +2,18 @@ package com.kuzmich.schoolbot.generator.pdf;
 
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Параметры раскладки одной страницы PDF с заданиями: размер шрифта, интервалы, сетка колонок/строк.
  * Вычисляются по количеству заданий и формату страницы (A4), чтобы всё помещалось с комфортным
  * кеглем и «воздухом» между примерами (подход «сетка»).
+ * <p>
+ * {@link #forTaskCount} учитывает только количество заданий; {@link #plan} — ещё и ширину самого длинного
+ * задания (длинные последовательности, большие числа): подбирает от 1 до {@value #MAX_COLUMNS} колонок
+ * и наибольший кегль, при котором задания помещаются в колонку. Планы запоминаются по (количество заданий,
+ * класс ширины, формат страницы) — на горячем пути раскладка не пересчитывается.
  */
 public record PdfLayoutParams(
         int columns,
@@ -36,6 +44,25 @@ public record PdfLayoutParams(
     private static final float MIN_TASK_FONT_SIZE = 14f;
     private static final float MAX_TASK_FONT_SIZE = 28f;
     private static final float TITLE_FONT_SIZE = 16f;
+    /** Наибольшее число заданий на одной странице листа: две колонки по 25 строк с кеглем около 16. */
+    public static final int MAX_TASKS_PER_PAGE = 50;
+    /** Наибольшее число колонок при раскладке по ширине заданий. */
+    public static final int MAX_COLUMNS = 4;
+    /** Шаг класса ширины: ширина задания округляется вверх до четверти em, планы хранятся по классу. */
+    static final float WIDTH_CLASS_EM = 0.25f;
+    /** Класс ширины не больше 100 em — длиннее строк на листе не бывает, а число планов остаётся ограниченным. */
+    private static final int MAX_WIDTH_CLASS = 400;
+    /** Ниже этого кегля раскладка ради ширины не уменьшает шрифт; такое задание ужимается при отрисовке. */
+    private static final float MIN_FITTED_FONT_SIZE = 10f;
+    /** Лишняя колонка берётся, только если кегль растёт хотя бы на столько пунктов. */
+    private static final float COLUMN_FONT_GAIN = 0.5f;
+    /** Предел числа запомненных планов; сверх него планы считаются без запоминания. */
+    private static final int MAX_PLANS = 4096;
+
+    private static final Map<PlanKey, PdfLayoutParams> PLANS = new ConcurrentHashMap<>();
+
+    private record PlanKey(int taskCount, int widthClass, float pageWidth, float pageHeight) {
+    }
 
     /**
      * Строит параметры раскладки по количеству заданий для страницы A4.
@@ -48,22 +75,80 @@ public record PdfLayoutParams(
         }
 
         int columns = taskCount <= 10 ? 1 : 2;
-        int rows = (int) Math.ceil((double) taskCount / columns);
-
-        float usableHeight = pageHeight - MARGIN_TOP - MARGIN_LEFT - HEADER_HEIGHT;
-        float cellHeight = usableHeight / rows;
+        int rows = rows(taskCount, columns);
 
-        float taskFontSize = cellHeight * FONT_TO_CELL_RATIO;
+        float taskFontSize = cellHeight(rows, pageHeight) * FONT_TO_CELL_RATIO;
         if (taskFontSize < MIN_TASK_FONT_SIZE) {
             taskFontSize = MIN_TASK_FONT_SIZE;
         } else if (taskFontSize > MAX_TASK_FONT_SIZE) {
             taskFontSize = MAX_TASK_FONT_SIZE;
         }
+        return grid(columns, rows, taskFontSize, pageWidth, pageHeight);
+    }
 
+    /**
+     * Раскладка по количеству заданий и ширине самого длинного из них ({@link GlyphAdvances#widthEm}):
+     * из 1–{@value #MAX_COLUMNS} колонок выбирается та, что даёт наибольший кегль, при котором задание
+     * помещается в колонку по ширине, а все строки — на страницу по высоте. При равном кегле (в пределах
+     * полупункта) берётся меньше колонок. Результат запоминается по (количество, класс ширины, формат страницы).
+     *
+     * @param maxTaskWidthEm ширина самой длинной строки в em; 0 — ширина неизвестна, ограничивает только высота
+     */
+    public static PdfLayoutParams plan(int taskCount, float maxTaskWidthEm, float pageWidth, float pageHeight) {
+        int tasks = Math.max(taskCount, 1);
+        int widthClass = widthClass(maxTaskWidthEm);
+        PlanKey key = new PlanKey(tasks, widthClass, pageWidth, pageHeight);
+        PdfLayoutParams plan = PLANS.get(key);
+        if (plan == null) {
+            plan = computePlan(tasks, widthClass * WIDTH_CLASS_EM, pageWidth, pageHeight);
+            if (PLANS.size() < MAX_PLANS) {
+                PLANS.putIfAbsent(key, plan);
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * {@link #plan} для страницы A4.
+     */
+    public static PdfLayoutParams planA4(int taskCount, float maxTaskWidthEm) {
+        PDRectangle a4 = PDRectangle.A4;
+        return plan(taskCount, maxTaskWidthEm, a4.getWidth(), a4.getHeight());
+    }
+
+    /**
+     * Класс ширины: ширина, округлённая вверх до {@link #WIDTH_CLASS_EM}, в шагах.
+     */
+    static int widthClass(float widthEm) {
+        if (!(widthEm > 0)) {
+            return 0;
+        }
+        return (int) Math.min(MAX_WIDTH_CLASS, Math.ceil(widthEm / WIDTH_CLASS_EM));
+    }
+
+    private static PdfLayoutParams computePlan(int taskCount, float widthEm, float pageWidth, float pageHeight) {
+        int bestColumns = 1;
+        float bestFontSize = -1f;
+        for (int columns = 1; columns <= Math.min(MAX_COLUMNS, taskCount); columns++) {
+            int rows = rows(taskCount, columns);
+            float fontSize = Math.min(MAX_TASK_FONT_SIZE, cellHeight(rows, pageHeight) * FONT_TO_CELL_RATIO);
+            if (widthEm > 0) {
+                // Нижняя граница — только для ограничения по ширине: по высоте строки всегда помещаются на страницу
+                float widthLimit = Math.max(columnWidth(columns, pageWidth) / widthEm, MIN_FITTED_FONT_SIZE);
+                fontSize = Math.min(fontSize, widthLimit);
+            }
+            if (fontSize > bestFontSize + COLUMN_FONT_GAIN) {
+                bestFontSize = fontSize;
+                bestColumns = columns;
+            }
+        }
+        return grid(bestColumns, rows(taskCount, bestColumns), bestFontSize, pageWidth, pageHeight);
+    }
+
+    private static PdfLayoutParams grid(int columns, int rows, float taskFontSize, float pageWidth, float pageHeight) {
         float lineHeight = taskFontSize * LINE_HEIGHT_RATIO;
 
-        float contentWidth = pageWidth - 2 * MARGIN_LEFT;
-        float columnWidth = (contentWidth - (columns > 1 ? COLUMN_GAP : 0)) / columns;
+        float columnWidth = columnWidth(columns, pageWidth);
         float leftColumnX = MARGIN_LEFT;
         float rightColumnX = MARGIN_LEFT + columnWidth + COLUMN_GAP;
 
@@ -87,6 +172,32 @@ public record PdfLayoutParams(
         );
     }
 
+    private static int rows(int taskCount, int columns) {
+        return (taskCount + columns - 1) / columns;
+    }
+
+    private static float cellHeight(int rows, float pageHeight) {
+        return (pageHeight - MARGIN_TOP - MARGIN_LEFT - HEADER_HEIGHT) / rows;
+    }
+
+    private static float columnWidth(int columns, float pageWidth) {
+        float contentWidth = pageWidth - 2 * MARGIN_LEFT;
+        return (contentWidth - (columns - 1) * COLUMN_GAP) / columns;
+    }
+
+    /**
+     * Заданий на странице листа из {@code taskCount} заданий. До {@link #MAX_TASKS_PER_PAGE} лист помещается
+     * на одну страницу; больший лист делится на наименьшее нужное число страниц поровну (последняя может
+     * быть короче на несколько заданий), чтобы кегль на всех страницах был одинаковым и не мельчил.
+     */
+    public static int tasksPerPage(int taskCount) {
+        if (taskCount <= MAX_TASKS_PER_PAGE) {
+            return Math.max(taskCount, 1);
+        }
+        int pages = (taskCount + MAX_TASKS_PER_PAGE - 1) / MAX_TASKS_PER_PAGE;
+        return (taskCount + pages - 1) / pages;
+    }
+
     /**
      * Удобный вызов для A4 (ширина и высота берутся из PDRectangle.A4).
      */
@@ -96,10 +207,10 @@ public record PdfLayoutParams(
     }
 
     /**
-     * X-координата колонки по индексу (0 — левая, 1 — правая).
+     * X-координата колонки по индексу (0 — левая).
      */
     public float columnX(int columnIndex) {
-        return columnIndex == 0 ? leftColumnX : rightColumnX;
+        return leftColumnX + columnIndex * (columnWidth + columnGap);
     }
 
     /**
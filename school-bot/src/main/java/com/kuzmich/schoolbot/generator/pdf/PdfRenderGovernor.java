@@ -0,0 +1,174 @@
+package com.kuzmich.schoolbot.generator.pdf;
+
+import com.kuzmich.schoolbot.generator.service.PdfRenderBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ограничитель одновременной отрисовки PDF по памяти, а не по числу потоков.
+ * <p>
+ * Каждый документ перед отрисовкой берёт из общего бюджета ({@code pdf.render.memory-budget-mb}) оценку своей
+ * памяти ({@link #estimateBytes}): документ PDFBox, потоки содержимого страниц и копия результата в массив байт.
+ * Много мелких листов отрисовываются параллельно, большой лист занимает бюджет сам; документ больше всего бюджета
+ * ждёт, пока бюджет освободится целиком, и идёт один. Очередь честная, поэтому большие листы не голодают.
+ * Если бюджет не освободился за {@code pdf.render.acquire-timeout}, бросается {@link PdfRenderBusyException} —
+ * пользователю предлагается повторить позже, вместо того чтобы вся JVM ушла в сборку мусора или OOM.
+ * <p>
+ * Документы, оценка которых больше {@code pdf.render.heap-per-document-mb}, держат в куче только этот объём,
+ * остальное содержимое — во временном файле PDFBox ({@link MemoryUsageSetting#setupMixed(long)}).
+ * <p>
+ * Метрики: {@code schoolbot.pdf.render.budget.used} — занятый бюджет в байтах,
+ * {@code schoolbot.pdf.render.rejected} — отказы из-за исчерпанного бюджета.
+ */
+@Component
+@Slf4j
+public class PdfRenderGovernor {
+
+    /** Документ без заданий: каталог, шрифт с подмножеством глифов, шаблоны заголовков, буферы сохранения. */
+    static final long BASE_DOCUMENT_BYTES = 2L << 20;
+    /** Задание: текст в потоке содержимого, объекты PDFBox и доля копии результата. */
+    static final long BYTES_PER_TASK = 2L << 10;
+    /** Страница: словарь, ресурсы и поток содержимого с заголовком. */
+    static final long BYTES_PER_PAGE = 64L << 10;
+
+    private static final int KIB = 1024;
+
+    private final int budgetKib;
+    private final long heapPerDocumentBytes;
+    private final Duration acquireTimeout;
+    private final Semaphore budget;
+    private final Counter rejected;
+
+    @Autowired
+    public PdfRenderGovernor(MeterRegistry registry,
+                             @Value("${pdf.render.memory-budget-mb:160}") int memoryBudgetMb,
+                             @Value("${pdf.render.heap-per-document-mb:16}") int heapPerDocumentMb,
+                             @Value("${pdf.render.acquire-timeout:PT5S}") Duration acquireTimeout) {
+        this(registry, (long) memoryBudgetMb << 20, (long) heapPerDocumentMb << 20, acquireTimeout);
+    }
+
+    PdfRenderGovernor(MeterRegistry registry, long budgetBytes, long heapPerDocumentBytes, Duration acquireTimeout) {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("Бюджет памяти должен быть положительным, получено: " + budgetBytes);
+        }
+        this.budgetKib = (int) Math.min(Integer.MAX_VALUE, (budgetBytes + KIB - 1) / KIB);
+        this.heapPerDocumentBytes = heapPerDocumentBytes;
+        this.acquireTimeout = acquireTimeout;
+        this.budget = new Semaphore(budgetKib, true);
+        if (registry != null) {
+            this.rejected = Counter.builder("schoolbot.pdf.render.rejected")
+                    .description("Отрисовки PDF, отклонённые из-за исчерпанного бюджета памяти")
+                    .register(registry);
+            Gauge.builder("schoolbot.pdf.render.budget.used", this, PdfRenderGovernor::usedBytes)
+                    .description("Память, занятая отрисовкой PDF по оценке, байт")
+                    .baseUnit("bytes")
+                    .register(registry);
+        } else {
+            this.rejected = null;
+        }
+    }
+
+    /**
+     * Без ограничения: документы не ждут бюджета и целиком держатся в куче (тесты, бенчмарки).
+     */
+    public static PdfRenderGovernor unbounded() {
+        return new PdfRenderGovernor(null, (long) Integer.MAX_VALUE * KIB, Long.MAX_VALUE, Duration.ZERO);
+    }
+
+    /**
+     * Оценка памяти на отрисовку документа.
+     *
+     * @param tasks число заданий и ответов в документе
+     * @param pages число страниц
+     */
+    public static long estimateBytes(int tasks, int pages) {
+        return BASE_DOCUMENT_BYTES + Math.max(tasks, 0) * BYTES_PER_TASK + Math.max(pages, 1) * BYTES_PER_PAGE;
+    }
+
+    /**
+     * Занять бюджет под документ. Ждёт не дольше {@code pdf.render.acquire-timeout}; оценка больше всего бюджета
+     * урезается до бюджета (документ ждёт, пока не останется других отрисовок).
+     *
+     * @throws PdfRenderBusyException если бюджет не освободился вовремя
+     */
+    public Permit acquire(long estimatedBytes) {
+        int kib = (int) Math.max(1, Math.min(budgetKib, (estimatedBytes + KIB - 1) / KIB));
+        boolean acquired;
+        try {
+            acquired = budget.tryAcquire(kib, acquireTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            if (rejected != null) {
+                rejected.increment();
+            }
+            log.warn("Бюджет памяти на отрисовку PDF исчерпан: нужно {} КиБ, свободно {} из {} КиБ",
+                    kib, budget.availablePermits(), budgetKib);
+            throw new PdfRenderBusyException("Бюджет памяти на отрисовку PDF исчерпан");
+        }
+        return new Permit(kib, estimatedBytes);
+    }
+
+    /**
+     * Занятый бюджет по оценке, байт.
+     */
+    public long usedBytes() {
+        return (long) (budgetKib - budget.availablePermits()) * KIB;
+    }
+
+    /**
+     * Занятая доля бюджета одного документа; освобождается при {@link #close()} (повторный вызов ничего не делает).
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final int kib;
+        private final long estimatedBytes;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int kib, long estimatedBytes) {
+            this.kib = kib;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        /**
+         * Кэш потоков для {@code new PDDocument(...)}: небольшой документ целиком в куче, крупный — в куче
+         * не больше {@code pdf.render.heap-per-document-mb}, остальное во временном файле.
+         */
+        public StreamCacheCreateFunction streamCache() {
+            if (!spillsToDisk()) {
+                return IOUtils.createMemoryOnlyStreamCache();
+            }
+            return MemoryUsageSetting.setupMixed(heapPerDocumentBytes).streamCache;
+        }
+
+        /**
+         * true — документ крупнее {@code pdf.render.heap-per-document-mb}: его содержимое при отрисовке
+         * держится на диске, а не в куче.
+         */
+        public boolean spillsToDisk() {
+            return estimatedBytes > heapPerDocumentBytes;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                budget.release(kib);
+            }
+        }
+    }
+}
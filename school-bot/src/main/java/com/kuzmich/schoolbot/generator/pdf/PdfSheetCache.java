@@ -0,0 +1,331 @@
+package com.kuzmich.schoolbot.generator.pdf;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Кэш отрисованных листов на локальном диске с адресацией по содержимому.
+ * <p>
+ * Лист с известным сидом воспроизводим: те же параметры дают тот же документ (например, одно «домашнее задание
+ * дня» на весь класс). Вызывающий описывает параметры канонической строкой, имя файла кэша — SHA-256 от неё
+ * и {@link #FORMAT_VERSION}. Попадание отдаётся без отрисовки и без копии в кучу: {@link RenderedPdf} получает
+ * жёсткую ссылку на файл кэша и загружается в Telegram прямо из файла. Ссылка остаётся читаемой, даже если запись
+ * вытеснят во время отправки; на файловой системе без жёстких ссылок файл копируется на диске. Размер кэша ограничен
+ * {@code pdf.cache.max-size-mb}: вытесняются давно не запрошенные листы (LRU; время последнего запроса хранится
+ * в mtime файла, поэтому порядок переживает рестарт).
+ * <p>
+ * После первой отправки в Telegram документ кэша запоминает file_id ({@link RenderedPdf#uploaded(String)}):
+ * повторные отправки идут без загрузки файла. file_id хранится только в памяти — после рестарта документ
+ * один раз загружается заново.
+ * <p>
+ * Одновременные промахи по одному ключу отрисовывают лист каждый сам; файлы кэша пишутся через временный файл
+ * и атомарное переименование, поэтому читатели никогда не видят недописанный документ.
+ * <p>
+ * Метрики: {@code schoolbot.pdf.cache.requests} (тег result = hit/miss; доля попаданий —
+ * hit / (hit + miss)), {@code schoolbot.pdf.cache.saved} — байты документов, отданных без отрисовки,
+ * {@code schoolbot.pdf.cache.uploads.skipped} — попадания с известным file_id, {@code schoolbot.pdf.cache.size} —
+ * занятое место на диске.
+ */
+@Component
+@Slf4j
+public class PdfSheetCache {
+
+    /** Версия раскладки документов: увеличить при изменении вида листа, чтобы старые файлы кэша не отдавались. */
+    static final int FORMAT_VERSION = 1;
+
+    private static final String PDF_SUFFIX = ".pdf";
+    private static final String TEMP_SUFFIX = ".tmp";
+    /** Ссылки на файлы кэша для отправки — тоже временные: недоудалённые подчищаются при старте. */
+    private static final String LINK_SUFFIX = ".link" + TEMP_SUFFIX;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final boolean enabled;
+    /** Записи в порядке доступа: первая — давно не запрошенная. Доступ под {@code synchronized (index)}. */
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    private final AtomicLong links = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter savedBytes;
+    private final Counter uploadsSkipped;
+
+    private static final class Entry {
+        private final Path file;
+        private final long size;
+        private volatile String telegramFileId;
+
+        private Entry(Path file, long size) {
+            this.file = file;
+            this.size = size;
+        }
+    }
+
+    @Autowired
+    public PdfSheetCache(MeterRegistry registry,
+                         @Value("${pdf.cache.enabled:true}") boolean enabled,
+                         @Value("${pdf.cache.path:./data/pdf-cache}") String path,
+                         @Value("${pdf.cache.max-size-mb:256}") long maxSizeMb) {
+        this(registry, enabled, Path.of(path), maxSizeMb << 20);
+    }
+
+    PdfSheetCache(MeterRegistry registry, boolean enabled, Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.enabled = enabled && maxBytes > 0 && open(directory);
+
+        hits = requestCounter(registry, "hit");
+        misses = requestCounter(registry, "miss");
+        savedBytes = Counter.builder("schoolbot.pdf.cache.saved")
+                .description("Байты PDF, отданных из кэша без отрисовки")
+                .baseUnit("bytes")
+                .register(registry);
+        uploadsSkipped = Counter.builder("schoolbot.pdf.cache.uploads.skipped")
+                .description("Попадания в кэш с известным file_id: отправка без загрузки в Telegram")
+                .register(registry);
+        Gauge.builder("schoolbot.pdf.cache.size", this, PdfSheetCache::usedBytes)
+                .description("Место, занятое кэшем PDF на диске, байт")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Лист из кэша или, при промахе, отрисованный {@code renderer} и записанный в кэш.
+     * Если кэш выключен или запись не удалась, возвращается результат {@code renderer} как есть.
+     *
+     * @param canonicalKey все параметры, от которых зависит документ, в одном фиксированном порядке
+     */
+    public RenderedPdf getOrRender(String canonicalKey, Supplier<RenderedPdf> renderer) {
+        if (!enabled) {
+            return renderer.get();
+        }
+        String key = hash(canonicalKey);
+        Entry entry;
+        synchronized (index) {
+            entry = index.get(key);
+        }
+        if (entry != null) {
+            RenderedPdf cached = serve(key, entry);
+            if (cached != null) {
+                hits.increment();
+                savedBytes.increment(entry.size);
+                if (entry.telegramFileId != null) {
+                    uploadsSkipped.increment();
+                }
+                touch(entry.file);
+                return cached;
+            }
+        }
+        misses.increment();
+        RenderedPdf rendered = renderer.get();
+        if (rendered.size() > maxBytes) {
+            return rendered;
+        }
+        Entry stored;
+        try {
+            stored = store(key, rendered);
+        } catch (IOException e) {
+            log.warn("Не удалось записать PDF в кэш {}: {}", directory, e.getMessage());
+            return rendered;
+        }
+        RenderedPdf cached = serve(key, stored);
+        if (cached == null) {
+            return rendered;
+        }
+        try {
+            rendered.close();
+        } catch (IOException e) {
+            log.debug("Не удалось освободить отрисованный PDF: {}", e.getMessage());
+        }
+        return cached;
+    }
+
+    /**
+     * Место, занятое файлами кэша, байт.
+     */
+    public long usedBytes() {
+        synchronized (index) {
+            return usedBytes;
+        }
+    }
+
+    /**
+     * Число листов в кэше.
+     */
+    public int size() {
+        synchronized (index) {
+            return index.size();
+        }
+    }
+
+    private Entry store(String key, RenderedPdf rendered) throws IOException {
+        Path temp = Files.createTempFile(directory, key, TEMP_SUFFIX);
+        Path file = directory.resolve(key + PDF_SUFFIX);
+        try {
+            Files.copy(rendered.file(), temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Entry entry = new Entry(file, rendered.size());
+        synchronized (index) {
+            Entry previous = index.put(key, entry);
+            usedBytes += entry.size - (previous != null ? previous.size : 0);
+            evictOverLimit(key);
+        }
+        return entry;
+    }
+
+    /**
+     * Документ записи для отправки: жёсткая ссылка на файл кэша (или копия на диске, если ссылки не поддерживаются);
+     * null — файл пропал (удалён вручную или вытеснен), запись убирается.
+     */
+    private RenderedPdf serve(String key, Entry entry) {
+        Path link = directory.resolve(key + "-" + links.incrementAndGet() + LINK_SUFFIX);
+        try {
+            try {
+                Files.createLink(link, entry.file);
+            } catch (NoSuchFileException e) {
+                throw e;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                Files.copy(entry.file, link);
+            }
+            return RenderedPdf.cached(link, entry.telegramFileId, fileId -> entry.telegramFileId = fileId);
+        } catch (IOException e) {
+            delete(link);
+            if (!(e instanceof NoSuchFileException)) {
+                log.warn("Не удалось прочитать PDF из кэша {}: {}", entry.file, e.getMessage());
+            }
+            synchronized (index) {
+                if (index.remove(key, entry)) {
+                    usedBytes -= entry.size;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Вытесняет давно не запрошенные записи, пока кэш больше лимита; только что записанную запись не трогает.
+     * Вызывается под {@code synchronized (index)}.
+     */
+    private void evictOverLimit(String keep) {
+        Iterator<Map.Entry<String, Entry>> eldest = index.entrySet().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Entry> candidate = eldest.next();
+            if (candidate.getKey().equals(keep)) {
+                continue;
+            }
+            eldest.remove();
+            usedBytes -= candidate.getValue().size;
+            delete(candidate.getValue().file);
+        }
+    }
+
+    /**
+     * Создаёт каталог кэша и поднимает записи, оставшиеся с прошлого запуска (от давно не запрошенных к недавним).
+     *
+     * @return false — каталог недоступен, кэш выключается
+     */
+    private boolean open(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.toList();
+            }
+            files.stream()
+                    .filter(file -> file.getFileName().toString().endsWith(TEMP_SUFFIX))
+                    .forEach(PdfSheetCache::delete);
+            List<Path> entries = files.stream()
+                    .filter(file -> file.getFileName().toString().endsWith(PDF_SUFFIX))
+                    .sorted(Comparator.comparing(PdfSheetCache::lastModified))
+                    .toList();
+            synchronized (index) {
+                for (Path file : entries) {
+                    String name = file.getFileName().toString();
+                    Entry entry = new Entry(file, Files.size(file));
+                    index.put(name.substring(0, name.length() - PDF_SUFFIX.length()), entry);
+                    usedBytes += entry.size;
+                }
+                evictOverLimit(null);
+            }
+            log.info("Кэш PDF {}: листов {}, {} байт из {}", directory, index.size(), usedBytes, maxBytes);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Кэш PDF недоступен ({}): {} — листы будут отрисовываться каждый раз", directory, e.getMessage());
+            return false;
+        }
+    }
+
+    private static String hash(String canonicalKey) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((FORMAT_VERSION + "\n" + canonicalKey).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    /**
+     * Время последнего запроса — в mtime файла, чтобы порядок вытеснения восстановился после рестарта.
+     */
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            log.debug("Не удалось обновить время доступа {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Не удалось удалить файл кэша {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static Counter requestCounter(MeterRegistry registry, String result) {
+        return Counter.builder("schoolbot.pdf.cache.requests")
+                .description("Запросы листов к кэшу PDF")
+                .tag("result", result)
+                .register(registry);
+    }
+}
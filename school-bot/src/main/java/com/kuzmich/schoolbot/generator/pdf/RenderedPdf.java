@@ -0,0 +1,114 @@
+package com.kuzmich.schoolbot.generator.pdf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Отрисованный PDF, готовый к отправке: документ существует в одном экземпляре — во временном файле или,
+ * для листа из кэша ({@link PdfSheetCache}), в файле кэша.
+ * <p>
+ * Документ хранится в файле, а не в буфере в куче: клиент Telegram загружает {@code InputFile(File)} прямо
+ * из файла, а любой {@code InputFile(InputStream)} перед отправкой читает в новый {@code byte[]}.
+ * После отправки экземпляр нужно закрыть: файл удаляется (для листа из кэша — только ссылка на файл кэша).
+ */
+public final class RenderedPdf implements Closeable {
+
+    private final Path file;
+    private final long size;
+    private final String telegramFileId;
+    private final Consumer<String> uploadListener;
+    private boolean closed;
+
+    private RenderedPdf(Path file, long size, String telegramFileId, Consumer<String> uploadListener) {
+        this.file = file;
+        this.size = size;
+        this.telegramFileId = telegramFileId;
+        this.uploadListener = uploadListener;
+    }
+
+    static RenderedPdf onDisk(Path file) throws IOException {
+        return new RenderedPdf(file, Files.size(file), null, null);
+    }
+
+    /**
+     * Документ из кэша: {@code file} — собственная ссылка на файл кэша, удаляется при {@link #close()}
+     * и остаётся читаемой, даже если кэш тем временем вытеснит запись.
+     *
+     * @param telegramFileId file_id прошлой загрузки этого документа; null — документ ещё не загружался
+     * @param uploadListener получает file_id после загрузки (см. {@link #uploaded(String)})
+     */
+    static RenderedPdf cached(Path file, String telegramFileId, Consumer<String> uploadListener) throws IOException {
+        return new RenderedPdf(file, Files.size(file), telegramFileId, uploadListener);
+    }
+
+    /**
+     * Размер документа в байтах.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Файл с документом; действителен до {@link #close()}.
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Поток чтения документа; действителен до {@link #close()}.
+     */
+    public InputStream openStream() throws IOException {
+        requireOpen();
+        return Files.newInputStream(file);
+    }
+
+    /**
+     * file_id, под которым этот документ уже загружен в Telegram: его можно отправить без повторной загрузки.
+     * null — документ нужно загружать.
+     */
+    public String telegramFileId() {
+        return telegramFileId;
+    }
+
+    /**
+     * Документ загружен в Telegram под {@code fileId}; для документа из кэша следующие отправки пойдут по file_id.
+     */
+    public void uploaded(String fileId) {
+        if (uploadListener != null && fileId != null) {
+            uploadListener.accept(fileId);
+        }
+    }
+
+    /**
+     * Копия документа в массив байт — для вызовов, которым нужен {@code byte[]}.
+     */
+    public byte[] toByteArray() {
+        requireOpen();
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать PDF из файла", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Files.deleteIfExists(file);
+    }
+
+    private synchronized void requireOpen() {
+        if (closed) {
+            throw new IllegalStateException("PDF уже отправлен и закрыт");
+        }
+    }
+}
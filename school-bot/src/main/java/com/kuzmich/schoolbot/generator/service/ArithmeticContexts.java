@@ -0,0 +1,66 @@
+package com.kuzmich.schoolbot.generator.service;
+
+import com.kuzmich.schoolbot.generator.ArithmeticContext;
+import com.kuzmich.schoolbot.generator.MixedContext;
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.generator.Range;
+import com.kuzmich.schoolbot.generator.RecentTaskFilter;
+
+/**
+ * Контекст генерации по умолчанию для типа операции: диапазон и флаг «без перехода» берутся из типа
+ * (и для отдельного листа, и для части смешанного).
+ * Общий для {@link PdfGenerationService} и фонового {@link TaskPool}, чтобы листы из пула
+ * не отличались от сгенерированных на месте.
+ */
+final class ArithmeticContexts {
+
+    private ArithmeticContexts() {
+        // utility class
+    }
+
+    static ArithmeticContext forOperation(OperationType operationType, int quantity, long seed) {
+        return forOperation(operationType, quantity, seed, null);
+    }
+
+    /**
+     * Контекст с учётом недавних заданий пользователя ({@code recentTasks} может быть null).
+     */
+    static ArithmeticContext forOperation(OperationType operationType, int quantity, long seed,
+                                          RecentTaskFilter recentTasks) {
+        return ArithmeticContext.builder()
+                .operationType(operationType)
+                .numberRange(defaultRange(operationType))
+                .quantity(quantity)
+                .noCarry(defaultNoCarry(operationType))
+                .seed(seed)
+                .recentTasks(recentTasks)
+                .build()
+                .validate();
+    }
+
+    /**
+     * Часть смешанного листа с параметрами по умолчанию для типа операции.
+     */
+    static MixedContext.Part mixedPart(OperationType operationType, int weight) {
+        return new MixedContext.Part(operationType, weight, defaultRange(operationType), defaultNoCarry(operationType));
+    }
+
+    private static Range defaultRange(OperationType operationType) {
+        return switch (operationType) {
+            case ADDITION_10, SUBTRACTION_10 -> new Range(0, 10);
+            case ADDITION_20_NO_CARRY, SUBTRACTION_20_NO_CARRY -> new Range(0, 20);
+            case NUMBER_COMPOSITION_2_9 -> new Range(2, 9);
+            case NUMBER_COMPOSITION_10 -> new Range(10, 10);
+            case NUMBER_COMPOSITION_11_20 -> new Range(11, 20);
+            case NUMBER_COMPOSITION -> new Range(2, 10);
+            case COMPARISON, NUMBER_SEQUENCE -> new Range(0, 20);
+        };
+    }
+
+    private static Boolean defaultNoCarry(OperationType operationType) {
+        return switch (operationType) {
+            case ADDITION_20_NO_CARRY, SUBTRACTION_20_NO_CARRY -> Boolean.TRUE;
+            default -> null;
+        };
+    }
+}
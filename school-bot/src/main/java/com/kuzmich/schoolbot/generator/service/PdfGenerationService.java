@@ -2,19 +2,35 @@ package com.kuzmich.schoolbot.generator.service;
 
 import com.kuzmich.schoolbot.core.premium.AccessCheckResult;
 import com.kuzmich.schoolbot.core.premium.FeatureAccessService;
-import com.kuzmich.schoolbot.generator.ArithmeticContext;
+import com.kuzmich.schoolbot.core.validation.Validation;
+import com.kuzmich.schoolbot.generator.GenerationRandom;
 import com.kuzmich.schoolbot.generator.GeneratorFactory;
+import com.kuzmich.schoolbot.generator.MixedContext;
 import com.kuzmich.schoolbot.generator.OperationType;
-import com.kuzmich.schoolbot.generator.Range;
+import com.kuzmich.schoolbot.generator.RecentTaskFilter;
 import com.kuzmich.schoolbot.generator.Task;
 import com.kuzmich.schoolbot.generator.TaskGenerator;
 import com.kuzmich.schoolbot.generator.pdf.PDFService;
+import com.kuzmich.schoolbot.generator.pdf.PdfSheetCache;
+import com.kuzmich.schoolbot.generator.pdf.RenderedPdf;
+import com.kuzmich.schoolbot.history.TaskHistoryService;
 import com.kuzmich.schoolbot.subscription.Feature;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 /**
  * Доменный фасад: связывает генераторы заданий, квоты фич и PDFService.
@@ -25,66 +41,361 @@ import java.util.List;
 public class PdfGenerationService {
 
     private static final int DEMO_QUANTITY = 20;
+    /** Верхняя граница вариантов в пакете на класс. */
+    static final int MAX_CLASS_PACK_VARIANTS = 40;
+    /** Верхняя граница заданий в листе; больше 50 заданий лист раскладывается на несколько страниц. */
+    public static final int MAX_SHEET_QUANTITY = 500;
+    /** Доля уже виденных заданий, при которой лист из пула ещё выдаётся пользователю с историей. */
+    static final double MAX_POOLED_SEEN_SHARE = 0.1;
+    /** Верхняя граница заданий в потоковой тетради. */
+    static final int MAX_WORKBOOK_QUANTITY = 5000;
+    /** Листов с сидом, задания которых держатся в памяти для истории при попадании в кэш PDF. */
+    static final int SEEDED_SHEETS_CAPACITY = 64;
 
     private final GeneratorFactory generatorFactory;
     private final FeatureAccessService featureAccessService;
     private final PDFService pdfService;
+    private final TaskPool taskPool;
+    private final TaskHistoryService taskHistoryService;
+    private final PdfSheetCache sheetCache;
+    /** Задания недавних листов с сидом в порядке доступа. Доступ под {@code synchronized (seededSheets)}. */
+    private final Map<String, List<Task>> seededSheets = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<Task>> eldest) {
+            return size() > SEEDED_SHEETS_CAPACITY;
+        }
+    };
 
     /**
-     * Генерация PDF для демо-сценария: фиксированное количество примеров сложения до 10.
+     * Генерация PDF для демо-сценария: фиксированное количество примеров сложения до 10
+     * (без копии в массив байт, см. {@link #renderArithmeticPdf}).
      */
-    public byte[] generateDemoForUser(Long userId, String title) {
-        return generateArithmeticPdf(userId, OperationType.ADDITION_10, DEMO_QUANTITY, title);
+    public RenderedPdf renderDemoForUser(Long userId, String title) {
+        return renderArithmeticPdf(userId, OperationType.ADDITION_10, DEMO_QUANTITY, title, null, false);
     }
 
     /**
-     * Общий метод генерации PDF для заданной операции.
+     * Наибольшее количество заданий в листе операции: {@link #MAX_SHEET_QUANTITY}, но не больше, чем генератор
+     * выдаёт без повторов ({@link TaskGenerator#maxTasks}) — иначе лист вышел бы короче запрошенного,
+     * а квота списалась бы целиком. Если операция ещё не выбрана (null) — {@link #MAX_SHEET_QUANTITY}.
      */
-    public byte[] generateArithmeticPdf(Long userId,
-                                        OperationType operationType,
-                                        int quantity,
-                                        String title) {
-        AccessCheckResult access = featureAccessService.checkAccess(userId, Feature.PDF_GENERATION, 1);
-        if (!access.isGranted()) {
-            String message = access.getMessage() != null ? access.getMessage() : "Доступ к генерации PDF ограничен.";
-            throw new PdfGenerationAccessException(message);
+    public int maxSheetQuantity(OperationType operationType) {
+        if (operationType == null) {
+            return MAX_SHEET_QUANTITY;
+        }
+        TaskGenerator generator = generatorFactory.getGenerator(operationType);
+        return Math.min(MAX_SHEET_QUANTITY, generator.maxTasks(ArithmeticContexts.forOperation(operationType, 1, 0L)));
+    }
+
+    /**
+     * Лист до {@link #maxSheetQuantity} заданий, по желанию с ключом ответов в конце документа
+     * (см. {@link PDFService#render(List, String, boolean)}). Документ не копируется в массив байт:
+     * он существует один раз (во временном файле) и загружается в Telegram прямо из файла.
+     * <p>
+     * Тот же сид и параметры дают тот же лист (перепечатка без хранения PDF); лист с сидом берётся
+     * из {@link PdfSheetCache} (ключ — операция, количество, сид, ключ ответов, дата и заголовок).
+     * Если сид не задан, лист сначала берётся из фонового {@link TaskPool} (сид готового листа тоже пишется в лог).
+     * Пользователю с историей ({@link TaskHistoryService}) готовый лист выдаётся, только если он видел не больше
+     * {@link #MAX_POOLED_SEEN_SHARE} его заданий; иначе, как и при пустом буфере, лист генерируется на месте,
+     * и свежие примеры идут раньше уже виденных. Выданные задания в любом случае дописываются в историю.
+     * Результат закрывает вызывающий — после отправки.
+     */
+    public RenderedPdf renderArithmeticPdf(Long userId,
+                                           OperationType operationType,
+                                           int quantity,
+                                           String title,
+                                           Long seed,
+                                           boolean answerKey) {
+        if (seed == null) {
+            return arithmeticSheet(userId, operationType, quantity, answerKey,
+                    tasks -> pdfService.render(tasks, title, answerKey));
         }
+        return renderCached(userId, operationType, quantity, title, seed, answerKey, LocalDate.now());
+    }
+
+    /**
+     * «Домашнее задание дня»: один лист на день для всех, кто выбрал ту же операцию и количество
+     * (учитель и весь класс). Сид выводится из даты, операции и количества ({@link #homeworkSeed}), поэтому
+     * в течение дня лист одинаков: он отрисовывается один раз и дальше берётся из {@link PdfSheetCache},
+     * а после первой отправки уходит по file_id без загрузки. Квота и история пишутся, как для любого листа.
+     */
+    public RenderedPdf renderHomeworkOfTheDay(Long userId,
+                                              OperationType operationType,
+                                              int quantity,
+                                              String title) {
+        LocalDate date = LocalDate.now();
+        return renderCached(userId, operationType, quantity, title, homeworkSeed(operationType, quantity, date),
+                false, date);
+    }
+
+    /**
+     * Сид домашнего задания: зависит только от операции, количества и даты.
+     */
+    static long homeworkSeed(OperationType operationType, int quantity, LocalDate date) {
+        long mixed = date.toEpochDay() * 1_000_003L + operationType.name().hashCode() * 65_537L + quantity;
+        return new SplittableRandom(mixed).nextLong();
+    }
+
+    /**
+     * Лист с сидом: сначала {@link PdfSheetCache}, задания генерируются только при промахе. Квота списывается
+     * и при попадании — пользователь получил лист. Истории нужны задания листа, а не документ: они берутся
+     * из {@link #seededTasks}, и при попадании генератор не вызывается; после рестарта (кэш на диске пережил его,
+     * память — нет) задания листа из кэша один раз генерируются заново по тому же сиду.
+     */
+    private RenderedPdf renderCached(Long userId,
+                                     OperationType operationType,
+                                     int quantity,
+                                     String title,
+                                     long seed,
+                                     boolean answerKey,
+                                     LocalDate date) {
+        Validation.requireInRange(quantity, 1, maxSheetQuantity(operationType), "quantity");
+        requireAccess(userId, 1);
+
+        RecentTaskFilter history = taskHistoryService.load(userId, operationType);
+        String cacheKey = sheetCacheKey(operationType, quantity, seed, answerKey, date, title);
+        RenderedPdf pdf = sheetCache.getOrRender(cacheKey,
+                () -> pdfService.render(seededTasks(operationType, quantity, seed), title, answerKey, date));
+        featureAccessService.incrementUsage(userId, Feature.PDF_GENERATION, 1);
+        taskHistoryService.record(userId, operationType, history, seededTasks(operationType, quantity, seed));
+
+        log.info("Generated seeded PDF for user {}, operation {}, quantity {}, seed {}, answer key {}",
+                userId, operationType, quantity, seed, answerKey);
+        return pdf;
+    }
+
+    /**
+     * Задания листа с сидом. Лист с сидом должен воспроизводиться, поэтому он генерируется без истории и пула,
+     * и его задания зависят только от операции, количества и сида; последние {@link #SEEDED_SHEETS_CAPACITY}
+     * таких листов держатся в памяти (LRU).
+     */
+    private List<Task> seededTasks(OperationType operationType, int quantity, long seed) {
+        String key = operationType.name() + "|" + quantity + "|" + seed;
+        synchronized (seededSheets) {
+            List<Task> tasks = seededSheets.get(key);
+            if (tasks != null) {
+                return tasks;
+            }
+        }
+        List<Task> tasks = List.copyOf(generatorFactory.getGenerator(operationType).generate(
+                ArithmeticContexts.forOperation(operationType, quantity, seed)));
+        synchronized (seededSheets) {
+            seededSheets.put(key, tasks);
+        }
+        return tasks;
+    }
+
+    /**
+     * Каноническая строка параметров листа для {@link PdfSheetCache}; диапазон чисел задан типом операции.
+     */
+    static String sheetCacheKey(OperationType operationType, int quantity, long seed, boolean answerKey,
+                                LocalDate date, String title) {
+        return "arithmetic|" + operationType.name() + "|" + quantity + "|" + seed + "|" + answerKey + "|" + date
+                + "|" + title;
+    }
+
+    /**
+     * Лист для операции: проверка доступа, выбор заданий (пул, история или генерация на месте), отрисовка
+     * через {@code renderer}, списание квоты и запись в историю.
+     */
+    private <T> T arithmeticSheet(Long userId,
+                                  OperationType operationType,
+                                  int quantity,
+                                  boolean answerKey,
+                                  Function<List<Task>, T> renderer) {
+        Validation.requireInRange(quantity, 1, maxSheetQuantity(operationType), "quantity");
+        requireAccess(userId, 1);
+
+        RecentTaskFilter history = taskHistoryService.load(userId, operationType);
+        // Листы пула сгенерированы без истории, поэтому пользователю с историей подходит только почти свежий лист
+        RecentTaskFilter recentTasks = history != null && !history.isEmpty() ? history : null;
+        Optional<TaskPool.Batch> pooled = recentTasks == null
+                ? taskPool.poll(operationType, quantity)
+                : taskPool.poll(operationType, quantity, batch -> mostlyUnseen(batch.tasks(), recentTasks));
+        long effectiveSeed = pooled.map(TaskPool.Batch::seed).orElseGet(GenerationRandom::newSeed);
+        List<Task> tasks = pooled.map(TaskPool.Batch::tasks)
+                .orElseGet(() -> generatorFactory.getGenerator(operationType).generate(
+                        ArithmeticContexts.forOperation(operationType, quantity, effectiveSeed, recentTasks)));
+
+        T pdf = renderer.apply(tasks);
+        featureAccessService.incrementUsage(userId, Feature.PDF_GENERATION, 1);
+        taskHistoryService.record(userId, operationType, history, tasks);
+
+        log.info("Generated PDF for user {}, operation {}, quantity {}, seed {}, history {}, pooled {}, answer key {}",
+                userId, operationType, quantity, effectiveSeed, recentTasks != null, pooled.isPresent(), answerKey);
+        return pdf;
+    }
 
-        ArithmeticContext context = ArithmeticContext.builder()
-                .operationType(operationType)
-                .numberRange(defaultRange(operationType))
+    /**
+     * Видел ли пользователь не больше {@link #MAX_POOLED_SEEN_SHARE} заданий листа (по фильтру недавних заданий).
+     */
+    static boolean mostlyUnseen(List<Task> tasks, RecentTaskFilter recentTasks) {
+        int allowed = (int) (tasks.size() * MAX_POOLED_SEEN_SHARE);
+        int seen = 0;
+        for (Task task : tasks) {
+            if (recentTasks.mightContain(task.question()) && ++seen > allowed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Смешанный лист: несколько типов операций в одном PDF в заданных пропорциях
+     * (например, {@code {ADDITION_10: 2, SUBTRACTION_10: 2, COMPARISON: 1}}). Части генерируются
+     * параллельно и перемешиваются по листу ({@link GeneratorFactory#generateMixed(MixedContext)});
+     * один документ вместо нескольких, квота списывается один раз. Документ не копируется в массив байт
+     * ({@link PDFService#render}); результат закрывает вызывающий — после отправки.
+     */
+    public RenderedPdf generateMixedPdf(Long userId,
+                                        Map<OperationType, Integer> proportions,
+                                        int quantity,
+                                        String title,
+                                        Long seed) {
+        Validation.requireNonNull(proportions, "proportions");
+        Validation.requireInRange(quantity, 1, MAX_SHEET_QUANTITY, "quantity");
+        requireAccess(userId, 1);
+
+        long effectiveSeed = seed != null ? seed : GenerationRandom.newSeed();
+        MixedContext context = MixedContext.builder()
+                .parts(proportions.entrySet().stream()
+                        .map(e -> ArithmeticContexts.mixedPart(e.getKey(), e.getValue()))
+                        .toList())
                 .quantity(quantity)
-                .noCarry(defaultNoCarry(operationType))
-                .build()
-                .validate();
+                .seed(effectiveSeed)
+                .build();
+        List<Task> tasks = generatorFactory.generateMixed(context);
 
-        TaskGenerator generator = generatorFactory.getGenerator(operationType);
-        List<Task> tasks = generator.generate(context);
+        RenderedPdf pdf = pdfService.render(tasks, title, false);
+        featureAccessService.incrementUsage(userId, Feature.PDF_GENERATION, 1);
 
-        byte[] pdf = pdfService.generate(tasks, title);
+        log.info("Generated mixed PDF for user {}, proportions {}, quantity {}, seed {}",
+                userId, proportions, quantity, effectiveSeed);
+        return pdf;
+    }
+
+    /**
+     * Большая тетрадь (до {@link #MAX_WORKBOOK_QUANTITY} заданий): генерация и отрисовка идут потоком,
+     * PDF пишется в {@code out} постранично, без списка заданий и массива байт всего документа в памяти.
+     * Без повторов генератор выдаёт не больше заданий, чем допускает домен операции.
+     *
+     * @return количество записанных заданий
+     */
+    public int writeWorkbook(Long userId,
+                             OperationType operationType,
+                             int quantity,
+                             String title,
+                             Long seed,
+                             OutputStream out) {
+        Validation.requireInRange(quantity, 1, MAX_WORKBOOK_QUANTITY, "quantity");
+        Validation.requireNonNull(out, "out");
+        requireAccess(userId, 1);
+
+        long effectiveSeed = seed != null ? seed : GenerationRandom.newSeed();
+        TaskGenerator generator = generatorFactory.getGenerator(operationType);
+        int written = pdfService.generateStreaming(generator,
+                ArithmeticContexts.forOperation(operationType, quantity, effectiveSeed), title, out);
         featureAccessService.incrementUsage(userId, Feature.PDF_GENERATION, 1);
 
-        log.info("Generated PDF for user {}, operation {}, quantity {}", userId, operationType, quantity);
+        log.info("Streamed workbook for user {}, operation {}, quantity {}, written {}, seed {}",
+                userId, operationType, quantity, written, effectiveSeed);
+        return written;
+    }
+
+    /**
+     * Пакет на класс: {@code variantCount} разных вариантов одного листа в одном PDF (страница на вариант).
+     * <p>
+     * Задания уникальны между вариантами, пока позволяет домен: сначала генерируется общий список на все
+     * варианты (ядро отбора не повторяет задания) и раздаётся по вариантам по кругу. Ядро выдаёт задания
+     * от строгого уровня к ослабленным, поэтому раздача по кругу, а не нарезка подряд, делает варианты
+     * одинаково трудными: каждому достаётся равная доля каждого уровня. Раздаются только уникальные задания
+     * общего списка (операции с добивкой повторами дописывают повторы в его конец); если их не хватает,
+     * недостающие варианты генерируются независимо, каждый со своим сидом. Добор вариантов и подготовка текста
+     * заданий идут параллельно в ForkJoinPool; PDF собирается в одном документе с одним шрифтом
+     * ({@link PDFService#generateVariants}), вариант больше страницы занимает несколько страниц.
+     * Квота списывается один раз — на {@code variantCount} генераций. Результат закрывает вызывающий.
+     */
+    public RenderedPdf generateClassPack(Long userId,
+                                    OperationType operationType,
+                                    int quantity,
+                                    int variantCount,
+                                    String title,
+                                    Long seed) {
+        Validation.requireInRange(quantity, 1, maxSheetQuantity(operationType), "quantity");
+        Validation.requireInRange(variantCount, 1, MAX_CLASS_PACK_VARIANTS, "variantCount");
+        requireAccess(userId, variantCount);
+
+        long effectiveSeed = seed != null ? seed : GenerationRandom.newSeed();
+        List<List<Task>> variants = generateVariants(operationType, quantity, variantCount, effectiveSeed);
+
+        RenderedPdf pdf = pdfService.generateVariants(variants, title);
+        featureAccessService.incrementUsage(userId, Feature.PDF_GENERATION, variantCount);
+
+        log.info("Generated class pack for user {}, operation {}, quantity {}, variants {}, seed {}",
+                userId, operationType, quantity, variantCount, effectiveSeed);
         return pdf;
     }
 
-    private Range defaultRange(OperationType operationType) {
-        return switch (operationType) {
-            case ADDITION_10, SUBTRACTION_10 -> new Range(0, 10);
-            case ADDITION_20_NO_CARRY, SUBTRACTION_20_NO_CARRY -> new Range(0, 20);
-            case NUMBER_COMPOSITION_2_9 -> new Range(2, 9);
-            case NUMBER_COMPOSITION_10 -> new Range(10, 10);
-            case NUMBER_COMPOSITION_11_20 -> new Range(11, 20);
-            case NUMBER_COMPOSITION -> new Range(2, 10);
-            case COMPARISON, NUMBER_SEQUENCE -> new Range(0, 20);
-        };
+    /**
+     * Варианты пакета; детерминированы при фиксированном сиде (сиды добора выводятся из общего сида).
+     */
+    List<List<Task>> generateVariants(OperationType operationType, int quantity, int variantCount, long seed) {
+        TaskGenerator generator = generatorFactory.getGenerator(operationType);
+        List<Task> shared = generator.generate(
+                ArithmeticContexts.forOperation(operationType, quantity * variantCount, seed));
+        int complete = quantity > 0 ? Math.min(variantCount, uniquePrefix(shared) / quantity) : variantCount;
+
+        SplittableRandom seeds = new SplittableRandom(seed);
+        long[] variantSeeds = new long[variantCount];
+        for (int i = 0; i < variantCount; i++) {
+            variantSeeds[i] = seeds.nextLong();
+        }
+
+        return IntStream.range(0, variantCount)
+                .parallel()
+                .mapToObj(i -> {
+                    List<Task> tasks = i < complete
+                            ? dealt(shared, i, complete, quantity)
+                            : generator.generate(
+                                    ArithmeticContexts.forOperation(operationType, quantity, variantSeeds[i]));
+                    // Текст заданий собирается здесь, в пуле, а не в однопоточной отрисовке PDF
+                    tasks.forEach(Task::question);
+                    return tasks;
+                })
+                .toList();
     }
 
-    private Boolean defaultNoCarry(OperationType operationType) {
-        return switch (operationType) {
-            case ADDITION_20_NO_CARRY, SUBTRACTION_20_NO_CARRY -> Boolean.TRUE;
-            default -> null;
-        };
+    /**
+     * Длина начала списка без повторов: добивка повторами ({@code allowRepeats}) дописывается после всех
+     * уникальных заданий, и раздавать по вариантам можно только их.
+     */
+    private static int uniquePrefix(List<Task> tasks) {
+        Set<String> questions = new HashSet<>(tasks.size() * 2);
+        for (int i = 0; i < tasks.size(); i++) {
+            if (!questions.add(tasks.get(i).question())) {
+                return i;
+            }
+        }
+        return tasks.size();
     }
-}
 
+    /**
+     * Вариант {@code variant} из {@code variants} при раздаче общего списка по кругу: задания
+     * {@code variant}, {@code variant + variants}, ... — по {@code quantity} штук.
+     */
+    private static List<Task> dealt(List<Task> shared, int variant, int variants, int quantity) {
+        List<Task> tasks = new ArrayList<>(quantity);
+        for (int i = 0; i < quantity; i++) {
+            tasks.add(shared.get(i * variants + variant));
+        }
+        return tasks;
+    }
+
+    private void requireAccess(Long userId, int amount) {
+        AccessCheckResult access = featureAccessService.checkAccess(userId, Feature.PDF_GENERATION, amount);
+        if (!access.isGranted()) {
+            String message = access.getMessage() != null ? access.getMessage() : "Доступ к генерации PDF ограничен.";
+            throw new PdfGenerationAccessException(message);
+        }
+    }
+}
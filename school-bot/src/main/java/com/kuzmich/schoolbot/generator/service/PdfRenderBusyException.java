@@ -0,0 +1,13 @@
+package com.kuzmich.schoolbot.generator.service;
+
+/**
+ * PDF не отрисован, потому что бюджет памяти на одновременные отрисовки исчерпан
+ * ({@link com.kuzmich.schoolbot.generator.pdf.PdfRenderGovernor}). Временное состояние:
+ * пользователю предлагается повторить попытку позже.
+ */
+public class PdfRenderBusyException extends PdfGenerationException {
+
+    public PdfRenderBusyException(String message) {
+        super(message, null);
+    }
+}
@@ -0,0 +1,234 @@
+package com.kuzmich.schoolbot.generator.service;
+
+import com.kuzmich.schoolbot.generator.GenerationRandom;
+import com.kuzmich.schoolbot.generator.GeneratorFactory;
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.generator.Task;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Фоновый пул готовых листов для типовых конфигураций (тип операции × количество из {@code generator.pool.quantities}).
+ * <p>
+ * На каждую конфигурацию — ограниченный кольцевой буфер ({@link ArrayBlockingQueue} глубины {@code generator.pool.depth}).
+ * Буферы пополняет один фоновый поток с минимальным приоритетом: по расписанию и после каждого изъятия листа.
+ * Общее число заданий в пуле ограничено {@code generator.pool.max-tasks}; буферы заполняются по кругу,
+ * по одному листу за проход, чтобы лимит не достался одной конфигурации.
+ * <p>
+ * Метрики: {@code schoolbot.generator.pool.requests} (теги operation и result = hit/empty/rejected)
+ * и {@code schoolbot.generator.pool.tasks} — заданий в пуле сейчас.
+ */
+@Component
+@Slf4j
+public class TaskPool {
+
+    private static final String RESULT_HIT = "hit";
+    private static final String RESULT_EMPTY = "empty";
+    private static final String RESULT_REJECTED = "rejected";
+
+    /**
+     * Готовый лист и сид, с которым он сгенерирован (для перепечатки).
+     */
+    public record Batch(long seed, List<Task> tasks) {
+    }
+
+    private record PoolKey(OperationType operationType, int quantity) {
+    }
+
+    private final GeneratorFactory generatorFactory;
+    private final int maxTasks;
+
+    private final Map<PoolKey, BlockingQueue<Batch>> buffers = new LinkedHashMap<>();
+    private final Map<OperationType, Counter> hits = new EnumMap<>(OperationType.class);
+    private final Map<OperationType, Counter> empties = new EnumMap<>(OperationType.class);
+    private final Map<OperationType, Counter> rejections = new EnumMap<>(OperationType.class);
+    private final AtomicInteger pooledTasks = new AtomicInteger();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private final Executor refiller;
+
+    @Autowired
+    public TaskPool(GeneratorFactory generatorFactory,
+                    MeterRegistry registry,
+                    @Value("${generator.pool.enabled:true}") boolean enabled,
+                    @Value("${generator.pool.depth:4}") int depth,
+                    @Value("${generator.pool.max-tasks:20000}") int maxTasks,
+                    @Value("${generator.pool.quantities:10,20,30,50}") int[] quantities) {
+        this(generatorFactory, registry, enabled, depth, maxTasks, quantities, newRefillExecutor());
+    }
+
+    TaskPool(GeneratorFactory generatorFactory,
+             MeterRegistry registry,
+             boolean enabled,
+             int depth,
+             int maxTasks,
+             int[] quantities,
+             Executor refiller) {
+        this.generatorFactory = generatorFactory;
+        this.refiller = refiller;
+        this.maxTasks = maxTasks;
+
+        boolean pooled = enabled && depth > 0 && maxTasks > 0;
+        for (OperationType operationType : OperationType.values()) {
+            if (pooled) {
+                for (int quantity : quantities) {
+                    buffers.put(new PoolKey(operationType, quantity), new ArrayBlockingQueue<>(depth));
+                }
+            }
+            hits.put(operationType, requestCounter(registry, operationType, RESULT_HIT));
+            empties.put(operationType, requestCounter(registry, operationType, RESULT_EMPTY));
+            rejections.put(operationType, requestCounter(registry, operationType, RESULT_REJECTED));
+        }
+        Gauge.builder("schoolbot.generator.pool.tasks", pooledTasks, AtomicInteger::get)
+                .description("Заданий в фоновом пуле готовых листов")
+                .register(registry);
+    }
+
+    /**
+     * Взять готовый лист для конфигурации. Пусто, если конфигурация не пулится или буфер сейчас пуст —
+     * тогда вызывающий генерирует лист на месте. Любое изъятие запускает фоновое пополнение.
+     */
+    public Optional<Batch> poll(OperationType operationType, int quantity) {
+        return poll(operationType, quantity, batch -> true);
+    }
+
+    /**
+     * Взять готовый лист, если он подходит вызывающему (например, пользователь видел мало его заданий).
+     * Неподошедший лист возвращается в конец буфера для других пользователей и считается в метрике rejected;
+     * если буфер за это время заполнился, лист отбрасывается.
+     */
+    public Optional<Batch> poll(OperationType operationType, int quantity, Predicate<Batch> acceptable) {
+        BlockingQueue<Batch> buffer = buffers.get(new PoolKey(operationType, quantity));
+        if (buffer == null) {
+            return Optional.empty();
+        }
+        Batch batch = buffer.poll();
+        if (batch == null) {
+            empties.get(operationType).increment();
+            requestRefill();
+            return Optional.empty();
+        }
+        if (!acceptable.test(batch)) {
+            rejections.get(operationType).increment();
+            if (!buffer.offer(batch)) {
+                pooledTasks.addAndGet(-batch.tasks().size());
+                requestRefill();
+            }
+            return Optional.empty();
+        }
+        pooledTasks.addAndGet(-batch.tasks().size());
+        hits.get(operationType).increment();
+        requestRefill();
+        return Optional.of(batch);
+    }
+
+    /**
+     * Количество заданий во всех буферах.
+     */
+    public int pooledTasks() {
+        return pooledTasks.get();
+    }
+
+    /**
+     * Поставить пополнение в фоновый поток; если пополнение уже идёт, ничего не делает.
+     */
+    @Scheduled(initialDelayString = "${generator.pool.initial-delay:PT10S}",
+            fixedDelayString = "${generator.pool.refill-interval:PT1M}")
+    public void requestRefill() {
+        if (buffers.isEmpty() || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refiller.execute(() -> {
+                try {
+                    refill();
+                } catch (RuntimeException e) {
+                    log.warn("Не удалось пополнить пул готовых листов", e);
+                } finally {
+                    refilling.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refilling.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refiller instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Синхронное пополнение: по одному листу на конфигурацию за проход, пока есть место в буферах
+     * и не превышен общий лимит заданий. Текст заданий собирается здесь же, вне пути запроса.
+     */
+    void refill() {
+        boolean added = true;
+        while (added) {
+            added = false;
+            for (Map.Entry<PoolKey, BlockingQueue<Batch>> entry : buffers.entrySet()) {
+                PoolKey key = entry.getKey();
+                BlockingQueue<Batch> buffer = entry.getValue();
+                if (buffer.remainingCapacity() == 0 || pooledTasks.get() + key.quantity() > maxTasks) {
+                    continue;
+                }
+                Batch batch = generate(key);
+                if (buffer.offer(batch)) {
+                    pooledTasks.addAndGet(batch.tasks().size());
+                    added = true;
+                }
+            }
+        }
+    }
+
+    private Batch generate(PoolKey key) {
+        long seed = GenerationRandom.newSeed();
+        List<Task> tasks = generatorFactory.getGenerator(key.operationType())
+                .generate(ArithmeticContexts.forOperation(key.operationType(), key.quantity(), seed));
+        tasks.forEach(Task::question);
+        return new Batch(seed, List.copyOf(tasks));
+    }
+
+    /**
+     * Один фоновый поток-демон с минимальным приоритетом: пополнение забирает только простаивающий CPU.
+     */
+    private static ExecutorService newRefillExecutor() {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-pool-refill");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    private static Counter requestCounter(MeterRegistry registry, OperationType operationType, String result) {
+        return Counter.builder("schoolbot.generator.pool.requests")
+                .description("Запросы листа из фонового пула")
+                .tag("operation", operationType.name())
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,93 @@
+package com.kuzmich.schoolbot.handler;
+
+import com.kuzmich.schoolbot.context.UserContext;
+import com.kuzmich.schoolbot.core.handler.command.CommandHandler;
+import com.kuzmich.schoolbot.core.service.MessageService;
+import com.kuzmich.schoolbot.core.service.UserContextService;
+import com.kuzmich.schoolbot.core.service.UserStateService;
+import com.kuzmich.schoolbot.core.validation.Validation;
+import com.kuzmich.schoolbot.generator.service.PdfGenerationService;
+import com.kuzmich.schoolbot.i18n.GeneratorMessageKeys;
+import com.kuzmich.schoolbot.state.UserState;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+/**
+ * Ввод своего количества примеров текстом (после кнопки «Своё количество» в wizard генератора).
+ * <p>
+ * Срабатывает только в состоянии {@link UserState#AWAITING_CUSTOM_QUANTITY} и не на команды. Число от 1 до
+ * предела выбранной операции ({@link PdfGenerationService#maxSheetQuantity}: не больше уникальных примеров в ней)
+ * сохраняется в контекст, и пользователь переходит к подтверждению; иначе бот повторяет подсказку с этим пределом,
+ * состояние не меняется.
+ */
+@Component
+@RequiredArgsConstructor
+public class CustomQuantityHandler implements CommandHandler {
+
+    private static final String COMMAND_PREFIX = "/";
+
+    private final MessageService messageService;
+    private final UserStateService userStateService;
+    private final UserContextService<UserContext> userContextService;
+    private final PdfGenerationService pdfGenerationService;
+
+    @Override
+    public boolean canHandle(Update update) {
+        if (update.getMessage() == null || update.getMessage().getText() == null) {
+            return false;
+        }
+        if (update.getMessage().getText().trim().startsWith(COMMAND_PREFIX) || update.getMessage().getFrom() == null) {
+            return false;
+        }
+        return userStateService.getState(update.getMessage().getFrom().getId()) == UserState.AWAITING_CUSTOM_QUANTITY;
+    }
+
+    @Override
+    public void handle(TelegramClient client, Update update) {
+        var message = Validation.requireNonNull(update.getMessage(), "message");
+        long chatId = Validation.requirePositiveLong(message.getChatId(), "chatId");
+        var from = Validation.requireNonNull(message.getFrom(), "from");
+        long userId = Validation.requirePositiveLong(from.getId(), "userId");
+
+        UserContext ctx = userContextService.getOrCreate(userId);
+        WizardSelection selection = WizardSelection.fromContext(ctx);
+        int maxQuantity = pdfGenerationService.maxSheetQuantity(selection.operationType());
+        int quantity = parseQuantity(message.getText(), maxQuantity);
+        if (quantity == 0) {
+            messageService.sendFromKey(client, chatId, GeneratorMessageKeys.QUANTITY_CUSTOM_INVALID, maxQuantity);
+            return;
+        }
+
+        ctx.setQuantity(quantity);
+        userContextService.save(ctx);
+        userStateService.setState(userId, UserState.AWAITING_CONFIRMATION);
+
+        String confirmTitle = messageService.getText(GeneratorMessageKeys.CONFIRM_TITLE);
+        String generate = messageService.getText(GeneratorMessageKeys.BUTTON_GENERATE_PDF);
+        String generateWithAnswers = messageService.getText(GeneratorMessageKeys.BUTTON_GENERATE_PDF_WITH_ANSWERS);
+        String generateHomework = messageService.getText(GeneratorMessageKeys.BUTTON_GENERATE_PDF_HOMEWORK);
+        String back = messageService.getText(GeneratorMessageKeys.BUTTON_BACK);
+        String menu = messageService.getText(GeneratorMessageKeys.BUTTON_MENU);
+        messageService.sendFromKey(client, chatId, GeneratorMessageKeys.CONFIRM_TITLE,
+                GeneratorKeyboardFactory.confirmationKeyboard(generate, generateWithAnswers, generateHomework, back,
+                        menu, selection.withQuantity(quantity)),
+                confirmTitle);
+    }
+
+    /**
+     * @return количество от 1 до {@code maxQuantity}; 0 — ввод не число или вне диапазона
+     */
+    static int parseQuantity(String text, int maxQuantity) {
+        if (text == null) {
+            return 0;
+        }
+        try {
+            int quantity = Integer.parseInt(text.trim());
+            return quantity >= 1 && quantity <= maxQuantity ? quantity : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
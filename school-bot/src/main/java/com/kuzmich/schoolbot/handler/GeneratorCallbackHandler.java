@@ -12,20 +12,31 @@ import com.kuzmich.schoolbot.i18n.GeneratorMessageKeys;
 import com.kuzmich.schoolbot.domain.SchoolLevel;
 import com.kuzmich.schoolbot.domain.Subject;
 import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.generator.pdf.RenderedPdf;
 import com.kuzmich.schoolbot.generator.service.PdfGenerationAccessException;
 import com.kuzmich.schoolbot.generator.service.PdfGenerationService;
+import com.kuzmich.schoolbot.generator.service.PdfRenderBusyException;
 import com.kuzmich.schoolbot.state.UserState;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
 import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.meta.generics.TelegramClient;
 
+
 /**
  * Обработчик callback от inline-кнопок сценария генератора: выбор режима, класса, предмета,
  * кнопки «Назад» и «Главное меню». Соответствует MathBot-Scenarios (режим → класс → предмет).
+ * <p>
+ * После выбора режима кнопки несут накопленный выбор в callback_data ({@link WizardCallbackCodec}):
+ * шаги wizard не обращаются к БД, контекст сохраняется один раз — при генерации PDF.
+ * Кнопки с константами {@link CallbackData} (отправленные ранее) по-прежнему обрабатываются через контекст.
  */
 @Component
 @RequiredArgsConstructor
@@ -46,7 +57,8 @@ public class GeneratorCallbackHandler implements CallbackQueryHandler {
         if (data == null || data.isBlank()) {
             return false;
         }
-        return data.startsWith("mode_") || data.startsWith("gen_")
+        return WizardCallbackCodec.isEncoded(data)
+                || data.startsWith("mode_") || data.startsWith("gen_")
                 || data.startsWith("subject_") || data.startsWith("topic_")
                 || data.startsWith("op_") || data.startsWith("qty_")
                 || CallbackData.OP_NUMBER_COMPOSITION.equals(data)
@@ -64,6 +76,10 @@ public class GeneratorCallbackHandler implements CallbackQueryHandler {
     @Override
     public void handle(TelegramClient client, Update update) {
         var callbackQuery = Validation.requireNonNull(update.getCallbackQuery(), "callbackQuery");
+        if (WizardCallbackCodec.isEncoded(callbackQuery.getData())) {
+            handleWizardStep(client, callbackQuery);
+            return;
+        }
         String data = Validation.requireOneOf(callbackQuery.getData(), "callbackData",
                 CallbackData.MODE_GENERATOR, CallbackData.MODE_TRAINER, CallbackData.GEN_ELEMENTARY,
                 CallbackData.GEN_SECONDARY, CallbackData.SUBJECT_MATH, CallbackData.TOPIC_ARITHMETIC,
@@ -115,6 +131,53 @@ public class GeneratorCallbackHandler implements CallbackQueryHandler {
         }
     }
 
+    /**
+     * Шаг wizard по кодированной кнопке: выбор берётся из callback_data, БД не используется до генерации.
+     */
+    private void handleWizardStep(TelegramClient client,
+                                  CallbackQuery callbackQuery) {
+        var message = Validation.requireNonNull(callbackQuery.getMessage(), "message");
+        long chatId = Validation.requirePositiveLong(message.getChatId(), "chatId");
+        var from = Validation.requireNonNull(callbackQuery.getFrom(), "from");
+        long userId = Validation.requirePositiveLong(from.getId(), "userId");
+
+        answerCallback(client, callbackQuery.getId());
+
+        var decoded = WizardCallbackCodec.decode(callbackQuery.getData());
+        if (decoded.isEmpty()) {
+            // Кнопка устаревшего формата — начинаем заново с выбора режима
+            showModeSelection(client, chatId, userId);
+            return;
+        }
+        WizardSelection selection = decoded.get().selection();
+        switch (decoded.get().action()) {
+            case SCHOOL_LEVEL -> showSubjectSelection(client, chatId,
+                    messageService.getText(GeneratorMessageKeys.CLASS_ELEMENTARY), selection);
+            case SUBJECT -> showTopicSelection(client, chatId, selection);
+            case TOPIC -> {
+                if (WizardSelection.TOPIC_NUMBERS.equals(selection.topic())) {
+                    showNumbersOperations(client, chatId, selection);
+                } else {
+                    showArithmeticOperations(client, chatId, selection);
+                }
+            }
+            case COMPOSITION_MENU -> showCompositionSubmenu(client, chatId, selection);
+            case OPERATION -> showQuantitySelection(client, chatId, selection);
+            case QUANTITY -> showConfirmation(client, chatId,
+                    selection.withQuantity(presetQuantity(selection.operationType(), selection.quantity())));
+            case CONFIRM, CONFIRM_WITH_ANSWERS, CONFIRM_HOMEWORK -> {
+                UserContext ctx = userContextService.getOrCreate(userId);
+                selection.applyTo(ctx);
+                userContextService.save(ctx);
+                generatePdf(client, chatId, userId, selection,
+                        decoded.get().action() == WizardAction.CONFIRM_WITH_ANSWERS,
+                        decoded.get().action() == WizardAction.CONFIRM_HOMEWORK);
+            }
+            case BACK -> showClassSelection(client, chatId, WizardSelection.generator());
+            case CUSTOM_QUANTITY -> requestCustomQuantity(client, chatId, userId, selection);
+        }
+    }
+
     private void answerCallback(TelegramClient client, String callbackQueryId) {
         if (callbackQueryId == null) {
             return;
@@ -133,10 +196,14 @@ public class GeneratorCallbackHandler implements CallbackQueryHandler {
         ctx.setMode(Mode.GENERATOR);
         userContextService.save(ctx);
         userStateService.setState(userId, UserState.AWAITING_SCHOOL_LEVEL);
+        showClassSelection(client, chatId, WizardSelection.fromContext(ctx));
+    }
+
+    private void showClassSelection(TelegramClient client, Long chatId, WizardSelection selection) {
         String back = messageService.getText(GeneratorMessageKeys.BUTTON_BACK);
         String help = messageService.getText(GeneratorMessageKeys.BUTTON_HELP);
         messageService.sendFromKey(client, chatId, GeneratorMessageKeys.GENERATOR_CLASS_TITLE,
-                GeneratorKeyboardFactory.classSelectionKeyboard(back, help));
+                GeneratorKeyboardFactory.classSelectionKeyboard(back, help, selection));
     }
 
     private void handleModeTrainer(TelegramClient client, Long chatId) {
@@ -149,7 +216,8 @@ public class GeneratorCallbackHandler implements CallbackQueryHandler {
         ctx.setSchoolLevel(SchoolLevel.ELEMENTARY);
         userContextService.save(ctx);
         userStateService.setState(userId, UserState.AWAITING_SUBJECT);
-        showSubjectSelection(client, chatId, messageService.getText(GeneratorMessageKeys.CLASS_ELEMENTARY));
+        showSubjectSelection(client, chatId, messageService.getText(GeneratorMessageKeys.CLASS_ELEMENTARY),
+                WizardSelection.fromContext(ctx));
     }
 
     private void handleGenSecondary(TelegramClient client, Long chatId, Long userId) {
@@ -159,12 +227,13 @@ public class GeneratorCallbackHandler implements CallbackQueryHandler {
                 GeneratorKeyboardFactory.backAndMenuKeyboard(back, menu));
     }
 
-    private void showSubjectSelection(TelegramClient client, Long chatId, String schoolLevelLabel) {
+    private void showSubjectSelection(TelegramClient client, Long chatId, String schoolLevelLabel,
+                                      WizardSelection selection) {
         String mathLabel = messageService.getText(GeneratorMessageKeys.SUBJECT_MATH);
         String back = messageService.getText(GeneratorMessageKeys.BUTTON_BACK);
         String menu = messageService.getText(GeneratorMessageKeys.BUTTON_MENU);
         messageService.sendFromKey(client, chatId, GeneratorMessageKeys.GENERATOR_SUBJECT_TITLE,
-                GeneratorKeyboardFactory.subjectSelectionKeyboard(mathLabel, back, menu),
+                GeneratorKeyboardFactory.subjectSelectionKeyboard(mathLabel, back, menu, selection),
                 schoolLevelLabel);
     }
 
@@ -173,12 +242,16 @@ public class GeneratorCallbackHandler implements CallbackQueryHandler {
         ctx.setSubject(Subject.MATH);
         userContextService.save(ctx);
         userStateService.setState(userId, UserState.AWAITING_TOPIC);
+        showTopicSelection(client, chatId, WizardSelection.fromContext(ctx));
+    }
+
+    private void showTopicSelection(TelegramClient client, Long chatId, WizardSelection selection) {
         String arithmetic = messageService.getText(GeneratorMessageKeys.TOPIC_ARITHMETIC);
         String numbers = messageService.getText(GeneratorMessageKeys.TOPIC_NUMBERS);
         String back = messageService.getText(GeneratorMessageKeys.BUTTON_BACK);
         String menu = messageService.getText(GeneratorMessageKeys.BUTTON_MENU);
         messageService.sendFromKey(client, chatId, GeneratorMessageKeys.TOPIC_TITLE,
-                GeneratorKeyboardFactory.topicSelectionKeyboard(arithmetic, numbers, back, menu));
+                GeneratorKeyboardFactory.topicSelectionKeyboard(arithmetic, numbers, back, menu, selection));
     }
 
     private void handleBackToMode(TelegramClient client, Long chatId, Long userId) {
@@ -187,10 +260,7 @@ public class GeneratorCallbackHandler implements CallbackQueryHandler {
 
     private void handleBackToClass(TelegramClient client, Long chatId, Long userId) {
         userStateService.setState(userId, UserState.AWAITING_SCHOOL_LEVEL);
-        String back = messageService.getText(GeneratorMessageKeys.BUTTON_BACK);
-        String help = messageService.getText(GeneratorMessageKeys.BUTTON_HELP);
-        messageService.sendFromKey(client, chatId, GeneratorMessageKeys.GENERATOR_CLASS_TITLE,
-                GeneratorKeyboardFactory.classSelectionKeyboard(back, help));
+        showClassSelection(client, chatId, WizardSelection.generator());
     }
 
     private void handleMenu(TelegramClient client, Long chatId, Long userId) {
@@ -210,10 +280,13 @@ public class GeneratorCallbackHandler implements CallbackQueryHandler {
 
     private void handleTopicArithmetic(TelegramClient client, Long chatId, Long userId) {
         UserContext ctx = userContextService.getOrCreate(userId);
-        ctx.setTopic("ARITHMETIC");
+        ctx.setTopic(WizardSelection.TOPIC_ARITHMETIC);
         userContextService.save(ctx);
         userStateService.setState(userId, UserState.AWAITING_OPERATION_TYPE);
+        showArithmeticOperations(client, chatId, WizardSelection.fromContext(ctx));
+    }
 
+    private void showArithmeticOperations(TelegramClient client, Long chatId, WizardSelection selection) {
         String add10 = messageService.getText(GeneratorMessageKeys.OPERATION_ADDITION_10);
         String sub10 = messageService.getText(GeneratorMessageKeys.OPERATION_SUBTRACTION_10);
         String add20 = messageService.getText(GeneratorMessageKeys.OPERATION_ADDITION_20_NO_CARRY);
@@ -222,15 +295,18 @@ public class GeneratorCallbackHandler implements CallbackQueryHandler {
         String menu = messageService.getText(GeneratorMessageKeys.BUTTON_MENU);
 
         messageService.sendFromKey(client, chatId, GeneratorMessageKeys.OPERATION_TITLE,
-                GeneratorKeyboardFactory.operationSelectionKeyboard(add10, sub10, add20, sub20, back, menu));
+                GeneratorKeyboardFactory.operationSelectionKeyboard(add10, sub10, add20, sub20, back, menu, selection));
     }
 
     private void handleTopicNumbers(TelegramClient client, Long chatId, Long userId) {
         UserContext ctx = userContextService.getOrCreate(userId);
-        ctx.setTopic("NUMBERS");
+        ctx.setTopic(WizardSelection.TOPIC_NUMBERS);
         userContextService.save(ctx);
         userStateService.setState(userId, UserState.AWAITING_OPERATION_TYPE);
+        showNumbersOperations(client, chatId, WizardSelection.fromContext(ctx));
+    }
 
+    private void showNumbersOperations(TelegramClient client, Long chatId, WizardSelection selection) {
         String composition = messageService.getText(GeneratorMessageKeys.OPERATION_NUMBER_COMPOSITION);
         String comparison = messageService.getText(GeneratorMessageKeys.OPERATION_COMPARISON);
         String sequence = messageService.getText(GeneratorMessageKeys.OPERATION_NUMBER_SEQUENCE);
@@ -238,7 +314,8 @@ public class GeneratorCallbackHandler implements CallbackQueryHandler {
         String menu = messageService.getText(GeneratorMessageKeys.BUTTON_MENU);
 
         messageService.sendFromKey(client, chatId, GeneratorMessageKeys.OPERATION_TITLE_NUMBERS,
-                GeneratorKeyboardFactory.operationSelectionKeyboardNumbers(composition, comparison, sequence, back, menu));
+                GeneratorKeyboardFactory.operationSelectionKeyboardNumbers(composition, comparison, sequence, back, menu,
+                        selection));
     }
 
     /**
@@ -246,7 +323,10 @@ public class GeneratorCallbackHandler implements CallbackQueryHandler {
      */
     private void handleCompositionSubmenu(TelegramClient client, Long chatId, Long userId) {
         userStateService.setState(userId, UserState.AWAITING_OPERATION_TYPE);
+        showCompositionSubmenu(client, chatId, WizardSelection.fromContext(userContextService.getOrCreate(userId)));
+    }
 
+    private void showCompositionSubmenu(TelegramClient client, Long chatId, WizardSelection selection) {
         String comp2To9 = messageService.getText(GeneratorMessageKeys.OPERATION_NUMBER_COMPOSITION_2_9);
         String comp10 = messageService.getText(GeneratorMessageKeys.OPERATION_NUMBER_COMPOSITION_10);
         String comp11To20 = messageService.getText(GeneratorMessageKeys.OPERATION_NUMBER_COMPOSITION_11_20);
@@ -255,7 +335,8 @@ public class GeneratorCallbackHandler implements CallbackQueryHandler {
         String menu = messageService.getText(GeneratorMessageKeys.BUTTON_MENU);
 
         messageService.sendFromKey(client, chatId, GeneratorMessageKeys.OPERATION_NUMBER_COMPOSITION_TITLE,
-                GeneratorKeyboardFactory.compositionVariantKeyboard(comp2To9, comp10, comp11To20, compMixed, back, menu));
+                GeneratorKeyboardFactory.compositionVariantKeyboard(comp2To9, comp10, comp11To20, compMixed, back, menu,
+                        selection));
     }
 
     private void handleOperationSelected(TelegramClient client, Long chatId, Long userId, String data) {
@@ -264,82 +345,149 @@ public class GeneratorCallbackHandler implements CallbackQueryHandler {
         ctx.setOperationType(operationType.name());
         userContextService.save(ctx);
         userStateService.setState(userId, UserState.AWAITING_QUANTITY);
+        showQuantitySelection(client, chatId, WizardSelection.fromContext(ctx));
+    }
 
+    private void showQuantitySelection(TelegramClient client, Long chatId, WizardSelection selection) {
         String qty10 = messageService.getText(GeneratorMessageKeys.QUANTITY_10);
         String qty20 = messageService.getText(GeneratorMessageKeys.QUANTITY_20);
         String qty30 = messageService.getText(GeneratorMessageKeys.QUANTITY_30);
         String qty50 = messageService.getText(GeneratorMessageKeys.QUANTITY_50);
+        String custom = messageService.getText(GeneratorMessageKeys.QUANTITY_CUSTOM);
         String back = messageService.getText(GeneratorMessageKeys.BUTTON_BACK);
         String menu = messageService.getText(GeneratorMessageKeys.BUTTON_MENU);
 
         messageService.sendFromKey(client, chatId, GeneratorMessageKeys.QUANTITY_TITLE,
-                GeneratorKeyboardFactory.quantitySelectionKeyboard(qty10, qty20, qty30, qty50, back, menu));
+                GeneratorKeyboardFactory.quantitySelectionKeyboard(qty10, qty20, qty30, qty50, custom, back, menu,
+                        selection));
+    }
+
+    /**
+     * Своё количество: выбор сохраняется в контекст (следующее сообщение — число, а не кнопка с выбором),
+     * ввод разбирает {@link CustomQuantityHandler}.
+     */
+    private void requestCustomQuantity(TelegramClient client, Long chatId, Long userId, WizardSelection selection) {
+        UserContext ctx = userContextService.getOrCreate(userId);
+        selection.applyTo(ctx);
+        userContextService.save(ctx);
+        userStateService.setState(userId, UserState.AWAITING_CUSTOM_QUANTITY);
+        int maxQuantity = pdfGenerationService.maxSheetQuantity(selection.operationType());
+        messageService.sendFromKey(client, chatId, GeneratorMessageKeys.QUANTITY_CUSTOM_PROMPT, maxQuantity);
     }
 
     private void handleQuantitySelected(TelegramClient client, Long chatId, Long userId, String data) {
-        int quantity = quantityFromCallback(data);
         UserContext ctx = userContextService.getOrCreate(userId);
+        int quantity = presetQuantity(WizardSelection.fromContext(ctx).operationType(), quantityFromCallback(data));
         ctx.setQuantity(quantity);
         userContextService.save(ctx);
         userStateService.setState(userId, UserState.AWAITING_CONFIRMATION);
+        showConfirmation(client, chatId, WizardSelection.fromContext(ctx));
+    }
 
+    private void showConfirmation(TelegramClient client, Long chatId, WizardSelection selection) {
         String confirmTitle = messageService.getText(GeneratorMessageKeys.CONFIRM_TITLE);
         String generate = messageService.getText(GeneratorMessageKeys.BUTTON_GENERATE_PDF);
+        String generateWithAnswers = messageService.getText(GeneratorMessageKeys.BUTTON_GENERATE_PDF_WITH_ANSWERS);
+        String generateHomework = messageService.getText(GeneratorMessageKeys.BUTTON_GENERATE_PDF_HOMEWORK);
         String back = messageService.getText(GeneratorMessageKeys.BUTTON_BACK);
         String menu = messageService.getText(GeneratorMessageKeys.BUTTON_MENU);
 
         messageService.sendFromKey(client, chatId, GeneratorMessageKeys.CONFIRM_TITLE,
-                GeneratorKeyboardFactory.confirmationKeyboard(generate, back, menu),
+                GeneratorKeyboardFactory.confirmationKeyboard(generate, generateWithAnswers, generateHomework, back,
+                        menu, selection),
                 confirmTitle);
     }
 
     private void handleConfirmPdf(TelegramClient client, Long chatId, Long userId) {
-        UserContext ctx = userContextService.getOrCreate(userId);
-        OperationType operationType;
-        try {
-            operationType = OperationType.valueOf(ctx.getOperationType());
-        } catch (Exception e) {
+        generatePdf(client, chatId, userId, WizardSelection.fromContext(userContextService.getOrCreate(userId)), false,
+                false);
+    }
+
+    /**
+     * @param homework true — «домашнее задание дня»: один лист на день для всех с тем же выбором
+     *                 (см. {@link PdfGenerationService#renderHomeworkOfTheDay})
+     */
+    private void generatePdf(TelegramClient client, Long chatId, Long userId, WizardSelection selection,
+                             boolean answerKey, boolean homework) {
+        OperationType operationType = selection.operationType();
+        if (operationType == null) {
             messageService.sendFromKey(client, chatId, GeneratorMessageKeys.PDF_GENERATION_ERROR);
             userStateService.setState(userId, UserState.ERROR);
             return;
         }
-        int quantity = ctx.getQuantity() != null ? ctx.getQuantity() : 20;
+        int quantity = selection.quantity() != null ? selection.quantity() : 20;
 
         userStateService.setState(userId, UserState.GENERATING);
 
         String operationLabel = resolveOperationLabel(operationType);
         // Для PDF используем вариант без emoji: шрифт DejaVu не поддерживает символы типа 🔢
-        String topicPrefix = "NUMBERS".equals(ctx.getTopic())
+        String topicPrefix = WizardSelection.TOPIC_NUMBERS.equals(selection.topic())
                 ? messageService.getText(GeneratorMessageKeys.TOPIC_NUMBERS_LABEL) + ": "
                 : "Арифметика: ";
         String title = topicPrefix + operationLabel;
 
         try {
-            byte[] pdf = pdfGenerationService.generateArithmeticPdf(userId, operationType, quantity, title);
-
-            org.telegram.telegrambots.meta.api.objects.InputFile inputFile =
-                    new org.telegram.telegrambots.meta.api.objects.InputFile(
-                            new java.io.ByteArrayInputStream(pdf),
-                            "math_tasks.pdf");
-
-            org.telegram.telegrambots.meta.api.methods.send.SendDocument sendDocument =
-                    org.telegram.telegrambots.meta.api.methods.send.SendDocument.builder()
-                            .chatId(chatId.toString())
-                            .document(inputFile)
-                            .build();
-
-            client.execute(sendDocument);
+            try (RenderedPdf pdf = homework
+                    ? pdfGenerationService.renderHomeworkOfTheDay(userId, operationType, quantity, title)
+                    : pdfGenerationService.renderArithmeticPdf(userId, operationType, quantity, title, null, answerKey)) {
+                sendPdf(client, chatId, pdf, "math_tasks.pdf");
+            }
             userStateService.setState(userId, UserState.COMPLETED);
         } catch (PdfGenerationAccessException e) {
             messageService.sendText(client, chatId, e.getMessage());
             userStateService.setState(userId, UserState.COMPLETED);
+        } catch (PdfRenderBusyException e) {
+            // Кнопка в чате несёт весь выбор — повторное нажатие запустит генерацию заново
+            messageService.sendFromKey(client, chatId, GeneratorMessageKeys.PDF_BUSY);
+            userStateService.setState(userId, UserState.AWAITING_CONFIRMATION);
         } catch (Exception e) {
-            log.warn("Ошибка генерации PDF: userId={}, operationType={}", userId, ctx.getOperationType(), e);
+            log.warn("Ошибка генерации PDF: userId={}, operationType={}", userId, operationType, e);
             messageService.sendFromKey(client, chatId, GeneratorMessageKeys.PDF_GENERATION_ERROR);
             userStateService.setState(userId, UserState.ERROR);
         }
     }
 
+    /**
+     * Отправка документа без промежуточных копий: документ загружается прямо из файла ({@code InputFile(File)}
+     * клиент передаёт в запрос без чтения в массив байт). Документ, который Telegram уже видел
+     * (лист из кэша), отправляется по file_id без загрузки; если file_id не принят, документ загружается заново.
+     */
+    private void sendPdf(TelegramClient client, Long chatId, RenderedPdf pdf, String fileName)
+            throws TelegramApiException {
+        String fileId = pdf.telegramFileId();
+        if (fileId != null) {
+            try {
+                client.execute(sendDocument(chatId, new InputFile(fileId)));
+                return;
+            } catch (TelegramApiException e) {
+                log.warn("Отправка PDF по file_id не удалась, документ загружается заново: {}", e.getMessage());
+            }
+        }
+        Message sent = client.execute(sendDocument(chatId, new InputFile(pdf.file().toFile(), fileName)));
+        if (sent != null && sent.getDocument() != null) {
+            pdf.uploaded(sent.getDocument().getFileId());
+        }
+    }
+
+    private static SendDocument sendDocument(Long chatId, InputFile document) {
+        return SendDocument.builder()
+                .chatId(chatId.toString())
+                .document(document)
+                .build();
+    }
+
+    /**
+     * Кнопки количества общие для всех операций; операция с маленьким пространством примеров
+     * (сложение и вычитание до 10) гарантированно собирает меньше 50 заданий, поэтому кнопка «50»
+     * даёт лист предельного размера операции ({@link PdfGenerationService#maxSheetQuantity}), а не ошибку проверки.
+     */
+    private Integer presetQuantity(OperationType operationType, Integer quantity) {
+        if (quantity == null || operationType == null) {
+            return quantity;
+        }
+        return Math.min(quantity, pdfGenerationService.maxSheetQuantity(operationType));
+    }
+
     private static int quantityFromCallback(String data) {
         return switch (data) {
             case CallbackData.QTY_10 -> 10;
@@ -385,24 +533,16 @@ public class GeneratorCallbackHandler implements CallbackQueryHandler {
         userStateService.setState(userId, UserState.GENERATING);
         String title = messageService.getText(GeneratorMessageKeys.PDF_DEMO_TITLE);
         try {
-            byte[] pdf = pdfGenerationService.generateDemoForUser(userId, title);
-
-            org.telegram.telegrambots.meta.api.objects.InputFile inputFile =
-                    new org.telegram.telegrambots.meta.api.objects.InputFile(
-                            new java.io.ByteArrayInputStream(pdf),
-                            "math_tasks_demo.pdf");
-
-            org.telegram.telegrambots.meta.api.methods.send.SendDocument sendDocument =
-                    org.telegram.telegrambots.meta.api.methods.send.SendDocument.builder()
-                            .chatId(chatId.toString())
-                            .document(inputFile)
-                            .build();
-
-            client.execute(sendDocument);
+            try (RenderedPdf pdf = pdfGenerationService.renderDemoForUser(userId, title)) {
+                sendPdf(client, chatId, pdf, "math_tasks_demo.pdf");
+            }
             userStateService.setState(userId, UserState.COMPLETED);
         } catch (PdfGenerationAccessException e) {
             messageService.sendText(client, chatId, e.getMessage());
             userStateService.setState(userId, UserState.COMPLETED);
+        } catch (PdfRenderBusyException e) {
+            messageService.sendFromKey(client, chatId, GeneratorMessageKeys.PDF_BUSY);
+            userStateService.setState(userId, UserState.COMPLETED);
         } catch (Exception e) {
             messageService.sendFromKey(client, chatId, GeneratorMessageKeys.PDF_GENERATION_ERROR);
             userStateService.setState(userId, UserState.ERROR);
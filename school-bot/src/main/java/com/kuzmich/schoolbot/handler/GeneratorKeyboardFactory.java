@@ -1,5 +1,8 @@
 package com.kuzmich.schoolbot.handler;
 
+import com.kuzmich.schoolbot.domain.SchoolLevel;
+import com.kuzmich.schoolbot.domain.Subject;
+import com.kuzmich.schoolbot.generator.OperationType;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardRow;
@@ -7,6 +10,8 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKe
 /**
  * Создаёт inline-клавиатуры для сценария генератора (выбор режима, класса, предмета).
  * Тексты кнопок и callback_data соответствуют MathBot-Scenarios.
+ * Перегрузки с {@link WizardSelection} кодируют в callback_data накопленный выбор ({@link WizardCallbackCodec}),
+ * чтобы шаги wizard не читали и не писали контекст в БД; перегрузки без него используют константы {@link CallbackData}.
  */
 public final class GeneratorKeyboardFactory {
 
@@ -40,11 +45,24 @@ public final class GeneratorKeyboardFactory {
      * Клавиатура выбора класса: Начальная / Средняя школа, Назад, Справка.
      */
     public static InlineKeyboardMarkup classSelectionKeyboard(String backLabel, String helpLabel) {
+        return buildClassSelection(backLabel, helpLabel, CallbackData.GEN_ELEMENTARY);
+    }
+
+    /**
+     * Клавиатура выбора класса с выбором, переданным в callback_data.
+     */
+    public static InlineKeyboardMarkup classSelectionKeyboard(String backLabel, String helpLabel,
+                                                              WizardSelection selection) {
+        return buildClassSelection(backLabel, helpLabel,
+                WizardCallbackCodec.encode(WizardAction.SCHOOL_LEVEL, selection.withSchoolLevel(SchoolLevel.ELEMENTARY)));
+    }
+
+    private static InlineKeyboardMarkup buildClassSelection(String backLabel, String helpLabel, String elementaryData) {
         return InlineKeyboardMarkup.builder()
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text("👧 Начальная школа (1-4 класс)")
-                                .callbackData(CallbackData.GEN_ELEMENTARY)
+                                .callbackData(elementaryData)
                                 .build()))
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
@@ -67,16 +85,31 @@ public final class GeneratorKeyboardFactory {
      * Клавиатура выбора предмета (MVP: только Математика), Назад, Главное меню.
      */
     public static InlineKeyboardMarkup subjectSelectionKeyboard(String mathLabel, String backLabel, String menuLabel) {
+        return buildSubjectSelection(mathLabel, backLabel, menuLabel, CallbackData.SUBJECT_MATH, CallbackData.BACK_TO_CLASS);
+    }
+
+    /**
+     * Клавиатура выбора предмета с выбором, переданным в callback_data.
+     */
+    public static InlineKeyboardMarkup subjectSelectionKeyboard(String mathLabel, String backLabel, String menuLabel,
+                                                                WizardSelection selection) {
+        return buildSubjectSelection(mathLabel, backLabel, menuLabel,
+                WizardCallbackCodec.encode(WizardAction.SUBJECT, selection.withSubject(Subject.MATH)),
+                backData(selection));
+    }
+
+    private static InlineKeyboardMarkup buildSubjectSelection(String mathLabel, String backLabel, String menuLabel,
+                                                              String mathData, String backData) {
         return InlineKeyboardMarkup.builder()
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(mathLabel)
-                                .callbackData(CallbackData.SUBJECT_MATH)
+                                .callbackData(mathData)
                                 .build()))
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(backLabel)
-                                .callbackData(CallbackData.BACK_TO_CLASS)
+                                .callbackData(backData)
                                 .build(),
                         InlineKeyboardButton.builder()
                                 .text(menuLabel)
@@ -92,21 +125,43 @@ public final class GeneratorKeyboardFactory {
                                                               String numbersLabel,
                                                               String backLabel,
                                                               String menuLabel) {
+        return buildTopicSelection(arithmeticLabel, numbersLabel, backLabel, menuLabel,
+                CallbackData.TOPIC_ARITHMETIC, CallbackData.TOPIC_NUMBERS, CallbackData.BACK_TO_CLASS);
+    }
+
+    /**
+     * Клавиатура выбора темы с выбором, переданным в callback_data.
+     */
+    public static InlineKeyboardMarkup topicSelectionKeyboard(String arithmeticLabel,
+                                                              String numbersLabel,
+                                                              String backLabel,
+                                                              String menuLabel,
+                                                              WizardSelection selection) {
+        return buildTopicSelection(arithmeticLabel, numbersLabel, backLabel, menuLabel,
+                WizardCallbackCodec.encode(WizardAction.TOPIC, selection.withTopic(WizardSelection.TOPIC_ARITHMETIC)),
+                WizardCallbackCodec.encode(WizardAction.TOPIC, selection.withTopic(WizardSelection.TOPIC_NUMBERS)),
+                backData(selection));
+    }
+
+    private static InlineKeyboardMarkup buildTopicSelection(String arithmeticLabel, String numbersLabel,
+                                                            String backLabel, String menuLabel,
+                                                            String arithmeticData, String numbersData,
+                                                            String backData) {
         return InlineKeyboardMarkup.builder()
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(arithmeticLabel)
-                                .callbackData(CallbackData.TOPIC_ARITHMETIC)
+                                .callbackData(arithmeticData)
                                 .build()))
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(numbersLabel)
-                                .callbackData(CallbackData.TOPIC_NUMBERS)
+                                .callbackData(numbersData)
                                 .build()))
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(backLabel)
-                                .callbackData(CallbackData.BACK_TO_CLASS)
+                                .callbackData(backData)
                                 .build(),
                         InlineKeyboardButton.builder()
                                 .text(menuLabel)
@@ -124,31 +179,63 @@ public final class GeneratorKeyboardFactory {
                                                                   String sub20NoCarryLabel,
                                                                   String backLabel,
                                                                   String menuLabel) {
+        return buildOperationSelection(add10Label, sub10Label, add20NoCarryLabel, sub20NoCarryLabel, backLabel, menuLabel,
+                new String[]{CallbackData.OP_ADDITION_10, CallbackData.OP_SUBTRACTION_10,
+                        CallbackData.OP_ADDITION_20_NO_CARRY, CallbackData.OP_SUBTRACTION_20_NO_CARRY},
+                CallbackData.BACK_TO_CLASS);
+    }
+
+    /**
+     * Клавиатура выбора типа операции арифметики с выбором, переданным в callback_data.
+     */
+    public static InlineKeyboardMarkup operationSelectionKeyboard(String add10Label,
+                                                                  String sub10Label,
+                                                                  String add20NoCarryLabel,
+                                                                  String sub20NoCarryLabel,
+                                                                  String backLabel,
+                                                                  String menuLabel,
+                                                                  WizardSelection selection) {
+        return buildOperationSelection(add10Label, sub10Label, add20NoCarryLabel, sub20NoCarryLabel, backLabel, menuLabel,
+                new String[]{operationData(selection, OperationType.ADDITION_10),
+                        operationData(selection, OperationType.SUBTRACTION_10),
+                        operationData(selection, OperationType.ADDITION_20_NO_CARRY),
+                        operationData(selection, OperationType.SUBTRACTION_20_NO_CARRY)},
+                backData(selection));
+    }
+
+    private static InlineKeyboardMarkup buildOperationSelection(String add10Label,
+                                                                String sub10Label,
+                                                                String add20NoCarryLabel,
+                                                                String sub20NoCarryLabel,
+                                                                String backLabel,
+                                                                String menuLabel,
+                                                                String[] operationData,
+                                                                String backData) {
         return InlineKeyboardMarkup.builder()
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(add10Label)
-                                .callbackData(CallbackData.OP_ADDITION_10)
+                                .callbackData(operationData[0])
                                 .build()))
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(sub10Label)
-                                .callbackData(CallbackData.OP_SUBTRACTION_10)
+                                .callbackData(operationData[1])
                                 .build()))
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(add20NoCarryLabel)
-                                .callbackData(CallbackData.OP_ADDITION_20_NO_CARRY)
+                                .callbackData(operationData[2])
                                 .build()))
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(sub20NoCarryLabel)
-                                .callbackData(CallbackData.OP_SUBTRACTION_20_NO_CARRY)
+                                .callbackData(operationData[3])
                                 .build()))
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(backLabel)
-                                .callbackData(CallbackData.BACK_TO_CLASS)
+                                .callbackData(backData)
                                 .build(),
                         InlineKeyboardButton.builder()
                                 .text(menuLabel)
@@ -165,26 +252,56 @@ public final class GeneratorKeyboardFactory {
                                                                         String sequenceLabel,
                                                                         String backLabel,
                                                                         String menuLabel) {
+        return buildOperationSelectionNumbers(compositionLabel, comparisonLabel, sequenceLabel, backLabel, menuLabel,
+                CallbackData.OP_NUMBER_COMPOSITION, CallbackData.OP_COMPARISON, CallbackData.OP_NUMBER_SEQUENCE,
+                CallbackData.BACK_TO_CLASS);
+    }
+
+    /**
+     * Клавиатура выбора типа задания «Числа и счёт» с выбором, переданным в callback_data.
+     */
+    public static InlineKeyboardMarkup operationSelectionKeyboardNumbers(String compositionLabel,
+                                                                        String comparisonLabel,
+                                                                        String sequenceLabel,
+                                                                        String backLabel,
+                                                                        String menuLabel,
+                                                                        WizardSelection selection) {
+        return buildOperationSelectionNumbers(compositionLabel, comparisonLabel, sequenceLabel, backLabel, menuLabel,
+                WizardCallbackCodec.encode(WizardAction.COMPOSITION_MENU, selection),
+                operationData(selection, OperationType.COMPARISON),
+                operationData(selection, OperationType.NUMBER_SEQUENCE),
+                backData(selection));
+    }
+
+    private static InlineKeyboardMarkup buildOperationSelectionNumbers(String compositionLabel,
+                                                                       String comparisonLabel,
+                                                                       String sequenceLabel,
+                                                                       String backLabel,
+                                                                       String menuLabel,
+                                                                       String compositionData,
+                                                                       String comparisonData,
+                                                                       String sequenceData,
+                                                                       String backData) {
         return InlineKeyboardMarkup.builder()
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(compositionLabel)
-                                .callbackData(CallbackData.OP_NUMBER_COMPOSITION)
+                                .callbackData(compositionData)
                                 .build()))
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(comparisonLabel)
-                                .callbackData(CallbackData.OP_COMPARISON)
+                                .callbackData(comparisonData)
                                 .build()))
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(sequenceLabel)
-                                .callbackData(CallbackData.OP_NUMBER_SEQUENCE)
+                                .callbackData(sequenceData)
                                 .build()))
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(backLabel)
-                                .callbackData(CallbackData.BACK_TO_CLASS)
+                                .callbackData(backData)
                                 .build(),
                         InlineKeyboardButton.builder()
                                 .text(menuLabel)
@@ -202,29 +319,61 @@ public final class GeneratorKeyboardFactory {
                                                                  String compMixedLabel,
                                                                  String backLabel,
                                                                  String menuLabel) {
+        return buildCompositionVariants(comp2To9Label, comp10Label, comp11To20Label, compMixedLabel, backLabel, menuLabel,
+                new String[]{CallbackData.OP_NUMBER_COMPOSITION_2_9, CallbackData.OP_NUMBER_COMPOSITION_10,
+                        CallbackData.OP_NUMBER_COMPOSITION_11_20, CallbackData.OP_NUMBER_COMPOSITION_MIXED},
+                CallbackData.BACK_TO_CLASS);
+    }
+
+    /**
+     * Подменю «Состав числа» с выбором, переданным в callback_data.
+     */
+    public static InlineKeyboardMarkup compositionVariantKeyboard(String comp2To9Label,
+                                                                 String comp10Label,
+                                                                 String comp11To20Label,
+                                                                 String compMixedLabel,
+                                                                 String backLabel,
+                                                                 String menuLabel,
+                                                                 WizardSelection selection) {
+        return buildCompositionVariants(comp2To9Label, comp10Label, comp11To20Label, compMixedLabel, backLabel, menuLabel,
+                new String[]{operationData(selection, OperationType.NUMBER_COMPOSITION_2_9),
+                        operationData(selection, OperationType.NUMBER_COMPOSITION_10),
+                        operationData(selection, OperationType.NUMBER_COMPOSITION_11_20),
+                        operationData(selection, OperationType.NUMBER_COMPOSITION)},
+                backData(selection));
+    }
+
+    private static InlineKeyboardMarkup buildCompositionVariants(String comp2To9Label,
+                                                                 String comp10Label,
+                                                                 String comp11To20Label,
+                                                                 String compMixedLabel,
+                                                                 String backLabel,
+                                                                 String menuLabel,
+                                                                 String[] variantData,
+                                                                 String backData) {
         return InlineKeyboardMarkup.builder()
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(comp2To9Label)
-                                .callbackData(CallbackData.OP_NUMBER_COMPOSITION_2_9)
+                                .callbackData(variantData[0])
                                 .build(),
                         InlineKeyboardButton.builder()
                                 .text(comp10Label)
-                                .callbackData(CallbackData.OP_NUMBER_COMPOSITION_10)
+                                .callbackData(variantData[1])
                                 .build()))
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(comp11To20Label)
-                                .callbackData(CallbackData.OP_NUMBER_COMPOSITION_11_20)
+                                .callbackData(variantData[2])
                                 .build(),
                         InlineKeyboardButton.builder()
                                 .text(compMixedLabel)
-                                .callbackData(CallbackData.OP_NUMBER_COMPOSITION_MIXED)
+                                .callbackData(variantData[3])
                                 .build()))
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(backLabel)
-                                .callbackData(CallbackData.BACK_TO_CLASS)
+                                .callbackData(backData)
                                 .build(),
                         InlineKeyboardButton.builder()
                                 .text(menuLabel)
@@ -242,29 +391,82 @@ public final class GeneratorKeyboardFactory {
                                                                  String qty50Label,
                                                                  String backLabel,
                                                                  String menuLabel) {
-        return InlineKeyboardMarkup.builder()
+        return buildQuantitySelection(qty10Label, qty20Label, qty30Label, qty50Label, null, backLabel, menuLabel,
+                new String[]{CallbackData.QTY_10, CallbackData.QTY_20, CallbackData.QTY_30, CallbackData.QTY_50},
+                null, CallbackData.BACK_TO_CLASS);
+    }
+
+    /**
+     * Клавиатура выбора количества с выбором, переданным в callback_data.
+     */
+    public static InlineKeyboardMarkup quantitySelectionKeyboard(String qty10Label,
+                                                                 String qty20Label,
+                                                                 String qty30Label,
+                                                                 String qty50Label,
+                                                                 String backLabel,
+                                                                 String menuLabel,
+                                                                 WizardSelection selection) {
+        return buildQuantitySelection(qty10Label, qty20Label, qty30Label, qty50Label, null, backLabel, menuLabel,
+                presetQuantityData(selection), null, backData(selection));
+    }
+
+    /**
+     * Клавиатура выбора количества с кнопкой своего количества (число вводится следующим сообщением).
+     */
+    public static InlineKeyboardMarkup quantitySelectionKeyboard(String qty10Label,
+                                                                 String qty20Label,
+                                                                 String qty30Label,
+                                                                 String qty50Label,
+                                                                 String customLabel,
+                                                                 String backLabel,
+                                                                 String menuLabel,
+                                                                 WizardSelection selection) {
+        return buildQuantitySelection(qty10Label, qty20Label, qty30Label, qty50Label, customLabel, backLabel, menuLabel,
+                presetQuantityData(selection), WizardCallbackCodec.encode(WizardAction.CUSTOM_QUANTITY, selection),
+                backData(selection));
+    }
+
+    private static InlineKeyboardMarkup buildQuantitySelection(String qty10Label,
+                                                               String qty20Label,
+                                                               String qty30Label,
+                                                               String qty50Label,
+                                                               String customLabel,
+                                                               String backLabel,
+                                                               String menuLabel,
+                                                               String[] quantityData,
+                                                               String customData,
+                                                               String backData) {
+        var keyboard = InlineKeyboardMarkup.builder()
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(qty10Label)
-                                .callbackData(CallbackData.QTY_10)
+                                .callbackData(quantityData[0])
                                 .build(),
                         InlineKeyboardButton.builder()
                                 .text(qty20Label)
-                                .callbackData(CallbackData.QTY_20)
+                                .callbackData(quantityData[1])
                                 .build()))
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(qty30Label)
-                                .callbackData(CallbackData.QTY_30)
+                                .callbackData(quantityData[2])
                                 .build(),
                         InlineKeyboardButton.builder()
                                 .text(qty50Label)
-                                .callbackData(CallbackData.QTY_50)
-                                .build()))
+                                .callbackData(quantityData[3])
+                                .build()));
+        if (customData != null) {
+            keyboard.keyboardRow(new InlineKeyboardRow(
+                    InlineKeyboardButton.builder()
+                            .text(customLabel)
+                            .callbackData(customData)
+                            .build()));
+        }
+        return keyboard
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(backLabel)
-                                .callbackData(CallbackData.BACK_TO_CLASS)
+                                .callbackData(backData)
                                 .build(),
                         InlineKeyboardButton.builder()
                                 .text(menuLabel)
@@ -277,16 +479,72 @@ public final class GeneratorKeyboardFactory {
      * Клавиатура подтверждения генерации PDF.
      */
     public static InlineKeyboardMarkup confirmationKeyboard(String generateLabel, String backLabel, String menuLabel) {
-        return InlineKeyboardMarkup.builder()
+        return buildConfirmation(generateLabel, null, null, backLabel, menuLabel, CallbackData.GEN_CONFIRM_PDF, null,
+                null, CallbackData.BACK_TO_CLASS);
+    }
+
+    /**
+     * Клавиатура подтверждения: кнопка генерации несёт весь выбор пользователя.
+     */
+    public static InlineKeyboardMarkup confirmationKeyboard(String generateLabel, String backLabel, String menuLabel,
+                                                            WizardSelection selection) {
+        return buildConfirmation(generateLabel, null, null, backLabel, menuLabel,
+                WizardCallbackCodec.encode(WizardAction.CONFIRM, selection), null, null, backData(selection));
+    }
+
+    /**
+     * Клавиатура подтверждения с дополнительной кнопкой «Создать PDF с ответами».
+     */
+    public static InlineKeyboardMarkup confirmationKeyboard(String generateLabel, String generateWithAnswersLabel,
+                                                            String backLabel, String menuLabel,
+                                                            WizardSelection selection) {
+        return buildConfirmation(generateLabel, generateWithAnswersLabel, null, backLabel, menuLabel,
+                WizardCallbackCodec.encode(WizardAction.CONFIRM, selection),
+                WizardCallbackCodec.encode(WizardAction.CONFIRM_WITH_ANSWERS, selection), null, backData(selection));
+    }
+
+    /**
+     * Клавиатура подтверждения с кнопками «Создать PDF с ответами» и «Домашнее задание дня».
+     */
+    public static InlineKeyboardMarkup confirmationKeyboard(String generateLabel, String generateWithAnswersLabel,
+                                                            String generateHomeworkLabel, String backLabel,
+                                                            String menuLabel, WizardSelection selection) {
+        return buildConfirmation(generateLabel, generateWithAnswersLabel, generateHomeworkLabel, backLabel, menuLabel,
+                WizardCallbackCodec.encode(WizardAction.CONFIRM, selection),
+                WizardCallbackCodec.encode(WizardAction.CONFIRM_WITH_ANSWERS, selection),
+                WizardCallbackCodec.encode(WizardAction.CONFIRM_HOMEWORK, selection), backData(selection));
+    }
+
+    private static InlineKeyboardMarkup buildConfirmation(String generateLabel, String generateWithAnswersLabel,
+                                                          String generateHomeworkLabel,
+                                                          String backLabel, String menuLabel,
+                                                          String generateData, String generateWithAnswersData,
+                                                          String generateHomeworkData, String backData) {
+        var keyboard = InlineKeyboardMarkup.builder()
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(generateLabel)
-                                .callbackData(CallbackData.GEN_CONFIRM_PDF)
-                                .build()))
+                                .callbackData(generateData)
+                                .build()));
+        if (generateWithAnswersData != null) {
+            keyboard.keyboardRow(new InlineKeyboardRow(
+                    InlineKeyboardButton.builder()
+                            .text(generateWithAnswersLabel)
+                            .callbackData(generateWithAnswersData)
+                            .build()));
+        }
+        if (generateHomeworkData != null) {
+            keyboard.keyboardRow(new InlineKeyboardRow(
+                    InlineKeyboardButton.builder()
+                            .text(generateHomeworkLabel)
+                            .callbackData(generateHomeworkData)
+                            .build()));
+        }
+        return keyboard
                 .keyboardRow(new InlineKeyboardRow(
                         InlineKeyboardButton.builder()
                                 .text(backLabel)
-                                .callbackData(CallbackData.BACK_TO_CLASS)
+                                .callbackData(backData)
                                 .build(),
                         InlineKeyboardButton.builder()
                                 .text(menuLabel)
@@ -342,4 +600,21 @@ public final class GeneratorKeyboardFactory {
                                 .build()))
                 .build();
     }
+
+    private static String backData(WizardSelection selection) {
+        return WizardCallbackCodec.encode(WizardAction.BACK, selection);
+    }
+
+    private static String operationData(WizardSelection selection, OperationType operationType) {
+        return WizardCallbackCodec.encode(WizardAction.OPERATION, selection.withOperationType(operationType));
+    }
+
+    private static String[] presetQuantityData(WizardSelection selection) {
+        return new String[]{quantityData(selection, 10), quantityData(selection, 20),
+                quantityData(selection, 30), quantityData(selection, 50)};
+    }
+
+    private static String quantityData(WizardSelection selection, int quantity) {
+        return WizardCallbackCodec.encode(WizardAction.QUANTITY, selection.withQuantity(quantity));
+    }
 }
@@ -0,0 +1,30 @@
+package com.kuzmich.schoolbot.handler;
+
+/**
+ * Действие кнопки wizard, закодированное в callback_data вместе с накопленным выбором
+ * (см. {@link WizardCallbackCodec}). Порядок констант — часть формата: новые добавлять только в конец.
+ */
+public enum WizardAction {
+    /** Выбран класс — показать выбор предмета. */
+    SCHOOL_LEVEL,
+    /** Выбран предмет — показать выбор темы. */
+    SUBJECT,
+    /** Выбрана тема — показать выбор типа задания. */
+    TOPIC,
+    /** Открыть подменю «Состав числа». */
+    COMPOSITION_MENU,
+    /** Выбран тип задания — показать выбор количества. */
+    OPERATION,
+    /** Выбрано количество — показать подтверждение. */
+    QUANTITY,
+    /** Подтверждение — сгенерировать PDF. */
+    CONFIRM,
+    /** Назад к выбору класса. */
+    BACK,
+    /** Своё количество — попросить ввести число сообщением. */
+    CUSTOM_QUANTITY,
+    /** Подтверждение — сгенерировать PDF с ключом ответов. */
+    CONFIRM_WITH_ANSWERS,
+    /** Подтверждение — «домашнее задание дня»: один лист на день для всех с тем же выбором. */
+    CONFIRM_HOMEWORK
+}
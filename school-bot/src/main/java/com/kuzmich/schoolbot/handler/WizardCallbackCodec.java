@@ -0,0 +1,111 @@
+package com.kuzmich.schoolbot.handler;
+
+import com.kuzmich.schoolbot.domain.Mode;
+import com.kuzmich.schoolbot.domain.SchoolLevel;
+import com.kuzmich.schoolbot.domain.Subject;
+import com.kuzmich.schoolbot.generator.OperationType;
+
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Компактный формат callback_data для wizard: действие и весь накопленный выбор в одной строке.
+ * <p>
+ * Формат: префикс {@value #PREFIX} + Base64url (без padding) от {@value #PAYLOAD_LENGTH} байт:
+ * версия, действие, режим, класс, предмет, тема, тип операции (ordinal + 1, 0 — не выбрано),
+ * количество (2 байта, 0 — не выбрано). Итог — 14 байт при лимите Telegram в 64 байта.
+ * Порядок констант enum — часть формата: при несовместимом изменении повышается {@link #VERSION},
+ * а кнопки старой версии не декодируются (пользователь возвращается в главное меню).
+ */
+public final class WizardCallbackCodec {
+
+    /** Префикс кодированных callback; не пересекается с константами {@link CallbackData}. */
+    public static final String PREFIX = "w:";
+
+    static final byte VERSION = 1;
+    static final int PAYLOAD_LENGTH = 9;
+    private static final int MAX_QUANTITY = 0xFFFF;
+
+    private static final String[] TOPICS = {WizardSelection.TOPIC_ARITHMETIC, WizardSelection.TOPIC_NUMBERS};
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private WizardCallbackCodec() {
+    }
+
+    /**
+     * Декодированная кнопка wizard.
+     */
+    public record Decoded(WizardAction action, WizardSelection selection) {
+    }
+
+    public static boolean isEncoded(String data) {
+        return data != null && data.startsWith(PREFIX);
+    }
+
+    public static String encode(WizardAction action, WizardSelection selection) {
+        byte[] payload = new byte[PAYLOAD_LENGTH];
+        payload[0] = VERSION;
+        payload[1] = (byte) action.ordinal();
+        payload[2] = (byte) ordinalOf(selection.mode());
+        payload[3] = (byte) ordinalOf(selection.schoolLevel());
+        payload[4] = (byte) ordinalOf(selection.subject());
+        payload[5] = (byte) topicIndex(selection.topic());
+        payload[6] = (byte) ordinalOf(selection.operationType());
+        int quantity = selection.quantity() != null ? Math.min(selection.quantity(), MAX_QUANTITY) : 0;
+        payload[7] = (byte) (quantity >>> 8);
+        payload[8] = (byte) quantity;
+        return PREFIX + ENCODER.encodeToString(payload);
+    }
+
+    /**
+     * Декодировать callback_data. Пусто — если строка не в этом формате, другой версии или повреждена.
+     */
+    public static Optional<Decoded> decode(String data) {
+        if (!isEncoded(data)) {
+            return Optional.empty();
+        }
+        byte[] payload;
+        try {
+            payload = DECODER.decode(data.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (payload.length != PAYLOAD_LENGTH || payload[0] != VERSION) {
+            return Optional.empty();
+        }
+        try {
+            WizardAction action = WizardAction.values()[Byte.toUnsignedInt(payload[1])];
+            int quantity = (Byte.toUnsignedInt(payload[7]) << 8) | Byte.toUnsignedInt(payload[8]);
+            WizardSelection selection = new WizardSelection(
+                    valueOf(Mode.values(), payload[2]),
+                    valueOf(SchoolLevel.values(), payload[3]),
+                    valueOf(Subject.values(), payload[4]),
+                    valueOf(TOPICS, payload[5]),
+                    valueOf(OperationType.values(), payload[6]),
+                    quantity != 0 ? quantity : null);
+            return Optional.of(new Decoded(action, selection));
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static int ordinalOf(Enum<?> value) {
+        return value != null ? value.ordinal() + 1 : 0;
+    }
+
+    private static int topicIndex(String topic) {
+        for (int i = 0; i < TOPICS.length; i++) {
+            if (TOPICS[i].equals(topic)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static <T> T valueOf(T[] values, byte code) {
+        int index = Byte.toUnsignedInt(code);
+        return index == 0 ? null : values[index - 1];
+    }
+}
@@ -0,0 +1,78 @@
+package com.kuzmich.schoolbot.handler;
+
+import com.kuzmich.schoolbot.context.UserContext;
+import com.kuzmich.schoolbot.domain.Mode;
+import com.kuzmich.schoolbot.domain.SchoolLevel;
+import com.kuzmich.schoolbot.domain.Subject;
+import com.kuzmich.schoolbot.generator.OperationType;
+
+import java.util.Arrays;
+
+/**
+ * Накопленный выбор пользователя в wizard генератора (режим → класс → предмет → тема → тип → количество).
+ * Передаётся между шагами в callback_data кнопок, без промежуточного сохранения в БД.
+ *
+ * @param topic «ARITHMETIC» или «NUMBERS» (как в {@link UserContext#getTopic()})
+ */
+public record WizardSelection(Mode mode,
+                              SchoolLevel schoolLevel,
+                              Subject subject,
+                              String topic,
+                              OperationType operationType,
+                              Integer quantity) {
+
+    public static final String TOPIC_ARITHMETIC = "ARITHMETIC";
+    public static final String TOPIC_NUMBERS = "NUMBERS";
+
+    /**
+     * Начало wizard: выбран только режим «Генератор».
+     */
+    public static WizardSelection generator() {
+        return new WizardSelection(Mode.GENERATOR, null, null, null, null, null);
+    }
+
+    /**
+     * Выбор из сохранённого контекста (кнопки, отправленные до появления кодированных callback).
+     * Неизвестный тип операции трактуется как невыбранный.
+     */
+    public static WizardSelection fromContext(UserContext context) {
+        OperationType operationType = Arrays.stream(OperationType.values())
+                .filter(t -> t.name().equals(context.getOperationType()))
+                .findFirst()
+                .orElse(null);
+        return new WizardSelection(context.getMode(), context.getSchoolLevel(), context.getSubject(),
+                context.getTopic(), operationType, context.getQuantity());
+    }
+
+    public WizardSelection withSchoolLevel(SchoolLevel value) {
+        return new WizardSelection(mode, value, subject, topic, operationType, quantity);
+    }
+
+    public WizardSelection withSubject(Subject value) {
+        return new WizardSelection(mode, schoolLevel, value, topic, operationType, quantity);
+    }
+
+    public WizardSelection withTopic(String value) {
+        return new WizardSelection(mode, schoolLevel, subject, value, operationType, quantity);
+    }
+
+    public WizardSelection withOperationType(OperationType value) {
+        return new WizardSelection(mode, schoolLevel, subject, topic, value, quantity);
+    }
+
+    public WizardSelection withQuantity(Integer value) {
+        return new WizardSelection(mode, schoolLevel, subject, topic, operationType, value);
+    }
+
+    /**
+     * Перенести выбор в контекст пользователя (одна запись в БД на финальном шаге).
+     */
+    public void applyTo(UserContext context) {
+        context.setMode(mode);
+        context.setSchoolLevel(schoolLevel);
+        context.setSubject(subject);
+        context.setTopic(topic);
+        context.setOperationType(operationType != null ? operationType.name() : null);
+        context.setQuantity(quantity);
+    }
+}
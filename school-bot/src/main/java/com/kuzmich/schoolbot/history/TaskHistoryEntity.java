@@ -0,0 +1,43 @@
+package com.kuzmich.schoolbot.history;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Недавние задания пользователя по типу операции: сериализованный
+ * {@link com.kuzmich.schoolbot.generator.RecentTaskFilter} фиксированного размера.
+ * Уникальность по (user_id, operation_type).
+ */
+@Entity
+@Table(name = "user_task_history")
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PUBLIC)
+public class TaskHistoryEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "operation_type", nullable = false, length = 30)
+    private String operationType;
+
+    @Column(name = "fingerprint", nullable = false)
+    private byte[] fingerprint;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,32 @@
+package com.kuzmich.schoolbot.history;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+/**
+ * Репозиторий недавних заданий пользователей.
+ */
+public interface TaskHistoryRepository extends JpaRepository<TaskHistoryEntity, Long> {
+
+    Optional<TaskHistoryEntity> findByUserIdAndOperationType(Long userId, String operationType);
+
+    /**
+     * Вставляет или заменяет фильтр одним SQL: параллельные генерации одного пользователя
+     * не падают на уникальном ключе (побеждает последняя запись).
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_task_history (user_id, operation_type, fingerprint, updated_at)
+            VALUES (:userId, :operationType, :fingerprint, CURRENT_TIMESTAMP)
+            ON CONFLICT (user_id, operation_type)
+            DO UPDATE SET fingerprint = EXCLUDED.fingerprint, updated_at = EXCLUDED.updated_at
+            """, nativeQuery = true)
+    void upsert(
+            @Param("userId") Long userId,
+            @Param("operationType") String operationType,
+            @Param("fingerprint") byte[] fingerprint);
+}
@@ -0,0 +1,63 @@
+package com.kuzmich.schoolbot.history;
+
+import com.kuzmich.schoolbot.core.validation.Validation;
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.generator.RecentTaskFilter;
+import com.kuzmich.schoolbot.generator.Task;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Память о недавно выданных пользователю заданиях, чтобы ежедневные листы не повторяли одни и те же примеры.
+ * <p>
+ * На пользователя и тип операции хранится один фильтр Блума ({@link RecentTaskFilter}, несколько сотен байт):
+ * ни полная история заданий, ни её просмотр не нужны. Генератор получает фильтр через контекст и отдаёт
+ * недавним заданиям меньший приоритет; после генерации выданные задания дописываются в фильтр.
+ */
+@Service
+public class TaskHistoryService {
+
+    private final TaskHistoryRepository repository;
+    private final boolean enabled;
+
+    public TaskHistoryService(TaskHistoryRepository repository,
+                              @Value("${generator.history.enabled:true}") boolean enabled) {
+        this.repository = repository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Фильтр недавних заданий пользователя по типу операции (пустой, если пользователь их ещё не получал).
+     *
+     * @return фильтр; null, если учёт истории выключен
+     */
+    @Transactional(readOnly = true)
+    public RecentTaskFilter load(Long userId, OperationType operationType) {
+        Validation.requireNonNull(userId, "userId");
+        Validation.requireNonNull(operationType, "operationType");
+        if (!enabled) {
+            return null;
+        }
+        return repository.findByUserIdAndOperationType(userId, operationType.name())
+                .map(entity -> RecentTaskFilter.fromBytes(entity.getFingerprint()))
+                .orElseGet(RecentTaskFilter::empty);
+    }
+
+    /**
+     * Дописывает выданные задания в фильтр и сохраняет его. При {@code filter == null}
+     * (история выключена) ничего не делает.
+     */
+    @Transactional
+    public void record(Long userId, OperationType operationType, RecentTaskFilter filter, List<Task> tasks) {
+        if (filter == null || tasks == null || tasks.isEmpty()) {
+            return;
+        }
+        Validation.requireNonNull(userId, "userId");
+        Validation.requireNonNull(operationType, "operationType");
+        filter.addAll(tasks);
+        repository.upsert(userId, operationType.name(), filter.toBytes());
+    }
+}
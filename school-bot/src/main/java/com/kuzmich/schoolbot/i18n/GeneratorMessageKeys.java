@@ -49,6 +49,8 @@ public final class GeneratorMessageKeys {
     public static final String PDF_DEMO_TITLE = "generator.pdf.demo.title";
     /** Сообщение об ошибке генерации PDF. */
     public static final String PDF_GENERATION_ERROR = "generator.pdf.generation.error";
+    /** Сервер занят отрисовкой других PDF — повторить позже. */
+    public static final String PDF_BUSY = "generator.pdf.busy";
 
     /** Заголовок выбора типа операции (арифметика). */
     public static final String OPERATION_TITLE = "generator.operation.title";
@@ -81,10 +83,18 @@ public final class GeneratorMessageKeys {
     public static final String QUANTITY_20 = "generator.quantity.20";
     public static final String QUANTITY_30 = "generator.quantity.30";
     public static final String QUANTITY_50 = "generator.quantity.50";
+    /** Кнопка своего количества, приглашение ввести число ({0} — максимум) и ответ на неверный ввод. */
+    public static final String QUANTITY_CUSTOM = "generator.quantity.custom";
+    public static final String QUANTITY_CUSTOM_PROMPT = "generator.quantity.custom.prompt";
+    public static final String QUANTITY_CUSTOM_INVALID = "generator.quantity.custom.invalid";
 
     /** Заголовок подтверждения генерации и кнопка «Создать PDF». */
     public static final String CONFIRM_TITLE = "generator.confirm.title";
     public static final String BUTTON_GENERATE_PDF = "generator.button.generate.pdf";
+    /** Кнопка «Создать PDF с ответами». */
+    public static final String BUTTON_GENERATE_PDF_WITH_ANSWERS = "generator.button.generate.pdf.answers";
+    /** Кнопка «Домашнее задание дня»: один лист на день для всех с тем же выбором. */
+    public static final String BUTTON_GENERATE_PDF_HOMEWORK = "generator.button.generate.pdf.homework";
 
     /** Плейсхолдер пустого места в задании (равнозначен ширине __, без подчёркивания). */
     public static final String QUESTION_BLANK = "generator.question.blank";
@@ -0,0 +1,41 @@
+package com.kuzmich.schoolbot.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Считает SQL-запросы Hibernate в рамках обработки текущего update (см. {@link UpdateMetrics}).
+ * Сам SQL не изменяет; вне области обработки update запросы не учитываются.
+ */
+public class StatementCountingInspector implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNTER = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] counter = COUNTER.get();
+        if (counter != null) {
+            counter[0]++;
+        }
+        return sql;
+    }
+
+    /**
+     * Начать подсчёт для текущего потока. Возвращает false, если подсчёт уже идёт (вложенный вызов).
+     */
+    static boolean begin() {
+        if (COUNTER.get() != null) {
+            return false;
+        }
+        COUNTER.set(new int[1]);
+        return true;
+    }
+
+    /**
+     * Завершить подсчёт для текущего потока и вернуть число запросов.
+     */
+    static int end() {
+        int[] counter = COUNTER.get();
+        COUNTER.remove();
+        return counter != null ? counter[0] : 0;
+    }
+}
@@ -0,0 +1,62 @@
+package com.kuzmich.schoolbot.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * Метрики обработки update: длительность ({@code schoolbot.update.duration})
+ * и число SQL-запросов на один update ({@code schoolbot.update.statements}), с тегом типа update.
+ * Вместе с метриками пула Hikari и репозиториев Spring Data позволяют увидеть, куда уходит время обработки.
+ */
+@Component
+public class UpdateMetrics {
+
+    private static final String TYPE_CALLBACK = "callback";
+    private static final String TYPE_MESSAGE = "message";
+    private static final String TYPE_OTHER = "other";
+
+    private final MeterRegistry registry;
+
+    public UpdateMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Выполнить обработку update с замером длительности и числа SQL-запросов.
+     */
+    public void record(Update update, Runnable processing) {
+        String type = typeOf(update);
+        boolean owner = StatementCountingInspector.begin();
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            processing.run();
+        } finally {
+            sample.stop(Timer.builder("schoolbot.update.duration")
+                    .description("Время обработки одного update")
+                    .tag("type", type)
+                    .publishPercentileHistogram()
+                    .register(registry));
+            if (owner) {
+                DistributionSummary.builder("schoolbot.update.statements")
+                        .description("Число SQL-запросов на один update")
+                        .tag("type", type)
+                        .publishPercentileHistogram()
+                        .register(registry)
+                        .record(StatementCountingInspector.end());
+            }
+        }
+    }
+
+    private static String typeOf(Update update) {
+        if (update.hasCallbackQuery()) {
+            return TYPE_CALLBACK;
+        }
+        if (update.hasMessage()) {
+            return TYPE_MESSAGE;
+        }
+        return TYPE_OTHER;
+    }
+}
@@ -0,0 +1,367 @@
+package com.kuzmich.schoolbot.session;
+
+import com.kuzmich.schoolbot.domain.Mode;
+import com.kuzmich.schoolbot.domain.SchoolLevel;
+import com.kuzmich.schoolbot.domain.Subject;
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.state.UserState;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link SessionStore} вне кучи JVM: хеш-таблица с открытой адресацией в memory-mapped файле.
+ * <p>
+ * Каждая запись — слот фиксированного размера ({@value #SLOT_SIZE} байт), ключ — userId.
+ * Файл одновременно является живым образом и снимком: изменения попадают в page cache сразу,
+ * {@link #flush()} принудительно сбрасывает их на диск. При рестарте файл отображается заново —
+ * сессии доступны без «холодного» кэша и без чтения из PostgreSQL.
+ * <p>
+ * Enum хранятся порядковыми номерами: при изменении порядка значений нужно увеличить {@link #LAYOUT_VERSION}
+ * (старый файл будет проинициализирован заново, данные восстановятся из PostgreSQL).
+ */
+@Slf4j
+public class MappedSessionStore implements SessionStore, Closeable {
+
+    private static final int MAGIC = 0x53425353; // "SBSS"
+    private static final int LAYOUT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 64;
+
+    private static final long EMPTY = 0L;
+    private static final long TOMBSTONE = -1L;
+
+    // Смещения заголовка
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_CAPACITY = 8;
+    private static final int H_SIZE = 12;
+    private static final int H_TOMBSTONES = 16;
+
+    // Смещения внутри слота
+    private static final int S_USER_ID = 0;
+    private static final int S_VERSION = 8;
+    private static final int S_FLAGS = 12;
+    private static final int S_STATE = 13;
+    private static final int S_MODE = 14;
+    private static final int S_SCHOOL_LEVEL = 15;
+    private static final int S_SUBJECT = 16;
+    private static final int S_TOPIC = 17;
+    private static final int S_OPERATION_TYPE = 18;
+    private static final int S_QUANTITY = 20;
+    private static final int S_STATE_SET_AT = 24;
+    private static final int S_LAST_ACTIVITY = 32;
+    private static final int S_REGISTERED_AT = 40;
+
+    private static final int F_STATE_LOADED = 1;
+    private static final int F_CONTEXT_LOADED = 1 << 1;
+    private static final int F_CONTEXT_EXTERNAL = 1 << 2;
+    private static final int F_STATE_DIRTY = 1 << 3;
+    private static final int F_CONTEXT_DIRTY = 1 << 4;
+
+    private static final int NO_QUANTITY = -1;
+
+    private static final UserState[] STATES = UserState.values();
+    private static final Mode[] MODES = Mode.values();
+    private static final SchoolLevel[] SCHOOL_LEVELS = SchoolLevel.values();
+    private static final Subject[] SUBJECTS = Subject.values();
+    private static final SessionTopic[] TOPICS = SessionTopic.values();
+    private static final OperationType[] OPERATION_TYPES = OperationType.values();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int mask;
+    private final int maxFill;
+
+    /**
+     * Открывает (или создаёт) файл хранилища.
+     *
+     * @param file     путь к файлу
+     * @param capacity число слотов; округляется вверх до степени двойки. Для существующего файла
+     *                 используется ёмкость из его заголовка
+     */
+    public MappedSessionStore(Path file, int capacity) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            int slots = existingCapacity(channel);
+            boolean reuse = slots > 0;
+            if (!reuse) {
+                slots = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+            }
+            this.capacity = slots;
+            this.mask = slots - 1;
+            this.maxFill = slots - (slots >> 2);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+            if (reuse) {
+                log.info("Хранилище сессий восстановлено из {}: записей {}, слотов {}", file, size(), slots);
+            } else {
+                initHeader();
+                log.info("Хранилище сессий создано: {}, слотов {}", file, slots);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть хранилище сессий: " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized SessionRecord get(long userId) {
+        int slot = find(userId);
+        return slot < 0 ? null : read(slot);
+    }
+
+    @Override
+    public synchronized boolean put(SessionRecord record) {
+        long userId = record.getUserId();
+        if (userId <= 0) {
+            throw new IllegalArgumentException("userId должен быть положительным: " + userId);
+        }
+        int slot = find(userId);
+        if (slot < 0) {
+            if (size() + tombstones() >= maxFill) {
+                compact();
+                if (size() >= maxFill) {
+                    return false;
+                }
+            }
+            slot = insertionSlot(userId);
+            if (buffer.getLong(offset(slot) + S_USER_ID) == TOMBSTONE) {
+                setHeader(H_TOMBSTONES, tombstones() - 1);
+            }
+            setHeader(H_SIZE, size() + 1);
+            record.setVersion(1);
+        } else {
+            record.setVersion(buffer.getInt(offset(slot) + S_VERSION) + 1);
+        }
+        write(slot, record);
+        return true;
+    }
+
+    @Override
+    public synchronized void remove(long userId) {
+        int slot = find(userId);
+        if (slot < 0) {
+            return;
+        }
+        int base = offset(slot);
+        for (int i = 0; i < SLOT_SIZE; i += Long.BYTES) {
+            buffer.putLong(base + i, 0L);
+        }
+        buffer.putLong(base + S_USER_ID, TOMBSTONE);
+        setHeader(H_SIZE, size() - 1);
+        setHeader(H_TOMBSTONES, tombstones() + 1);
+    }
+
+    @Override
+    public synchronized List<SessionRecord> findDirty(int limit) {
+        List<SessionRecord> dirty = new ArrayList<>();
+        for (int slot = 0; slot < capacity && dirty.size() < limit; slot++) {
+            int base = offset(slot);
+            long userId = buffer.getLong(base + S_USER_ID);
+            if (userId <= 0) {
+                continue;
+            }
+            int flags = buffer.get(base + S_FLAGS);
+            if ((flags & (F_STATE_DIRTY | F_CONTEXT_DIRTY)) != 0) {
+                dirty.add(read(slot));
+            }
+        }
+        return dirty;
+    }
+
+    @Override
+    public synchronized void markClean(SessionRecord synced) {
+        int slot = find(synced.getUserId());
+        if (slot < 0) {
+            return;
+        }
+        int base = offset(slot);
+        if (buffer.getInt(base + S_VERSION) != synced.getVersion()) {
+            // Запись изменилась во время синхронизации — останется dirty до следующего прохода
+            return;
+        }
+        int flags = buffer.get(base + S_FLAGS);
+        buffer.put(base + S_FLAGS, (byte) (flags & ~(F_STATE_DIRTY | F_CONTEXT_DIRTY)));
+    }
+
+    @Override
+    public synchronized int size() {
+        return buffer.getInt(H_SIZE);
+    }
+
+    @Override
+    public synchronized void flush() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private static int existingCapacity(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return 0;
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt(H_MAGIC) != MAGIC || header.getInt(H_VERSION) != LAYOUT_VERSION) {
+            log.warn("Файл хранилища сессий несовместим (magic/версия), будет проинициализирован заново");
+            return 0;
+        }
+        int slots = header.getInt(H_CAPACITY);
+        if (slots <= 0 || Integer.bitCount(slots) != 1
+                || channel.size() < HEADER_SIZE + (long) slots * SLOT_SIZE) {
+            log.warn("Файл хранилища сессий повреждён (ёмкость {}), будет проинициализирован заново", slots);
+            return 0;
+        }
+        return slots;
+    }
+
+    private void initHeader() {
+        for (int i = 0; i < HEADER_SIZE + capacity * SLOT_SIZE; i += Long.BYTES) {
+            buffer.putLong(i, 0L);
+        }
+        buffer.putInt(H_MAGIC, MAGIC);
+        buffer.putInt(H_VERSION, LAYOUT_VERSION);
+        buffer.putInt(H_CAPACITY, capacity);
+        buffer.force();
+    }
+
+    /**
+     * Перестраивает таблицу на месте, убирая tombstone-слоты (после массовых удалений).
+     */
+    private void compact() {
+        if (tombstones() == 0) {
+            return;
+        }
+        List<SessionRecord> live = new ArrayList<>(size());
+        for (int slot = 0; slot < capacity; slot++) {
+            if (buffer.getLong(offset(slot) + S_USER_ID) > 0) {
+                live.add(read(slot));
+            }
+        }
+        for (int i = HEADER_SIZE; i < HEADER_SIZE + capacity * SLOT_SIZE; i += Long.BYTES) {
+            buffer.putLong(i, 0L);
+        }
+        for (SessionRecord record : live) {
+            write(insertionSlot(record.getUserId()), record);
+        }
+        setHeader(H_SIZE, live.size());
+        setHeader(H_TOMBSTONES, 0);
+    }
+
+    private int find(long userId) {
+        int slot = hash(userId);
+        for (int probe = 0; probe < capacity; probe++) {
+            long key = buffer.getLong(offset(slot) + S_USER_ID);
+            if (key == userId) {
+                return slot;
+            }
+            if (key == EMPTY) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int insertionSlot(long userId) {
+        int slot = hash(userId);
+        while (true) {
+            long key = buffer.getLong(offset(slot) + S_USER_ID);
+            if (key == EMPTY || key == TOMBSTONE) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int hash(long userId) {
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private int tombstones() {
+        return buffer.getInt(H_TOMBSTONES);
+    }
+
+    private void setHeader(int offset, int value) {
+        buffer.putInt(offset, value);
+    }
+
+    private SessionRecord read(int slot) {
+        int base = offset(slot);
+        SessionRecord r = new SessionRecord(buffer.getLong(base + S_USER_ID));
+        r.setVersion(buffer.getInt(base + S_VERSION));
+        int flags = buffer.get(base + S_FLAGS);
+        r.setStateLoaded((flags & F_STATE_LOADED) != 0);
+        r.setContextLoaded((flags & F_CONTEXT_LOADED) != 0);
+        r.setContextExternal((flags & F_CONTEXT_EXTERNAL) != 0);
+        r.setStateDirty((flags & F_STATE_DIRTY) != 0);
+        r.setContextDirty((flags & F_CONTEXT_DIRTY) != 0);
+        r.setState(decode(STATES, buffer.get(base + S_STATE)));
+        r.setMode(decode(MODES, buffer.get(base + S_MODE)));
+        r.setSchoolLevel(decode(SCHOOL_LEVELS, buffer.get(base + S_SCHOOL_LEVEL)));
+        r.setSubject(decode(SUBJECTS, buffer.get(base + S_SUBJECT)));
+        r.setTopic(decode(TOPICS, buffer.get(base + S_TOPIC)));
+        r.setOperationType(decode(OPERATION_TYPES, buffer.get(base + S_OPERATION_TYPE)));
+        int quantity = buffer.getInt(base + S_QUANTITY);
+        r.setQuantity(quantity == NO_QUANTITY ? null : quantity);
+        r.setStateSetAt(buffer.getLong(base + S_STATE_SET_AT));
+        r.setLastActivity(buffer.getLong(base + S_LAST_ACTIVITY));
+        r.setRegisteredAt(buffer.getLong(base + S_REGISTERED_AT));
+        return r;
+    }
+
+    private void write(int slot, SessionRecord r) {
+        int base = offset(slot);
+        int flags = (r.isStateLoaded() ? F_STATE_LOADED : 0)
+                | (r.isContextLoaded() ? F_CONTEXT_LOADED : 0)
+                | (r.isContextExternal() ? F_CONTEXT_EXTERNAL : 0)
+                | (r.isStateDirty() ? F_STATE_DIRTY : 0)
+                | (r.isContextDirty() ? F_CONTEXT_DIRTY : 0);
+        buffer.putLong(base + S_USER_ID, r.getUserId());
+        buffer.putInt(base + S_VERSION, r.getVersion());
+        buffer.put(base + S_FLAGS, (byte) flags);
+        buffer.put(base + S_STATE, encode(r.getState()));
+        buffer.put(base + S_MODE, encode(r.getMode()));
+        buffer.put(base + S_SCHOOL_LEVEL, encode(r.getSchoolLevel()));
+        buffer.put(base + S_SUBJECT, encode(r.getSubject()));
+        buffer.put(base + S_TOPIC, encode(r.getTopic()));
+        buffer.put(base + S_OPERATION_TYPE, encode(r.getOperationType()));
+        buffer.putInt(base + S_QUANTITY, r.getQuantity() != null ? r.getQuantity() : NO_QUANTITY);
+        buffer.putLong(base + S_STATE_SET_AT, r.getStateSetAt());
+        buffer.putLong(base + S_LAST_ACTIVITY, r.getLastActivity());
+        buffer.putLong(base + S_REGISTERED_AT, r.getRegisteredAt());
+    }
+
+    /** 0 — null, иначе ordinal + 1. */
+    private static byte encode(Enum<?> value) {
+        return value == null ? 0 : (byte) (value.ordinal() + 1);
+    }
+
+    private static <E> E decode(E[] values, byte code) {
+        int index = (code & 0xFF) - 1;
+        return index >= 0 && index < values.length ? values[index] : null;
+    }
+}
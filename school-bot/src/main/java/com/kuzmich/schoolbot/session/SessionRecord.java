@@ -0,0 +1,52 @@
+package com.kuzmich.schoolbot.session;
+
+import com.kuzmich.schoolbot.domain.Mode;
+import com.kuzmich.schoolbot.domain.SchoolLevel;
+import com.kuzmich.schoolbot.domain.Subject;
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.state.UserState;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Компактная запись сессии пользователя в {@link SessionStore}: состояние диалога и выбор в wizard.
+ * Хранит только поля фиксированного размера (enum, числа, метки времени) — в отличие от {@code user_context},
+ * текстовые поля (language, last_generation_params) сюда не попадают.
+ */
+@Getter
+@Setter
+public class SessionRecord {
+
+    private final long userId;
+
+    /** Версия записи в хранилище: растёт при каждом изменении (для безопасного снятия dirty после синхронизации). */
+    private int version;
+
+    /** Состояние загружено/установлено (иначе источник истины — PostgreSQL). */
+    private boolean stateLoaded;
+    /** Контекст загружен/установлен (иначе источник истины — PostgreSQL). */
+    private boolean contextLoaded;
+    /** Контекст содержит поля вне компактной записи — читаем и пишем его напрямую в PostgreSQL. */
+    private boolean contextExternal;
+    /** Состояние изменено и ещё не синхронизировано с PostgreSQL. */
+    private boolean stateDirty;
+    /** Контекст изменён и ещё не синхронизирован с PostgreSQL. */
+    private boolean contextDirty;
+
+    private UserState state;
+    private long stateSetAt;
+
+    private Mode mode;
+    private SchoolLevel schoolLevel;
+    private Subject subject;
+    private SessionTopic topic;
+    private OperationType operationType;
+    private Integer quantity;
+
+    private long lastActivity;
+    private long registeredAt;
+
+    public SessionRecord(long userId) {
+        this.userId = userId;
+    }
+}
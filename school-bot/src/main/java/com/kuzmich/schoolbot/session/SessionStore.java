@@ -0,0 +1,52 @@
+package com.kuzmich.schoolbot.session;
+
+import java.util.List;
+
+/**
+ * Хранилище сессий пользователей (состояние + выбор в wizard) с ключом userId.
+ * Реализации держат данные в памяти процесса; PostgreSQL остаётся долговременным хранилищем
+ * и синхронизируется периодически ({@link SessionStoreSynchronizer}).
+ */
+public interface SessionStore {
+
+    /**
+     * Запись сессии пользователя.
+     *
+     * @return копия записи или null, если записи нет
+     */
+    SessionRecord get(long userId);
+
+    /**
+     * Сохраняет запись (вставка или перезапись).
+     *
+     * @return false, если хранилище заполнено и запись не помещается
+     */
+    boolean put(SessionRecord record);
+
+    /**
+     * Удаляет запись пользователя (если есть).
+     */
+    void remove(long userId);
+
+    /**
+     * Возвращает до {@code limit} записей с несинхронизированными изменениями (state/context dirty).
+     */
+    List<SessionRecord> findDirty(int limit);
+
+    /**
+     * Снимает флаги dirty после успешной синхронизации, если запись не менялась повторно.
+     *
+     * @param synced запись в том виде, в котором она была записана в PostgreSQL
+     */
+    void markClean(SessionRecord synced);
+
+    /**
+     * Количество записей в хранилище.
+     */
+    int size();
+
+    /**
+     * Сбрасывает изменения на диск (снимок хранилища).
+     */
+    void flush();
+}
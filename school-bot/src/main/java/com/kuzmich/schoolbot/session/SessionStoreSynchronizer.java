@@ -0,0 +1,67 @@
+package com.kuzmich.schoolbot.session;
+
+import com.kuzmich.schoolbot.context.SchoolBotUserContextService;
+import com.kuzmich.schoolbot.state.SchoolBotUserStateService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.List;
+
+/**
+ * Периодическая синхронизация изменённых сессий из {@link SessionStore} в PostgreSQL
+ * и сброс хранилища на диск. Последний проход выполняется при остановке приложения.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class SessionStoreSynchronizer {
+
+    private final SessionStore store;
+    private final SchoolBotUserStateService stateDelegate;
+    private final SchoolBotUserContextService contextDelegate;
+    private final int batchSize;
+
+    @Scheduled(fixedDelayString = "${session.store.sync-interval:PT30S}")
+    public void sync() {
+        int total = 0;
+        while (true) {
+            List<SessionRecord> dirty = store.findDirty(batchSize);
+            int synced = 0;
+            for (SessionRecord record : dirty) {
+                if (syncRecord(record)) {
+                    synced++;
+                }
+            }
+            total += synced;
+            if (dirty.size() < batchSize || synced == 0) {
+                break;
+            }
+        }
+        store.flush();
+        if (total > 0) {
+            log.debug("Сессии синхронизированы с PostgreSQL: {}", total);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sync();
+    }
+
+    private boolean syncRecord(SessionRecord record) {
+        try {
+            if (record.isStateDirty() && record.getState() != null) {
+                stateDelegate.setState(record.getUserId(), record.getState());
+            }
+            if (record.isContextDirty()) {
+                contextDelegate.save(SessionStoreUserContextService.toContext(record));
+            }
+            store.markClean(record);
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Не удалось синхронизировать сессию userId={}, повторим позже", record.getUserId(), e);
+            return false;
+        }
+    }
+}
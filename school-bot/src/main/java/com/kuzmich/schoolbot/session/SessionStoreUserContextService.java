@@ -0,0 +1,245 @@
+package com.kuzmich.schoolbot.session;
+
+import com.kuzmich.schoolbot.context.ActivityTracker;
+import com.kuzmich.schoolbot.context.SchoolBotUserContextService;
+import com.kuzmich.schoolbot.context.UserContext;
+import com.kuzmich.schoolbot.core.service.UserContextService;
+import com.kuzmich.schoolbot.core.validation.Validation;
+import com.kuzmich.schoolbot.generator.OperationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Реализация {@link UserContextService} поверх {@link SessionStore}: выбор в wizard хранится в памяти.
+ * <p>
+ * Контекст подгружается из PostgreSQL ({@link SchoolBotUserContextService}) при первом обращении.
+ * Если в контексте есть поля, не помещающиеся в компактную запись (language, last_generation_params,
+ * неизвестная тема или операция), такой контекст читается и сохраняется напрямую через PostgreSQL.
+ * Бот сейчас не заполняет language и last_generation_params, поэтому это путь для старых строк
+ * {@code user_context}; каждое такое обращение считается в {@code schoolbot.session.context.fallback}
+ * с тегами {@code operation} (read/write) и {@code reason} — рост счётчика означает, что компактную
+ * запись пора расширять.
+ */
+public class SessionStoreUserContextService implements UserContextService<UserContext> {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    /** Причина, по которой контекст не помещается в компактную запись. */
+    enum FallbackReason {
+        LANGUAGE("language"),
+        LAST_GENERATION_PARAMS("last_generation_params"),
+        TOPIC("topic"),
+        OPERATION_TYPE("operation_type");
+
+        private final String tag;
+
+        FallbackReason(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final SessionStore store;
+    private final SchoolBotUserContextService delegate;
+    private final ActivityTracker activityTracker;
+    private final Map<FallbackReason, Counter> fallbackReads = new EnumMap<>(FallbackReason.class);
+    private final Map<FallbackReason, Counter> fallbackWrites = new EnumMap<>(FallbackReason.class);
+
+    public SessionStoreUserContextService(SessionStore store,
+                                          SchoolBotUserContextService delegate,
+                                          ActivityTracker activityTracker,
+                                          MeterRegistry registry) {
+        this.store = store;
+        this.delegate = delegate;
+        this.activityTracker = activityTracker;
+        for (FallbackReason reason : FallbackReason.values()) {
+            fallbackReads.put(reason, fallbackCounter(registry, "read", reason));
+            fallbackWrites.put(reason, fallbackCounter(registry, "write", reason));
+        }
+    }
+
+    @Override
+    public UserContext getOrCreate(Long userId) {
+        Validation.requireNonNull(userId, "userId");
+        SessionRecord record = store.get(userId);
+        if (record != null && record.isContextLoaded() && !record.isContextExternal()) {
+            activityTracker.record(userId);
+            return toContext(record);
+        }
+        UserContext context = delegate.getOrCreate(userId);
+        countFallbackRead(record, context);
+        cache(record, context);
+        return context;
+    }
+
+    @Override
+    public Optional<UserContext> get(Long userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        SessionRecord record = store.get(userId);
+        if (record != null && record.isContextLoaded() && !record.isContextExternal()) {
+            return Optional.of(toContext(record));
+        }
+        Optional<UserContext> context = delegate.get(userId);
+        context.ifPresent(c -> {
+            countFallbackRead(record, c);
+            cache(record, c);
+        });
+        return context;
+    }
+
+    @Override
+    public void save(UserContext context) {
+        Validation.requireNonNull(context, "context");
+        Validation.requireNonNull(context.getUserId(), "context.userId");
+        SessionRecord record = store.get(context.getUserId());
+        if (record == null) {
+            record = new SessionRecord(context.getUserId());
+        }
+        FallbackReason reason = fallbackReason(context);
+        if (reason != null) {
+            fallbackWrites.get(reason).increment();
+            delegate.save(context);
+            record.setContextLoaded(true);
+            record.setContextExternal(true);
+            record.setContextDirty(false);
+            store.put(record);
+            return;
+        }
+        fill(record, context);
+        record.setContextDirty(true);
+        if (!store.put(record)) {
+            delegate.save(context);
+        }
+    }
+
+    @Override
+    public void clear(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        delegate.clear(userId);
+        SessionRecord record = store.get(userId);
+        if (record != null) {
+            SessionRecord cleared = new SessionRecord(userId);
+            cleared.setStateLoaded(record.isStateLoaded());
+            cleared.setStateDirty(record.isStateDirty());
+            cleared.setState(record.getState());
+            cleared.setStateSetAt(record.getStateSetAt());
+            store.put(cleared);
+        }
+    }
+
+    /**
+     * Восстанавливает доменный контекст из компактной записи (в т.ч. для синхронизации с PostgreSQL).
+     */
+    static UserContext toContext(SessionRecord record) {
+        UserContext context = new UserContext(record.getUserId());
+        context.setMode(record.getMode());
+        context.setSchoolLevel(record.getSchoolLevel());
+        context.setSubject(record.getSubject());
+        context.setTopic(record.getTopic() != null ? record.getTopic().name() : null);
+        context.setOperationType(record.getOperationType() != null ? record.getOperationType().name() : null);
+        context.setQuantity(record.getQuantity());
+        if (record.getLastActivity() > 0) {
+            context.setLastActivity(toDateTime(record.getLastActivity()));
+        }
+        if (record.getRegisteredAt() > 0) {
+            context.setRegisteredAt(toDateTime(record.getRegisteredAt()));
+        }
+        return context;
+    }
+
+    private void cache(SessionRecord existing, UserContext context) {
+        SessionRecord record = existing != null ? existing : new SessionRecord(context.getUserId());
+        if (fallbackReason(context) == null) {
+            fill(record, context);
+            record.setContextExternal(false);
+        } else {
+            record.setContextLoaded(true);
+            record.setContextExternal(true);
+        }
+        record.setContextDirty(false);
+        store.put(record);
+    }
+
+    private static void fill(SessionRecord record, UserContext context) {
+        record.setMode(context.getMode());
+        record.setSchoolLevel(context.getSchoolLevel());
+        record.setSubject(context.getSubject());
+        record.setTopic(SessionTopic.fromValue(context.getTopic()));
+        record.setOperationType(parseOperationType(context.getOperationType()));
+        record.setQuantity(context.getQuantity());
+        record.setLastActivity(toMillis(context.getLastActivity()));
+        record.setRegisteredAt(toMillis(context.getRegisteredAt()));
+        record.setContextLoaded(true);
+        record.setContextExternal(false);
+    }
+
+    /**
+     * Считает чтение из PostgreSQL в обход хранилища: запись уже была помечена как внешняя
+     * (первая загрузка контекста сюда не относится).
+     */
+    private void countFallbackRead(SessionRecord record, UserContext context) {
+        if (record == null || !record.isContextLoaded() || !record.isContextExternal()) {
+            return;
+        }
+        FallbackReason reason = fallbackReason(context);
+        if (reason != null) {
+            fallbackReads.get(reason).increment();
+        }
+    }
+
+    /**
+     * Почему контекст не помещается в компактную запись без потерь; {@code null} — помещается.
+     */
+    static FallbackReason fallbackReason(UserContext context) {
+        if (context.getLanguage() != null) {
+            return FallbackReason.LANGUAGE;
+        }
+        if (context.getLastGenerationParams() != null) {
+            return FallbackReason.LAST_GENERATION_PARAMS;
+        }
+        if (context.getTopic() != null && SessionTopic.fromValue(context.getTopic()) == null) {
+            return FallbackReason.TOPIC;
+        }
+        if (context.getOperationType() != null && parseOperationType(context.getOperationType()) == null) {
+            return FallbackReason.OPERATION_TYPE;
+        }
+        return null;
+    }
+
+    private static Counter fallbackCounter(MeterRegistry registry, String operation, FallbackReason reason) {
+        return Counter.builder("schoolbot.session.context.fallback")
+                .description("Обращения к user_context в PostgreSQL в обход хранилища сессий")
+                .tag("operation", operation)
+                .tag("reason", reason.tag)
+                .register(registry);
+    }
+
+    private static OperationType parseOperationType(String value) {
+        if (value == null) {
+            return null;
+        }
+        return Arrays.stream(OperationType.values())
+                .filter(t -> t.name().equals(value))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.atZone(ZONE).toInstant().toEpochMilli() : 0L;
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE);
+    }
+}
@@ -0,0 +1,73 @@
+package com.kuzmich.schoolbot.session;
+
+import com.kuzmich.schoolbot.core.service.UserStateService;
+import com.kuzmich.schoolbot.core.validation.Validation;
+import com.kuzmich.schoolbot.state.SchoolBotUserStateService;
+import com.kuzmich.schoolbot.state.UserState;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Реализация {@link UserStateService} поверх {@link SessionStore}: чтение и запись состояния — в памяти.
+ * При первом обращении состояние подгружается из PostgreSQL ({@link SchoolBotUserStateService}),
+ * изменения попадают в БД периодически через {@link SessionStoreSynchronizer}.
+ */
+@RequiredArgsConstructor
+public class SessionStoreUserStateService implements UserStateService {
+
+    private final SessionStore store;
+    private final SchoolBotUserStateService delegate;
+
+    @Override
+    public Object getState(Long userId) {
+        Validation.requireNonNull(userId, "userId");
+        return loadedRecord(userId).getState();
+    }
+
+    @Override
+    public void setState(Long userId, Object state) {
+        Validation.requireNonNull(userId, "userId");
+        if (!(state instanceof UserState newState)) {
+            return;
+        }
+        SessionRecord record = store.get(userId);
+        if (record == null) {
+            record = new SessionRecord(userId);
+        }
+        record.setState(newState);
+        record.setStateSetAt(System.currentTimeMillis());
+        record.setStateLoaded(true);
+        record.setStateDirty(true);
+        if (!store.put(record)) {
+            // Хранилище заполнено — пишем напрямую в PostgreSQL
+            delegate.setState(userId, newState);
+        }
+    }
+
+    @Override
+    public void clearState(Long userId) {
+        Validation.requireNonNull(userId, "userId");
+        if (loadedRecord(userId).getState() != UserState.INITIAL) {
+            setState(userId, UserState.INITIAL);
+        }
+    }
+
+    @Override
+    public boolean isWaitingForInput(Long userId) {
+        Validation.requireNonNull(userId, "userId");
+        return loadedRecord(userId).getState().isWaitingForInput();
+    }
+
+    private SessionRecord loadedRecord(long userId) {
+        SessionRecord record = store.get(userId);
+        if (record == null) {
+            record = new SessionRecord(userId);
+        }
+        if (!record.isStateLoaded()) {
+            record.setState((UserState) delegate.getState(userId));
+            record.setStateSetAt(System.currentTimeMillis());
+            record.setStateLoaded(true);
+            store.put(record);
+        }
+        return record;
+    }
+}
@@ -0,0 +1,31 @@
+package com.kuzmich.schoolbot.session;
+
+/**
+ * Известные значения темы ({@code UserContext.topic}) в компактном виде для {@link SessionRecord}.
+ * Неизвестная тема не кодируется — такой контекст хранится только в PostgreSQL.
+ */
+public enum SessionTopic {
+
+    /** Арифметика (сложение/вычитание). */
+    ARITHMETIC,
+
+    /** Числа и счёт (состав числа, сравнение, ряд). */
+    NUMBERS;
+
+    /**
+     * Тема по строковому значению из контекста.
+     *
+     * @return тема или null, если значение не из известного набора
+     */
+    public static SessionTopic fromValue(String topic) {
+        if (topic == null) {
+            return null;
+        }
+        for (SessionTopic t : values()) {
+            if (t.name().equals(topic)) {
+                return t;
+            }
+        }
+        return null;
+    }
+}
@@ -54,12 +54,9 @@ public class SchoolBotUserStateService implements UserStateService {
     @Transactional(readOnly = true)
     public boolean isWaitingForInput(Long userId) {
         Validation.requireNonNull(userId, "userId");
-        UserState state = repository.findByUserId(userId)
+        return repository.findByUserId(userId)
                 .map(UserStateEntity::getState)
-                .orElse(UserState.INITIAL);
-        return state != UserState.INITIAL
-                && state != UserState.COMPLETED
-                && state != UserState.ERROR
-                && state != UserState.GENERATING;
+                .orElse(UserState.INITIAL)
+                .isWaitingForInput();
     }
 }
@@ -49,5 +49,15 @@ public enum UserState {
     COMPLETED,
 
     /** Ошибка. */
-    ERROR
+    ERROR;
+
+    /**
+     * Ожидает ли бот от пользователя ввод (текст/кнопку) в этом состоянии.
+     */
+    public boolean isWaitingForInput() {
+        return this != INITIAL
+                && this != COMPLETED
+                && this != ERROR
+                && this != GENERATING;
+    }
 }
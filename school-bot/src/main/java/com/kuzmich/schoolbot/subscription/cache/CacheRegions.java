@@ -0,0 +1,22 @@
+package com.kuzmich.schoolbot.subscription.cache;
+
+/**
+ * Имена регионов второго уровня кэша Hibernate (см. {@code ehcache.xml}).
+ */
+public final class CacheRegions {
+
+    /** Сущности {@code FeatureConfigEntity}. */
+    public static final String FEATURE_CONFIGS = "feature-configs";
+
+    /** Результаты запроса {@code findByFeatureKeyAndTier}. */
+    public static final String FEATURE_CONFIGS_QUERY = "feature-configs-query";
+
+    /** Сущности {@code SubscriptionEntity}. */
+    public static final String SUBSCRIPTIONS = "subscriptions";
+
+    /** Результаты запроса {@code findByUserIdAndStatus}. */
+    public static final String SUBSCRIPTIONS_QUERY = "subscriptions-query";
+
+    private CacheRegions() {
+    }
+}
@@ -0,0 +1,72 @@
+package com.kuzmich.schoolbot.subscription.cache;
+
+import com.kuzmich.schoolbot.subscription.entity.FeatureConfigEntity;
+import com.kuzmich.schoolbot.subscription.entity.SubscriptionEntity;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Явная инвалидация второго уровня кэша для справочных сущностей (конфиги фич, подписки).
+ * <p>
+ * Внутри транзакции сброс выполняется после коммита, чтобы параллельное чтение не вернуло в кэш
+ * старое значение до фиксации изменений. Вне транзакции — сразу.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReferenceCacheEvictor {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Сбросить конфиг фичи и закэшированные результаты поиска конфигов.
+     */
+    public void evictFeatureConfig(Long configId) {
+        afterCommit(() -> {
+            entityManagerFactory.getCache().evict(FeatureConfigEntity.class, configId);
+            evictQueryRegion(CacheRegions.FEATURE_CONFIGS_QUERY);
+        });
+    }
+
+    /**
+     * Сбросить подписку и закэшированные результаты поиска активных подписок.
+     */
+    public void evictSubscription(Long subscriptionId) {
+        afterCommit(() -> {
+            if (subscriptionId != null) {
+                entityManagerFactory.getCache().evict(SubscriptionEntity.class, subscriptionId);
+            }
+            evictQueryRegion(CacheRegions.SUBSCRIPTIONS_QUERY);
+        });
+    }
+
+    private void evictQueryRegion(String region) {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegion(region);
+    }
+
+    private void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runSafely(eviction);
+                }
+            });
+        } else {
+            runSafely(eviction);
+        }
+    }
+
+    private void runSafely(Runnable eviction) {
+        try {
+            eviction.run();
+        } catch (RuntimeException e) {
+            log.warn("Не удалось сбросить кэш справочных сущностей", e);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.kuzmich.schoolbot.subscription.cache;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Actuator-эндпоинт {@code l2cache}: статистика второго уровня кэша Hibernate по регионам
+ * (попадания, промахи, доля попаданий). Требует {@code hibernate.generate_statistics=true}.
+ */
+@Component
+@Endpoint(id = "l2cache")
+@RequiredArgsConstructor
+public class SecondLevelCacheEndpoint {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @ReadOperation
+    public Map<String, RegionStats> regions() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, RegionStats> result = new TreeMap<>();
+        if (!statistics.isStatisticsEnabled()) {
+            return result;
+        }
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                result.put(region, RegionStats.of(regionStatistics));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Статистика одного региона.
+     *
+     * @param hitRatio доля попаданий от 0 до 1 (0, если обращений не было)
+     */
+    public record RegionStats(long hits, long misses, long puts, long elementsInMemory, double hitRatio) {
+
+        static RegionStats of(CacheRegionStatistics statistics) {
+            long hits = statistics.getHitCount();
+            long misses = statistics.getMissCount();
+            long requests = hits + misses;
+            return new RegionStats(hits, misses, statistics.getPutCount(),
+                    statistics.getElementCountInMemory(),
+                    requests == 0 ? 0.0 : (double) hits / requests);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.kuzmich.schoolbot.subscription.entity;
 
+import com.kuzmich.schoolbot.subscription.cache.CacheRegions;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
@@ -12,14 +13,18 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 
 /**
  * Конфигурация фичи для тарифа (GATE или QUOTA).
  * Уникальность по паре (feature_key, tier). Управление без деплоя через админку.
+ * Читается на каждой проверке доступа, поэтому хранится во втором уровне кэша.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.FEATURE_CONFIGS)
 @Table(name = "feature_configs")
 @Getter
 @Setter
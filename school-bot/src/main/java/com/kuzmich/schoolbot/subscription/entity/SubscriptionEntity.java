@@ -15,17 +15,22 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 
 import com.kuzmich.schoolbot.context.UserContextEntity;
 import com.kuzmich.schoolbot.core.premium.SubscriptionTier;
+import com.kuzmich.schoolbot.subscription.cache.CacheRegions;
 
 /**
  * Сущность подписки пользователя (FREE или PREMIUM).
  * Активная подписка с end_date в будущем даёт доступ к премиум-фичам.
+ * Хранится во втором уровне кэша: тариф определяется на каждой генерации, а меняется редко.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.SUBSCRIPTIONS)
 @Table(name = "subscriptions")
 @Getter
 @Setter
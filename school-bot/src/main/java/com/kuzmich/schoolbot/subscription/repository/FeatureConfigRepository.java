@@ -1,7 +1,11 @@
 package com.kuzmich.schoolbot.subscription.repository;
 
+import com.kuzmich.schoolbot.subscription.cache.CacheRegions;
 import com.kuzmich.schoolbot.subscription.entity.FeatureConfigEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,6 +15,13 @@ import java.util.Optional;
  */
 public interface FeatureConfigRepository extends JpaRepository<FeatureConfigEntity, Long> {
 
+    /**
+     * Результат кэшируется в query cache (регион {@link CacheRegions#FEATURE_CONFIGS_QUERY}).
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.FEATURE_CONFIGS_QUERY)
+    })
     Optional<FeatureConfigEntity> findByFeatureKeyAndTier(String featureKey, String tier);
 
     List<FeatureConfigEntity> findAllByOrderByFeatureKeyAscTierAsc();
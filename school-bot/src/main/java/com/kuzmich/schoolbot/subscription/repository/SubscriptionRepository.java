@@ -1,8 +1,12 @@
 package com.kuzmich.schoolbot.subscription.repository;
 
+import com.kuzmich.schoolbot.subscription.cache.CacheRegions;
 import com.kuzmich.schoolbot.subscription.entity.SubscriptionEntity;
 import com.kuzmich.schoolbot.subscription.entity.SubscriptionStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Optional;
 
@@ -14,6 +18,11 @@ public interface SubscriptionRepository extends JpaRepository<SubscriptionEntity
     /**
      * Находит активную подписку пользователя (status = ACTIVE).
      * Для определения тарифа дополнительно проверяют end_date в SubscriptionService.
+     * Результат кэшируется в query cache (регион {@link CacheRegions#SUBSCRIPTIONS_QUERY}).
      */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.SUBSCRIPTIONS_QUERY)
+    })
     Optional<SubscriptionEntity> findByUserIdAndStatus(Long userId, SubscriptionStatus status);
 }
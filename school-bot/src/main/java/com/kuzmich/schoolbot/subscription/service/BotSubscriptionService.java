@@ -3,6 +3,7 @@ package com.kuzmich.schoolbot.subscription.service;
 import com.kuzmich.schoolbot.core.premium.SubscriptionService;
 import com.kuzmich.schoolbot.core.premium.SubscriptionTier;
 import com.kuzmich.schoolbot.core.validation.Validation;
+import com.kuzmich.schoolbot.subscription.cache.ReferenceCacheEvictor;
 import com.kuzmich.schoolbot.subscription.entity.SubscriptionEntity;
 import com.kuzmich.schoolbot.subscription.entity.SubscriptionStatus;
 import com.kuzmich.schoolbot.subscription.repository.SubscriptionRepository;
@@ -25,6 +26,7 @@ import java.util.Optional;
 public class BotSubscriptionService implements SubscriptionService {
 
     private final SubscriptionRepository subscriptionRepository;
+    private final ReferenceCacheEvictor cacheEvictor;
 
     /**
      * Возвращает текущий тариф пользователя.
@@ -73,7 +75,8 @@ public class BotSubscriptionService implements SubscriptionService {
             sub.setCreatedAt(now);
         }
         sub.setUpdatedAt(now);
-        subscriptionRepository.save(sub);
+        SubscriptionEntity saved = subscriptionRepository.save(sub);
+        cacheEvictor.evictSubscription(saved.getId());
         log.info("Subscription activated: userId={}, tier={}, until {}", userId, tier, endDate);
     }
 }
@@ -3,6 +3,7 @@ package com.kuzmich.schoolbot.subscription.service;
 import com.kuzmich.schoolbot.core.premium.FeatureConfig;
 import com.kuzmich.schoolbot.core.premium.FeatureConfigService;
 import com.kuzmich.schoolbot.core.validation.Validation;
+import com.kuzmich.schoolbot.subscription.cache.ReferenceCacheEvictor;
 import com.kuzmich.schoolbot.subscription.entity.FeatureConfigEntity;
 import com.kuzmich.schoolbot.subscription.mapper.FeatureConfigMapper;
 import com.kuzmich.schoolbot.subscription.repository.FeatureConfigRepository;
@@ -28,6 +29,7 @@ public class FeatureConfigServiceImpl implements FeatureConfigService {
     private final FeatureConfigRepository featureConfigRepository;
     private final FeatureConfigMapper featureConfigMapper;
     private final FeatureConfigAuditService featureConfigAuditService;
+    private final ReferenceCacheEvictor cacheEvictor;
 
     @Override
     public FeatureConfig getConfig(String featureKey, String tier) {
@@ -61,6 +63,7 @@ public class FeatureConfigServiceImpl implements FeatureConfigService {
         if (update.isEnabled() != null) entity.setIsEnabled(update.isEnabled());
         entity.setUpdatedAt(LocalDateTime.now());
         featureConfigRepository.save(entity);
+        cacheEvictor.evictFeatureConfig(configId);
 
         featureConfigAuditService.recordUpdate(
                 ADMIN_USER_ID_PLACEHOLDER,
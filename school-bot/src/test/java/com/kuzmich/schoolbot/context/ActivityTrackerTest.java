@@ -0,0 +1,88 @@
+package com.kuzmich.schoolbot.context;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit-тесты {@link ActivityTracker}: накопление активности в памяти и пакетная запись.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class ActivityTrackerTest {
+
+    @Mock
+    private UserContextRepository repository;
+
+    private ActivityTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new ActivityTracker(repository);
+    }
+
+    @Test
+    @DisplayName("record: повторная активность пользователя не увеличивает число ожидающих записей")
+    void record_sameUserTwice_keepsSingleEntry() {
+        tracker.record(1L);
+        tracker.record(1L);
+        tracker.record(null);
+
+        assertThat(tracker.pendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("flush: пишет активность пакетом с точностью до минуты и очищает буфер")
+    @SuppressWarnings("unchecked")
+    void flush_writesBatchTruncatedToMinute() {
+        when(repository.updateLastActivity(anyCollection(), any(LocalDateTime.class))).thenReturn(2);
+        tracker.record(1L);
+        tracker.record(2L);
+
+        tracker.flush();
+
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<LocalDateTime> activity = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repository).updateLastActivity(ids.capture(), activity.capture());
+        assertThat(ids.getValue()).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(activity.getValue()).isEqualTo(activity.getValue().truncatedTo(ChronoUnit.MINUTES));
+        assertThat(tracker.pendingCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("flush: без активности не обращается к БД")
+    void flush_whenEmpty_doesNothing() {
+        tracker.flush();
+
+        verify(repository, never()).updateLastActivity(anyCollection(), any());
+    }
+
+    @Test
+    @DisplayName("flush: при ошибке БД активность сохраняется для следующей попытки")
+    void flush_whenRepositoryFails_keepsPending() {
+        when(repository.updateLastActivity(anyCollection(), any(LocalDateTime.class)))
+                .thenThrow(new IllegalStateException("db down"));
+        tracker.record(1L);
+
+        tracker.flush();
+
+        assertThat(tracker.pendingCount()).isEqualTo(1);
+    }
+}
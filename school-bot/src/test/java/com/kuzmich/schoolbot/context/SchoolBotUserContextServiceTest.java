@@ -35,11 +35,14 @@ class SchoolBotUserContextServiceTest {
     @Mock
     private UserContextMapper mapper;
 
+    @Mock
+    private ActivityTracker activityTracker;
+
     private SchoolBotUserContextService service;
 
     @BeforeEach
     void setUp() {
-        service = new SchoolBotUserContextService(repository, mapper);
+        service = new SchoolBotUserContextService(repository, mapper, activityTracker);
     }
 
     @Test
@@ -54,6 +57,16 @@ class SchoolBotUserContextServiceTest {
         verify(repository).save(any(UserContextEntity.class));
     }
 
+    @Test
+    @DisplayName("getOrCreate: фиксирует активность пользователя в ActivityTracker")
+    void getOrCreate_recordsActivity() {
+        when(repository.findByUserId(USER_ID)).thenReturn(Optional.empty());
+
+        service.getOrCreate(USER_ID);
+
+        verify(activityTracker).record(USER_ID);
+    }
+
     @Test
     @DisplayName("getOrCreate: при null userId выбрасывает ValidationException")
     void getOrCreate_whenUserIdNull_throws() {
@@ -0,0 +1,168 @@
+package com.kuzmich.schoolbot.generator;
+
+import com.kuzmich.schoolbot.generator.arithmetic.ArithmeticGenerationUtils;
+import com.kuzmich.schoolbot.generator.arithmetic.CandidateDomain;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit-тесты {@link GenerationMetrics}: метрики генерации, собранные ядром отбора в {@link GenerationStats}.
+ */
+@DisplayName("GenerationMetrics")
+class GenerationMetricsTest {
+
+    private static final List<ArithmeticGenerationUtils.Candidate> CANDIDATES = List.of(
+            new ArithmeticGenerationUtils.Candidate(0, 1, 1, "0+1"),
+            new ArithmeticGenerationUtils.Candidate(2, 3, 5, "2+3"),
+            new ArithmeticGenerationUtils.Candidate(1, 1, 2, "1+1"),
+            new ArithmeticGenerationUtils.Candidate(4, 2, 6, "4+2")
+    );
+
+    private static final List<Predicate<ArithmeticGenerationUtils.Candidate>> LEVELS = List.of(
+            c -> c.a() >= 2,
+            c -> true
+    );
+
+    private SimpleMeterRegistry registry;
+    private GenerationMetrics generationMetrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        generationMetrics = new GenerationMetrics(registry);
+    }
+
+    @Test
+    @DisplayName("generate: записывает время, глубину ослабления, пулы уровней, заполнение и повторы")
+    void generate_recordsKernelStats() {
+        OperationTaskGenerator generator = generationMetrics.instrument(new KernelGenerator());
+
+        List<Task> tasks = generator.generate(context(10));
+
+        assertThat(tasks).hasSize(10);
+        assertThat(registry.get("schoolbot.generator.duration")
+                .tag("operation", "ADDITION_10").tag("mode", "list").timer().count()).isEqualTo(1);
+        assertThat(registry.get("schoolbot.generator.relaxation.depth").summary().max()).isEqualTo(1.0);
+        assertThat(registry.get("schoolbot.generator.level.pool.size").tag("level", "0").summary().max())
+                .isEqualTo(2.0);
+        assertThat(registry.get("schoolbot.generator.level.pool.size").tag("level", "1").summary().max())
+                .isEqualTo(2.0);
+        assertThat(registry.get("schoolbot.generator.fill.rate").summary().max()).isEqualTo(1.0);
+        assertThat(registry.get("schoolbot.generator.repeats").counter().count()).isEqualTo(6.0);
+        assertThat(GenerationStats.current()).isNull();
+    }
+
+    @Test
+    @DisplayName("generate(sink): потоковая генерация помечается mode=stream, неполный лист снижает заполнение")
+    void generateToSink_recordsStreamMode() {
+        OperationTaskGenerator generator = generationMetrics.instrument(new KernelGenerator(false));
+        List<Task> tasks = new ArrayList<>();
+
+        int count = generator.generate(context(8), tasks::add);
+
+        assertThat(count).isEqualTo(4).isEqualTo(tasks.size());
+        assertThat(registry.get("schoolbot.generator.duration").tag("mode", "stream").timer().count()).isEqualTo(1);
+        DistributionSummary fillRate = registry.get("schoolbot.generator.fill.rate").summary();
+        assertThat(fillRate.totalAmount()).isEqualTo(0.5);
+        assertThat(registry.find("schoolbot.generator.repeats").counter()).isNull();
+    }
+
+    @Test
+    @DisplayName("generate: вложенная инструментированная генерация учитывается один раз")
+    void generate_nested_recordsOnce() {
+        OperationTaskGenerator inner = generationMetrics.instrument(new KernelGenerator());
+        OperationTaskGenerator outer = generationMetrics.instrument(new OperationTaskGenerator() {
+            @Override
+            public OperationType getOperationType() {
+                return OperationType.SUBTRACTION_10;
+            }
+
+            @Override
+            public int generate(GenerationContext context, Consumer<? super Task> sink) {
+                return inner.generate(context, sink);
+            }
+        });
+
+        outer.generate(context(4));
+
+        assertThat(registry.get("schoolbot.generator.duration").timers()).hasSize(1);
+        assertThat(registry.get("schoolbot.generator.duration").timer().getId().getTag("operation"))
+                .isEqualTo("SUBTRACTION_10");
+    }
+
+    @Test
+    @DisplayName("generate: при исключении сбор статистики в потоке завершается")
+    void generate_whenFails_endsCollection() {
+        OperationTaskGenerator generator = generationMetrics.instrument(new OperationTaskGenerator() {
+            @Override
+            public OperationType getOperationType() {
+                return OperationType.ADDITION_10;
+            }
+
+            @Override
+            public int generate(GenerationContext context, Consumer<? super Task> sink) {
+                throw new IllegalStateException("boom");
+            }
+        });
+
+        assertThatThrownBy(() -> generator.generate(context(4))).isInstanceOf(IllegalStateException.class);
+        assertThat(GenerationStats.current()).isNull();
+    }
+
+    @Test
+    @DisplayName("ядро вне инструментированной генерации статистику не ведёт")
+    void kernel_withoutCollection_recordsNothing() {
+        new KernelGenerator().generate(context(4));
+
+        assertThat(GenerationStats.current()).isNull();
+        assertThat(registry.getMeters()).isEmpty();
+    }
+
+    private static GenerationContext context(int quantity) {
+        return ArithmeticContext.builder()
+                .operationType(OperationType.ADDITION_10)
+                .numberRange(new Range(0, 10))
+                .quantity(quantity)
+                .build();
+    }
+
+    /**
+     * Генератор поверх ядра отбора на маленьком домене: 2 кандидата строгого уровня из 4.
+     */
+    private static final class KernelGenerator implements OperationTaskGenerator {
+
+        private final boolean allowRepeats;
+
+        private KernelGenerator() {
+            this(true);
+        }
+
+        private KernelGenerator(boolean allowRepeats) {
+            this.allowRepeats = allowRepeats;
+        }
+
+        @Override
+        public OperationType getOperationType() {
+            return OperationType.ADDITION_10;
+        }
+
+        @Override
+        public int generate(GenerationContext context, Consumer<? super Task> sink) {
+            return ArithmeticGenerationUtils.emitWithRelaxation(
+                    CandidateDomain.of(CANDIDATES, LEVELS), context.getQuantity(), new SplittableRandom(3),
+                    c -> new Task(c.key(), String.valueOf(c.answer())), true, allowRepeats, sink::accept);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import com.kuzmich.schoolbot.generator.numbers.NumberComposition2To9Generator;
 import com.kuzmich.schoolbot.generator.numbers.NumberCompositionGenerator;
 import com.kuzmich.schoolbot.generator.numbers.NumberSequenceGenerator;
 import com.kuzmich.schoolbot.i18n.GeneratorMessageKeys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -20,7 +21,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -30,7 +34,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 /**
- * Тесты {@link GeneratorFactory}: getGenerator для всех OperationType, null.
+ * Тесты {@link GeneratorFactory}: getGenerator для всех OperationType, null, смешанный лист.
  */
 @ExtendWith(MockitoExtension.class)
 @DisplayName("GeneratorFactory")
@@ -43,7 +47,11 @@ class GeneratorFactoryTest {
 
     @BeforeEach
     void setUp() {
-        factory = new GeneratorFactory(List.of(
+        factory = new GeneratorFactory(generators());
+    }
+
+    private List<OperationTaskGenerator> generators() {
+        return List.of(
                 new AdditionGenerator(messageService),
                 new SubtractionGenerator(messageService),
                 new Addition20NoCarryGenerator(messageService),
@@ -54,7 +62,7 @@ class GeneratorFactoryTest {
                 new NumberCompositionGenerator(messageService),
                 new ComparisonGenerator(messageService),
                 new NumberSequenceGenerator(messageService)
-        ));
+        );
     }
 
     @Test
@@ -255,4 +263,112 @@ class GeneratorFactoryTest {
         assertThat(tasks.get(0).question()).contains(",");
         assertThat(tasks.get(0).answer()).matches("\\d+");
     }
+
+    @Test
+    @DisplayName("generateMixed: один лист со всеми операциями в пропорции, без повторов и одинаковых ответов подряд")
+    void generateMixed_interleavesOperationsByProportion() {
+        when(messageService.getText(eq(GeneratorMessageKeys.QUESTION_BLANK))).thenReturn("  ");
+        when(messageService.getText(anyString(), any(), any(), any())).thenAnswer(inv -> {
+            String key = inv.getArgument(0, String.class);
+            String sign = key.contains("subtraction") ? " - " : key.contains("addition") ? " + " : " ? ";
+            return inv.getArgument(1) + sign + inv.getArgument(2) + " = " + inv.getArgument(3);
+        });
+        MixedContext context = MixedContext.builder()
+                .parts(List.of(
+                        new MixedContext.Part(OperationType.ADDITION_10, 2, new Range(0, 10), null),
+                        new MixedContext.Part(OperationType.SUBTRACTION_10, 2, new Range(0, 10), null),
+                        new MixedContext.Part(OperationType.COMPARISON, 1, null, null)))
+                .quantity(20)
+                .seed(5L)
+                .build();
+
+        List<Task> tasks = factory.generateMixed(context);
+
+        assertThat(tasks).hasSize(20);
+        assertThat(tasks).extracting(Task::question).doesNotHaveDuplicates();
+        assertThat(tasks).filteredOn(t -> t.question().contains("+")).hasSize(8);
+        assertThat(tasks).filteredOn(t -> t.question().contains("-")).hasSize(8);
+        assertThat(tasks).filteredOn(t -> t.question().contains("?")).hasSize(4);
+        assertThat(tasks.subList(0, 10)).anyMatch(t -> t.question().contains("?"));
+        for (int i = 1; i < tasks.size(); i++) {
+            assertThat(tasks.get(i).answer()).isNotEqualTo(tasks.get(i - 1).answer());
+        }
+        assertThat(factory.generateMixed(context)).containsExactlyElementsOf(tasks);
+    }
+
+    @Test
+    @DisplayName("interleave: совпадающие между частями задания попадают на лист один раз")
+    void interleave_dropsCrossPartDuplicates() {
+        List<Task> first = List.of(new Task("2 + 3 = ", "5"), new Task("4 + 4 = ", "8"));
+        List<Task> second = List.of(new Task("2 + 3 = ", "5"), new Task("7 - 1 = ", "6"));
+
+        List<Task> sheet = GeneratorFactory.interleave(List.of(first, second), new SplittableRandom(1));
+
+        assertThat(sheet).extracting(Task::question).containsExactlyInAnyOrder("2 + 3 = ", "4 + 4 = ", "7 - 1 = ");
+    }
+
+    @Test
+    @DisplayName("interleave: на стыке частей не ставит подряд задания с одинаковым первым числом")
+    void interleave_avoidsSameFirstOperandInARow() {
+        TaskFormat plus = (out, a, b, blank) -> out.append(a).append(" + ").append(b).append(" = ");
+        TaskFormat minus = (out, a, b, blank) -> out.append(a).append(" - ").append(b).append(" = ");
+        List<Task> additions = List.of(new Task(plus, 4, 1, 3, "5"), new Task(plus, 2, 5, 3, "7"));
+        List<Task> subtractions = List.of(new Task(minus, 4, 2, 3, "2"), new Task(minus, 9, 3, 3, "6"));
+
+        for (long seed = 0; seed < 20; seed++) {
+            List<Task> sheet = GeneratorFactory.interleave(List.of(additions, subtractions), new SplittableRandom(seed));
+
+            assertThat(sheet).hasSize(4);
+            for (int i = 1; i < sheet.size(); i++) {
+                assertThat(GeneratorFactory.violatesSequence(sheet.get(i - 1), sheet.get(i))).isFalse();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("interleave: длинный лист сохраняет все задания и пропорции частей")
+    void interleave_largeSheet_keepsAllTasks() {
+        List<List<Task>> parts = new ArrayList<>();
+        for (int part = 0; part < 3; part++) {
+            List<Task> tasks = new ArrayList<>();
+            for (int i = 0; i < 50_000; i++) {
+                tasks.add(new Task(part + ":" + i, String.valueOf(i % 3)));
+            }
+            parts.add(tasks);
+        }
+
+        List<Task> sheet = GeneratorFactory.interleave(parts, new SplittableRandom(3));
+
+        assertThat(sheet).hasSize(150_000);
+        assertThat(sheet.subList(0, 3000)).filteredOn(t -> t.question().startsWith("0:")).hasSizeBetween(900, 1100);
+    }
+
+    @Test
+    @DisplayName("getGenerator: с GenerationMetrics отдаёт генератор, записывающий метрики генерации")
+    void getGenerator_withMetrics_recordsGeneration() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OperationTaskGenerator generator = new OperationTaskGenerator() {
+            @Override
+            public OperationType getOperationType() {
+                return OperationType.COMPARISON;
+            }
+
+            @Override
+            public int generate(GenerationContext context, Consumer<? super Task> sink) {
+                sink.accept(new Task("3 ? 5", "<"));
+                return 1;
+            }
+        };
+        List<OperationTaskGenerator> beans = generators().stream()
+                .map(g -> g.getOperationType() == OperationType.COMPARISON ? generator : g)
+                .toList();
+        GeneratorFactory instrumented = new GeneratorFactory(beans, new GenerationMetrics(registry));
+
+        List<Task> tasks = instrumented.getGenerator(OperationType.COMPARISON).generate(
+                ArithmeticContext.builder().operationType(OperationType.COMPARISON).quantity(1).build());
+
+        assertThat(tasks).containsExactly(new Task("3 ? 5", "<"));
+        assertThat(registry.get("schoolbot.generator.duration").tag("operation", "COMPARISON").timer().count())
+                .isEqualTo(1);
+    }
 }
@@ -0,0 +1,108 @@
+package com.kuzmich.schoolbot.generator;
+
+import com.kuzmich.schoolbot.core.service.MessageService;
+import com.kuzmich.schoolbot.generator.arithmetic.Addition20NoCarryGenerator;
+import com.kuzmich.schoolbot.generator.arithmetic.AdditionGenerator;
+import com.kuzmich.schoolbot.generator.arithmetic.Subtraction20NoCarryGenerator;
+import com.kuzmich.schoolbot.generator.arithmetic.SubtractionGenerator;
+import com.kuzmich.schoolbot.generator.numbers.ComparisonGenerator;
+import com.kuzmich.schoolbot.generator.numbers.NumberComposition10Generator;
+import com.kuzmich.schoolbot.generator.numbers.NumberComposition11To20Generator;
+import com.kuzmich.schoolbot.generator.numbers.NumberComposition2To9Generator;
+import com.kuzmich.schoolbot.generator.numbers.NumberCompositionGenerator;
+import com.kuzmich.schoolbot.generator.numbers.NumberSequenceGenerator;
+import com.kuzmich.schoolbot.i18n.GeneratorMessageKeys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты воспроизводимости: одинаковые (операция, диапазон, количество, сид) дают одинаковые задания.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("Генераторы: воспроизводимость по сиду")
+class GeneratorSeedTest {
+
+    @Mock
+    private MessageService messageService;
+
+    private GeneratorFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        factory = new GeneratorFactory(List.of(
+                new AdditionGenerator(messageService),
+                new SubtractionGenerator(messageService),
+                new Addition20NoCarryGenerator(messageService),
+                new Subtraction20NoCarryGenerator(messageService),
+                new NumberComposition2To9Generator(messageService),
+                new NumberComposition10Generator(messageService),
+                new NumberComposition11To20Generator(messageService),
+                new NumberCompositionGenerator(messageService),
+                new ComparisonGenerator(messageService),
+                new NumberSequenceGenerator(messageService)
+        ));
+        when(messageService.getText(GeneratorMessageKeys.QUESTION_BLANK)).thenReturn("  ");
+        when(messageService.getText(anyString(), any(), any(), any()))
+                .thenAnswer(inv -> inv.getArgument(1) + " ? " + inv.getArgument(2) + " = " + inv.getArgument(3));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @EnumSource(OperationType.class)
+    @DisplayName("одинаковый сид — одинаковый список заданий")
+    void sameSeed_producesSameTasks(OperationType type) {
+        TaskGenerator generator = factory.getGenerator(type);
+
+        List<Task> first = generator.generate(contextFor(type, 30, 42L));
+        List<Task> second = generator.generate(contextFor(type, 30, 42L));
+
+        assertThat(first).hasSize(30).containsExactlyElementsOf(second);
+    }
+
+    @Test
+    @DisplayName("разные сиды дают разные листы")
+    void differentSeeds_produceDifferentTasks() {
+        TaskGenerator generator = factory.getGenerator(OperationType.ADDITION_20_NO_CARRY);
+
+        List<Task> first = generator.generate(contextFor(OperationType.ADDITION_20_NO_CARRY, 20, 1L));
+        List<Task> second = generator.generate(contextFor(OperationType.ADDITION_20_NO_CARRY, 20, 2L));
+
+        assertThat(first).isNotEqualTo(second);
+    }
+
+    @Test
+    @DisplayName("forContext: с сидом — SplittableRandom, без сида — ThreadLocalRandom")
+    void forContext_choosesGeneratorBySeed() {
+        assertThat(GenerationRandom.forContext(contextFor(OperationType.ADDITION_10, 10, 7L)))
+                .isInstanceOf(SplittableRandom.class);
+        assertThat(GenerationRandom.forContext(contextFor(OperationType.ADDITION_10, 10, null)))
+                .isSameAs(ThreadLocalRandom.current());
+    }
+
+    private static ArithmeticContext contextFor(OperationType type, int quantity, Long seed) {
+        return ArithmeticContext.builder()
+                .operationType(type)
+                .numberRange(type == OperationType.ADDITION_10 || type == OperationType.SUBTRACTION_10
+                        ? new Range(0, 10) : new Range(0, 20))
+                .quantity(quantity)
+                .seed(seed)
+                .build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.kuzmich.schoolbot.generator;
+
+import com.kuzmich.schoolbot.core.service.MessageService;
+import com.kuzmich.schoolbot.i18n.GeneratorMessageKeys;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты {@link MessageTaskFormat}.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MessageTaskFormat")
+class MessageTaskFormatTest {
+
+    @Mock
+    private MessageService messageService;
+
+    @Test
+    @DisplayName("of: резолвит шаблон с плейсхолдерами один раз и подставляет числа и пустое место")
+    void of_resolvesTemplateWithPlaceholders() {
+        when(messageService.getText(GeneratorMessageKeys.QUESTION_FORMAT_ADDITION, "{0}", "{1}", "{2}"))
+                .thenReturn("{0} + {1} = {2}");
+        when(messageService.getText(GeneratorMessageKeys.QUESTION_BLANK)).thenReturn("__");
+
+        MessageTaskFormat format = MessageTaskFormat.of(messageService, GeneratorMessageKeys.QUESTION_FORMAT_ADDITION);
+        StringBuilder out = new StringBuilder();
+        format.appendTo(out, 3, 4, 2);
+
+        assertThat(out).hasToString("3 + 4 = __");
+    }
+
+    @Test
+    @DisplayName("appendTo: числа заполняют слоты вокруг пустого места по порядку")
+    void appendTo_fillsSlotsAroundBlank() {
+        MessageTaskFormat format = MessageTaskFormat.compile("{0} = {1} + {2}", "_");
+
+        assertThat(render(format, 7, 3, 0)).isEqualTo("_ = 7 + 3");
+        assertThat(render(format, 7, 3, 1)).isEqualTo("7 = _ + 3");
+        assertThat(render(format, 7, 3, 2)).isEqualTo("7 = 3 + _");
+    }
+
+    @Test
+    @DisplayName("compile: слоты в произвольном порядке и литералы по краям сохраняются")
+    void compile_keepsLiteralsAndSlotOrder() {
+        MessageTaskFormat format = MessageTaskFormat.compile("[{2}] {1} ? {0}.", "_");
+
+        assertThat(render(format, 1, 2, 1)).isEqualTo("[2] _ ? 1.");
+    }
+
+    private static String render(MessageTaskFormat format, int first, int second, int blankPosition) {
+        StringBuilder out = new StringBuilder();
+        format.appendTo(out, first, second, blankPosition);
+        return out.toString();
+    }
+}
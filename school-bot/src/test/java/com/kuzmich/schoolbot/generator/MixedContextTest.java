@@ -0,0 +1,76 @@
+package com.kuzmich.schoolbot.generator;
+
+import com.kuzmich.schoolbot.core.validation.ValidationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты {@link MixedContext}: валидация и деление quantity по пропорциям.
+ */
+@DisplayName("MixedContext")
+class MixedContextTest {
+
+    @Test
+    @DisplayName("shares: делит пропорционально весам, остаток — частям с наибольшей дробной долей")
+    void shares_splitsByLargestRemainder() {
+        MixedContext ctx = context(21, 2, 2, 1);
+
+        assertThat(ctx.shares()).containsExactly(9, 8, 4);
+    }
+
+    @Test
+    @DisplayName("shares: сумма долей всегда равна quantity")
+    void shares_sumToQuantity() {
+        for (int quantity = 0; quantity <= 60; quantity++) {
+            MixedContext ctx = context(quantity, 3, 1, 1, 5);
+
+            assertThat(ctx.shares()).satisfies(shares ->
+                    assertThat(Arrays.stream(shares).sum()).isEqualTo(ctx.getQuantity()));
+        }
+    }
+
+    @Test
+    @DisplayName("validate: исключение при пустом списке частей")
+    void validate_throwsWhenPartsEmpty() {
+        MixedContext ctx = MixedContext.builder().parts(List.of()).quantity(10).build();
+
+        assertThatThrownBy(ctx::validate)
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("parts");
+    }
+
+    @Test
+    @DisplayName("validate: исключение при неположительном весе")
+    void validate_throwsWhenWeightNotPositive() {
+        MixedContext ctx = context(10, 1, 0);
+
+        assertThatThrownBy(ctx::validate)
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("weight");
+    }
+
+    @Test
+    @DisplayName("validate: исключение при неположительном quantity")
+    void validate_throwsWhenQuantityNotPositive() {
+        MixedContext ctx = context(0, 1, 1);
+
+        assertThatThrownBy(ctx::validate)
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("quantity");
+    }
+
+    private static MixedContext context(int quantity, int... weights) {
+        OperationType[] types = OperationType.values();
+        List<MixedContext.Part> parts = IntStream.range(0, weights.length)
+                .mapToObj(i -> new MixedContext.Part(types[i], weights[i], new Range(0, 10), null))
+                .toList();
+        return MixedContext.builder().parts(parts).quantity(quantity).build();
+    }
+}
@@ -0,0 +1,76 @@
+package com.kuzmich.schoolbot.generator;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit-тесты {@link RecentTaskFilter}.
+ */
+@DisplayName("RecentTaskFilter")
+class RecentTaskFilterTest {
+
+    @Test
+    @DisplayName("add / mightContain: добавленное задание находится, пустой фильтр ничего не помнит")
+    void add_remembersQuestion() {
+        RecentTaskFilter filter = RecentTaskFilter.empty();
+        assertThat(filter.isEmpty()).isTrue();
+
+        filter.addAll(List.of(new Task("3 + 4 = ", "7")));
+
+        assertThat(filter.isEmpty()).isFalse();
+        assertThat(filter.mightContain("3 + 4 = ")).isTrue();
+        assertThat(filter.mightContain("4 + 3 = ")).isFalse();
+    }
+
+    @Test
+    @DisplayName("toBytes / fromBytes: фиксированный размер и восстановление содержимого")
+    void toBytes_roundTrips() {
+        RecentTaskFilter filter = RecentTaskFilter.empty();
+        IntStream.range(0, 50).forEach(i -> filter.add(i + " + 1 = "));
+
+        byte[] bytes = filter.toBytes();
+        RecentTaskFilter restored = RecentTaskFilter.fromBytes(bytes);
+
+        assertThat(bytes).hasSize(RecentTaskFilter.SERIALIZED_SIZE);
+        assertThat(RecentTaskFilter.SERIALIZED_SIZE).isLessThan(1024);
+        assertThat(IntStream.range(0, 50)).allMatch(i -> restored.mightContain(i + " + 1 = "));
+        assertThat(restored.toBytes()).isEqualTo(bytes);
+    }
+
+    @Test
+    @DisplayName("fromBytes: отсутствующие или чужие данные дают пустой фильтр")
+    void fromBytes_toleratesInvalidData() {
+        assertThat(RecentTaskFilter.fromBytes(null).isEmpty()).isTrue();
+        assertThat(RecentTaskFilter.fromBytes(new byte[]{1, 2, 3}).isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("ротация: задания старше двух поколений забываются")
+    void add_forgetsOldGenerations() {
+        RecentTaskFilter filter = RecentTaskFilter.empty();
+        filter.add("old");
+
+        IntStream.range(0, 2 * RecentTaskFilter.GENERATION_CAPACITY).forEach(i -> filter.add("new " + i));
+
+        assertThat(filter.mightContain("old")).isFalse();
+        assertThat(filter.mightContain("new " + (2 * RecentTaskFilter.GENERATION_CAPACITY - 1))).isTrue();
+    }
+
+    @Test
+    @DisplayName("mightContain: ложные срабатывания на заполненном фильтре редки")
+    void mightContain_hasLowFalsePositiveRate() {
+        RecentTaskFilter filter = RecentTaskFilter.empty();
+        IntStream.range(0, 2 * RecentTaskFilter.GENERATION_CAPACITY - 1).forEach(i -> filter.add(i + " + 5 = "));
+
+        long falsePositives = IntStream.range(0, 10_000)
+                .filter(i -> filter.mightContain(i + " - 5 = "))
+                .count();
+
+        assertThat(falsePositives).isLessThan(500);
+    }
+}
@@ -0,0 +1,56 @@
+package com.kuzmich.schoolbot.generator;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты {@link Task}: текстовые и структурированные задания.
+ */
+@DisplayName("Task")
+class TaskTest {
+
+    private static final TaskFormat PLUS = (out, first, second, blank) -> out.append(first).append(" + ").append(second);
+
+    @Test
+    @DisplayName("структурированное задание рисует вопрос при обращении и запоминает строку")
+    void structuredTask_rendersOnceOnDemand() {
+        AtomicInteger renders = new AtomicInteger();
+        TaskFormat counting = (out, first, second, blank) -> {
+            renders.incrementAndGet();
+            PLUS.appendTo(out, first, second, blank);
+        };
+        Task task = new Task(counting, 2, 5, 2, "7");
+
+        assertThat(renders).hasValue(0);
+        assertThat(task.question()).isEqualTo("2 + 5");
+        assertThat(task.question()).isEqualTo("2 + 5");
+        assertThat(renders).hasValue(1);
+        assertThat(task.metadata()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("appendQuestion дописывает вопрос в переданный буфер")
+    void appendQuestion_writesIntoBuffer() {
+        StringBuilder out = new StringBuilder("1) ");
+
+        new Task(PLUS, 3, 4, 2, "7").appendQuestion(out);
+        out.append("; ");
+        new Task("5 - 1 = ", "4").appendQuestion(out);
+
+        assertThat(out).hasToString("1) 3 + 4; 5 - 1 = ");
+    }
+
+    @Test
+    @DisplayName("равенство — по тексту вопроса, ответу и метаданным")
+    void equality_byRenderedQuestion() {
+        Task structured = new Task(PLUS, 3, 4, 2, "7");
+        Task text = new Task("3 + 4", "7");
+
+        assertThat(structured).isEqualTo(text).hasSameHashCodeAs(text);
+        assertThat(structured).isNotEqualTo(new Task("3 + 4", "8"));
+    }
+}
@@ -117,6 +117,7 @@ class AdditionGeneratorTest {
 
         /** Размер домена сложения 0..10: a∈[0,10], b∈[0,10-a] → 66 уникальных пар. */
         private static final int ADDITION_DOMAIN_SIZE_0_10 = 66;
+        private static final int ADDITION_GUARANTEED_0_10 = 46;
 
         @Test
         @DisplayName("при quantity больше размера домена возвращает все уникальные примеры (без дублей)")
@@ -143,6 +144,38 @@ class AdditionGeneratorTest {
             assertThat(distinctQuestions).isEqualTo(tasks.size());
         }
 
+        @Test
+        @DisplayName("maxTasks: гарантированное заполнение; лист такой длины собирается целиком при любом сиде")
+        void maxTasks_isGuaranteedFill_andSheetOfThatSizeIsFull() {
+            when(messageService.getText(eq(GeneratorMessageKeys.QUESTION_BLANK))).thenReturn("  ");
+            when(messageService.getText(anyString(), any(), any(), any()))
+                    .thenAnswer(inv -> inv.getArgument(1) + " + " + inv.getArgument(2) + " = " + inv.getArgument(3));
+            ArithmeticContext probe = ArithmeticContext.builder()
+                    .operationType(OperationType.ADDITION_10)
+                    .numberRange(new Range(0, 10))
+                    .quantity(1)
+                    .build();
+
+            // 66 примеров минус худший хвост: 10 других с a = 0 и 10 других с ответом 10 после «0 + 10»
+            assertThat(generator.maxTasks(probe)).isEqualTo(ADDITION_GUARANTEED_0_10);
+            for (long seed = 0; seed < 50; seed++) {
+                ArithmeticContext context = ArithmeticContext.builder()
+                        .operationType(OperationType.ADDITION_10)
+                        .numberRange(new Range(0, 10))
+                        .quantity(ADDITION_GUARANTEED_0_10)
+                        .seed(seed)
+                        .build();
+
+                List<Task> tasks = generator.generate(context);
+
+                assertThat(tasks).hasSize(ADDITION_GUARANTEED_0_10);
+                assertThat(tasks).extracting(Task::question).doesNotHaveDuplicates();
+                for (int i = 1; i < tasks.size(); i++) {
+                    assertThat(tasks.get(i).answer()).isNotEqualTo(tasks.get(i - 1).answer());
+                }
+            }
+        }
+
         @Test
         @DisplayName("при quantity = 50 примеры не повторяются")
         void shouldGenerateUniqueTasks_whenQuantity50() {
@@ -183,4 +216,36 @@ class AdditionGeneratorTest {
             assertThat(distinctQuestions).isEqualTo(tasks.size());
         }
     }
+
+    @Nested
+    @DisplayName("диапазон 0–1000 (выборка без перечисления домена)")
+    class Range0To1000 {
+
+        @Test
+        @DisplayName("возвращает 50 уникальных корректных примеров с ответами в [0, 1000]")
+        void shouldSampleValidUniqueTasks_range0to1000() {
+            when(messageService.getText(eq(GeneratorMessageKeys.QUESTION_BLANK))).thenReturn("  ");
+            when(messageService.getText(anyString(), any(), any(), any()))
+                    .thenAnswer(inv -> inv.getArgument(1) + " + " + inv.getArgument(2) + " = " + inv.getArgument(3));
+
+            ArithmeticContext context = ArithmeticContext.builder()
+                    .operationType(OperationType.ADDITION_10)
+                    .numberRange(new Range(0, 1000))
+                    .quantity(50)
+                    .build();
+
+            List<Task> tasks = generator.generate(context);
+
+            assertThat(tasks)
+                    .hasSize(50)
+                    .allMatch(task -> {
+                        String[] parts = task.question().replace(" = ", "").split(" \\+ ");
+                        int a = Integer.parseInt(parts[0].trim());
+                        int b = Integer.parseInt(parts[1].trim());
+                        int answer = Integer.parseInt(task.answer());
+                        return a + b == answer && answer <= 1000 && a >= 2 && b >= 2;
+                    });
+            assertThat(tasks).extracting(Task::question).doesNotHaveDuplicates();
+        }
+    }
 }
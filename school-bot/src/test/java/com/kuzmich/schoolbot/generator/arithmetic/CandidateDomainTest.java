@@ -0,0 +1,241 @@
+package com.kuzmich.schoolbot.generator.arithmetic;
+
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.generator.Range;
+import com.kuzmich.schoolbot.generator.RecentTaskFilter;
+import com.kuzmich.schoolbot.generator.Task;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit-тесты {@link CandidateDomain} и кэша {@link CandidateDomains}.
+ */
+@DisplayName("CandidateDomain")
+class CandidateDomainTest {
+
+    private static final List<ArithmeticGenerationUtils.Candidate> CANDIDATES = List.of(
+            new ArithmeticGenerationUtils.Candidate(0, 1, 1, "0+1"),
+            new ArithmeticGenerationUtils.Candidate(2, 3, 5, "2+3"),
+            new ArithmeticGenerationUtils.Candidate(1, 1, 2, "1+1"),
+            new ArithmeticGenerationUtils.Candidate(4, 2, 6, "4+2")
+    );
+
+    private static final List<Predicate<ArithmeticGenerationUtils.Candidate>> LEVELS = List.of(
+            c -> c.a() >= 2,
+            c -> true
+    );
+
+    @Test
+    @DisplayName("of: предвычисляет индексы кандидатов для каждого уровня в порядке домена")
+    void of_precomputesLevelIndices() {
+        CandidateDomain domain = CandidateDomain.of(CANDIDATES, LEVELS);
+
+        assertThat(domain.size()).isEqualTo(4);
+        assertThat(domain.levelCount()).isEqualTo(2);
+        assertThat(domain.levelIndices(0)).containsExactly(1, 3);
+        assertThat(domain.levelIndices(1)).containsExactly(0, 1, 2, 3);
+        assertThat(domain.a(3)).isEqualTo(4);
+        assertThat(domain.b(3)).isEqualTo(2);
+        assertThat(domain.answer(3)).isEqualTo(6);
+        assertThat(domain.candidate(2).key()).isEqualTo("1+1");
+    }
+
+    @Test
+    @DisplayName("of: одинаковые ключи получают один номер, диапазоны a и ответа — по домену")
+    void of_assignsKeyIdsAndValueSpans() {
+        List<ArithmeticGenerationUtils.Candidate> candidates = List.of(
+                new ArithmeticGenerationUtils.Candidate(3, 0, 3, "k"),
+                new ArithmeticGenerationUtils.Candidate(5, 0, 9, "m"),
+                new ArithmeticGenerationUtils.Candidate(4, 0, 7, "k")
+        );
+
+        CandidateDomain domain = CandidateDomain.of(candidates, LEVELS);
+
+        assertThat(domain.keyCount()).isEqualTo(2);
+        assertThat(domain.keyId(0)).isEqualTo(domain.keyId(2)).isNotEqualTo(domain.keyId(1));
+        assertThat(domain.minA()).isEqualTo(3);
+        assertThat(domain.aSpan()).isEqualTo(3);
+        assertThat(domain.minAnswer()).isEqualTo(3);
+        assertThat(domain.answerSpan()).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("generateWithRelaxation: без повторов и без одинакового a или ответа подряд")
+    void generateWithRelaxation_keepsSequenceHeuristics() {
+        List<ArithmeticGenerationUtils.Candidate> candidates = new ArrayList<>();
+        for (int a = 0; a <= 20; a++) {
+            for (int b = 0; b <= 20 - a; b++) {
+                candidates.add(new ArithmeticGenerationUtils.Candidate(a, b, a + b, a + "+" + b));
+            }
+        }
+        CandidateDomain domain = CandidateDomain.of(candidates, LEVELS);
+
+        for (int run = 0; run < 100; run++) {
+            List<Task> tasks = ArithmeticGenerationUtils.generateWithRelaxation(
+                    domain, 50, ThreadLocalRandom.current(),
+                    c -> new Task(c.key(), c.a() + ":" + c.answer()));
+
+            assertThat(tasks).hasSize(50);
+            assertThat(tasks).extracting(Task::question).doesNotHaveDuplicates();
+            for (int i = 1; i < tasks.size(); i++) {
+                String[] previous = tasks.get(i - 1).answer().split(":");
+                String[] current = tasks.get(i).answer().split(":");
+                assertThat(current[0]).isNotEqualTo(previous[0]);
+                assertThat(current[1]).isNotEqualTo(previous[1]);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("uniqueTaskCount: разные ключи, прошедшие хотя бы один уровень")
+    void uniqueTaskCount_countsKeysReachableByLevels() {
+        List<ArithmeticGenerationUtils.Candidate> candidates = List.of(
+                new ArithmeticGenerationUtils.Candidate(3, 0, 3, "k"),
+                new ArithmeticGenerationUtils.Candidate(5, 0, 5, "m"),
+                new ArithmeticGenerationUtils.Candidate(4, 0, 4, "k"),
+                new ArithmeticGenerationUtils.Candidate(1, 0, 1, "n"));
+
+        CandidateDomain domain = CandidateDomain.of(candidates, List.of(c -> c.a() >= 3));
+
+        assertThat(domain.uniqueTaskCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("generateWithRelaxation: эвристики последовательности не нарушаются ради длины листа")
+    void generateWithRelaxation_keepsSequenceHeuristicsOnShortTail() {
+        List<ArithmeticGenerationUtils.Candidate> sameA = List.of(
+                new ArithmeticGenerationUtils.Candidate(3, 0, 3, "3+0"),
+                new ArithmeticGenerationUtils.Candidate(3, 1, 4, "3+1"),
+                new ArithmeticGenerationUtils.Candidate(3, 2, 5, "3+2"));
+        CandidateDomain domain = CandidateDomain.of(sameA, List.of(c -> true));
+
+        List<Task> tasks = ArithmeticGenerationUtils.generateWithRelaxation(
+                domain, 10, new SplittableRandom(1), c -> new Task(c.key(), String.valueOf(c.answer())));
+
+        assertThat(tasks).hasSize(1).hasSize(domain.guaranteedTaskCount());
+    }
+
+    @Test
+    @DisplayName("guaranteedTaskCount: лист такой длины собирается целиком, хвост перебирается полностью")
+    void guaranteedTaskCount_isAlwaysFilled() {
+        List<ArithmeticGenerationUtils.Candidate> candidates = new ArrayList<>();
+        for (int a = 0; a <= 4; a++) {
+            for (int b = 0; a + b <= 4; b++) {
+                candidates.add(new ArithmeticGenerationUtils.Candidate(a, b, a + b, a + "+" + b));
+            }
+        }
+        CandidateDomain domain = CandidateDomain.of(candidates, List.of(c -> c.b() > 0, c -> true));
+
+        // 15 примеров; худший хвост — после «0+4»: ещё 4 с a = 0 и 4 с ответом 4
+        assertThat(domain.uniqueTaskCount()).isEqualTo(15);
+        assertThat(domain.guaranteedTaskCount()).isEqualTo(7);
+        for (long seed = 0; seed < 200; seed++) {
+            List<Task> tasks = ArithmeticGenerationUtils.generateWithRelaxation(domain, domain.uniqueTaskCount(),
+                    new SplittableRandom(seed), c -> new Task(c.key(), String.valueOf(c.answer())));
+            assertThat(tasks.size()).isBetween(domain.guaranteedTaskCount(), domain.uniqueTaskCount());
+        }
+    }
+
+    @Test
+    @DisplayName("generateWithRelaxation: берёт задания сначала со строгого уровня, без повторов")
+    void generateWithRelaxation_usesLevelsInOrder() {
+        CandidateDomain domain = CandidateDomain.of(CANDIDATES, LEVELS);
+
+        List<Task> tasks = ArithmeticGenerationUtils.generateWithRelaxation(
+                domain, 2, ThreadLocalRandom.current(),
+                c -> new Task(c.key(), String.valueOf(c.answer())));
+
+        assertThat(tasks).extracting(Task::question).containsExactlyInAnyOrder("2+3", "4+2");
+    }
+
+    @Test
+    @DisplayName("emitWithRelaxation: передаёт задания в sink в том же порядке, что и списочный вариант при том же сиде")
+    void emitWithRelaxation_matchesListVariant() {
+        CandidateDomain domain = CandidateDomain.of(CANDIDATES, LEVELS);
+        List<Task> emitted = new ArrayList<>();
+
+        int count = ArithmeticGenerationUtils.emitWithRelaxation(
+                domain, 10, new SplittableRandom(7), c -> new Task(c.key(), String.valueOf(c.answer())),
+                true, true, emitted::add);
+        List<Task> listed = ArithmeticGenerationUtils.generateWithRelaxation(
+                domain, 10, new SplittableRandom(7), c -> new Task(c.key(), String.valueOf(c.answer())),
+                true, true);
+
+        assertThat(count).isEqualTo(10);
+        assertThat(emitted).isEqualTo(listed);
+    }
+
+    @Test
+    @DisplayName("emitWithRelaxation: недавние задания идут после свежих всех уровней, но не запрещены")
+    void emitWithRelaxation_prefersFreshOverRecent() {
+        CandidateDomain domain = CandidateDomain.of(CANDIDATES, LEVELS);
+        RecentTaskFilter recent = RecentTaskFilter.empty();
+        recent.add("2+3");
+
+        for (long seed = 0; seed < 20; seed++) {
+            List<Task> single = new ArrayList<>();
+            ArithmeticGenerationUtils.emitWithRelaxation(
+                    domain, 1, new SplittableRandom(seed), c -> new Task(c.key(), String.valueOf(c.answer())),
+                    false, false, recent, single::add);
+            assertThat(single).extracting(Task::question).containsExactly("4+2");
+        }
+
+        List<Task> all = new ArrayList<>();
+        int count = ArithmeticGenerationUtils.emitWithRelaxation(
+                domain, 4, new SplittableRandom(1), c -> new Task(c.key(), String.valueOf(c.answer())),
+                true, false, recent, all::add);
+        assertThat(count).isEqualTo(4);
+        // Свежие задания мягкого уровня (0+1, 1+1) раньше недавнего строгого (2+3)
+        assertThat(all).extracting(Task::question).startsWith("4+2").endsWith("2+3");
+        assertThat(all.subList(1, 3)).extracting(Task::question).containsExactlyInAnyOrder("0+1", "1+1");
+    }
+
+    @Test
+    @DisplayName("questionHashes: текст вопроса строится один раз на ключ и на домен, а не на каждый запрос")
+    void questionHashes_areBuiltOncePerDomain() {
+        CandidateDomain domain = CandidateDomain.of(CANDIDATES, LEVELS);
+        AtomicInteger rendered = new AtomicInteger();
+        RecentTaskFilter recent = RecentTaskFilter.empty();
+        recent.add("2+3");
+
+        for (int i = 0; i < 3; i++) {
+            ArithmeticGenerationUtils.emitWithRelaxation(domain, 2, new SplittableRandom(i), c -> {
+                rendered.incrementAndGet();
+                return new Task(c.key(), String.valueOf(c.answer()));
+            }, false, false, recent, task -> { });
+        }
+
+        // 4 вопроса для хэшей при первом запросе и по 2 выданных задания на каждый запрос
+        assertThat(rendered).hasValue(4 + 3 * 2);
+        assertThat(domain.questionHashes(c -> null)[domain.keyId(1)])
+                .isEqualTo(RecentTaskFilter.questionHash("2+3"));
+    }
+
+    @Test
+    @DisplayName("CandidateDomains.get: строит домен один раз на (операция, диапазон)")
+    void get_buildsOncePerKey() {
+        AtomicInteger builds = new AtomicInteger();
+        Range range = new Range(1000, 1001);
+
+        CandidateDomain first = CandidateDomains.get(OperationType.ADDITION_10, range, () -> {
+            builds.incrementAndGet();
+            return CandidateDomain.of(CANDIDATES, LEVELS);
+        });
+        CandidateDomain second = CandidateDomains.get(OperationType.ADDITION_10, range, () -> {
+            builds.incrementAndGet();
+            return CandidateDomain.of(CANDIDATES, LEVELS);
+        });
+
+        assertThat(second).isSameAs(first);
+        assertThat(builds).hasValue(1);
+    }
+}
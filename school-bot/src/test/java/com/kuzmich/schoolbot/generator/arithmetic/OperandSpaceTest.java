@@ -0,0 +1,111 @@
+package com.kuzmich.schoolbot.generator.arithmetic;
+
+import com.kuzmich.schoolbot.generator.Task;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit-тесты {@link OperandSpace} и выборочной генерации
+ * {@link ArithmeticGenerationUtils#emitBySampling}.
+ */
+@DisplayName("OperandSpace")
+class OperandSpaceTest {
+
+    private static final List<Predicate<ArithmeticGenerationUtils.Candidate>> LEVELS = List.of(
+            c -> c.a() >= 2 && c.b() >= 2 && c.answer() >= 2,
+            c -> true
+    );
+
+    @Test
+    @DisplayName("rank / a / b: ранг однозначно восстанавливает пару операндов")
+    void rank_roundTrips() {
+        OperandSpace space = OperandSpace.subtraction(5, 20);
+
+        for (int a = 5; a <= 20; a++) {
+            for (int b = 0; b <= 20; b++) {
+                long rank = space.rank(a, b);
+                assertThat(space.a(rank)).isEqualTo(a);
+                assertThat(space.b(rank)).isEqualTo(b);
+            }
+        }
+        assertThat(space.size()).isEqualTo(16L * 21);
+    }
+
+    @Test
+    @DisplayName("addition / subtraction: ограничение по ответу совпадает с перечисляемым доменом")
+    void accepts_matchesEnumeratedDomain() {
+        OperandSpace addition = OperandSpace.addition(0, 10);
+        OperandSpace subtraction = OperandSpace.subtraction(0, 10);
+
+        assertThat(addition.accepts(addition.answer(4, 6))).isTrue();
+        assertThat(addition.accepts(addition.answer(4, 7))).isFalse();
+        assertThat(subtraction.accepts(subtraction.answer(4, 4))).isTrue();
+        assertThat(subtraction.accepts(subtraction.answer(4, 5))).isFalse();
+    }
+
+    @Test
+    @DisplayName("конструктор: пустое пространство отклоняется")
+    void constructor_rejectsEmptySpace() {
+        assertThatThrownBy(() -> new OperandSpace(5, 4, 0, 1, Integer::sum, 0, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("emitBySampling: уникальные примеры строгого уровня без одинакового a или ответа подряд")
+    void emitBySampling_keepsUniquenessLevelsAndSequence() {
+        List<ArithmeticGenerationUtils.Candidate> sampled = new ArrayList<>();
+
+        int count = ArithmeticGenerationUtils.emitBySampling(
+                OperandSpace.addition(0, 1000), 500, LEVELS, new SplittableRandom(42),
+                c -> {
+                    sampled.add(c);
+                    return new Task(c.a() + " + " + c.b(), String.valueOf(c.answer()));
+                },
+                task -> {
+                });
+
+        assertThat(count).isEqualTo(500);
+        assertThat(sampled).extracting(c -> c.a() + "+" + c.b()).doesNotHaveDuplicates();
+        assertThat(sampled).allMatch(c -> c.a() + c.b() == c.answer() && c.answer() <= 1000
+                && c.a() >= 2 && c.b() >= 2);
+        for (int i = 1; i < sampled.size(); i++) {
+            assertThat(sampled.get(i).a()).isNotEqualTo(sampled.get(i - 1).a());
+            assertThat(sampled.get(i).answer()).isNotEqualTo(sampled.get(i - 1).answer());
+        }
+    }
+
+    @Test
+    @DisplayName("emitBySampling: на маленьком пространстве отдаёт не больше допустимых примеров и завершается")
+    void emitBySampling_stopsWhenSpaceExhausted() {
+        List<Task> tasks = new ArrayList<>();
+
+        int count = ArithmeticGenerationUtils.emitBySampling(
+                OperandSpace.addition(0, 3), 50, List.of(c -> true), new SplittableRandom(1),
+                c -> new Task(c.a() + " + " + c.b(), String.valueOf(c.answer())), tasks::add);
+
+        assertThat(count).isEqualTo(tasks.size()).isLessThanOrEqualTo(10);
+        assertThat(tasks).extracting(Task::question).doesNotHaveDuplicates();
+    }
+
+    @Test
+    @DisplayName("emitBySampling: тот же сид — та же последовательность")
+    void emitBySampling_isDeterministicForSeed() {
+        List<Task> first = new ArrayList<>();
+        List<Task> second = new ArrayList<>();
+
+        ArithmeticGenerationUtils.emitBySampling(OperandSpace.subtraction(0, 500), 30, LEVELS,
+                new SplittableRandom(7), c -> new Task(c.a() + " - " + c.b(), String.valueOf(c.answer())), first::add);
+        ArithmeticGenerationUtils.emitBySampling(OperandSpace.subtraction(0, 500), 30, LEVELS,
+                new SplittableRandom(7), c -> new Task(c.a() + " - " + c.b(), String.valueOf(c.answer())), second::add);
+
+        assertThat(first).hasSize(30).isEqualTo(second);
+    }
+}
@@ -0,0 +1,42 @@
+package com.kuzmich.schoolbot.generator.pdf;
+
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Unit-тесты {@link GlyphAdvances} на стандартном шрифте Helvetica.
+ */
+@DisplayName("GlyphAdvances")
+class GlyphAdvancesTest {
+
+    private final PDType1Font helvetica = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+    private final GlyphAdvances advances = GlyphAdvances.measure(helvetica, "−");
+
+    @Test
+    @DisplayName("widthEm: ширина строки из таблицы совпадает с getStringWidth шрифта")
+    void widthEm_matchesFontMetrics() throws IOException {
+        String task = "12 + 7 = ___";
+
+        assertThat(advances.widthEm(task)).isCloseTo(helvetica.getStringWidth(task) / 1000f, within(0.001f));
+    }
+
+    @Test
+    @DisplayName("widthEm: символ, которого нет в шрифте, считается как «?», которым он будет выведен")
+    void widthEm_missingGlyphMeasuredAsQuestionMark() {
+        assertThat(advances.widthEm("Д")).isEqualTo(advances.widthEm("?"));
+        assertThat(advances.widthEm("−")).isEqualTo(advances.widthEm("?"));
+    }
+
+    @Test
+    @DisplayName("widthEm: неизмеренный символ вне таблицы не уже самого широкого символа")
+    void widthEm_unknownCharacterIsWidest() {
+        assertThat(advances.widthEm("≠")).isGreaterThanOrEqualTo(advances.widthEm("W"));
+    }
+}
@@ -1,20 +1,36 @@
 package com.kuzmich.schoolbot.generator.pdf;
 
 import com.kuzmich.schoolbot.generator.Task;
+import com.kuzmich.schoolbot.generator.TaskGenerator;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.text.PDFTextStripper;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 class PDFServiceTest {
 
     private final PDFLayoutService layoutService = new PDFLayoutService();
-    private final PDFService pdfService = new PDFService(layoutService);
+    private final PDFService pdfService = new PDFService(layoutService, new PdfFontProvider(""));
 
     @Test
     void shouldGeneratePDF_withTitleAndSingleTasksPage() throws IOException {
@@ -27,7 +43,10 @@ class PDFServiceTest {
         String title = "Arithmetic: Addition";
 
         // when
-        byte[] pdf = pdfService.generate(tasks, title);
+        byte[] pdf;
+        try (RenderedPdf rendered = pdfService.render(tasks, title, false)) {
+            pdf = rendered.toByteArray();
+        }
 
         // then
         assertThat(pdf).isNotEmpty();
@@ -37,5 +56,171 @@ class PDFServiceTest {
             assertThat(doc.getNumberOfPages()).isEqualTo(1);
         }
     }
-}
 
+    @Test
+    void shouldSplitLargeSheet_andAppendAnswerKeyPages() throws IOException {
+        // given: 120 заданий — три страницы по 40, за ними три страницы ответов
+        List<Task> tasks = IntStream.range(0, 120)
+                .mapToObj(i -> new Task(i + " + 1 = ", String.valueOf(i + 1)))
+                .toList();
+
+        // when
+        byte[] pdf;
+        try (RenderedPdf rendered = pdfService.render(tasks, "Sheet", true)) {
+            pdf = rendered.toByteArray();
+        }
+
+        // then
+        try (PDDocument doc = Loader.loadPDF(pdf)) {
+            assertThat(doc.getNumberOfPages()).isEqualTo(6);
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setStartPage(1);
+            stripper.setEndPage(3);
+            assertThat(stripper.getText(doc)).contains("Sheet", "0 + 1 =", "119 + 1 =").doesNotContain("120) 120");
+            stripper.setStartPage(4);
+            stripper.setEndPage(6);
+            assertThat(stripper.getText(doc)).contains("1) 1", "120) 120").doesNotContain("+");
+        }
+    }
+
+    @Test
+    void shouldRenderSheet_toTempFile_andDeleteItOnClose() throws IOException {
+        List<Task> tasks = List.of(new Task("3 + 4 = ", "7"));
+
+        Path file;
+        try (RenderedPdf pdf = pdfService.render(tasks, "Sheet", false)) {
+            file = pdf.file();
+            assertThat(file).isNotNull().exists();
+            assertThat(pdf.size()).isEqualTo(Files.size(file));
+            try (PDDocument doc = Loader.loadPDF(file.toFile())) {
+                assertThat(doc.getNumberOfPages()).isEqualTo(1);
+            }
+        }
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void shouldRenderLargeSheet_withDiskStreamCache_andReleaseBudget() throws IOException {
+        // given: документ больше 1 байта «кучи на документ» при отрисовке держит содержимое на диске
+        PdfRenderGovernor governor = new PdfRenderGovernor(null, 64L << 20, 1, Duration.ZERO);
+        PDFService diskService = new PDFService(layoutService, new PdfFontProvider(""), governor);
+        List<Task> tasks = List.of(new Task("3 + 4 = ", "7"));
+
+        // when
+        Path file;
+        try (RenderedPdf pdf = diskService.render(tasks, "Sheet", true)) {
+            file = pdf.file();
+
+            // then
+            assertThat(file).isNotNull().exists();
+            try (PDDocument doc = Loader.loadPDF(file.toFile())) {
+                assertThat(doc.getNumberOfPages()).isEqualTo(2);
+            }
+        }
+        assertThat(file).doesNotExist();
+        assertThat(governor.usedBytes()).isZero();
+    }
+
+    @Test
+    void shouldSplitLargeClassPackVariant_acrossPages() throws IOException {
+        // given: вариант из 120 заданий — три страницы по 40, вариант из 10 — одна страница
+        List<Task> large = IntStream.range(0, 120)
+                .mapToObj(i -> new Task(i + " + 1 = ", String.valueOf(i + 1)))
+                .toList();
+        List<Task> small = List.of(new Task("3 + 4 = ", "7"));
+
+        // when
+        Path file;
+        try (RenderedPdf pdf = pdfService.generateVariants(List.of(large, small), "Class")) {
+            file = pdf.file();
+
+            // then
+            try (PDDocument doc = Loader.loadPDF(file.toFile())) {
+                assertThat(doc.getNumberOfPages()).isEqualTo(4);
+                PDFTextStripper stripper = new PDFTextStripper();
+                stripper.setSortByPosition(true);
+                stripper.setStartPage(3);
+                stripper.setEndPage(3);
+                assertThat(stripper.getText(doc)).contains("119 + 1 =");
+                stripper.setStartPage(4);
+                stripper.setEndPage(4);
+                assertThat(stripper.getText(doc)).contains("3 + 4 =").doesNotContain("119 + 1 =");
+            }
+        }
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void shouldStreamLargeWorkbook_pageByPage() throws IOException {
+        // given: 100 заданий при 40 на страницу — три страницы
+        TaskGenerator generator = context -> IntStream.range(0, 100)
+                .mapToObj(i -> new Task(i + " + 1 = ", String.valueOf(i + 1)))
+                .toList();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        int written = pdfService.generateStreaming(generator, null, "Workbook", out);
+
+        // then
+        assertThat(written).isEqualTo(100);
+        try (PDDocument doc = Loader.loadPDF(out.toByteArray())) {
+            assertThat(doc.getNumberOfPages()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void shouldStreamEmptyWorkbook_asSingleTitlePage() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int written = pdfService.generateStreaming(context -> List.of(), null, "Workbook", out);
+
+        assertThat(written).isZero();
+        try (PDDocument doc = Loader.loadPDF(out.toByteArray())) {
+            assertThat(doc.getNumberOfPages()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void shouldStampOneHeaderTemplate_onEveryStreamedPage() throws IOException {
+        TaskGenerator generator = context -> IntStream.range(0, 100)
+                .mapToObj(i -> new Task(i + " + 1 = ", String.valueOf(i + 1)))
+                .toList();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        pdfService.generateStreaming(generator, null, "Workbook", out);
+
+        try (PDDocument doc = Loader.loadPDF(out.toByteArray())) {
+            Set<COSBase> forms = new HashSet<>();
+            for (PDPage page : doc.getPages()) {
+                PDResources resources = page.getResources();
+                for (COSName name : resources.getXObjectNames()) {
+                    forms.add(resources.getXObject(name).getCOSObject());
+                }
+            }
+            // Заголовок и дата нарисованы один раз, страницы различаются только хвостом «стр. N»
+            assertThat(forms).hasSize(1);
+            assertThat(new PDFTextStripper().getText(doc)).contains("Workbook", "1 + 1 =", "99 + 1 =");
+        }
+    }
+
+    @Test
+    void shouldReuseHeaderTemplate_forClassPackVariants() throws IOException {
+        List<Task> tasks = List.of(new Task("3 + 4 = ", "7"), new Task("5 + 2 = ", "7"));
+
+        try (PDDocument document = new PDDocument()) {
+            PDFLayoutService.PageTemplates templates = layoutService.pageTemplates(document,
+                    new PDType1Font(Standard14Fonts.FontName.HELVETICA));
+            LocalDate date = LocalDate.of(2026, 10, 19);
+
+            layoutService.addTasksPage(templates, tasks, "Class", " - variant 1", date);
+            layoutService.addTasksPage(templates, tasks, "Class", " - variant 2", date);
+
+            assertThat(templates.headerCount()).isEqualTo(1);
+            // Хвост дописывается после шаблона, поэтому текст читаем в порядке расположения на странице
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setSortByPosition(true);
+            String text = stripper.getText(document);
+            assertThat(text).contains("Class - variant 1", "Class - variant 2", "19.10.2026");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.kuzmich.schoolbot.generator.pdf;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit-тесты {@link PdfFontProvider}: цепочка выбора шрифта и общий разобранный TTF.
+ */
+@DisplayName("PdfFontProvider")
+class PdfFontProviderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("font: пустой pdf.font.path — Helvetica")
+    void font_blankPath_usesHelvetica() throws IOException {
+        PdfFontProvider provider = new PdfFontProvider(" ");
+
+        try (PDDocument document = new PDDocument()) {
+            assertThat(provider.font(document)).isInstanceOf(PDType1Font.class);
+        }
+    }
+
+    @Test
+    @DisplayName("font: шрифта нет по пути — DejaVu из jasperreports-fonts")
+    void font_missingPath_fallsBackToDejaVu() throws IOException {
+        PdfFontProvider provider = new PdfFontProvider(tempDir.resolve("missing.ttf").toString());
+
+        try (PDDocument document = new PDDocument()) {
+            assertThat(provider.font(document)).isInstanceOf(PDType0Font.class);
+        }
+    }
+
+    @Test
+    @DisplayName("font: TTF с диска разбирается один раз, каждый документ получает свой шрифт с подмножеством глифов")
+    void font_diskPath_sharesParsedFontAcrossDocuments() throws IOException {
+        Path fontFile = tempDir.resolve("DejaVuSans.ttf");
+        try (InputStream in = getClass().getResourceAsStream("/net/sf/jasperreports/fonts/dejavu/DejaVuSans.ttf")) {
+            Files.copy(in, fontFile);
+        }
+        PdfFontProvider provider = new PdfFontProvider(fontFile.toString());
+
+        byte[] first = render(provider, "Сложение: 3 + 4 = 7");
+        byte[] second = render(provider, "Вычитание: 9 - 2 = 7");
+        provider.close();
+
+        // Встроено подмножество глифов, а не весь шрифт (около 700 КБ)
+        long fontSize = Files.size(fontFile);
+        assertThat((long) first.length).isLessThan(fontSize / 10);
+        assertThat((long) second.length).isLessThan(fontSize / 10);
+    }
+
+    @Test
+    @DisplayName("covers: готовое подмножество покрывает цифры, знаки и кириллицу заголовков, но не редкие символы")
+    void covers_worksheetAlphabet() {
+        PdfFontProvider provider = new PdfFontProvider(PdfFontProvider.FALLBACK_FONT_PATH);
+
+        assertThat(provider.covers("Дата: 19.10.2026")).isTrue();
+        assertThat(provider.covers("12 + 7 = __  5 < 8 — вариант 3")).isTrue();
+        // Символа нет в подмножестве, но есть в DejaVu — нужен шрифт с подмножеством на документ
+        assertThat(provider.covers("ѣ")).isFalse();
+        // Символа нет и в самом шрифте — готовое подмножество ничем не хуже
+        assertThat(provider.covers("漢")).isTrue();
+    }
+
+    @Test
+    @DisplayName("worksheetFont: готовое подмножество встраивается целиком, текст листа читается из PDF")
+    void worksheetFont_embedsPresetSubset() throws IOException {
+        PdfFontProvider provider = new PdfFontProvider(PdfFontProvider.FALLBACK_FONT_PATH);
+
+        byte[] pdf = render(provider, "Дата: 3 + 4 = 7", true);
+
+        assertThat(pdf.length).isLessThan(100_000);
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            assertThat(new PDFTextStripper().getText(document)).contains("Дата: 3 + 4 = 7");
+        }
+    }
+
+    @Test
+    @DisplayName("worksheetFont / covers: без TTF — Helvetica, готового подмножества нет")
+    void worksheetFont_withoutTrueType_usesHelvetica() throws IOException {
+        PdfFontProvider provider = new PdfFontProvider("");
+
+        assertThat(provider.covers("3 + 4")).isFalse();
+        try (PDDocument document = new PDDocument()) {
+            assertThat(provider.worksheetFont(document)).isInstanceOf(PDType1Font.class);
+        }
+    }
+
+    private static byte[] render(PdfFontProvider provider, String text) throws IOException {
+        return render(provider, text, false);
+    }
+
+    private static byte[] render(PdfFontProvider provider, String text, boolean worksheet) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDFont font = worksheet ? provider.worksheetFont(document) : provider.font(document);
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.beginText();
+                content.setFont(font, 12);
+                content.newLineAtOffset(50, 700);
+                content.showText(text);
+                content.endText();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+}
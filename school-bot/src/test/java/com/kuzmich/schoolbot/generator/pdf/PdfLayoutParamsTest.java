@@ -0,0 +1,86 @@
+package com.kuzmich.schoolbot.generator.pdf;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit-тесты {@link PdfLayoutParams}.
+ */
+@DisplayName("PdfLayoutParams")
+class PdfLayoutParamsTest {
+
+    @Test
+    @DisplayName("tasksPerPage: до 50 заданий — одна страница, больше — поровну на минимум страниц")
+    void tasksPerPage_balancesPages() {
+        assertThat(PdfLayoutParams.tasksPerPage(0)).isEqualTo(1);
+        assertThat(PdfLayoutParams.tasksPerPage(30)).isEqualTo(30);
+        assertThat(PdfLayoutParams.tasksPerPage(50)).isEqualTo(50);
+        assertThat(PdfLayoutParams.tasksPerPage(51)).isEqualTo(26);
+        assertThat(PdfLayoutParams.tasksPerPage(120)).isEqualTo(40);
+        assertThat(PdfLayoutParams.tasksPerPage(500)).isEqualTo(50);
+    }
+
+    @Test
+    @DisplayName("forTaskCountA4: полная страница листа помещается над нижним полем с кеглем не меньше 14")
+    void forTaskCount_fitsFullSheetPage() {
+        PdfLayoutParams layout = PdfLayoutParams.forTaskCountA4(PdfLayoutParams.MAX_TASKS_PER_PAGE);
+
+        assertThat(layout.columns() * layout.rows()).isGreaterThanOrEqualTo(PdfLayoutParams.MAX_TASKS_PER_PAGE);
+        assertThat(layout.taskFontSize()).isGreaterThanOrEqualTo(14f);
+        assertThat(layout.rowY(layout.rows() - 1)).isGreaterThanOrEqualTo(layout.marginLeft());
+    }
+
+    @Test
+    @DisplayName("planA4: короткие задания — две колонки с наибольшим кеглем, третья колонка кегль не увеличила бы")
+    void plan_shortTasks_prefersFewerColumnsAtEqualFont() {
+        PdfLayoutParams layout = PdfLayoutParams.planA4(20, 4f);
+
+        assertThat(layout.columns()).isEqualTo(2);
+        assertThat(layout.taskFontSize()).isEqualTo(28f);
+    }
+
+    @Test
+    @DisplayName("planA4: длинные задания — одна колонка и кегль, при котором строка помещается в колонку")
+    void plan_longTasks_fitColumnWidth() {
+        PdfLayoutParams layout = PdfLayoutParams.planA4(20, 30f);
+
+        assertThat(layout.columns()).isEqualTo(1);
+        assertThat(layout.taskFontSize() * 30f).isLessThanOrEqualTo(layout.columnWidth());
+    }
+
+    @Test
+    @DisplayName("planA4: полная страница коротких заданий — три колонки крупнее прежних двух, всё помещается на странице")
+    void plan_fullPage_usesMoreColumnsForLargerFont() {
+        float widthEm = 6.35f;
+        PdfLayoutParams layout = PdfLayoutParams.planA4(PdfLayoutParams.MAX_TASKS_PER_PAGE, widthEm);
+
+        assertThat(layout.columns()).isEqualTo(3);
+        assertThat(layout.taskFontSize())
+                .isGreaterThan(PdfLayoutParams.forTaskCountA4(PdfLayoutParams.MAX_TASKS_PER_PAGE).taskFontSize());
+        assertThat(layout.columns() * layout.rows()).isGreaterThanOrEqualTo(PdfLayoutParams.MAX_TASKS_PER_PAGE);
+        assertThat(layout.rowY(layout.rows() - 1)).isGreaterThanOrEqualTo(layout.marginLeft());
+        float lastColumnRight = layout.columnX(layout.columns() - 1) + layout.columnWidth();
+        assertThat(lastColumnRight).isLessThanOrEqualTo(layout.pageWidth() - layout.marginLeft() + 0.01f);
+        assertThat(layout.taskFontSize() * widthEm).isLessThanOrEqualTo(layout.columnWidth());
+    }
+
+    @Test
+    @DisplayName("planA4: много длинных заданий на странице — кегль ниже 10 по высоте, строки не уходят за нижнее поле")
+    void plan_manyLongTasks_staysWithinPageHeight() {
+        PdfLayoutParams layout = PdfLayoutParams.planA4(400, 30f);
+
+        assertThat(layout.taskFontSize()).isLessThan(10f);
+        assertThat(layout.columns() * layout.rows()).isGreaterThanOrEqualTo(400);
+        assertThat(layout.rowY(layout.rows() - 1)).isGreaterThanOrEqualTo(layout.marginLeft());
+    }
+
+    @Test
+    @DisplayName("planA4: план запоминается по классу ширины — близкие ширины получают тот же экземпляр")
+    void plan_isMemoizedPerWidthClass() {
+        assertThat(PdfLayoutParams.widthClass(4.1f)).isEqualTo(PdfLayoutParams.widthClass(4.2f));
+        assertThat(PdfLayoutParams.planA4(33, 4.1f)).isSameAs(PdfLayoutParams.planA4(33, 4.2f));
+        assertThat(PdfLayoutParams.planA4(33, 4.1f)).isNotSameAs(PdfLayoutParams.planA4(33, 9f));
+    }
+}
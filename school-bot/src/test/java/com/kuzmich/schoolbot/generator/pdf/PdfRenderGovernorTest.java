@@ -0,0 +1,68 @@
+package com.kuzmich.schoolbot.generator.pdf;
+
+import com.kuzmich.schoolbot.generator.service.PdfRenderBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit-тесты {@link PdfRenderGovernor}.
+ */
+@DisplayName("PdfRenderGovernor")
+class PdfRenderGovernorTest {
+
+    private static final long MB = 1L << 20;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PdfRenderGovernor governor = new PdfRenderGovernor(registry, 8 * MB, 2 * MB, Duration.ZERO);
+
+    @Test
+    @DisplayName("acquire: документы в пределах бюджета идут параллельно, бюджет возвращается при close")
+    void acquire_sharesBudgetAndReleasesOnClose() {
+        try (PdfRenderGovernor.Permit first = governor.acquire(3 * MB);
+             PdfRenderGovernor.Permit second = governor.acquire(3 * MB)) {
+            assertThat(governor.usedBytes()).isEqualTo(6 * MB);
+            assertThat(registry.get("schoolbot.pdf.render.budget.used").gauge().value()).isEqualTo(6.0 * MB);
+        }
+
+        assertThat(governor.usedBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("acquire: исчерпанный бюджет — PdfRenderBusyException и счётчик отказов")
+    void acquire_rejectsWhenBudgetExhausted() {
+        try (PdfRenderGovernor.Permit ignored = governor.acquire(6 * MB)) {
+            assertThatThrownBy(() -> governor.acquire(3 * MB)).isInstanceOf(PdfRenderBusyException.class);
+        }
+
+        assertThat(registry.get("schoolbot.pdf.render.rejected").counter().count()).isEqualTo(1.0);
+        assertThat(governor.usedBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("acquire: документ больше бюджета занимает весь бюджет, а не отклоняется навсегда")
+    void acquire_clampsOversizedDocumentToWholeBudget() {
+        PdfRenderGovernor.Permit permit = governor.acquire(100 * MB);
+        assertThat(governor.usedBytes()).isEqualTo(8 * MB);
+
+        permit.close();
+        permit.close();
+
+        assertThat(governor.usedBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("estimateBytes: растёт с числом заданий и страниц")
+    void estimateBytes_growsWithTasksAndPages() {
+        long sheet = PdfRenderGovernor.estimateBytes(20, 1);
+        long bigSheet = PdfRenderGovernor.estimateBytes(500, 10);
+
+        assertThat(sheet).isGreaterThan(PdfRenderGovernor.BASE_DOCUMENT_BYTES);
+        assertThat(bigSheet).isGreaterThan(sheet);
+    }
+}
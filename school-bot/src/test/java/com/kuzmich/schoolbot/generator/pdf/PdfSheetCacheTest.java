@@ -0,0 +1,147 @@
+package com.kuzmich.schoolbot.generator.pdf;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit-тесты {@link PdfSheetCache}.
+ */
+@DisplayName("PdfSheetCache")
+class PdfSheetCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @Test
+    @DisplayName("getOrRender: повторный запрос того же листа отдаётся из кэша без отрисовки, метрики считают попадание")
+    void getOrRender_servesRepeatFromCache() throws IOException {
+        PdfSheetCache cache = new PdfSheetCache(registry, true, directory, 1 << 20);
+
+        byte[] first = read(cache.getOrRender("sheet-a", renderer(100)));
+        byte[] second = read(cache.getOrRender("sheet-a", renderer(100)));
+
+        assertThat(renders).hasValue(1);
+        assertThat(second).isEqualTo(first).hasSize(100);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.usedBytes()).isEqualTo(100);
+        assertThat(registry.get("schoolbot.pdf.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("schoolbot.pdf.cache.requests").tag("result", "miss").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("schoolbot.pdf.cache.saved").counter().count()).isEqualTo(100.0);
+    }
+
+    @Test
+    @DisplayName("getOrRender: file_id после загрузки отдаётся при следующих попаданиях")
+    void getOrRender_remembersTelegramFileId() throws IOException {
+        PdfSheetCache cache = new PdfSheetCache(registry, true, directory, 1 << 20);
+
+        try (RenderedPdf first = cache.getOrRender("sheet-a", renderer(10))) {
+            assertThat(first.telegramFileId()).isNull();
+            first.uploaded("file-1");
+        }
+        try (RenderedPdf second = cache.getOrRender("sheet-a", renderer(10))) {
+            assertThat(second.telegramFileId()).isEqualTo("file-1");
+        }
+
+        assertThat(registry.get("schoolbot.pdf.cache.uploads.skipped").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("getOrRender: при превышении размера вытесняется давно не запрошенный лист")
+    void getOrRender_evictsLeastRecentlyUsed() throws IOException {
+        PdfSheetCache cache = new PdfSheetCache(registry, true, directory, 250);
+
+        read(cache.getOrRender("a", renderer(100)));
+        read(cache.getOrRender("b", renderer(100)));
+        read(cache.getOrRender("a", renderer(100)));
+        read(cache.getOrRender("c", renderer(100)));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.usedBytes()).isEqualTo(200);
+        read(cache.getOrRender("a", renderer(100)));
+        assertThat(renders).hasValue(3);
+        read(cache.getOrRender("b", renderer(100)));
+        assertThat(renders).hasValue(4);
+    }
+
+    @Test
+    @DisplayName("getOrRender: попадание отдаётся файлом, который остаётся читаемым после вытеснения записи")
+    void getOrRender_servesFileThatSurvivesEviction() throws IOException {
+        PdfSheetCache cache = new PdfSheetCache(registry, true, directory, 150);
+        read(cache.getOrRender("a", renderer(100)));
+
+        try (RenderedPdf hit = cache.getOrRender("a", renderer(100))) {
+            assertThat(hit.file()).isNotNull().exists();
+            read(cache.getOrRender("b", renderer(100)));
+
+            assertThat(cache.size()).isEqualTo(1);
+            assertThat(Files.readAllBytes(hit.file())).hasSize(100);
+        }
+        assertThat(renders).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("конструктор: листы с прошлого запуска поднимаются с диска, недописанные файлы удаляются")
+    void constructor_restoresEntriesFromDirectory() throws IOException {
+        PdfSheetCache before = new PdfSheetCache(registry, true, directory, 1 << 20);
+        read(before.getOrRender("sheet-a", renderer(50)));
+        Path leftover = Files.createFile(directory.resolve("partial.tmp"));
+
+        PdfSheetCache after = new PdfSheetCache(new SimpleMeterRegistry(), true, directory, 1 << 20);
+
+        assertThat(after.size()).isEqualTo(1);
+        assertThat(read(after.getOrRender("sheet-a", renderer(50)))).hasSize(50);
+        assertThat(renders).hasValue(1);
+        assertThat(leftover).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("getOrRender: выключенный кэш отрисовывает каждый раз и ничего не пишет на диск")
+    void getOrRender_disabledRendersEveryTime() throws IOException {
+        PdfSheetCache cache = new PdfSheetCache(registry, false, directory, 1 << 20);
+
+        read(cache.getOrRender("sheet-a", renderer(10)));
+        read(cache.getOrRender("sheet-a", renderer(10)));
+
+        assertThat(renders).hasValue(2);
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    /** Отрисовка-заглушка: временный файл из {@code size} байт, зависящих только от размера. */
+    private Supplier<RenderedPdf> renderer(int size) {
+        return () -> {
+            renders.incrementAndGet();
+            byte[] content = new byte[size];
+            for (int i = 0; i < size; i++) {
+                content[i] = (byte) i;
+            }
+            try {
+                return RenderedPdf.onDisk(Files.write(Files.createTempFile("schoolbot-test-", ".pdf"), content));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static byte[] read(RenderedPdf pdf) throws IOException {
+        try (pdf; InputStream in = pdf.openStream()) {
+            return in.readAllBytes();
+        }
+    }
+}
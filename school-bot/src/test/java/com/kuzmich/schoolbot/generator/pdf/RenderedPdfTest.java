@@ -0,0 +1,54 @@
+package com.kuzmich.schoolbot.generator.pdf;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit-тесты {@link RenderedPdf}.
+ */
+@DisplayName("RenderedPdf")
+class RenderedPdfTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("onDisk: документ читается из файла, close удаляет файл, после close чтение запрещено")
+    void onDisk_deletesFileOnClose() throws IOException {
+        Path file = Files.write(directory.resolve("sheet.pdf"), new byte[]{4, 5});
+
+        RenderedPdf pdf = RenderedPdf.onDisk(file);
+        assertThat(pdf.size()).isEqualTo(2);
+        assertThat(pdf.file()).isEqualTo(file);
+        try (var in = pdf.openStream()) {
+            assertThat(in.readAllBytes()).containsExactly(4, 5);
+        }
+
+        pdf.close();
+        pdf.close();
+
+        assertThat(file).doesNotExist();
+        assertThatThrownBy(pdf::openStream).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("toByteArray: копия не зависит от файла, который удаляется при close")
+    void toByteArray_copiesContent() throws IOException {
+        Path file = Files.write(directory.resolve("sheet.pdf"), new byte[]{7, 8});
+        byte[] copy;
+        try (RenderedPdf pdf = RenderedPdf.onDisk(file)) {
+            copy = pdf.toByteArray();
+        }
+
+        assertThat(file).doesNotExist();
+        assertThat(copy).containsExactly(7, 8);
+    }
+}
@@ -0,0 +1,524 @@
+package com.kuzmich.schoolbot.generator.service;
+
+import com.kuzmich.schoolbot.core.premium.AccessCheckResult;
+import com.kuzmich.schoolbot.core.premium.FeatureAccessService;
+import com.kuzmich.schoolbot.core.validation.ValidationException;
+import com.kuzmich.schoolbot.generator.GeneratorFactory;
+import com.kuzmich.schoolbot.generator.MixedContext;
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.generator.Range;
+import com.kuzmich.schoolbot.generator.RecentTaskFilter;
+import com.kuzmich.schoolbot.generator.Task;
+import com.kuzmich.schoolbot.generator.TaskGenerator;
+import com.kuzmich.schoolbot.generator.pdf.PDFService;
+import com.kuzmich.schoolbot.generator.pdf.PdfSheetCache;
+import com.kuzmich.schoolbot.generator.pdf.RenderedPdf;
+import com.kuzmich.schoolbot.history.TaskHistoryService;
+import com.kuzmich.schoolbot.subscription.Feature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit-тесты {@link PdfGenerationService}: пул готовых листов, история недавних заданий, смешанный лист,
+ * пакет вариантов на класс, потоковая тетрадь.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PdfGenerationService")
+class PdfGenerationServiceTest {
+
+    private static final Long USER_ID = 42L;
+    /** Заданий сложения до 10, которые генератор выдаёт при любом сиде (maxTasks). */
+    private static final int ADDITION_10_TASKS = 46;
+
+    @Mock
+    private GeneratorFactory generatorFactory;
+    @Mock
+    private FeatureAccessService featureAccessService;
+    @Mock
+    private PDFService pdfService;
+    @Mock
+    private TaskGenerator generator;
+    @Mock
+    private TaskPool taskPool;
+    @Mock
+    private TaskHistoryService taskHistoryService;
+    @Mock
+    private PdfSheetCache sheetCache;
+
+    @Captor
+    private ArgumentCaptor<List<List<Task>>> variantsCaptor;
+
+    private PdfGenerationService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PdfGenerationService(generatorFactory, featureAccessService, pdfService, taskPool,
+                taskHistoryService, sheetCache);
+    }
+
+    @Test
+    @DisplayName("renderArithmeticPdf: без сида берёт готовый лист из пула и не генерирует на месте")
+    void renderArithmeticPdf_usesPooledBatch() {
+        List<Task> pooled = tasks("p", 20);
+        when(featureAccessService.checkAccess(USER_ID, Feature.PDF_GENERATION, 1))
+                .thenReturn(AccessCheckResult.allowed(null));
+        when(taskPool.poll(OperationType.ADDITION_10, 20)).thenReturn(Optional.of(new TaskPool.Batch(11L, pooled)));
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+        RenderedPdf rendered = mock(RenderedPdf.class);
+        when(pdfService.render(pooled, "Лист", false)).thenReturn(rendered);
+
+        RenderedPdf pdf = service.renderArithmeticPdf(USER_ID, OperationType.ADDITION_10, 20, "Лист", null, false);
+
+        assertThat(pdf).isSameAs(rendered);
+        verify(generator, never()).generate(any());
+        verify(featureAccessService).incrementUsage(USER_ID, Feature.PDF_GENERATION, 1);
+    }
+
+    @Test
+    @DisplayName("renderArithmeticPdf: при пустом пуле генерирует лист на месте")
+    void renderArithmeticPdf_fallsBackWhenPoolEmpty() {
+        when(featureAccessService.checkAccess(USER_ID, Feature.PDF_GENERATION, 1))
+                .thenReturn(AccessCheckResult.allowed(null));
+        when(taskPool.poll(OperationType.ADDITION_10, 20)).thenReturn(Optional.empty());
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+        when(generator.generate(argThat(ctx -> ctx != null && ctx.getQuantity() == 20))).thenReturn(tasks("t", 20));
+
+        service.renderArithmeticPdf(USER_ID, OperationType.ADDITION_10, 20, "Лист", null, false);
+
+        verify(pdfService).render(argThat(list -> list != null && list.size() == 20), eq("Лист"), eq(false));
+    }
+
+    @Test
+    @DisplayName("renderArithmeticPdf: при непустой истории и неподходящем листе пула генерирует на месте с учётом истории")
+    void renderArithmeticPdf_usesHistoryWhenPoolHasNoFreshBatch() {
+        RecentTaskFilter history = RecentTaskFilter.empty();
+        history.add("3 + 4 = ");
+        List<Task> generated = tasks("t", 20);
+        when(featureAccessService.checkAccess(USER_ID, Feature.PDF_GENERATION, 1))
+                .thenReturn(AccessCheckResult.allowed(null));
+        when(taskHistoryService.load(USER_ID, OperationType.ADDITION_10)).thenReturn(history);
+        when(taskPool.poll(eq(OperationType.ADDITION_10), eq(20), any())).thenReturn(Optional.empty());
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+        when(generator.generate(argThat(ctx -> ctx != null && ctx.getRecentTasks() == history))).thenReturn(generated);
+
+        service.renderArithmeticPdf(USER_ID, OperationType.ADDITION_10, 20, "Лист", null, false);
+
+        verify(taskHistoryService).record(USER_ID, OperationType.ADDITION_10, history, generated);
+    }
+
+    @Test
+    @DisplayName("renderArithmeticPdf: вернувшийся пользователь получает лист из пула, если видел мало его заданий")
+    void renderArithmeticPdf_returningUserGetsPooledBatch() {
+        List<Task> pooled = tasks("p", 20);
+        RecentTaskFilter history = RecentTaskFilter.empty();
+        history.add("p3");
+        history.add("old task");
+        when(featureAccessService.checkAccess(USER_ID, Feature.PDF_GENERATION, 1))
+                .thenReturn(AccessCheckResult.allowed(null));
+        when(taskHistoryService.load(USER_ID, OperationType.ADDITION_10)).thenReturn(history);
+        when(taskPool.poll(eq(OperationType.ADDITION_10), eq(20), any())).thenAnswer(invocation -> {
+            TaskPool.Batch batch = new TaskPool.Batch(11L, pooled);
+            return invocation.<Predicate<TaskPool.Batch>>getArgument(2).test(batch)
+                    ? Optional.of(batch)
+                    : Optional.empty();
+        });
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+        RenderedPdf rendered = mock(RenderedPdf.class);
+        when(pdfService.render(pooled, "Лист", false)).thenReturn(rendered);
+
+        RenderedPdf pdf = service.renderArithmeticPdf(USER_ID, OperationType.ADDITION_10, 20, "Лист", null, false);
+
+        assertThat(pdf).isSameAs(rendered);
+        verify(generator, never()).generate(any());
+        verify(taskHistoryService).record(USER_ID, OperationType.ADDITION_10, history, pooled);
+    }
+
+    @Test
+    @DisplayName("mostlyUnseen: лист подходит, пока виденных заданий не больше доли MAX_POOLED_SEEN_SHARE")
+    void mostlyUnseen_allowsSmallShareOfSeenTasks() {
+        List<Task> sheet = tasks("p", 20);
+        RecentTaskFilter history = RecentTaskFilter.empty();
+        history.add("p0");
+        history.add("p1");
+
+        assertThat(PdfGenerationService.mostlyUnseen(sheet, history)).isTrue();
+
+        history.add("p2");
+        assertThat(PdfGenerationService.mostlyUnseen(sheet, history)).isFalse();
+    }
+
+    @Test
+    @DisplayName("renderArithmeticPdf: с сидом пул не используется — лист должен воспроизводиться")
+    void renderArithmeticPdf_bypassesPoolWithSeed() {
+        when(featureAccessService.checkAccess(USER_ID, Feature.PDF_GENERATION, 1))
+                .thenReturn(AccessCheckResult.allowed(null));
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+        when(generator.generate(argThat(ctx -> ctx != null && Long.valueOf(3L).equals(ctx.getSeed()))))
+                .thenReturn(tasks("t", 20));
+
+        when(sheetCache.getOrRender(any(), any())).thenReturn(mock(RenderedPdf.class));
+
+        service.renderArithmeticPdf(USER_ID, OperationType.ADDITION_10, 20, "Лист", 3L, false);
+
+        verifyNoInteractions(taskPool);
+    }
+
+    @Test
+    @DisplayName("renderArithmeticPdf: заданий больше, чем в домене операции, — отказ без генерации и списания квоты")
+    void renderArithmeticPdf_rejectsQuantityAboveOperationDomain() {
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+
+        assertThatThrownBy(() -> service.renderArithmeticPdf(USER_ID, OperationType.ADDITION_10,
+                ADDITION_10_TASKS + 1, "Лист", null, false))
+                .isInstanceOf(ValidationException.class);
+        verify(generator, never()).generate(any());
+        verifyNoInteractions(featureAccessService, taskPool, pdfService);
+    }
+
+    @Test
+    @DisplayName("maxSheetQuantity: домен операции, но не больше общего предела листа")
+    void maxSheetQuantity_isOperationDomainCappedBySheetLimit() {
+        TaskGenerator unbounded = mock(TaskGenerator.class);
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generatorFactory.getGenerator(OperationType.NUMBER_COMPOSITION_10)).thenReturn(unbounded);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+        when(unbounded.maxTasks(any())).thenReturn(Integer.MAX_VALUE);
+
+        assertThat(service.maxSheetQuantity(OperationType.ADDITION_10)).isEqualTo(ADDITION_10_TASKS);
+        assertThat(service.maxSheetQuantity(OperationType.NUMBER_COMPOSITION_10))
+                .isEqualTo(PdfGenerationService.MAX_SHEET_QUANTITY);
+    }
+
+    @Test
+    @DisplayName("renderArithmeticPdf: лист с сидом берётся из кэша по каноническому ключу, квота списывается")
+    void renderArithmeticPdf_withSeed_goesThroughSheetCache() {
+        RenderedPdf cached = mock(RenderedPdf.class);
+        when(featureAccessService.checkAccess(USER_ID, Feature.PDF_GENERATION, 1))
+                .thenReturn(AccessCheckResult.allowed(null));
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+        when(generator.generate(any())).thenReturn(tasks("t", 20));
+        String expectedKey = PdfGenerationService.sheetCacheKey(OperationType.ADDITION_10, 20, 3L, true,
+                LocalDate.now(), "Лист");
+        when(sheetCache.getOrRender(eq(expectedKey), any())).thenReturn(cached);
+
+        RenderedPdf pdf = service.renderArithmeticPdf(USER_ID, OperationType.ADDITION_10, 20, "Лист", 3L, true);
+
+        assertThat(pdf).isSameAs(cached);
+        verify(pdfService, never()).render(any(), any(), anyBoolean(), any());
+        verify(featureAccessService).incrementUsage(USER_ID, Feature.PDF_GENERATION, 1);
+        // Лист из кэша пережил рестарт, задания — нет: они генерируются по сиду один раз, для истории
+        verify(generator, times(1)).generate(any());
+        verify(taskHistoryService).record(eq(USER_ID), eq(OperationType.ADDITION_10), any(), eq(tasks("t", 20)));
+    }
+
+    @Test
+    @DisplayName("renderArithmeticPdf: при промахе кэша лист с сидом генерируется один раз — и для PDF, и для истории")
+    void renderArithmeticPdf_withSeed_cacheMissGeneratesOnce() {
+        List<Task> generated = tasks("t", 20);
+        RenderedPdf rendered = mock(RenderedPdf.class);
+        when(featureAccessService.checkAccess(USER_ID, Feature.PDF_GENERATION, 1))
+                .thenReturn(AccessCheckResult.allowed(null));
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+        when(generator.generate(any())).thenReturn(generated);
+        when(sheetCache.getOrRender(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<RenderedPdf>>getArgument(1).get());
+        when(pdfService.render(eq(generated), eq("Лист"), eq(false), any())).thenReturn(rendered);
+
+        RenderedPdf pdf = service.renderArithmeticPdf(USER_ID, OperationType.ADDITION_10, 20, "Лист", 5L, false);
+
+        assertThat(pdf).isSameAs(rendered);
+        verify(generator, times(1)).generate(argThat(context -> Long.valueOf(5L).equals(context.getSeed())));
+        verify(taskHistoryService).record(eq(USER_ID), eq(OperationType.ADDITION_10), any(), eq(generated));
+    }
+
+    @Test
+    @DisplayName("renderArithmeticPdf: лист без сида не воспроизводим и в кэш не попадает")
+    void renderArithmeticPdf_withoutSeed_bypassesSheetCache() {
+        List<Task> pooled = tasks("p", 20);
+        RenderedPdf rendered = mock(RenderedPdf.class);
+        when(featureAccessService.checkAccess(USER_ID, Feature.PDF_GENERATION, 1))
+                .thenReturn(AccessCheckResult.allowed(null));
+        when(taskPool.poll(OperationType.ADDITION_10, 20)).thenReturn(Optional.of(new TaskPool.Batch(11L, pooled)));
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+        when(pdfService.render(pooled, "Лист", false)).thenReturn(rendered);
+
+        RenderedPdf pdf = service.renderArithmeticPdf(USER_ID, OperationType.ADDITION_10, 20, "Лист", null, false);
+
+        assertThat(pdf).isSameAs(rendered);
+        verifyNoInteractions(sheetCache);
+    }
+
+    @Test
+    @DisplayName("renderHomeworkOfTheDay: у всех пользователей в один день один сид и один ключ кэша, лист генерируется один раз")
+    void renderHomeworkOfTheDay_sharesSeedAndCacheKeyAcrossUsers() {
+        RenderedPdf cached = mock(RenderedPdf.class);
+        LocalDate today = LocalDate.now();
+        long seed = PdfGenerationService.homeworkSeed(OperationType.ADDITION_10, 20, today);
+        when(featureAccessService.checkAccess(any(), eq(Feature.PDF_GENERATION), eq(1)))
+                .thenReturn(AccessCheckResult.allowed(null));
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+        when(generator.generate(any())).thenReturn(tasks("t", 20));
+        String expectedKey = PdfGenerationService.sheetCacheKey(OperationType.ADDITION_10, 20, seed, false,
+                today, "Лист");
+        when(sheetCache.getOrRender(eq(expectedKey), any())).thenReturn(cached);
+
+        RenderedPdf first = service.renderHomeworkOfTheDay(USER_ID, OperationType.ADDITION_10, 20, "Лист");
+        RenderedPdf second = service.renderHomeworkOfTheDay(USER_ID + 1, OperationType.ADDITION_10, 20, "Лист");
+
+        assertThat(first).isSameAs(cached);
+        assertThat(second).isSameAs(cached);
+        // Задания листа генерируются один раз; второй пользователь получает лист из кэша без генерации
+        verify(generator, times(1)).generate(argThat(context -> Long.valueOf(seed).equals(context.getSeed())));
+        verify(featureAccessService, times(2)).incrementUsage(any(), eq(Feature.PDF_GENERATION), eq(1));
+        verify(taskHistoryService).record(eq(USER_ID), eq(OperationType.ADDITION_10), any(), eq(tasks("t", 20)));
+        verify(taskHistoryService).record(eq(USER_ID + 1), eq(OperationType.ADDITION_10), any(), eq(tasks("t", 20)));
+        verifyNoInteractions(taskPool);
+    }
+
+    @Test
+    @DisplayName("homeworkSeed: зависит от даты, операции и количества")
+    void homeworkSeed_changesWithDateOperationAndQuantity() {
+        LocalDate day = LocalDate.of(2026, 9, 1);
+        long seed = PdfGenerationService.homeworkSeed(OperationType.ADDITION_10, 20, day);
+
+        assertThat(PdfGenerationService.homeworkSeed(OperationType.ADDITION_10, 20, day)).isEqualTo(seed);
+        assertThat(PdfGenerationService.homeworkSeed(OperationType.ADDITION_10, 20, day.plusDays(1))).isNotEqualTo(seed);
+        assertThat(PdfGenerationService.homeworkSeed(OperationType.SUBTRACTION_10, 20, day)).isNotEqualTo(seed);
+        assertThat(PdfGenerationService.homeworkSeed(OperationType.ADDITION_10, 30, day)).isNotEqualTo(seed);
+    }
+
+    @Test
+    @DisplayName("generateClassPack: раздаёт общий список по вариантам по кругу без повторов и списывает квоту один раз")
+    void generateClassPack_dealsSharedListAndChargesOnce() {
+        when(featureAccessService.checkAccess(USER_ID, Feature.PDF_GENERATION, 3))
+                .thenReturn(AccessCheckResult.allowed(null));
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+        when(generator.generate(argThat(ctx -> ctx != null && ctx.getQuantity() == 30))).thenReturn(tasks("t", 30));
+        RenderedPdf rendered = mock(RenderedPdf.class);
+        when(pdfService.generateVariants(any(), eq("Лист"))).thenReturn(rendered);
+
+        RenderedPdf pdf = service.generateClassPack(USER_ID, OperationType.ADDITION_10, 10, 3, "Лист", 7L);
+
+        assertThat(pdf).isSameAs(rendered);
+        verify(pdfService).generateVariants(variantsCaptor.capture(), eq("Лист"));
+        List<List<Task>> variants = variantsCaptor.getValue();
+        assertThat(variants).hasSize(3).allSatisfy(v -> assertThat(v).hasSize(10));
+        assertThat(variants.stream().flatMap(List::stream).map(Task::question)).doesNotHaveDuplicates();
+        verify(featureAccessService).incrementUsage(USER_ID, Feature.PDF_GENERATION, 3);
+    }
+
+    @Test
+    @DisplayName("generateClassPack: варианты одинаково трудные — каждому достаётся равная доля начала общего списка")
+    void generateClassPack_variantsShareStrictTasksEqually() {
+        // Ядро выдаёт задания строгого уровня первыми: здесь «strict» — первые 9 из 30
+        List<Task> shared = IntStream.range(0, 30)
+                .mapToObj(i -> new Task((i < 9 ? "strict" : "relaxed") + i, String.valueOf(i)))
+                .toList();
+        when(featureAccessService.checkAccess(USER_ID, Feature.PDF_GENERATION, 3))
+                .thenReturn(AccessCheckResult.allowed(null));
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+        when(generator.generate(argThat(ctx -> ctx != null && ctx.getQuantity() == 30))).thenReturn(shared);
+
+        service.generateClassPack(USER_ID, OperationType.ADDITION_10, 10, 3, "Лист", 7L);
+
+        verify(pdfService).generateVariants(variantsCaptor.capture(), eq("Лист"));
+        List<List<Task>> variants = variantsCaptor.getValue();
+        assertThat(variants).allSatisfy(v -> assertThat(v)
+                .filteredOn(t -> t.question().startsWith("strict")).hasSize(3));
+        assertThat(variants.get(1)).extracting(Task::question).startsWith("strict1", "strict4", "strict7");
+    }
+
+    @Test
+    @DisplayName("generateClassPack: при исчерпании домена добирает варианты отдельной генерацией")
+    void generateClassPack_generatesMissingVariantsSeparately() {
+        when(featureAccessService.checkAccess(USER_ID, Feature.PDF_GENERATION, 3))
+                .thenReturn(AccessCheckResult.allowed(null));
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+        when(generator.generate(argThat(ctx -> ctx != null && ctx.getQuantity() == 30))).thenReturn(tasks("t", 15));
+        when(generator.generate(argThat(ctx -> ctx != null && ctx.getQuantity() == 10))).thenReturn(tasks("extra", 10));
+
+        service.generateClassPack(USER_ID, OperationType.ADDITION_10, 10, 3, "Лист", 7L);
+
+        verify(pdfService).generateVariants(variantsCaptor.capture(), eq("Лист"));
+        List<List<Task>> variants = variantsCaptor.getValue();
+        assertThat(variants.get(0)).extracting(Task::question).startsWith("t0");
+        assertThat(variants.get(1)).extracting(Task::question).startsWith("extra0");
+        assertThat(variants.get(2)).hasSize(10);
+    }
+
+    @Test
+    @DisplayName("generateClassPack: повторы из добивки общего списка не раздаются — недостающие варианты генерируются отдельно")
+    void generateClassPack_doesNotDealPaddedRepeats() {
+        // Операция с добивкой повторами: 15 уникальных заданий, дальше повторы до 30
+        List<Task> padded = new ArrayList<>(tasks("t", 15));
+        padded.addAll(tasks("t", 15));
+        when(featureAccessService.checkAccess(USER_ID, Feature.PDF_GENERATION, 3))
+                .thenReturn(AccessCheckResult.allowed(null));
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+        when(generator.generate(argThat(ctx -> ctx != null && ctx.getQuantity() == 30))).thenReturn(padded);
+        when(generator.generate(argThat(ctx -> ctx != null && ctx.getQuantity() == 10))).thenReturn(tasks("extra", 10));
+
+        service.generateClassPack(USER_ID, OperationType.ADDITION_10, 10, 3, "Лист", 7L);
+
+        verify(pdfService).generateVariants(variantsCaptor.capture(), eq("Лист"));
+        List<List<Task>> variants = variantsCaptor.getValue();
+        assertThat(variants.get(0)).extracting(Task::question).doesNotHaveDuplicates().startsWith("t0");
+        assertThat(variants.get(1)).extracting(Task::question).startsWith("extra0");
+        assertThat(variants.get(2)).extracting(Task::question).startsWith("extra0");
+    }
+
+    @Test
+    @DisplayName("generateClassPack: при отказе в доступе ничего не генерирует и не списывает")
+    void generateClassPack_throwsWhenAccessDenied() {
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+        when(featureAccessService.checkAccess(USER_ID, Feature.PDF_GENERATION, 30))
+                .thenReturn(AccessCheckResult.denied("Лимит"));
+
+        assertThatThrownBy(() -> service.generateClassPack(USER_ID, OperationType.ADDITION_10, 10, 30, "Лист", null))
+                .isInstanceOf(PdfGenerationAccessException.class)
+                .hasMessage("Лимит");
+        verify(generator, never()).generate(any());
+        verifyNoInteractions(pdfService);
+        verify(featureAccessService, never()).incrementUsage(any(), any(), eq(30));
+    }
+
+    @Test
+    @DisplayName("generateClassPack: число вариантов ограничено")
+    void generateClassPack_rejectsTooManyVariants() {
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+        assertThatThrownBy(() -> service.generateClassPack(USER_ID, OperationType.ADDITION_10, 10,
+                PdfGenerationService.MAX_CLASS_PACK_VARIANTS + 1, "Лист", null))
+                .isInstanceOf(ValidationException.class);
+        verifyNoInteractions(featureAccessService);
+    }
+
+    @Test
+    @DisplayName("generateClassPack: количество заданий в варианте — от 1 до предела листа операции")
+    void generateClassPack_rejectsQuantityOutOfRange() {
+        when(generatorFactory.getGenerator(OperationType.ADDITION_10)).thenReturn(generator);
+        when(generator.maxTasks(any())).thenReturn(ADDITION_10_TASKS);
+
+        assertThatThrownBy(() -> service.generateClassPack(USER_ID, OperationType.ADDITION_10, 0, 3, "Лист", null))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> service.generateClassPack(USER_ID, OperationType.ADDITION_10,
+                ADDITION_10_TASKS + 1, 3, "Лист", null))
+                .isInstanceOf(ValidationException.class);
+        verify(generator, never()).generate(any());
+        verifyNoInteractions(featureAccessService, pdfService);
+    }
+
+    @Test
+    @DisplayName("generateMixedPdf: один документ со всеми частями в пропорциях и параметрах по умолчанию")
+    void generateMixedPdf_rendersSingleDocument() {
+        List<Task> sheet = tasks("m", 15);
+        when(featureAccessService.checkAccess(USER_ID, Feature.PDF_GENERATION, 1))
+                .thenReturn(AccessCheckResult.allowed(null));
+        when(generatorFactory.generateMixed(argThat(ctx -> ctx != null && ctx.getQuantity() == 15
+                && ctx.getParts().equals(List.of(
+                new MixedContext.Part(OperationType.ADDITION_10, 2, new Range(0, 10), null),
+                new MixedContext.Part(OperationType.ADDITION_20_NO_CARRY, 1, new Range(0, 20), Boolean.TRUE))))))
+                .thenReturn(sheet);
+        RenderedPdf rendered = mock(RenderedPdf.class);
+        when(pdfService.render(sheet, "Смешанный", false)).thenReturn(rendered);
+        Map<OperationType, Integer> proportions = new LinkedHashMap<>();
+        proportions.put(OperationType.ADDITION_10, 2);
+        proportions.put(OperationType.ADDITION_20_NO_CARRY, 1);
+
+        RenderedPdf pdf = service.generateMixedPdf(USER_ID, proportions, 15, "Смешанный", 9L);
+
+        assertThat(pdf).isSameAs(rendered);
+        verify(featureAccessService).incrementUsage(USER_ID, Feature.PDF_GENERATION, 1);
+    }
+
+    @Test
+    @DisplayName("generateMixedPdf: количество заданий — от 1 до MAX_SHEET_QUANTITY")
+    void generateMixedPdf_rejectsQuantityOutOfRange() {
+        Map<OperationType, Integer> proportions = Map.of(OperationType.ADDITION_10, 1);
+
+        assertThatThrownBy(() -> service.generateMixedPdf(USER_ID, proportions, 0, "Смешанный", null))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> service.generateMixedPdf(USER_ID, proportions,
+                PdfGenerationService.MAX_SHEET_QUANTITY + 1, "Смешанный", null))
+                .isInstanceOf(ValidationException.class);
+        verifyNoInteractions(featureAccessService, generatorFactory, pdfService);
+    }
+
+    @Test
+    @DisplayName("writeWorkbook: передаёт генератор в потоковую отрисовку и списывает одну генерацию")
+    void writeWorkbook_streamsAndChargesOnce() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(featureAccessService.checkAccess(USER_ID, Feature.PDF_GENERATION, 1))
+                .thenReturn(AccessCheckResult.allowed(null));
+        when(generatorFactory.getGenerator(OperationType.ADDITION_20_NO_CARRY)).thenReturn(generator);
+        when(pdfService.generateStreaming(eq(generator),
+                argThat(ctx -> ctx != null && ctx.getQuantity() == 1000 && Long.valueOf(5L).equals(ctx.getSeed())),
+                eq("Тетрадь"), eq(out)))
+                .thenReturn(190);
+
+        int written = service.writeWorkbook(USER_ID, OperationType.ADDITION_20_NO_CARRY, 1000, "Тетрадь", 5L, out);
+
+        assertThat(written).isEqualTo(190);
+        verify(featureAccessService).incrementUsage(USER_ID, Feature.PDF_GENERATION, 1);
+    }
+
+    @Test
+    @DisplayName("writeWorkbook: размер тетради ограничен")
+    void writeWorkbook_rejectsTooLargeQuantity() {
+        assertThatThrownBy(() -> service.writeWorkbook(USER_ID, OperationType.ADDITION_10,
+                PdfGenerationService.MAX_WORKBOOK_QUANTITY + 1, "Тетрадь", null, new ByteArrayOutputStream()))
+                .isInstanceOf(ValidationException.class);
+        verifyNoInteractions(featureAccessService, pdfService);
+    }
+
+    private static List<Task> tasks(String prefix, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Task(prefix + i, String.valueOf(i)))
+                .toList();
+    }
+}
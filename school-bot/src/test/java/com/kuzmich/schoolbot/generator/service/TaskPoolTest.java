@@ -0,0 +1,142 @@
+package com.kuzmich.schoolbot.generator.service;
+
+import com.kuzmich.schoolbot.generator.GenerationContext;
+import com.kuzmich.schoolbot.generator.GeneratorFactory;
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.generator.Task;
+import com.kuzmich.schoolbot.generator.TaskGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit-тесты {@link TaskPool}: пополнение буферов, лимиты и метрики.
+ * Фоновый поток подменён списком: пополнение выполняется только явным вызовом {@code refill()}.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("TaskPool")
+class TaskPoolTest {
+
+    @Mock
+    private GeneratorFactory generatorFactory;
+    @Mock
+    private TaskGenerator generator;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<Runnable> scheduled = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(generatorFactory.getGenerator(any())).thenReturn(generator);
+        when(generator.generate(any())).thenAnswer(invocation -> {
+            GenerationContext context = invocation.getArgument(0);
+            return IntStream.range(0, context.getQuantity())
+                    .mapToObj(i -> new Task(i + " + 1 = ", String.valueOf(i + 1)))
+                    .toList();
+        });
+    }
+
+    @Test
+    @DisplayName("refill: заполняет буфер каждой конфигурации до глубины, poll отдаёт готовый лист с сидом")
+    void refill_fillsBuffersUpToDepth() {
+        TaskPool pool = pool(2, 10_000, 10, 20);
+
+        pool.refill();
+
+        assertThat(pool.pooledTasks()).isEqualTo(OperationType.values().length * 2 * (10 + 20));
+        Optional<TaskPool.Batch> batch = pool.poll(OperationType.COMPARISON, 20);
+        assertThat(batch).hasValueSatisfying(b -> assertThat(b.tasks()).hasSize(20));
+        assertThat(pool.pooledTasks()).isEqualTo(OperationType.values().length * 2 * (10 + 20) - 20);
+        assertThat(requests(OperationType.COMPARISON, "hit")).isEqualTo(1);
+        assertThat(scheduled).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("refill: не превышает общий лимит заданий в пуле")
+    void refill_respectsMemoryCap() {
+        TaskPool pool = pool(4, 100, 30);
+
+        pool.refill();
+
+        assertThat(pool.pooledTasks()).isLessThanOrEqualTo(100).isEqualTo(90);
+    }
+
+    @Test
+    @DisplayName("poll: пустой буфер считается в метрике empty и запускает пополнение")
+    void poll_countsEmptyBuffer() {
+        TaskPool pool = pool(2, 10_000, 10);
+
+        assertThat(pool.poll(OperationType.ADDITION_10, 10)).isEmpty();
+
+        assertThat(requests(OperationType.ADDITION_10, "empty")).isEqualTo(1);
+        assertThat(scheduled).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("poll с условием: неподошедший лист остаётся в пуле для других и считается в метрике rejected")
+    void poll_returnsRejectedBatchToBuffer() {
+        TaskPool pool = pool(1, 10_000, 10);
+        pool.refill();
+
+        assertThat(pool.poll(OperationType.ADDITION_10, 10, batch -> false)).isEmpty();
+
+        assertThat(requests(OperationType.ADDITION_10, "rejected")).isEqualTo(1);
+        assertThat(pool.pooledTasks()).isEqualTo(OperationType.values().length * 10);
+        assertThat(pool.poll(OperationType.ADDITION_10, 10, batch -> true))
+                .hasValueSatisfying(b -> assertThat(b.tasks()).hasSize(10));
+        assertThat(requests(OperationType.ADDITION_10, "hit")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("poll: конфигурации вне списка количеств не пулятся и не учитываются")
+    void poll_ignoresUnpooledQuantity() {
+        TaskPool pool = pool(2, 10_000, 10);
+        pool.refill();
+
+        assertThat(pool.poll(OperationType.ADDITION_10, 15)).isEmpty();
+
+        assertThat(requests(OperationType.ADDITION_10, "empty")).isZero();
+    }
+
+    @Test
+    @DisplayName("при выключенном пуле ничего не генерирует")
+    void disabledPool_generatesNothing() {
+        TaskPool pool = new TaskPool(generatorFactory, registry, false, 2, 10_000, new int[]{10}, scheduled::add);
+
+        pool.refill();
+        pool.requestRefill();
+
+        assertThat(pool.poll(OperationType.ADDITION_10, 10)).isEmpty();
+        assertThat(scheduled).isEmpty();
+        verifyNoInteractions(generator);
+    }
+
+    private TaskPool pool(int depth, int maxTasks, int... quantities) {
+        return new TaskPool(generatorFactory, registry, true, depth, maxTasks, quantities, scheduled::add);
+    }
+
+    private double requests(OperationType operationType, String result) {
+        return registry.get("schoolbot.generator.pool.requests")
+                .tag("operation", operationType.name())
+                .tag("result", result)
+                .counter()
+                .count();
+    }
+}
@@ -0,0 +1,141 @@
+package com.kuzmich.schoolbot.handler;
+
+import com.kuzmich.schoolbot.context.UserContext;
+import com.kuzmich.schoolbot.core.service.MessageService;
+import com.kuzmich.schoolbot.core.service.UserContextService;
+import com.kuzmich.schoolbot.core.service.UserStateService;
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.generator.service.PdfGenerationService;
+import com.kuzmich.schoolbot.i18n.GeneratorMessageKeys;
+import com.kuzmich.schoolbot.state.UserState;
+import com.kuzmich.schoolbot.testutil.UpdateFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit-тесты {@link CustomQuantityHandler}: ввод своего количества текстом в состоянии AWAITING_CUSTOM_QUANTITY.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class CustomQuantityHandlerTest {
+
+    private static final Long CHAT_ID = 100L;
+    private static final Long USER_ID = 200L;
+    /** Заданий сложения до 10, которые генератор выдаёт при любом сиде (maxTasks). */
+    private static final int ADDITION_10_TASKS = 46;
+
+    @Mock
+    private MessageService messageService;
+    @Mock
+    private UserStateService userStateService;
+    @Mock
+    private UserContextService<UserContext> userContextService;
+    @Mock
+    private PdfGenerationService pdfGenerationService;
+    @Mock
+    private TelegramClient client;
+
+    private CustomQuantityHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        handler = new CustomQuantityHandler(messageService, userStateService, userContextService,
+                pdfGenerationService);
+    }
+
+    @Test
+    @DisplayName("canHandle: true только для текста в состоянии AWAITING_CUSTOM_QUANTITY, команды не перехватываются")
+    void canHandle_onlyWhileAwaitingCustomQuantity() {
+        when(userStateService.getState(USER_ID)).thenReturn(UserState.AWAITING_CUSTOM_QUANTITY, UserState.AWAITING_QUANTITY);
+
+        assertThat(handler.canHandle(textUpdate("120", USER_ID))).isTrue();
+        assertThat(handler.canHandle(textUpdate("120", USER_ID))).isFalse();
+        assertThat(handler.canHandle(textUpdate("/start", null))).isFalse();
+    }
+
+    @Test
+    @DisplayName("handle: число в диапазоне сохраняется в контекст, пользователь переходит к подтверждению")
+    void handle_validQuantity_showsConfirmation() {
+        UserContext ctx = new UserContext(USER_ID);
+        ctx.setOperationType(OperationType.ADDITION_10.name());
+        when(userContextService.getOrCreate(USER_ID)).thenReturn(ctx);
+        when(pdfGenerationService.maxSheetQuantity(OperationType.ADDITION_10)).thenReturn(ADDITION_10_TASKS);
+        when(messageService.getText(anyString())).thenReturn("label");
+
+        handler.handle(client, UpdateFactory.messageUpdate(CHAT_ID, " 40 ", USER_ID));
+
+        assertThat(ctx.getQuantity()).isEqualTo(40);
+        verify(userContextService).save(ctx);
+        verify(userStateService).setState(USER_ID, UserState.AWAITING_CONFIRMATION);
+        verify(messageService).sendFromKey(eq(client), eq(CHAT_ID), eq(GeneratorMessageKeys.CONFIRM_TITLE),
+                any(InlineKeyboardMarkup.class), eq("label"));
+    }
+
+    @Test
+    @DisplayName("handle: не число или вне диапазона — подсказка, состояние и контекст не меняются")
+    void handle_invalidQuantity_repeatsPrompt() {
+        UserContext ctx = new UserContext(USER_ID);
+        when(userContextService.getOrCreate(USER_ID)).thenReturn(ctx);
+        when(pdfGenerationService.maxSheetQuantity(null)).thenReturn(PdfGenerationService.MAX_SHEET_QUANTITY);
+
+        handler.handle(client, UpdateFactory.messageUpdate(CHAT_ID, "много", USER_ID));
+        handler.handle(client, UpdateFactory.messageUpdate(CHAT_ID,
+                String.valueOf(PdfGenerationService.MAX_SHEET_QUANTITY + 1), USER_ID));
+
+        verify(messageService, times(2)).sendFromKey(client, CHAT_ID,
+                GeneratorMessageKeys.QUANTITY_CUSTOM_INVALID, PdfGenerationService.MAX_SHEET_QUANTITY);
+        verify(userStateService, never()).setState(any(), any());
+        verify(userContextService, never()).save(any());
+        assertThat(ctx.getQuantity()).isNull();
+    }
+
+    @Test
+    @DisplayName("handle: больше, чем операция гарантированно собирает, — подсказка с пределом операции")
+    void handle_quantityAboveOperationDomain_repeatsPromptWithOperationLimit() {
+        UserContext ctx = new UserContext(USER_ID);
+        ctx.setOperationType(OperationType.ADDITION_10.name());
+        when(userContextService.getOrCreate(USER_ID)).thenReturn(ctx);
+        when(pdfGenerationService.maxSheetQuantity(OperationType.ADDITION_10)).thenReturn(ADDITION_10_TASKS);
+
+        handler.handle(client, UpdateFactory.messageUpdate(CHAT_ID, "200", USER_ID));
+
+        verify(messageService).sendFromKey(client, CHAT_ID, GeneratorMessageKeys.QUANTITY_CUSTOM_INVALID,
+                ADDITION_10_TASKS);
+        verify(userStateService, never()).setState(any(), any());
+        verify(userContextService, never()).save(any());
+    }
+
+    /** Сообщение только с текстом и отправителем: canHandle не читает chatId. */
+    private static Update textUpdate(String text, Long userId) {
+        Update update = org.mockito.Mockito.mock(Update.class);
+        Message message = org.mockito.Mockito.mock(Message.class);
+        when(update.getMessage()).thenReturn(message);
+        when(message.getText()).thenReturn(text);
+        if (userId != null) {
+            User from = org.mockito.Mockito.mock(User.class);
+            when(message.getFrom()).thenReturn(from);
+            when(from.getId()).thenReturn(userId);
+        }
+        return update;
+    }
+}
@@ -5,7 +5,12 @@ import com.kuzmich.schoolbot.core.service.MessageService;
 import com.kuzmich.schoolbot.core.service.UserContextService;
 import com.kuzmich.schoolbot.core.service.UserStateService;
 import com.kuzmich.schoolbot.context.UserContext;
+import com.kuzmich.schoolbot.domain.SchoolLevel;
+import com.kuzmich.schoolbot.domain.Subject;
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.generator.pdf.RenderedPdf;
 import com.kuzmich.schoolbot.generator.service.PdfGenerationService;
+import com.kuzmich.schoolbot.generator.service.PdfRenderBusyException;
 import com.kuzmich.schoolbot.i18n.GeneratorMessageKeys;
 import com.kuzmich.schoolbot.state.UserState;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,12 +21,23 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.generics.TelegramClient;
 
+import java.nio.file.Path;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -101,4 +117,204 @@ class GeneratorCallbackHandlerTest {
         verify(userStateService).setState(USER_ID, UserState.AWAITING_MODE);
         verify(messageService).sendFromKey(eq(client), eq(CHAT_ID), eq(StartMessageKeys.START_MESSAGE), any(InlineKeyboardMarkup.class));
     }
+
+    @Test
+    @DisplayName("canHandle: true для кодированной кнопки wizard")
+    void canHandle_returnsTrueForEncodedWizardCallback() {
+        var update = org.mockito.Mockito.mock(org.telegram.telegrambots.meta.api.objects.Update.class);
+        var callback = org.mockito.Mockito.mock(org.telegram.telegrambots.meta.api.objects.CallbackQuery.class);
+        org.mockito.Mockito.when(update.getCallbackQuery()).thenReturn(callback);
+        org.mockito.Mockito.when(callback.getData())
+                .thenReturn(WizardCallbackCodec.encode(WizardAction.SUBJECT, WizardSelection.generator()));
+        assertThat(handler.canHandle(update)).isTrue();
+    }
+
+    @Test
+    @DisplayName("handle кодированный шаг wizard: не обращается к контексту и состоянию, показывает выбор темы")
+    void handle_encodedStep_doesNotTouchContextOrState() {
+        WizardSelection selection = WizardSelection.generator()
+                .withSchoolLevel(SchoolLevel.ELEMENTARY)
+                .withSubject(Subject.MATH);
+        var update = com.kuzmich.schoolbot.testutil.UpdateFactory.callbackUpdate(CHAT_ID, USER_ID,
+                WizardCallbackCodec.encode(WizardAction.SUBJECT, selection), QUERY_ID);
+        when(messageService.getText(anyString())).thenReturn("label");
+
+        handler.handle(client, update);
+
+        verifyNoInteractions(userContextService, userStateService);
+        verify(messageService).sendFromKey(eq(client), eq(CHAT_ID), eq(GeneratorMessageKeys.TOPIC_TITLE), any(InlineKeyboardMarkup.class));
+    }
+
+    @Test
+    @DisplayName("handle кодированное подтверждение: сохраняет выбор в контекст один раз и генерирует PDF")
+    void handle_encodedConfirm_savesContextOnceAndGeneratesPdf() throws Exception {
+        WizardSelection selection = WizardSelection.generator()
+                .withSchoolLevel(SchoolLevel.ELEMENTARY)
+                .withSubject(Subject.MATH)
+                .withTopic(WizardSelection.TOPIC_ARITHMETIC)
+                .withOperationType(OperationType.ADDITION_10)
+                .withQuantity(30);
+        var update = com.kuzmich.schoolbot.testutil.UpdateFactory.callbackUpdate(CHAT_ID, USER_ID,
+                WizardCallbackCodec.encode(WizardAction.CONFIRM, selection), QUERY_ID);
+        UserContext ctx = new UserContext(USER_ID);
+        when(userContextService.getOrCreate(USER_ID)).thenReturn(ctx);
+        when(messageService.getText(anyString())).thenReturn("label");
+        RenderedPdf pdf = renderedPdf();
+        when(pdfGenerationService.renderArithmeticPdf(eq(USER_ID), eq(OperationType.ADDITION_10), eq(30), anyString(),
+                isNull(), eq(false)))
+                .thenReturn(pdf);
+
+        handler.handle(client, update);
+
+        verify(client).execute(argThat((SendDocument send) -> send.getDocument().getNewMediaFile() != null
+                && send.getDocument().getNewMediaStream() == null));
+        verify(pdf).close();
+        verify(userContextService).save(ctx);
+        assertThat(ctx.getOperationType()).isEqualTo(OperationType.ADDITION_10.name());
+        assertThat(ctx.getQuantity()).isEqualTo(30);
+        verify(userStateService).setState(USER_ID, UserState.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("handle кодированное подтверждение с ответами: генерирует PDF с ключом ответов")
+    void handle_encodedConfirmWithAnswers_generatesAnswerKey() throws Exception {
+        WizardSelection selection = WizardSelection.generator()
+                .withSchoolLevel(SchoolLevel.ELEMENTARY)
+                .withSubject(Subject.MATH)
+                .withTopic(WizardSelection.TOPIC_ARITHMETIC)
+                .withOperationType(OperationType.ADDITION_10)
+                .withQuantity(120);
+        var update = com.kuzmich.schoolbot.testutil.UpdateFactory.callbackUpdate(CHAT_ID, USER_ID,
+                WizardCallbackCodec.encode(WizardAction.CONFIRM_WITH_ANSWERS, selection), QUERY_ID);
+        when(userContextService.getOrCreate(USER_ID)).thenReturn(new UserContext(USER_ID));
+        when(messageService.getText(anyString())).thenReturn("label");
+        RenderedPdf pdf = renderedPdf();
+        when(pdfGenerationService.renderArithmeticPdf(eq(USER_ID), eq(OperationType.ADDITION_10), eq(120), anyString(),
+                isNull(), eq(true)))
+                .thenReturn(pdf);
+
+        handler.handle(client, update);
+
+        verify(userStateService).setState(USER_ID, UserState.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("handle подтверждение листа, уже загруженного в Telegram: отправка по file_id без загрузки")
+    void handle_encodedConfirm_sendsKnownFileIdWithoutUpload() throws Exception {
+        WizardSelection selection = WizardSelection.generator()
+                .withTopic(WizardSelection.TOPIC_ARITHMETIC)
+                .withOperationType(OperationType.ADDITION_10)
+                .withQuantity(20);
+        var update = com.kuzmich.schoolbot.testutil.UpdateFactory.callbackUpdate(CHAT_ID, USER_ID,
+                WizardCallbackCodec.encode(WizardAction.CONFIRM, selection), QUERY_ID);
+        when(userContextService.getOrCreate(USER_ID)).thenReturn(new UserContext(USER_ID));
+        when(messageService.getText(anyString())).thenReturn("label");
+        RenderedPdf pdf = mock(RenderedPdf.class);
+        when(pdf.telegramFileId()).thenReturn("cached-file-id");
+        when(pdfGenerationService.renderArithmeticPdf(eq(USER_ID), eq(OperationType.ADDITION_10), eq(20), anyString(),
+                isNull(), eq(false)))
+                .thenReturn(pdf);
+
+        handler.handle(client, update);
+
+        verify(client).execute(argThat((SendDocument send) -> "cached-file-id".equals(send.getDocument().getAttachName())));
+        verify(pdf, never()).openStream();
+        verify(userStateService).setState(USER_ID, UserState.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("handle «домашнее задание дня»: лист дня берётся через общий сид и отправляется из файла")
+    void handle_encodedHomework_rendersHomeworkOfTheDay() throws Exception {
+        WizardSelection selection = WizardSelection.generator()
+                .withTopic(WizardSelection.TOPIC_ARITHMETIC)
+                .withOperationType(OperationType.ADDITION_10)
+                .withQuantity(20);
+        var update = com.kuzmich.schoolbot.testutil.UpdateFactory.callbackUpdate(CHAT_ID, USER_ID,
+                WizardCallbackCodec.encode(WizardAction.CONFIRM_HOMEWORK, selection), QUERY_ID);
+        when(userContextService.getOrCreate(USER_ID)).thenReturn(new UserContext(USER_ID));
+        when(messageService.getText(anyString())).thenReturn("label");
+        RenderedPdf pdf = renderedPdf();
+        when(pdfGenerationService.renderHomeworkOfTheDay(eq(USER_ID), eq(OperationType.ADDITION_10), eq(20),
+                anyString()))
+                .thenReturn(pdf);
+
+        handler.handle(client, update);
+
+        verify(client).execute(argThat((SendDocument send) -> send.getDocument().getNewMediaFile() != null));
+        verify(pdf).close();
+        verify(pdfGenerationService, never()).renderArithmeticPdf(any(), any(), anyInt(), any(), any(), anyBoolean());
+        verify(userStateService).setState(USER_ID, UserState.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("handle кодированная кнопка «50» для сложения до 10: подтверждение несёт предел операции, а не 50")
+    void handle_encodedPresetAboveOperationLimit_isCappedAtMaxSheetQuantity() {
+        WizardSelection selection = WizardSelection.generator()
+                .withTopic(WizardSelection.TOPIC_ARITHMETIC)
+                .withOperationType(OperationType.ADDITION_10)
+                .withQuantity(50);
+        var update = com.kuzmich.schoolbot.testutil.UpdateFactory.callbackUpdate(CHAT_ID, USER_ID,
+                WizardCallbackCodec.encode(WizardAction.QUANTITY, selection), QUERY_ID);
+        when(messageService.getText(anyString())).thenReturn("label");
+        when(pdfGenerationService.maxSheetQuantity(OperationType.ADDITION_10)).thenReturn(46);
+
+        handler.handle(client, update);
+
+        verify(messageService).sendFromKey(eq(client), eq(CHAT_ID), eq(GeneratorMessageKeys.CONFIRM_TITLE),
+                argThat((InlineKeyboardMarkup keyboard) -> WizardCallbackCodec
+                        .decode(keyboard.getKeyboard().get(0).get(0).getCallbackData())
+                        .map(decoded -> Integer.valueOf(46).equals(decoded.selection().quantity()))
+                        .orElse(false)),
+                eq("label"));
+    }
+
+    @Test
+    @DisplayName("handle кодированное «Своё количество»: сохраняет выбор, ждёт ввод числа и показывает подсказку с пределом операции")
+    void handle_encodedCustomQuantity_awaitsTextInput() {
+        WizardSelection selection = WizardSelection.generator()
+                .withSchoolLevel(SchoolLevel.ELEMENTARY)
+                .withSubject(Subject.MATH)
+                .withTopic(WizardSelection.TOPIC_ARITHMETIC)
+                .withOperationType(OperationType.SUBTRACTION_10);
+        var update = com.kuzmich.schoolbot.testutil.UpdateFactory.callbackUpdate(CHAT_ID, USER_ID,
+                WizardCallbackCodec.encode(WizardAction.CUSTOM_QUANTITY, selection), QUERY_ID);
+        UserContext ctx = new UserContext(USER_ID);
+        when(userContextService.getOrCreate(USER_ID)).thenReturn(ctx);
+        when(pdfGenerationService.maxSheetQuantity(OperationType.SUBTRACTION_10)).thenReturn(66);
+
+        handler.handle(client, update);
+
+        verify(userContextService).save(ctx);
+        assertThat(ctx.getOperationType()).isEqualTo(OperationType.SUBTRACTION_10.name());
+        verify(userStateService).setState(USER_ID, UserState.AWAITING_CUSTOM_QUANTITY);
+        verify(messageService).sendFromKey(client, CHAT_ID, GeneratorMessageKeys.QUANTITY_CUSTOM_PROMPT, 66);
+    }
+
+    @Test
+    @DisplayName("handle подтверждение при исчерпанном бюджете отрисовки: «попробуйте позже», подтверждение остаётся активным")
+    void handle_encodedConfirm_whenRenderBusy_asksToRetry() {
+        WizardSelection selection = WizardSelection.generator()
+                .withTopic(WizardSelection.TOPIC_ARITHMETIC)
+                .withOperationType(OperationType.ADDITION_10)
+                .withQuantity(20);
+        var update = com.kuzmich.schoolbot.testutil.UpdateFactory.callbackUpdate(CHAT_ID, USER_ID,
+                WizardCallbackCodec.encode(WizardAction.CONFIRM, selection), QUERY_ID);
+        when(userContextService.getOrCreate(USER_ID)).thenReturn(new UserContext(USER_ID));
+        when(messageService.getText(anyString())).thenReturn("label");
+        when(pdfGenerationService.renderArithmeticPdf(eq(USER_ID), eq(OperationType.ADDITION_10), eq(20), anyString(),
+                isNull(), eq(false)))
+                .thenThrow(new PdfRenderBusyException("busy"));
+
+        handler.handle(client, update);
+
+        verify(messageService).sendFromKey(client, CHAT_ID, GeneratorMessageKeys.PDF_BUSY);
+        verify(userStateService).setState(USER_ID, UserState.AWAITING_CONFIRMATION);
+    }
+
+    /** Документ во временном файле: обработчик загружает его из файла, без потока. */
+    private static RenderedPdf renderedPdf() {
+        RenderedPdf pdf = mock(RenderedPdf.class);
+        when(pdf.file()).thenReturn(Path.of("sheet.pdf"));
+        return pdf;
+    }
 }
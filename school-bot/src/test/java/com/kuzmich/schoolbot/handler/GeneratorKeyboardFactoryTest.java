@@ -1,5 +1,6 @@
 package com.kuzmich.schoolbot.handler;
 
+import com.kuzmich.schoolbot.generator.OperationType;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
@@ -68,4 +69,54 @@ class GeneratorKeyboardFactoryTest {
         assertThat(markup.getKeyboard().get(0)).hasSize(1);
         assertThat(markup.getKeyboard().get(0).get(0).getCallbackData()).isEqualTo(CallbackData.MENU);
     }
+
+    @Test
+    @DisplayName("quantitySelectionKeyboard со своим количеством: строка кнопки перед «Назад» и «Меню»")
+    void quantitySelectionKeyboard_withCustomQuantity_addsRowBeforeNavigation() {
+        WizardSelection selection = WizardSelection.generator().withOperationType(OperationType.ADDITION_10);
+
+        InlineKeyboardMarkup markup = GeneratorKeyboardFactory.quantitySelectionKeyboard(
+                "10", "20", "30", "50", "Своё", "Назад", "Меню", selection);
+
+        assertThat(markup.getKeyboard()).hasSize(4);
+        var custom = WizardCallbackCodec.decode(markup.getKeyboard().get(2).get(0).getCallbackData()).orElseThrow();
+        assertThat(custom.action()).isEqualTo(WizardAction.CUSTOM_QUANTITY);
+        assertThat(custom.selection()).isEqualTo(selection);
+        assertThat(markup.getKeyboard().get(3).get(1).getCallbackData()).isEqualTo(CallbackData.MENU);
+    }
+
+    @Test
+    @DisplayName("confirmationKeyboard с ответами: вторая строка — генерация с ключом ответов")
+    void confirmationKeyboard_withAnswers_addsAnswerKeyButton() {
+        WizardSelection selection = WizardSelection.generator()
+                .withOperationType(OperationType.ADDITION_10)
+                .withQuantity(120);
+
+        InlineKeyboardMarkup markup = GeneratorKeyboardFactory.confirmationKeyboard(
+                "PDF", "PDF с ответами", "Назад", "Меню", selection);
+
+        assertThat(markup.getKeyboard()).hasSize(3);
+        assertThat(WizardCallbackCodec.decode(markup.getKeyboard().get(0).get(0).getCallbackData()).orElseThrow().action())
+                .isEqualTo(WizardAction.CONFIRM);
+        var withAnswers = WizardCallbackCodec.decode(markup.getKeyboard().get(1).get(0).getCallbackData()).orElseThrow();
+        assertThat(withAnswers.action()).isEqualTo(WizardAction.CONFIRM_WITH_ANSWERS);
+        assertThat(withAnswers.selection().quantity()).isEqualTo(120);
+    }
+
+    @Test
+    @DisplayName("confirmationKeyboard с домашним заданием: третья строка — «домашнее задание дня» с тем же выбором")
+    void confirmationKeyboard_withHomework_addsHomeworkButton() {
+        WizardSelection selection = WizardSelection.generator()
+                .withOperationType(OperationType.ADDITION_10)
+                .withQuantity(20);
+
+        InlineKeyboardMarkup markup = GeneratorKeyboardFactory.confirmationKeyboard(
+                "PDF", "PDF с ответами", "Домашнее задание", "Назад", "Меню", selection);
+
+        assertThat(markup.getKeyboard()).hasSize(4);
+        var homework = WizardCallbackCodec.decode(markup.getKeyboard().get(2).get(0).getCallbackData()).orElseThrow();
+        assertThat(homework.action()).isEqualTo(WizardAction.CONFIRM_HOMEWORK);
+        assertThat(homework.selection()).isEqualTo(selection);
+        assertThat(markup.getKeyboard().get(3).get(1).getCallbackData()).isEqualTo(CallbackData.MENU);
+    }
 }
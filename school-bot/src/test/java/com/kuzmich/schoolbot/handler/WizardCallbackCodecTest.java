@@ -0,0 +1,75 @@
+package com.kuzmich.schoolbot.handler;
+
+import com.kuzmich.schoolbot.domain.SchoolLevel;
+import com.kuzmich.schoolbot.domain.Subject;
+import com.kuzmich.schoolbot.generator.OperationType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit-тесты {@link WizardCallbackCodec}: кодирование выбора wizard в callback_data и обратно.
+ */
+class WizardCallbackCodecTest {
+
+    private static final WizardSelection FULL_SELECTION = WizardSelection.generator()
+            .withSchoolLevel(SchoolLevel.ELEMENTARY)
+            .withSubject(Subject.MATH)
+            .withTopic(WizardSelection.TOPIC_NUMBERS)
+            .withOperationType(OperationType.NUMBER_SEQUENCE)
+            .withQuantity(50);
+
+    @Test
+    @DisplayName("encode/decode: полный выбор восстанавливается без потерь")
+    void roundTrip_restoresFullSelection() {
+        String data = WizardCallbackCodec.encode(WizardAction.CONFIRM, FULL_SELECTION);
+
+        var decoded = WizardCallbackCodec.decode(data);
+
+        assertThat(decoded).isPresent();
+        assertThat(decoded.get().action()).isEqualTo(WizardAction.CONFIRM);
+        assertThat(decoded.get().selection()).isEqualTo(FULL_SELECTION);
+    }
+
+    @Test
+    @DisplayName("encode/decode: невыбранные поля остаются null")
+    void roundTrip_keepsUnsetFieldsNull() {
+        var decoded = WizardCallbackCodec.decode(
+                WizardCallbackCodec.encode(WizardAction.BACK, WizardSelection.generator()));
+
+        assertThat(decoded).isPresent();
+        assertThat(decoded.get().selection()).isEqualTo(WizardSelection.generator());
+    }
+
+    @Test
+    @DisplayName("encode: укладывается в лимит Telegram 64 байта")
+    void encode_fitsTelegramLimit() {
+        String data = WizardCallbackCodec.encode(WizardAction.CONFIRM, FULL_SELECTION);
+
+        assertThat(data).startsWith(WizardCallbackCodec.PREFIX);
+        assertThat(data.getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(64);
+    }
+
+    @Test
+    @DisplayName("decode: константы CallbackData и повреждённые данные не декодируются")
+    void decode_rejectsForeignAndCorruptedData() {
+        assertThat(WizardCallbackCodec.decode(CallbackData.MODE_GENERATOR)).isEmpty();
+        assertThat(WizardCallbackCodec.decode(WizardCallbackCodec.PREFIX + "***")).isEmpty();
+        assertThat(WizardCallbackCodec.decode(WizardCallbackCodec.PREFIX + "AQ")).isEmpty();
+        assertThat(WizardCallbackCodec.decode(null)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("decode: другая версия формата не декодируется")
+    void decode_rejectsOtherVersion() {
+        byte[] payload = new byte[WizardCallbackCodec.PAYLOAD_LENGTH];
+        payload[0] = WizardCallbackCodec.VERSION + 1;
+        String data = WizardCallbackCodec.PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(payload);
+
+        assertThat(WizardCallbackCodec.decode(data)).isEmpty();
+    }
+}
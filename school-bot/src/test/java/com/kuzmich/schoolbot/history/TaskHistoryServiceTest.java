@@ -0,0 +1,98 @@
+package com.kuzmich.schoolbot.history;
+
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.generator.RecentTaskFilter;
+import com.kuzmich.schoolbot.generator.Task;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit-тесты {@link TaskHistoryService}: загрузка фильтра недавних заданий и его обновление.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TaskHistoryService")
+class TaskHistoryServiceTest {
+
+    private static final Long USER_ID = 7L;
+
+    @Mock
+    private TaskHistoryRepository repository;
+
+    @Test
+    @DisplayName("load: без сохранённой истории возвращает пустой фильтр")
+    void load_returnsEmptyFilterForNewUser() {
+        when(repository.findByUserIdAndOperationType(USER_ID, "ADDITION_10")).thenReturn(Optional.empty());
+
+        RecentTaskFilter filter = new TaskHistoryService(repository, true).load(USER_ID, OperationType.ADDITION_10);
+
+        assertThat(filter).isNotNull();
+        assertThat(filter.isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("load: восстанавливает сохранённый фильтр")
+    void load_restoresStoredFilter() {
+        RecentTaskFilter stored = RecentTaskFilter.empty();
+        stored.add("3 + 4 = ");
+        TaskHistoryEntity entity = new TaskHistoryEntity();
+        entity.setFingerprint(stored.toBytes());
+        when(repository.findByUserIdAndOperationType(USER_ID, "ADDITION_10")).thenReturn(Optional.of(entity));
+
+        RecentTaskFilter filter = new TaskHistoryService(repository, true).load(USER_ID, OperationType.ADDITION_10);
+
+        assertThat(filter.mightContain("3 + 4 = ")).isTrue();
+    }
+
+    @Test
+    @DisplayName("record: дописывает задания листа и сохраняет фильтр одним upsert")
+    void record_addsTasksAndUpserts() {
+        RecentTaskFilter filter = RecentTaskFilter.empty();
+        ArgumentCaptor<byte[]> bytes = ArgumentCaptor.forClass(byte[].class);
+
+        new TaskHistoryService(repository, true).record(USER_ID, OperationType.SUBTRACTION_10, filter,
+                List.of(new Task("9 - 2 = ", "7"), new Task("8 - 5 = ", "3")));
+
+        verify(repository).upsert(eq(USER_ID), eq("SUBTRACTION_10"), bytes.capture());
+        RecentTaskFilter saved = RecentTaskFilter.fromBytes(bytes.getValue());
+        assertThat(saved.mightContain("9 - 2 = ")).isTrue();
+        assertThat(saved.mightContain("8 - 5 = ")).isTrue();
+    }
+
+    @Test
+    @DisplayName("при выключенной истории не читает и не пишет БД")
+    void disabled_skipsRepository() {
+        TaskHistoryService service = new TaskHistoryService(repository, false);
+
+        RecentTaskFilter filter = service.load(USER_ID, OperationType.ADDITION_10);
+        service.record(USER_ID, OperationType.ADDITION_10, filter, List.of(new Task("1 + 1 = ", "2")));
+
+        assertThat(filter).isNull();
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("record: пустой лист не сохраняется")
+    void record_skipsEmptySheet() {
+        new TaskHistoryService(repository, true)
+                .record(USER_ID, OperationType.ADDITION_10, RecentTaskFilter.empty(), List.of());
+
+        verify(repository, never()).upsert(anyLong(), anyString(), any());
+    }
+}
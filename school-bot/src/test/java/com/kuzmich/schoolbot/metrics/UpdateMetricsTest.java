@@ -0,0 +1,69 @@
+package com.kuzmich.schoolbot.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit-тесты {@link UpdateMetrics}: длительность и число SQL-запросов на update.
+ */
+class UpdateMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private UpdateMetrics updateMetrics;
+    private StatementCountingInspector inspector;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        updateMetrics = new UpdateMetrics(registry);
+        inspector = new StatementCountingInspector();
+    }
+
+    @Test
+    @DisplayName("record: считает SQL-запросы, выполненные при обработке callback")
+    void record_countsStatementsPerUpdate() {
+        Update update = mock(Update.class);
+        when(update.hasCallbackQuery()).thenReturn(true);
+
+        updateMetrics.record(update, () -> {
+            inspector.inspect("select 1");
+            inspector.inspect("update user_states set state = ?");
+        });
+
+        DistributionSummary statements = registry.get("schoolbot.update.statements").tag("type", "callback").summary();
+        assertThat(statements.count()).isEqualTo(1);
+        assertThat(statements.totalAmount()).isEqualTo(2.0);
+        assertThat(registry.get("schoolbot.update.duration").tag("type", "callback").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("record: запросы вне обработки update не учитываются")
+    void record_ignoresStatementsOutsideUpdate() {
+        inspector.inspect("select 1");
+
+        updateMetrics.record(new Update(), () -> { });
+
+        assertThat(registry.get("schoolbot.update.statements").tag("type", "other").summary().totalAmount()).isZero();
+    }
+
+    @Test
+    @DisplayName("record: метрики пишутся и при исключении в обработке")
+    void record_whenProcessingFails_stillRecords() {
+        assertThatThrownBy(() -> updateMetrics.record(new Update(), () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(registry.get("schoolbot.update.duration").tag("type", "other").timer().count()).isEqualTo(1);
+        assertThat(StatementCountingInspector.begin()).isTrue();
+        StatementCountingInspector.end();
+    }
+}
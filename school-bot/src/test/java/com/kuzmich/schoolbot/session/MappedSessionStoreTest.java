@@ -0,0 +1,127 @@
+package com.kuzmich.schoolbot.session;
+
+import com.kuzmich.schoolbot.domain.Mode;
+import com.kuzmich.schoolbot.generator.OperationType;
+import com.kuzmich.schoolbot.state.UserState;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit-тесты {@link MappedSessionStore}: запись/чтение, восстановление после переоткрытия файла, dirty-записи.
+ */
+class MappedSessionStoreTest {
+
+    private static final long USER_ID = 100L;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("put/get: сохраняет и возвращает все поля записи")
+    void putAndGet_roundTripsAllFields() throws IOException {
+        try (MappedSessionStore store = new MappedSessionStore(tempDir.resolve("sessions.bin"), 64)) {
+            store.put(sampleRecord());
+
+            SessionRecord read = store.get(USER_ID);
+
+            assertThat(read).isNotNull();
+            assertThat(read.getState()).isEqualTo(UserState.AWAITING_QUANTITY);
+            assertThat(read.getMode()).isEqualTo(Mode.GENERATOR);
+            assertThat(read.getTopic()).isEqualTo(SessionTopic.NUMBERS);
+            assertThat(read.getOperationType()).isEqualTo(OperationType.COMPARISON);
+            assertThat(read.getQuantity()).isEqualTo(30);
+            assertThat(read.getSchoolLevel()).isNull();
+            assertThat(read.isStateDirty()).isTrue();
+            assertThat(read.getLastActivity()).isEqualTo(123_456L);
+        }
+    }
+
+    @Test
+    @DisplayName("get: при отсутствии записи возвращает null")
+    void get_whenAbsent_returnsNull() throws IOException {
+        try (MappedSessionStore store = new MappedSessionStore(tempDir.resolve("sessions.bin"), 64)) {
+            assertThat(store.get(USER_ID)).isNull();
+        }
+    }
+
+    @Test
+    @DisplayName("после переоткрытия файла записи восстанавливаются")
+    void reopen_restoresRecords() throws IOException {
+        Path file = tempDir.resolve("sessions.bin");
+        try (MappedSessionStore store = new MappedSessionStore(file, 64)) {
+            store.put(sampleRecord());
+        }
+        try (MappedSessionStore store = new MappedSessionStore(file, 64)) {
+            assertThat(store.size()).isEqualTo(1);
+            assertThat(store.get(USER_ID).getOperationType()).isEqualTo(OperationType.COMPARISON);
+        }
+    }
+
+    @Test
+    @DisplayName("markClean: снимает dirty, только если запись не менялась после чтения")
+    void markClean_clearsDirtyOnlyForSameVersion() throws IOException {
+        try (MappedSessionStore store = new MappedSessionStore(tempDir.resolve("sessions.bin"), 64)) {
+            store.put(sampleRecord());
+            SessionRecord synced = store.findDirty(10).get(0);
+
+            SessionRecord changed = store.get(USER_ID);
+            changed.setQuantity(50);
+            store.put(changed);
+            store.markClean(synced);
+            assertThat(store.findDirty(10)).hasSize(1);
+
+            store.markClean(store.findDirty(10).get(0));
+            assertThat(store.findDirty(10)).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("remove: удаляет запись, повторная вставка работает")
+    void remove_deletesRecord() throws IOException {
+        try (MappedSessionStore store = new MappedSessionStore(tempDir.resolve("sessions.bin"), 64)) {
+            store.put(sampleRecord());
+            store.remove(USER_ID);
+
+            assertThat(store.get(USER_ID)).isNull();
+            assertThat(store.size()).isZero();
+
+            store.put(sampleRecord());
+            assertThat(store.get(USER_ID)).isNotNull();
+        }
+    }
+
+    @Test
+    @DisplayName("put: при заполнении хранилища возвращает false")
+    void put_whenFull_returnsFalse() throws IOException {
+        try (MappedSessionStore store = new MappedSessionStore(tempDir.resolve("sessions.bin"), 16)) {
+            int stored = 0;
+            for (long userId = 1; userId <= 32; userId++) {
+                if (store.put(new SessionRecord(userId))) {
+                    stored++;
+                }
+            }
+            assertThat(stored).isLessThan(32);
+            assertThat(store.size()).isEqualTo(stored);
+        }
+    }
+
+    private static SessionRecord sampleRecord() {
+        SessionRecord record = new SessionRecord(USER_ID);
+        record.setStateLoaded(true);
+        record.setStateDirty(true);
+        record.setState(UserState.AWAITING_QUANTITY);
+        record.setContextLoaded(true);
+        record.setMode(Mode.GENERATOR);
+        record.setTopic(SessionTopic.NUMBERS);
+        record.setOperationType(OperationType.COMPARISON);
+        record.setQuantity(30);
+        record.setLastActivity(123_456L);
+        return record;
+    }
+}
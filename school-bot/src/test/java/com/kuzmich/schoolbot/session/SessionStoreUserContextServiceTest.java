@@ -0,0 +1,110 @@
+package com.kuzmich.schoolbot.session;
+
+import com.kuzmich.schoolbot.context.ActivityTracker;
+import com.kuzmich.schoolbot.context.SchoolBotUserContextService;
+import com.kuzmich.schoolbot.context.UserContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit-тесты {@link SessionStoreUserContextService}: компактные контексты живут в хранилище,
+ * остальные идут в PostgreSQL и учитываются в метрике обхода.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class SessionStoreUserContextServiceTest {
+
+    private static final long USER_ID = 100L;
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private SchoolBotUserContextService delegate;
+
+    @Mock
+    private ActivityTracker activityTracker;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private MappedSessionStore store;
+    private SessionStoreUserContextService service;
+
+    @BeforeEach
+    void setUp() {
+        store = new MappedSessionStore(tempDir.resolve("sessions.bin"), 64);
+        service = new SessionStoreUserContextService(store, delegate, activityTracker, registry);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    @DisplayName("save: компактный контекст пишется в хранилище без обращения к PostgreSQL")
+    void save_compactContext_staysInStore() {
+        UserContext context = new UserContext(USER_ID);
+        context.setQuantity(20);
+
+        service.save(context);
+
+        verify(delegate, never()).save(any());
+        assertThat(store.get(USER_ID).isContextDirty()).isTrue();
+        assertThat(fallbackCount("write", "language")).isZero();
+    }
+
+    @Test
+    @DisplayName("save/get: контекст с language идёт в PostgreSQL, обход учитывается в метрике")
+    void contextWithLanguage_fallsBackToJpa_andIsMetered() {
+        UserContext context = new UserContext(USER_ID);
+        context.setLanguage("ru");
+        when(delegate.getOrCreate(USER_ID)).thenReturn(context);
+
+        service.save(context);
+        service.getOrCreate(USER_ID);
+
+        verify(delegate).save(context);
+        assertThat(store.get(USER_ID).isContextExternal()).isTrue();
+        assertThat(fallbackCount("write", "language")).isEqualTo(1.0);
+        assertThat(fallbackCount("read", "language")).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("getOrCreate: первая загрузка контекста с last_generation_params не считается обходом")
+    void firstLoad_isNotCountedAsFallback() {
+        UserContext context = new UserContext(USER_ID);
+        context.setLastGenerationParams("{\"quantity\":20}");
+        when(delegate.getOrCreate(USER_ID)).thenReturn(context);
+
+        service.getOrCreate(USER_ID);
+
+        assertThat(store.get(USER_ID).isContextExternal()).isTrue();
+        assertThat(fallbackCount("read", "last_generation_params")).isZero();
+    }
+
+    private double fallbackCount(String operation, String reason) {
+        return registry.get("schoolbot.session.context.fallback")
+                .tag("operation", operation)
+                .tag("reason", reason)
+                .counter()
+                .count();
+    }
+}
@@ -0,0 +1,81 @@
+package com.kuzmich.schoolbot.subscription.cache;
+
+import com.kuzmich.schoolbot.subscription.entity.FeatureConfigEntity;
+import com.kuzmich.schoolbot.subscription.entity.SubscriptionEntity;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit-тесты {@link ReferenceCacheEvictor}: вне транзакции кэш сбрасывается сразу.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class ReferenceCacheEvictorTest {
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private Cache entityCache;
+
+    @Mock
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private org.hibernate.Cache hibernateCache;
+
+    private ReferenceCacheEvictor evictor;
+
+    @BeforeEach
+    void setUp() {
+        evictor = new ReferenceCacheEvictor(entityManagerFactory);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(hibernateCache);
+    }
+
+    @Test
+    @DisplayName("evictFeatureConfig: сбрасывает сущность и регион запроса конфигов")
+    void evictFeatureConfig_evictsEntityAndQueryRegion() {
+        when(entityManagerFactory.getCache()).thenReturn(entityCache);
+
+        evictor.evictFeatureConfig(7L);
+
+        verify(entityCache).evict(FeatureConfigEntity.class, 7L);
+        verify(hibernateCache).evictQueryRegion(CacheRegions.FEATURE_CONFIGS_QUERY);
+    }
+
+    @Test
+    @DisplayName("evictSubscription: сбрасывает подписку и регион запроса подписок")
+    void evictSubscription_evictsEntityAndQueryRegion() {
+        when(entityManagerFactory.getCache()).thenReturn(entityCache);
+
+        evictor.evictSubscription(3L);
+
+        verify(entityCache).evict(SubscriptionEntity.class, 3L);
+        verify(hibernateCache).evictQueryRegion(CacheRegions.SUBSCRIPTIONS_QUERY);
+    }
+
+    @Test
+    @DisplayName("evictSubscription: без id сбрасывает только регион запроса")
+    void evictSubscription_whenIdNull_evictsOnlyQueryRegion() {
+        evictor.evictSubscription(null);
+
+        verify(entityManagerFactory, never()).getCache();
+        verify(entityCache, never()).evict(any(), any());
+        verify(hibernateCache).evictQueryRegion(CacheRegions.SUBSCRIPTIONS_QUERY);
+    }
+}
@@ -3,6 +3,7 @@ package com.kuzmich.schoolbot.subscription.service;
 import com.kuzmich.schoolbot.core.premium.FeatureConfig;
 import com.kuzmich.schoolbot.core.premium.FeatureConfigService;
 import com.kuzmich.schoolbot.core.premium.QuotaPeriod;
+import com.kuzmich.schoolbot.subscription.cache.ReferenceCacheEvictor;
 import com.kuzmich.schoolbot.subscription.entity.FeatureConfigEntity;
 import com.kuzmich.schoolbot.subscription.entity.FeatureType;
 import com.kuzmich.schoolbot.subscription.mapper.FeatureConfigMapper;
@@ -44,12 +45,15 @@ class FeatureConfigServiceImplTest {
     @Mock
     private FeatureConfigAuditService featureConfigAuditService;
 
+    @Mock
+    private ReferenceCacheEvictor cacheEvictor;
+
     private FeatureConfigServiceImpl featureConfigService;
 
     @BeforeEach
     void setUp() {
         featureConfigService = new FeatureConfigServiceImpl(
-                featureConfigRepository, featureConfigMapper, featureConfigAuditService);
+                featureConfigRepository, featureConfigMapper, featureConfigAuditService, cacheEvictor);
     }
 
     @Test
@@ -137,7 +141,7 @@ class FeatureConfigServiceImplTest {
     }
 
     @Test
-    @DisplayName("updateConfig: обновляет entity и пишет запись в аудит")
+    @DisplayName("updateConfig: обновляет entity, пишет запись в аудит и сбрасывает кэш конфига")
     void updateConfig_updatesEntityAndAudit() {
         FeatureConfigEntity entity = new FeatureConfigEntity();
         entity.setId(100L);
@@ -155,6 +159,7 @@ class FeatureConfigServiceImplTest {
 
         assertThat(entity.getQuotaLimit()).isEqualTo(10);
         verify(featureConfigAuditService).recordUpdate(0L, PDF_GENERATION, FREE, "{}", "{}");
+        verify(cacheEvictor).evictFeatureConfig(100L);
     }
 
     @Test
@@ -2,6 +2,7 @@ package com.kuzmich.schoolbot.subscription.service;
 
 import com.kuzmich.schoolbot.core.premium.SubscriptionService;
 import com.kuzmich.schoolbot.core.premium.SubscriptionTier;
+import com.kuzmich.schoolbot.subscription.cache.ReferenceCacheEvictor;
 import com.kuzmich.schoolbot.subscription.entity.SubscriptionEntity;
 import com.kuzmich.schoolbot.subscription.entity.SubscriptionStatus;
 import com.kuzmich.schoolbot.subscription.repository.SubscriptionRepository;
@@ -34,11 +35,14 @@ class SubscriptionServiceTest {
     @Mock
     private SubscriptionRepository subscriptionRepository;
 
+    @Mock
+    private ReferenceCacheEvictor cacheEvictor;
+
     private SubscriptionService subscriptionService;
 
     @BeforeEach
     void setUp() {
-        subscriptionService = new BotSubscriptionService(subscriptionRepository);
+        subscriptionService = new BotSubscriptionService(subscriptionRepository, cacheEvictor);
     }
 
     @Test
@@ -121,6 +125,7 @@ class SubscriptionServiceTest {
     void activateSubscription_savesEntity() {
         LocalDateTime start = LocalDateTime.now();
         LocalDateTime end = start.plusDays(30);
+        when(subscriptionRepository.save(org.mockito.ArgumentMatchers.any())).thenAnswer(inv -> inv.getArgument(0));
 
         subscriptionService.activateSubscription(USER_ID, SubscriptionTier.PREMIUM, start, end);
 
@@ -134,7 +139,7 @@ class SubscriptionServiceTest {
     }
 
     @Test
-    @DisplayName("activateSubscription: при наличии активной подписки обновляет её, а не создаёт вторую")
+    @DisplayName("activateSubscription: при наличии активной подписки обновляет её, а не создаёт вторую, и сбрасывает её кэш")
     void activateSubscription_whenActiveExists_updatesExisting() {
         LocalDateTime start = LocalDateTime.now();
         LocalDateTime end = start.plusDays(30);
@@ -156,6 +161,7 @@ class SubscriptionServiceTest {
                         && entity.getStartDate().equals(start)
                         && entity.getEndDate().equals(end)
         ));
+        verify(cacheEvictor).evictSubscription(1L);
     }
 
     @Test